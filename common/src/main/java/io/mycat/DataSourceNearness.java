@@ -11,5 +11,12 @@ public interface DataSourceNearness {
 
     public void setLoadBalanceStrategy(String loadBalanceStrategy);
 
+    /**
+     * @param maxReplicationLag 读请求允许的最大主从延迟(秒),小于0不限制
+     */
+    public void setMaxReplicationLag(long maxReplicationLag);
+
+    public long getMaxReplicationLag();
+
     public void clear();
 }
\ No newline at end of file
@@ -31,6 +31,8 @@ public class MySQLVariablesUtil {
             dataContext.setVariable(MycatDataContextEnum.CHARSET_SET_RESULT, value);
         } else if (target.contains("read_only")) {
             dataContext.setVariable(MycatDataContextEnum.IS_READ_ONLY, toInt(value));
+        } else if ("max_replication_lag".equalsIgnoreCase(target)) {
+            dataContext.setVariable(MycatDataContextEnum.MAX_REPLICATION_LAG, parseMaxReplicationLag(value));
         }
     }
 
@@ -48,6 +50,8 @@ public class MySQLVariablesUtil {
             return dataContext.getVariable(MycatDataContextEnum.CHARSET_SET_RESULT);
         } else if (target.contains("read_only")) {
             return dataContext.getVariable(MycatDataContextEnum.IS_READ_ONLY);
+        } else if ("max_replication_lag".equalsIgnoreCase(target)) {
+            return dataContext.getVariable(MycatDataContextEnum.MAX_REPLICATION_LAG);
         } else if (target.contains("current_user")) {
             return dataContext.getUser().getUserName();
         }
@@ -63,6 +67,25 @@ public class MySQLVariablesUtil {
         return null;
     }
 
+    /**
+     * max_replication_lag只接受default或者非负整数(秒),default表示不限制
+     */
+    public static long parseMaxReplicationLag(String value) {
+        if ("default".equalsIgnoreCase(value)) {
+            return -1;
+        }
+        long lag;
+        try {
+            lag = Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("max_replication_lag for " + value);
+        }
+        if (lag < 0) {
+            throw new IllegalArgumentException("max_replication_lag for " + value);
+        }
+        return lag;
+    }
+
     public static int toInt(Object s) {
         return toInt(Objects.toString(s));
     }
@@ -20,5 +20,6 @@ public enum MycatDataContextEnum {
     IS_READ_ONLY,
     IS_IN_TRANSCATION,
     USER_INFO,
+    MAX_REPLICATION_LAG,
     ;
 }
\ No newline at end of file
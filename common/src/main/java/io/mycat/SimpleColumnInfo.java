@@ -146,6 +146,24 @@ public class SimpleColumnInfo {
         return shardingKey;
     }
 
+    /**
+     * 是否是整数列,整数的范围条件可以逐个枚举取值
+     *
+     * @return
+     */
+    public boolean isIntegerType() {
+        switch (jdbcType) {
+            case BIT:
+            case TINYINT:
+            case SMALLINT:
+            case INTEGER:
+            case BIGINT:
+                return true;
+            default:
+                return false;
+        }
+    }
+
     public Type getType() {
         switch (jdbcType) {
             case BIT:
@@ -56,6 +56,17 @@ public interface TransactionSession extends Dumpable {
 
     String resolveFinalTargetName(String targetName, boolean master);
 
+    /**
+     * 读请求允许的最大主从延迟(秒),小于0不限制
+     */
+    default void setMaxReplicationLag(long maxReplicationLag) {
+
+    }
+
+    default long getMaxReplicationLag() {
+        return -1;
+    }
+
     /**
      * 模拟autocommit = 0 时候自动开启事务
      */
@@ -73,6 +84,7 @@ public interface TransactionSession extends Dumpable {
         closeStatementState().toCompletionStage().toCompletableFuture().get(1, TimeUnit.MINUTES);
         newTransactionSession.setTransactionIsolation(getTransactionIsolation());
         newTransactionSession.setAutocommit(isAutocommit());
+        newTransactionSession.setMaxReplicationLag(getMaxReplicationLag());
     }
 
     TransactionType transactionType();
@@ -0,0 +1,214 @@
+/**
+ * Copyright (C) <2021>  <chen junwen>
+ * <p>
+ * This program is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * <p>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU General Public License along with this program.  If
+ * not, see <http://www.gnu.org/licenses/>.
+ */
+package io.mycat.api.collector;
+
+import java.util.Arrays;
+
+/**
+ * 按列保存的一批行.
+ * 整数与布尔列保存在long[],浮点列保存在double[],null用位图标记,其他列保存原来的对象.
+ * 批次由生产者复用,onNext返回之后内容就会被清空,需要保留数据的消费者要用getRow复制
+ */
+public final class RowBatch implements MysqlPayloadObject {
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    private final ColumnType[] types;
+    private final int capacity;
+    private final long[][] longs;
+    private final double[][] doubles;
+    private final Object[][] objects;
+    private final long[][] nulls;
+    private int size;
+
+    public enum ColumnType {
+        BOOLEAN,
+        TINYINT,
+        SMALLINT,
+        INTEGER,
+        BIGINT,
+        FLOAT,
+        DOUBLE,
+        OBJECT;
+
+        public boolean isLong() {
+            return this.ordinal() <= BIGINT.ordinal();
+        }
+
+        public boolean isDouble() {
+            return this == FLOAT || this == DOUBLE;
+        }
+    }
+
+    public RowBatch(ColumnType[] types, int capacity) {
+        this.types = types;
+        this.capacity = capacity;
+        int columnCount = types.length;
+        this.longs = new long[columnCount][];
+        this.doubles = new double[columnCount][];
+        this.objects = new Object[columnCount][];
+        this.nulls = new long[columnCount][];
+        for (int i = 0; i < columnCount; i++) {
+            ColumnType type = types[i];
+            if (type.isLong()) {
+                longs[i] = new long[capacity];
+            } else if (type.isDouble()) {
+                doubles[i] = new double[capacity];
+            } else {
+                objects[i] = new Object[capacity];
+                continue;
+            }
+            nulls[i] = new long[(capacity + 63) >>> 6];
+        }
+    }
+
+    public ColumnType[] getColumnTypes() {
+        return types;
+    }
+
+    public ColumnType getColumnType(int column) {
+        return types[column];
+    }
+
+    public int getColumnCount() {
+        return types.length;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public boolean isFull() {
+        return size == capacity;
+    }
+
+    /**
+     * 清空之后复用,基本类型的值不用清理,下一批会覆盖
+     */
+    public void clear() {
+        for (int i = 0; i < types.length; i++) {
+            if (nulls[i] != null) {
+                Arrays.fill(nulls[i], 0);
+            } else {
+                Arrays.fill(objects[i], 0, size, null);
+            }
+        }
+        size = 0;
+    }
+
+    /**
+     * 追加一个空行,由调用者按列写入值
+     *
+     * @return 行下标
+     */
+    public int addRow() {
+        return size++;
+    }
+
+    public void addRow(Object[] row) {
+        int index = size++;
+        for (int i = 0; i < types.length; i++) {
+            Object value = row[i];
+            ColumnType type = types[i];
+            if (type == ColumnType.OBJECT) {
+                objects[i][index] = value;
+            } else if (value == null) {
+                setNull(nulls[i], index);
+            } else if (type.isDouble()) {
+                doubles[i][index] = ((Number) value).doubleValue();
+            } else if (value instanceof Boolean) {
+                longs[i][index] = ((Boolean) value) ? 1 : 0;
+            } else {
+                longs[i][index] = ((Number) value).longValue();
+            }
+        }
+    }
+
+    public long[] getLongs(int column) {
+        return longs[column];
+    }
+
+    public double[] getDoubles(int column) {
+        return doubles[column];
+    }
+
+    public Object[] getObjects(int column) {
+        return objects[column];
+    }
+
+    public long[] getNulls(int column) {
+        return nulls[column];
+    }
+
+    public static boolean isNull(long[] nulls, int row) {
+        return (nulls[row >>> 6] & (1L << row)) != 0;
+    }
+
+    public static void setNull(long[] nulls, int row) {
+        nulls[row >>> 6] |= (1L << row);
+    }
+
+    public boolean isNull(int column, int row) {
+        if (types[column] == ColumnType.OBJECT) {
+            return objects[column][row] == null;
+        }
+        return isNull(nulls[column], row);
+    }
+
+    /**
+     * 按列的类型装箱
+     */
+    public Object getObject(int column, int row) {
+        ColumnType type = types[column];
+        if (type == ColumnType.OBJECT) {
+            return objects[column][row];
+        }
+        if (isNull(nulls[column], row)) {
+            return null;
+        }
+        switch (type) {
+            case BOOLEAN:
+                return longs[column][row] != 0;
+            case TINYINT:
+                return (byte) longs[column][row];
+            case SMALLINT:
+                return (short) longs[column][row];
+            case INTEGER:
+                return (int) longs[column][row];
+            case BIGINT:
+                return longs[column][row];
+            case FLOAT:
+                return (float) doubles[column][row];
+            case DOUBLE:
+                return doubles[column][row];
+            default:
+                throw new IllegalStateException("Unexpected value: " + type);
+        }
+    }
+
+    /**
+     * 复制出一行,批次复用之后仍然有效
+     */
+    public Object[] getRow(int row) {
+        Object[] objects = new Object[types.length];
+        for (int i = 0; i < objects.length; i++) {
+            objects[i] = getObject(i, row);
+        }
+        return objects;
+    }
+}
@@ -26,6 +26,7 @@ enum Cmd {
     showNativeBackends("showNativeBackends"),
     showConnections("showConnections"),
     showSchedules("showSchedules"),
+    showXaStat("showXaStat"),
     ;
     private final String text;
 
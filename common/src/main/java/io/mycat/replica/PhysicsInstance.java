@@ -35,4 +35,11 @@ public interface PhysicsInstance {
     public void notifyChangeAlive(boolean alive);
 
     public void notifyChangeSelectRead(boolean readable);
+
+    /**
+     * @return 心跳测得的主从延迟(秒),未知为-1
+     */
+    public long getReplicationLag();
+
+    public void notifyChangeReplicationLag(long replicationLag);
 }
\ No newline at end of file
@@ -19,6 +19,7 @@ import io.mycat.DataNode;
 import io.mycat.RangeVariable;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
@@ -50,6 +51,25 @@ public abstract class CustomRuleFunction {
         return dataNodes.get(0);
     }
 
+    /**
+     * 等值快速路由用到的分片键,下标与calculateByKeys的参数对应
+     *
+     * @return 空表示不支持快速路由
+     */
+    public List<String> getRouteKeys() {
+        return Collections.emptyList();
+    }
+
+    /**
+     * 所有分片键都是等值条件时直接计算分片,不构造RangeVariable
+     *
+     * @param keyValues 与getRouteKeys()一一对应的分片值
+     * @return NULL=不能确定唯一的分片,需要走calculate
+     */
+    public DataNode calculateByKeys(Object[] keyValues) {
+        return null;
+    }
+
     protected abstract void init(ShardingTableHandler tableHandler, Map<String, Object> properties, Map<String, Object> ranges);
 
     public Map<String, Object> getProperties() {
@@ -18,8 +18,11 @@ import com.alibaba.druid.sql.SQLUtils;
 import io.mycat.DataNode;
 import io.mycat.MycatException;
 import io.mycat.RangeVariable;
+import io.mycat.SimpleColumnInfo;
 import io.mycat.util.CollectionUtil;
 
+import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.text.MessageFormat;
 import java.util.*;
 import java.util.stream.Collectors;
@@ -30,6 +33,10 @@ import java.util.stream.Collectors;
  * 路由算法接口
  */
 public abstract class Mycat1xSingleValueRuleFunction extends CustomRuleFunction {
+    /**
+     * 范围条件最多枚举的取值个数
+     */
+    private static final int RANGE_ENUMERATION_LIMIT = 8192;
 
     private String columnName;
 
@@ -62,6 +69,43 @@ public abstract class Mycat1xSingleValueRuleFunction extends CustomRuleFunction
         }
     }
 
+    /**
+     * 整数字段的范围较小时,逐个枚举范围内的值计算分片,适用于取模,hash类算法
+     *
+     * @return NULL=不能枚举
+     */
+    public static int[] calculateEnumerableRange(Mycat1xSingleValueRuleFunction algorithm, String beginValue,
+                                                 String endValue) {
+        ShardingTableHandler table = algorithm.getTable();
+        if (table == null) {
+            return null;
+        }
+        SimpleColumnInfo column = table.getColumnByName(algorithm.getColumnName());
+        if (column == null || !column.isIntegerType()) {
+            return null;
+        }
+        long begin;
+        long end;
+        try {
+            begin = new BigDecimal(beginValue).setScale(0, RoundingMode.FLOOR).longValueExact();
+            end = new BigDecimal(endValue).setScale(0, RoundingMode.CEILING).longValueExact();
+        } catch (ArithmeticException | NumberFormatException e) {
+            return null;
+        }
+        if (end < begin) {
+            return new int[0];
+        }
+        if (end - begin >= RANGE_ENUMERATION_LIMIT) {
+            return null;
+        }
+        int partitionCount = table.dataNodes().size();
+        Set<Integer> res = new TreeSet<>();
+        for (long i = begin; i <= end && res.size() < partitionCount; i++) {
+            res.add(algorithm.calculateIndex(String.valueOf(i)));
+        }
+        return ints(new ArrayList<>(res));
+    }
+
     public static int[] calculateAllRange(int count) {
         int[] ints = new int[count];
         for (int i = 0; i < count; i++) {
@@ -124,6 +168,16 @@ public abstract class Mycat1xSingleValueRuleFunction extends CustomRuleFunction
         return columnName;
     }
 
+    @Override
+    public List<String> getRouteKeys() {
+        return Collections.singletonList(columnName);
+    }
+
+    @Override
+    public DataNode calculateByKeys(Object[] keyValues) {
+        return calculate(Objects.toString(keyValues[0]));
+    }
+
     /**
      * return matadata nodes's id columnValue is column's value
      *
@@ -19,6 +19,13 @@ public interface StreamMysqlCollector extends MysqlCollector<Void>{
 
     void onRow(Row row);
 
+    /**
+     * 下游已经不需要更多的行,结果集的生产者可以提前结束查询
+     */
+    default boolean isCancelled() {
+        return false;
+    }
+
 //    default void onFinish(int serverStatusFlags,long affectedRows, long lastInsertId){
 //
 //    }
@@ -29,6 +29,8 @@ public class DatasourceConfig {
     private String jdbcDriverClass;//保留属性
     private String type = DatasourceType.JDBC.name();
     private int queryTimeout = 30;
+    private String queryFetchMode = QueryFetchMode.NONE.name();//jdbc读取结果集的方式
+    private int queryFetchSize = 1000;//CURSOR模式下每次读取的行数
 
     public static String getDbTypeRaw(String rawUrl) {
         if (rawUrl == null) {
@@ -152,6 +154,10 @@ public class DatasourceConfig {
         return DatasourceType.valueOf(type);
     }
 
+    public QueryFetchMode computeQueryFetchMode() {
+        return QueryFetchMode.valueOf(queryFetchMode);
+    }
+
     public void setUrl(String url) {
         if ("mysql".equalsIgnoreCase(getDbType())) {
             ConnectionUrlParser connectionUrlParser = ConnectionUrlParser.parseConnectionString(url);
@@ -202,6 +208,21 @@ public class DatasourceConfig {
         this.dbType = Objects.requireNonNull(dbType, "dbType is null");
     }
 
+    public static enum QueryFetchMode {
+        /**
+         * 驱动一次把整个结果集读到内存
+         */
+        NONE,
+        /**
+         * 逐行流式读取(mysql驱动fetchSize=Integer.MIN_VALUE),读完之前连接不能执行其他语句
+         */
+        STREAM,
+        /**
+         * 服务器游标分批读取(useCursorFetch=true),每批queryFetchSize行
+         */
+        CURSOR
+    }
+
     public static enum DatasourceType {
         NATIVE(true, true),
         JDBC(false, true),
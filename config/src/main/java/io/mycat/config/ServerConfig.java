@@ -24,6 +24,8 @@ import java.net.URISyntaxException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.TimeUnit;
 
@@ -57,8 +59,27 @@ public class ServerConfig {
     private TimerConfig idleTimer = new TimerConfig(3, 15, TimeUnit.SECONDS.name());
     private String tempDirectory;
     private int mergeUnionSize = 5;
+    /**
+     * 一条UNION ALL语句预计返回的最大行数,按统计信息减少合并的物理表数量,0表示不限制
+     */
+    private long mergeUnionMaxRows = 100000;
     private String serverVersion = "5.7.33-mycat-2.0";
     private boolean ignoreCast = false;
+    private int ddlParallelismPerHost = 4;
+    /**
+     * 开启查询结果缓存的表,格式schema.table
+     */
+    private List<String> resultCacheTables = new ArrayList<>();
+    private long resultCacheSize = 1024;
+    private int resultCacheMaxRows = 1000;
+    /**
+     * hash join运行时过滤的IN列表最大长度,0表示关闭
+     */
+    private int joinRuntimeFilterSize = 1024;
+    /**
+     * 窗口函数按分区并行计算的线程数,1表示关闭
+     */
+    private int windowParallelism = Runtime.getRuntime().availableProcessors();
 
     public static void main(String[] args) {
         System.out.println(JsonUtil.toJson(new ServerConfig()));
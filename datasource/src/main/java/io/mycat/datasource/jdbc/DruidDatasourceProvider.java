@@ -55,6 +55,9 @@ public class DruidDatasourceProvider implements DatasourceProvider {
         datasource.setValidationQuery("select 'x'");
         datasource.setTestWhileIdle(true);
         datasource.setQueryTimeout(config.getQueryTimeout());
+        if (config.computeQueryFetchMode() == DatasourceConfig.QueryFetchMode.CURSOR) {
+            datasource.addConnectionProperty("useCursorFetch", "true");
+        }
 
         if (maxRetryCount > 0) {
             datasource.setConnectionErrorRetryAttempts(maxRetryCount);
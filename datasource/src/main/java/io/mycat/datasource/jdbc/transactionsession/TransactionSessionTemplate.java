@@ -220,4 +220,14 @@ public abstract class TransactionSessionTemplate implements TransactionSession {
     public String resolveFinalTargetName(String targetName, boolean master) {
         return dataSourceNearness.getDataSourceByTargetName(targetName, master);
     }
+
+    @Override
+    public void setMaxReplicationLag(long maxReplicationLag) {
+        dataSourceNearness.setMaxReplicationLag(maxReplicationLag);
+    }
+
+    @Override
+    public long getMaxReplicationLag() {
+        return dataSourceNearness.getMaxReplicationLag();
+    }
 }
\ No newline at end of file
@@ -1,16 +1,23 @@
 package io.mycat;
 
 import io.mycat.calcite.CodeExecuterContext;
+import io.mycat.calcite.executor.HashJoinRuntimeFilter;
 import io.mycat.calcite.logical.MycatView;
 import io.mycat.calcite.physical.MycatMergeSort;
+import io.mycat.config.ServerConfig;
+import io.mycat.connectionschedule.Scheduler;
 import io.reactivex.rxjava3.core.Observable;
 import io.reactivex.rxjava3.observables.ConnectableObservable;
+import org.apache.calcite.linq4j.AbstractEnumerable;
 import org.apache.calcite.linq4j.Enumerable;
+import org.apache.calcite.linq4j.Enumerator;
 import org.apache.calcite.linq4j.Linq4j;
 import org.apache.calcite.linq4j.function.Function1;
 import org.apache.calcite.rel.RelNode;
+import org.apache.calcite.rex.RexNode;
 import org.apache.calcite.util.RxBuiltInMethodImpl;
 
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.IdentityHashMap;
 import java.util.List;
@@ -19,6 +26,10 @@ import java.util.stream.Collectors;
 
 public class AsyncMycatDataContextImpl extends NewMycatDataContextImpl {
     private final IdentityHashMap<RelNode, List<Observable<Object[]>>> viewMap;
+    /**
+     * build端读完后得到的probe端过滤条件,probe端被订阅时才生成SQL
+     */
+    private final Map<RelNode, RexNode> runtimeFilters = Collections.synchronizedMap(new IdentityHashMap<>());
 
     public AsyncMycatDataContextImpl(MycatDataContext dataContext,
                                      CodeExecuterContext context,
@@ -43,7 +54,68 @@ public class AsyncMycatDataContextImpl extends NewMycatDataContextImpl {
     @Override
     public Observable<Object[]> getObservable(RelNode node) {
         List<Observable<Object[]>> observables = viewMap.get(node);
-        return Observable.merge(observables);
+        if (!(node instanceof MycatView) || dataContext.isInTransaction()) {
+            return Observable.merge(observables);
+        }
+        return Observable.defer(() -> {
+            RexNode condition = runtimeFilters.remove(node);
+            if (condition == null) {
+                return Observable.merge(observables);
+            }
+            MycatView filteredView = ((MycatView) node).addFilter(condition);
+            Scheduler scheduler = MetaClusterCurrent.wrapper(Scheduler.class);
+            return Observable.merge(scheduler.scheduleView(dataContext, filteredView, params, codeExecuterContext));
+        });
+    }
+
+    @Override
+    public Enumerable runtimeFilter(Enumerable build, RelNode probe, int probeKey, Function1 buildKeySelector) {
+        int maxInListSize = MetaClusterCurrent.exist(ServerConfig.class) ?
+                MetaClusterCurrent.wrapper(ServerConfig.class).getJoinRuntimeFilterSize() : 0;
+        if (maxInListSize <= 0
+                || !(probe instanceof MycatView)
+                || dataContext.isInTransaction()
+                || codeExecuterContext.getMycatViews().getOrDefault(probe, 0) != 1) {
+            return build;
+        }
+        MycatView probeView = (MycatView) probe;
+        return new AbstractEnumerable() {
+            @Override
+            public Enumerator enumerator() {
+                HashJoinRuntimeFilter filter = new HashJoinRuntimeFilter(probeKey, maxInListSize);
+                Enumerator enumerator = build.enumerator();
+                return new Enumerator() {
+                    @Override
+                    public Object current() {
+                        return enumerator.current();
+                    }
+
+                    @Override
+                    public boolean moveNext() {
+                        if (enumerator.moveNext()) {
+                            filter.add(buildKeySelector.apply(enumerator.current()));
+                            return true;
+                        }
+                        //build端读完才生成条件,提前关闭的不生成
+                        RexNode condition = filter.toCondition(probeView);
+                        if (condition != null) {
+                            runtimeFilters.put(probe, condition);
+                        }
+                        return false;
+                    }
+
+                    @Override
+                    public void reset() {
+                        enumerator.reset();
+                    }
+
+                    @Override
+                    public void close() {
+                        enumerator.close();
+                    }
+                };
+            }
+        };
     }
 
     @Override
@@ -190,6 +190,95 @@ public class MetadataManager implements MysqlVariableService {
 
         ///////////////////////////////////////////////////////////////
         //更新新配置里面的信息
+        Map<String, LogicSchemaConfig> schemaConfigMap = getSchemaConfigMap(schemaConfigs, databases, prototype);
+
+        for (Map.Entry<String, LogicSchemaConfig> entry : schemaConfigMap.entrySet()) {
+            loadSchema(entry.getKey(), entry.getValue());
+        }
+
+        this.erTableGroup = collectErTableGroup();
+        this.globalTables = collectTables(LogicTableType.GLOBAL);
+        this.normalTables = collectTables(LogicTableType.NORMAL);
+    }
+
+    /**
+     * 增量构建,复用old中没有变化的schema和表(包括已经读取的全局变量),
+     * 只重新加载changedSchemas中的schema和changedTables中的表
+     *
+     * @param changedSchemas 需要整个重新加载的schema
+     * @param changedTables  需要重新加载的表,schema名 -> 表名
+     */
+    public static MetadataManager createIncrementalMetadataManager(MetadataManager old,
+                                                                   List<LogicSchemaConfig> schemaConfigs,
+                                                                   Set<String> changedSchemas,
+                                                                   Map<String, Set<String>> changedTables) {
+        try {
+            return new MetadataManager(old, schemaConfigs, changedSchemas, changedTables);
+        } catch (Throwable throwable) {
+            throw MycatErrorCode.createMycatException(MycatErrorCode.ERR_FETCH_METADATA, "MetadataManager init fail", throwable);
+        }
+    }
+
+    private MetadataManager(MetadataManager old,
+                            List<LogicSchemaConfig> schemaConfigs,
+                            Set<String> changedSchemas,
+                            Map<String, Set<String>> changedTables) {
+        this.loadBalanceManager = old.loadBalanceManager;
+        this.sequenceGenerator = old.sequenceGenerator;
+        this.replicaSelectorRuntime = old.replicaSelectorRuntime;
+        this.jdbcConnectionManager = old.jdbcConnectionManager;
+        this.prototype = old.prototype;
+        this.globalVariables = old.globalVariables;
+        this.sessionVariables = old.sessionVariables;
+
+        addInnerTable(schemaConfigs, prototype);
+        NameMap<String> reloadSchemas = new NameMap<>();
+        for (String changedSchema : changedSchemas) {
+            reloadSchemas.put(changedSchema, changedSchema);
+        }
+        Set<String> databases = new HashSet<>();
+        for (String schemaName : old.schemaMap.keySet()) {
+            if (reloadSchemas.get(schemaName) == null
+                    && schemaConfigs.stream().noneMatch(i -> schemaName.equals(i.getSchemaName()))) {
+                //旧的元数据里面不在配置中的schema是默认加载的数据库
+                databases.add(schemaName);
+            }
+        }
+        Map<String, LogicSchemaConfig> schemaConfigMap = getSchemaConfigMap(schemaConfigs, databases, prototype);
+
+        //没有变化的schema直接复用旧的表对象,旧的MetadataManager可能还在使用,所以复制一份表的映射
+        for (Map.Entry<String, LogicSchemaConfig> entry : schemaConfigMap.entrySet()) {
+            String schemaName = entry.getKey();
+            SchemaHandler oldSchemaHandler = old.schemaMap.get(schemaName);
+            if (oldSchemaHandler == null || reloadSchemas.get(schemaName) != null
+                    || !Objects.equals(oldSchemaHandler.defaultTargetName(), entry.getValue().getTargetName())) {
+                reloadSchemas.put(schemaName, schemaName);
+                loadSchema(schemaName, entry.getValue());
+                continue;
+            }
+            addSchema(schemaName, oldSchemaHandler.defaultTargetName());
+            NameMap<TableHandler> tableMap = schemaMap.get(schemaName).logicTables();
+            oldSchemaHandler.logicTables().forEach(tableMap::put);
+        }
+        for (Map.Entry<String, Set<String>> entry : changedTables.entrySet()) {
+            String schemaName = entry.getKey();
+            LogicSchemaConfig schemaConfig = schemaConfigMap.get(schemaName);
+            if (schemaConfig == null || reloadSchemas.get(schemaName) != null) {
+                continue;
+            }
+            for (String tableName : entry.getValue()) {
+                loadTable(schemaName, schemaConfig, tableName);
+            }
+        }
+
+        this.erTableGroup = collectErTableGroup();
+        this.globalTables = collectTables(LogicTableType.GLOBAL);
+        this.normalTables = collectTables(LogicTableType.NORMAL);
+    }
+
+    private static Map<String, LogicSchemaConfig> getSchemaConfigMap(List<LogicSchemaConfig> schemaConfigs,
+                                                                     Set<String> databases,
+                                                                     String prototype) {
         Map<String, LogicSchemaConfig> schemaConfigMap = schemaConfigs
                 .stream()
                 .collect(Collectors.toMap(k -> k.getSchemaName(), v -> v));
@@ -202,84 +291,93 @@ public class MetadataManager implements MysqlVariableService {
                 return schemaConfig;
             });
         }
+        return schemaConfigMap;
+    }
 
-        for (Map.Entry<String, LogicSchemaConfig> entry : schemaConfigMap.entrySet()) {
-            String orignalSchemaName = entry.getKey();
-            LogicSchemaConfig value = entry.getValue();
-            String targetName = value.getTargetName();
-            final String schemaName = orignalSchemaName;
-            addSchema(schemaName, targetName);
-            if (targetName != null) {
-                Map<String, NormalTableConfig> normalTables = value.getNormalTables();
-                Map<String, NormalTableConfig> adds = getDefaultNormalTable(targetName, schemaName, tableName -> {
-                    NormalTableConfig normalTableConfig = normalTables.get(tableName);
-                    boolean needLoadCreateTableSQL = true;
-                    if (normalTableConfig != null) {
-                        if (normalTableConfig.getCreateTableSQL() != null) {
-                            needLoadCreateTableSQL = false;
-                        }
+    private void loadSchema(String schemaName, LogicSchemaConfig value) {
+        String targetName = value.getTargetName();
+        addSchema(schemaName, targetName);
+        if (targetName != null) {
+            Map<String, NormalTableConfig> normalTables = value.getNormalTables();
+            Map<String, NormalTableConfig> adds = getDefaultNormalTable(targetName, schemaName, tableName -> {
+                NormalTableConfig normalTableConfig = normalTables.get(tableName);
+                boolean needLoadCreateTableSQL = true;
+                if (normalTableConfig != null) {
+                    if (normalTableConfig.getCreateTableSQL() != null) {
+                        needLoadCreateTableSQL = false;
                     }
-                    return needLoadCreateTableSQL;
-                });
-
-                for (Map.Entry<String, NormalTableConfig> add : adds.entrySet()) {
-                    normalTables.computeIfAbsent(add.getKey(), (n) -> add.getValue());
                 }
-            }
+                return needLoadCreateTableSQL;
+            });
 
-            for (Map.Entry<String, NormalTableConfig> e : value.getNormalTables().entrySet()) {
-                String tableName = e.getKey();
-                removeTable(schemaName, tableName);
-                NormalTableConfig tableConfigEntry = e.getValue();
-                try {
-                    addNormalTable(schemaName, tableName,
-                            tableConfigEntry,
-                            prototype
-                    );
-                } catch (Throwable throwable) {
-                    LOGGER.warn("", throwable);
-                }
-            }
-            for (Map.Entry<String, GlobalTableConfig> e : value.getGlobalTables().entrySet()) {
-                String tableName = e.getKey();
-                removeTable(schemaName, tableName);
-                GlobalTableConfig tableConfigEntry = e.getValue();
-                List<DataNode> backendTableInfos = tableConfigEntry.getDataNodes().stream().map(i -> new BackendTableInfo(i.getTargetName(), schemaName, tableName)).collect(Collectors.toList());
-                addGlobalTable(schemaName, tableName,
-                        tableConfigEntry,
-                        prototype,
-                        backendTableInfos
-                );
-            }
-            for (Map.Entry<String, ShardingTableConfig> e : value.getShadingTables().entrySet()) {
-                String tableName = e.getKey();
-                removeTable(schemaName, tableName);
-                ShardingTableConfig tableConfigEntry = e.getValue();
-                addShardingTable(schemaName, tableName,
-                        tableConfigEntry,
-                        prototype,
-                        getBackendTableInfos(tableConfigEntry.getDataNode()));
+            for (Map.Entry<String, NormalTableConfig> add : adds.entrySet()) {
+                normalTables.computeIfAbsent(add.getKey(), (n) -> add.getValue());
             }
+        }
 
-            for (Map.Entry<String, CustomTableConfig> e : value.getCustomTables().entrySet()) {
-                String tableName = e.getKey();
-                removeTable(schemaName, tableName);
-                CustomTableConfig tableConfigEntry = e.getValue();
-                addCustomTable(schemaName, tableName,
-                        tableConfigEntry
+        Set<String> tableNames = new LinkedHashSet<>();
+        tableNames.addAll(value.getNormalTables().keySet());
+        tableNames.addAll(value.getGlobalTables().keySet());
+        tableNames.addAll(value.getShadingTables().keySet());
+        tableNames.addAll(value.getCustomTables().keySet());
+        for (String tableName : tableNames) {
+            loadTable(schemaName, value, tableName);
+        }
+    }
+
+    /**
+     * 按配置重新加载一张表,配置中没有这张表时只删除
+     */
+    private void loadTable(String schemaName, LogicSchemaConfig value, String tableName) {
+        removeTable(schemaName, tableName);
+        //同名的表按自定义表,分片表,全局表,普通表的优先级加载
+        CustomTableConfig customTableConfig = value.getCustomTables().get(tableName);
+        if (customTableConfig != null) {
+            addCustomTable(schemaName, tableName,
+                    customTableConfig
+            );
+            return;
+        }
+        ShardingTableConfig shardingTableConfig = value.getShadingTables().get(tableName);
+        if (shardingTableConfig != null) {
+            addShardingTable(schemaName, tableName,
+                    shardingTableConfig,
+                    prototype,
+                    getBackendTableInfos(shardingTableConfig.getDataNode()));
+            return;
+        }
+        GlobalTableConfig globalTableConfig = value.getGlobalTables().get(tableName);
+        if (globalTableConfig != null) {
+            List<DataNode> backendTableInfos = globalTableConfig.getDataNodes().stream().map(i -> new BackendTableInfo(i.getTargetName(), schemaName, tableName)).collect(Collectors.toList());
+            addGlobalTable(schemaName, tableName,
+                    globalTableConfig,
+                    prototype,
+                    backendTableInfos
+            );
+            return;
+        }
+        NormalTableConfig normalTableConfig = value.getNormalTables().get(tableName);
+        if (normalTableConfig != null) {
+            try {
+                addNormalTable(schemaName, tableName,
+                        normalTableConfig,
+                        prototype
                 );
+            } catch (Throwable throwable) {
+                LOGGER.warn("", throwable);
             }
         }
+    }
 
+    private Map<String, List<ShardingTable>> collectErTableGroup() {
         Stream<ShardingTable> shardingTables = this.schemaMap.values().stream().flatMap(i -> i.logicTables().values().stream()).filter(i -> i.getType() == LogicTableType.SHARDING)
                 .map(i -> (ShardingTable) i);
-        this.erTableGroup = shardingTables.collect(Collectors.groupingBy(i -> i.getShardingFuntion().getErUniqueID()));
-
-        this.globalTables = this.schemaMap.values().stream().flatMap(i -> i.logicTables().values().stream()).filter(i -> i.getType() == LogicTableType.GLOBAL)
-                .map(i -> (GlobalTable) i).collect(Collectors.toList());
+        return shardingTables.collect(Collectors.groupingBy(i -> i.getShardingFuntion().getErUniqueID()));
+    }
 
-        this.normalTables = this.schemaMap.values().stream().flatMap(i -> i.logicTables().values().stream()).filter(i -> i.getType() == LogicTableType.NORMAL)
-                .map(i -> (NormalTable) i).collect(Collectors.toList());
+    private <T extends TableHandler> List<T> collectTables(LogicTableType type) {
+        return this.schemaMap.values().stream().flatMap(i -> i.logicTables().values().stream()).filter(i -> i.getType() == type)
+                .map(i -> (T) i).collect(Collectors.toList());
     }
 
     private void addInnerTable(List<LogicSchemaConfig> schemaConfigs, String prototype) {
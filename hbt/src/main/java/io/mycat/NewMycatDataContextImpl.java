@@ -17,6 +17,7 @@
 package io.mycat;
 
 import io.mycat.calcite.CodeExecuterContext;
+import io.mycat.calcite.executor.RecursiveWorkTable;
 import io.vertx.core.Future;
 import org.apache.calcite.adapter.java.JavaTypeFactory;
 import org.apache.calcite.linq4j.Enumerable;
@@ -25,14 +26,18 @@ import org.apache.calcite.runtime.NewMycatDataContext;
 import org.apache.calcite.schema.SchemaPlus;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 
 public abstract class NewMycatDataContextImpl implements NewMycatDataContext {
     protected final MycatDataContext dataContext;
     protected final CodeExecuterContext codeExecuterContext;
     protected final List<Object> params;
     protected final boolean forUpdate;
+    private final Map<String, RecursiveWorkTable> workTables = new HashMap<>();
 
     public NewMycatDataContextImpl(MycatDataContext dataContext,
                                    CodeExecuterContext context,
@@ -68,6 +73,27 @@ public abstract class NewMycatDataContextImpl implements NewMycatDataContext {
         return codeExecuterContext.getContext().get(name);
     }
 
+    @Override
+    public RecursiveWorkTable getWorkTable(String name) {
+        synchronized (workTables) {
+            return workTables.computeIfAbsent(name, n -> new RecursiveWorkTable());
+        }
+    }
+
+    /**
+     * 查询结束(完成,出错或者被取消)时释放递归查询的工作表,落盘的记录集随之删除
+     */
+    public void close() {
+        List<RecursiveWorkTable> tables;
+        synchronized (workTables) {
+            tables = new ArrayList<>(workTables.values());
+            workTables.clear();
+        }
+        for (RecursiveWorkTable table : tables) {
+            table.close();
+        }
+    }
+
     public Object getSessionVariable(String name) {
         return dataContext.getVariable(false, name);
     }
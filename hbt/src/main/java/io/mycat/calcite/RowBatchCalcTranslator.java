@@ -0,0 +1,495 @@
+/**
+ * Copyright (C) <2021>  <chen junwen>
+ * <p>
+ * This program is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * <p>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU General Public License along with this program.  If
+ * not, see <http://www.gnu.org/licenses/>.
+ */
+package io.mycat.calcite;
+
+import io.mycat.api.collector.RowBatch;
+import io.mycat.api.collector.RowBatch.ColumnType;
+import org.apache.calcite.linq4j.function.Function2;
+import org.apache.calcite.linq4j.tree.*;
+import org.apache.calcite.rel.type.RelDataType;
+import org.apache.calcite.rex.*;
+import org.apache.calcite.sql.SqlKind;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Type;
+import java.util.List;
+
+/**
+ * 把只有简单表达式的Calc翻译成按RowBatch计算的函数(Function2&lt;RowBatch,RowBatch,RowBatch&gt;).
+ * 支持数值与布尔列的比较,AND/OR/NOT,IS NULL,加减乘以及数值之间的CAST,
+ * 其他表达式translate返回null,由调用者按行计算
+ */
+public class RowBatchCalcTranslator {
+    private static final Method GET_SIZE = Types.lookupMethod(RowBatch.class, "getSize");
+    private static final Method GET_LONGS = Types.lookupMethod(RowBatch.class, "getLongs", int.class);
+    private static final Method GET_DOUBLES = Types.lookupMethod(RowBatch.class, "getDoubles", int.class);
+    private static final Method GET_OBJECTS = Types.lookupMethod(RowBatch.class, "getObjects", int.class);
+    private static final Method GET_NULLS = Types.lookupMethod(RowBatch.class, "getNulls", int.class);
+    private static final Method ADD_ROW = Types.lookupMethod(RowBatch.class, "addRow");
+    private static final Method IS_NULL = Types.lookupMethod(RowBatch.class, "isNull", long[].class, int.class);
+    private static final Method SET_NULL = Types.lookupMethod(RowBatch.class, "setNull", long[].class, int.class);
+    private static final Expression TRUE = Expressions.constant(true, boolean.class);
+    private static final Expression FALSE = Expressions.constant(false, boolean.class);
+
+    private final RexProgram program;
+    private final ParameterExpression input = Expressions.parameter(RowBatch.class, "input");
+    private final ParameterExpression output = Expressions.parameter(RowBatch.class, "output");
+    private final ParameterExpression rowIndex = Expressions.parameter(int.class, "i");
+    private final BlockBuilder body = new BlockBuilder(false);
+    private final ColumnType[] inputTypes;
+    private final Expression[] inputValues;
+    private final Expression[] inputNulls;
+    private ColumnType[] outputTypes;
+
+    /**
+     * 表达式的值与是否为null,布尔值是boolean,整数是long,浮点数是double
+     */
+    private static class Operand {
+        final Expression value;
+        final Expression isNull;
+        final ColumnType type;
+
+        Operand(Expression value, Expression isNull, ColumnType type) {
+            this.value = value;
+            this.isNull = isNull;
+            this.type = type;
+        }
+    }
+
+    public RowBatchCalcTranslator(RexProgram program) {
+        this.program = program;
+        int fieldCount = program.getInputRowType().getFieldCount();
+        this.inputTypes = new ColumnType[fieldCount];
+        this.inputValues = new Expression[fieldCount];
+        this.inputNulls = new Expression[fieldCount];
+    }
+
+    public static ColumnType columnType(RelDataType type) {
+        switch (type.getSqlTypeName()) {
+            case BOOLEAN:
+                return ColumnType.BOOLEAN;
+            case TINYINT:
+                return ColumnType.TINYINT;
+            case SMALLINT:
+                return ColumnType.SMALLINT;
+            case INTEGER:
+                return ColumnType.INTEGER;
+            case BIGINT:
+                return ColumnType.BIGINT;
+            case REAL:
+                return ColumnType.FLOAT;
+            case FLOAT:
+            case DOUBLE:
+                return ColumnType.DOUBLE;
+            default:
+                return ColumnType.OBJECT;
+        }
+    }
+
+    /**
+     * 参与计算的列按基本类型保存,只是原样输出的列保存原来的对象
+     */
+    public ColumnType[] getInputTypes() {
+        return inputTypes;
+    }
+
+    public ColumnType[] getOutputTypes() {
+        return outputTypes;
+    }
+
+    /**
+     * 生成的函数把input中满足条件的行计算后追加到output并返回output
+     *
+     * @return 有不支持的表达式时返回null
+     */
+    public FunctionExpression<?> translate() {
+        Expression size = body.append("size", Expressions.call(input, GET_SIZE));
+        BlockBuilder loop = new BlockBuilder(false, body);
+        Expression condition = null;
+        if (program.getCondition() != null) {
+            Operand operand = translate(program.expandLocalRef(program.getCondition()), loop);
+            if (operand == null || operand.type != ColumnType.BOOLEAN) {
+                return null;
+            }
+            condition = and(not(operand.isNull), operand.value);
+        }
+        BlockBuilder write = new BlockBuilder(false, loop);
+        Expression outputRow = write.append("o", Expressions.call(output, ADD_ROW));
+        List<RexLocalRef> projects = program.getProjectList();
+        outputTypes = new ColumnType[projects.size()];
+        //先翻译需要计算的列,确定哪些输入列按基本类型保存
+        for (int i = 0; i < projects.size(); i++) {
+            RexNode project = program.expandLocalRef(projects.get(i));
+            if (project instanceof RexInputRef) {
+                continue;
+            }
+            Operand operand = translate(project, write);
+            if (operand == null || operand.type != columnType(project.getType())) {
+                return null;
+            }
+            outputTypes[i] = operand.type;
+            store(write, i, operand, outputRow);
+        }
+        for (int i = 0; i < projects.size(); i++) {
+            RexNode project = program.expandLocalRef(projects.get(i));
+            if (!(project instanceof RexInputRef)) {
+                continue;
+            }
+            int index = ((RexInputRef) project).getIndex();
+            if (inputTypes[index] == null) {
+                inputTypes[index] = ColumnType.OBJECT;
+            }
+            outputTypes[i] = inputTypes[index];
+            if (inputTypes[index] == ColumnType.OBJECT) {
+                Expression inputObjects = body.append("inputObjects", Expressions.call(input, GET_OBJECTS, Expressions.constant(index)));
+                Expression outputObjects = body.append("outputObjects", Expressions.call(output, GET_OBJECTS, Expressions.constant(i)));
+                write.add(Expressions.statement(
+                        Expressions.assign(Expressions.arrayIndex(outputObjects, outputRow),
+                                Expressions.arrayIndex(inputObjects, rowIndex))));
+            } else {
+                store(write, i, translate(project, write), outputRow);
+            }
+        }
+        for (int i = 0; i < inputTypes.length; i++) {
+            if (inputTypes[i] == null) {
+                inputTypes[i] = ColumnType.OBJECT;
+            }
+        }
+        if (condition == null) {
+            loop.add(write.toBlock());
+        } else {
+            loop.add(Expressions.ifThen(condition, write.toBlock()));
+        }
+        body.add(Expressions.for_(
+                Expressions.declare(0, rowIndex, Expressions.constant(0, int.class)),
+                Expressions.lessThan(rowIndex, size),
+                Expressions.preIncrementAssign(rowIndex),
+                loop.toBlock()));
+        body.add(Expressions.return_(null, output));
+        return Expressions.lambda(Function2.class, body.toBlock(), input, output);
+    }
+
+    private void store(BlockBuilder write, int column, Operand operand, Expression outputRow) {
+        Expression value = operand.value;
+        Expression values;
+        if (operand.type.isDouble()) {
+            values = body.append("outputValues", Expressions.call(output, GET_DOUBLES, Expressions.constant(column)));
+        } else {
+            values = body.append("outputValues", Expressions.call(output, GET_LONGS, Expressions.constant(column)));
+            if (operand.type == ColumnType.BOOLEAN) {
+                value = Expressions.condition(value, Expressions.constant(1L, long.class), Expressions.constant(0L, long.class));
+            }
+        }
+        write.add(Expressions.statement(Expressions.assign(Expressions.arrayIndex(values, outputRow), value)));
+        if (!isFalse(operand.isNull)) {
+            Expression nulls = body.append("outputNulls", Expressions.call(output, GET_NULLS, Expressions.constant(column)));
+            write.add(Expressions.ifThen(operand.isNull,
+                    Expressions.statement(Expressions.call(SET_NULL, nulls, outputRow))));
+        }
+    }
+
+    private Operand translate(RexNode node, BlockBuilder block) {
+        ColumnType type = columnType(node.getType());
+        if (type == ColumnType.OBJECT) {
+            return null;
+        }
+        if (node instanceof RexInputRef) {
+            return translateInput(((RexInputRef) node).getIndex(), type, block);
+        }
+        if (node instanceof RexLiteral) {
+            return translateLiteral((RexLiteral) node, type);
+        }
+        if (!(node instanceof RexCall)) {
+            return null;
+        }
+        RexCall call = (RexCall) node;
+        Operand[] operands = new Operand[call.getOperands().size()];
+        for (int i = 0; i < operands.length; i++) {
+            operands[i] = translate(call.getOperands().get(i), block);
+            if (operands[i] == null) {
+                return null;
+            }
+        }
+        switch (call.getKind()) {
+            case EQUALS:
+            case NOT_EQUALS:
+            case LESS_THAN:
+            case LESS_THAN_OR_EQUAL:
+            case GREATER_THAN:
+            case GREATER_THAN_OR_EQUAL:
+                return translateComparison(call, operands[0], operands[1], block);
+            case AND:
+            case OR: {
+                Operand result = operands[0];
+                for (int i = 1; i < operands.length; i++) {
+                    result = translateLogic(call.getKind() == SqlKind.AND, result, operands[i], block);
+                }
+                return result;
+            }
+            case NOT:
+                return new Operand(not(operands[0].value), operands[0].isNull, ColumnType.BOOLEAN);
+            case IS_NULL:
+                return new Operand(operands[0].isNull, FALSE, ColumnType.BOOLEAN);
+            case IS_NOT_NULL:
+                return new Operand(not(operands[0].isNull), FALSE, ColumnType.BOOLEAN);
+            case IS_TRUE:
+                return new Operand(and(not(operands[0].isNull), operands[0].value), FALSE, ColumnType.BOOLEAN);
+            case IS_NOT_TRUE:
+                return new Operand(not(and(not(operands[0].isNull), operands[0].value)), FALSE, ColumnType.BOOLEAN);
+            case IS_FALSE:
+                return new Operand(and(not(operands[0].isNull), not(operands[0].value)), FALSE, ColumnType.BOOLEAN);
+            case IS_NOT_FALSE:
+                return new Operand(not(and(not(operands[0].isNull), not(operands[0].value))), FALSE, ColumnType.BOOLEAN);
+            case PLUS:
+            case MINUS:
+            case TIMES:
+                return translateArithmetic(call, type, operands[0], operands[1], block);
+            case MINUS_PREFIX:
+                if (type == ColumnType.BOOLEAN || operands[0].type == ColumnType.BOOLEAN) {
+                    return null;
+                }
+                return new Operand(block.append("v", narrow(Expressions.negate(promote(operands[0], type)), type)),
+                        operands[0].isNull, type);
+            case PLUS_PREFIX:
+                return operands[0].type == type ? operands[0] : null;
+            case CAST:
+                return translateCast(operands[0], type, block);
+            default:
+                return null;
+        }
+    }
+
+    private Operand translateInput(int index, ColumnType type, BlockBuilder block) {
+        inputTypes[index] = type;
+        if (inputValues[index] == null) {
+            Method method = type.isDouble() ? GET_DOUBLES : GET_LONGS;
+            inputValues[index] = body.append("inputValues", Expressions.call(input, method, Expressions.constant(index)));
+            inputNulls[index] = body.append("inputNulls", Expressions.call(input, GET_NULLS, Expressions.constant(index)));
+        }
+        Expression value = Expressions.arrayIndex(inputValues[index], rowIndex);
+        if (type == ColumnType.BOOLEAN) {
+            value = Expressions.notEqual(value, Expressions.constant(0L, long.class));
+        }
+        return new Operand(block.append("v", value),
+                block.append("n", Expressions.call(IS_NULL, inputNulls[index], rowIndex)),
+                type);
+    }
+
+    private Operand translateLiteral(RexLiteral literal, ColumnType type) {
+        if (literal.isNull()) {
+            Expression value;
+            if (type == ColumnType.BOOLEAN) {
+                value = FALSE;
+            } else if (type.isDouble()) {
+                value = Expressions.constant(0D, double.class);
+            } else {
+                value = Expressions.constant(0L, long.class);
+            }
+            return new Operand(value, TRUE, type);
+        }
+        Expression value;
+        if (type == ColumnType.BOOLEAN) {
+            value = Expressions.constant(literal.getValueAs(Boolean.class), boolean.class);
+        } else if (type.isDouble()) {
+            value = Expressions.constant(literal.getValueAs(Double.class), double.class);
+        } else {
+            value = Expressions.constant(literal.getValueAs(Long.class), long.class);
+        }
+        return new Operand(value, FALSE, type);
+    }
+
+    private Operand translateComparison(RexCall call, Operand left, Operand right, BlockBuilder block) {
+        Expression l;
+        Expression r;
+        if (left.type == ColumnType.BOOLEAN || right.type == ColumnType.BOOLEAN) {
+            //布尔值只支持等于与不等于
+            if (left.type != right.type
+                    || !(call.getKind() == SqlKind.EQUALS || call.getKind() == SqlKind.NOT_EQUALS)) {
+                return null;
+            }
+            l = left.value;
+            r = right.value;
+        } else {
+            //整数与浮点数比较时按double比较
+            ColumnType type = left.type.isDouble() || right.type.isDouble() ? ColumnType.DOUBLE : ColumnType.BIGINT;
+            l = promote(left, type);
+            r = promote(right, type);
+        }
+        Expression value;
+        switch (call.getKind()) {
+            case EQUALS:
+                value = Expressions.equal(l, r);
+                break;
+            case NOT_EQUALS:
+                value = Expressions.notEqual(l, r);
+                break;
+            case LESS_THAN:
+                value = Expressions.lessThan(l, r);
+                break;
+            case LESS_THAN_OR_EQUAL:
+                value = Expressions.lessThanOrEqual(l, r);
+                break;
+            case GREATER_THAN:
+                value = Expressions.greaterThan(l, r);
+                break;
+            case GREATER_THAN_OR_EQUAL:
+                value = Expressions.greaterThanOrEqual(l, r);
+                break;
+            default:
+                throw new IllegalStateException("Unexpected value: " + call.getKind());
+        }
+        return new Operand(block.append("v", value),
+                block.append("n", or(left.isNull, right.isNull)),
+                ColumnType.BOOLEAN);
+    }
+
+    /**
+     * 三值逻辑:AND有一边为false就是false,OR有一边为true就是true,否则有null就是null
+     */
+    private Operand translateLogic(boolean and, Operand left, Operand right, BlockBuilder block) {
+        if (left.type != ColumnType.BOOLEAN || right.type != ColumnType.BOOLEAN) {
+            return null;
+        }
+        Expression value;
+        if (and) {
+            Expression isFalse = or(and(not(left.isNull), not(left.value)), and(not(right.isNull), not(right.value)));
+            value = block.append("v", not(isFalse));
+        } else {
+            Expression isTrue = or(and(not(left.isNull), left.value), and(not(right.isNull), right.value));
+            value = block.append("v", isTrue);
+        }
+        Expression anyNull = or(left.isNull, right.isNull);
+        Expression isNull = isFalse(anyNull) ? FALSE
+                : block.append("n", and ? and(value, anyNull) : and(not(value), anyNull));
+        return new Operand(value, isNull, ColumnType.BOOLEAN);
+    }
+
+    private Operand translateArithmetic(RexCall call, ColumnType type, Operand left, Operand right, BlockBuilder block) {
+        if (type == ColumnType.BOOLEAN || left.type == ColumnType.BOOLEAN || right.type == ColumnType.BOOLEAN) {
+            return null;
+        }
+        Expression l = promote(left, type);
+        Expression r = promote(right, type);
+        Expression value;
+        switch (call.getKind()) {
+            case PLUS:
+                value = Expressions.add(l, r);
+                break;
+            case MINUS:
+                value = Expressions.subtract(l, r);
+                break;
+            case TIMES:
+                value = Expressions.multiply(l, r);
+                break;
+            default:
+                throw new IllegalStateException("Unexpected value: " + call.getKind());
+        }
+        return new Operand(block.append("v", narrow(value, type)),
+                block.append("n", or(left.isNull, right.isNull)),
+                type);
+    }
+
+    private Operand translateCast(Operand operand, ColumnType type, BlockBuilder block) {
+        if (operand.type == type) {
+            return operand;
+        }
+        if (type == ColumnType.BOOLEAN || operand.type == ColumnType.BOOLEAN) {
+            return null;
+        }
+        //浮点数转整数的舍入规则不同,按行计算
+        if (operand.type.isDouble() && type.isLong()) {
+            return null;
+        }
+        return new Operand(block.append("v", narrow(promote(operand, type), type)), operand.isNull, type);
+    }
+
+    /**
+     * 整数按long计算,浮点数按double计算
+     */
+    private static Expression promote(Operand operand, ColumnType type) {
+        if (type.isDouble() && operand.type.isLong()) {
+            return Expressions.convert_(operand.value, double.class);
+        }
+        return operand.value;
+    }
+
+    /**
+     * 截断到列的类型,与按行计算时的溢出结果一致
+     */
+    private static Expression narrow(Expression value, ColumnType type) {
+        Type primitive;
+        switch (type) {
+            case TINYINT:
+                primitive = byte.class;
+                break;
+            case SMALLINT:
+                primitive = short.class;
+                break;
+            case INTEGER:
+                primitive = int.class;
+                break;
+            case FLOAT:
+                primitive = float.class;
+                break;
+            default:
+                return value;
+        }
+        return Expressions.convert_(Expressions.convert_(value, primitive), type.isDouble() ? double.class : long.class);
+    }
+
+    private static boolean isFalse(Expression expression) {
+        return expression instanceof ConstantExpression && Boolean.FALSE.equals(((ConstantExpression) expression).value);
+    }
+
+    private static boolean isTrue(Expression expression) {
+        return expression instanceof ConstantExpression && Boolean.TRUE.equals(((ConstantExpression) expression).value);
+    }
+
+    private static Expression not(Expression expression) {
+        if (isFalse(expression)) {
+            return TRUE;
+        }
+        if (isTrue(expression)) {
+            return FALSE;
+        }
+        return Expressions.not(expression);
+    }
+
+    private static Expression and(Expression left, Expression right) {
+        if (isFalse(left) || isFalse(right)) {
+            return FALSE;
+        }
+        if (isTrue(left)) {
+            return right;
+        }
+        if (isTrue(right)) {
+            return left;
+        }
+        return Expressions.andAlso(left, right);
+    }
+
+    private static Expression or(Expression left, Expression right) {
+        if (isTrue(left) || isTrue(right)) {
+            return TRUE;
+        }
+        if (isFalse(left)) {
+            return right;
+        }
+        if (isFalse(right)) {
+            return left;
+        }
+        return Expressions.orElse(left, right);
+    }
+}
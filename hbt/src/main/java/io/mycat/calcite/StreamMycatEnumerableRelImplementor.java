@@ -3,12 +3,15 @@ package io.mycat.calcite;
 import com.google.common.collect.Collections2;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
+import io.mycat.api.collector.RowBatch;
 import io.reactivex.rxjava3.core.Observable;
 import org.apache.calcite.DataContext;
 import org.apache.calcite.adapter.enumerable.EnumerableRel;
 import org.apache.calcite.linq4j.Enumerable;
 import org.apache.calcite.linq4j.tree.*;
 import org.apache.calcite.plan.RelOptUtil;
+import org.apache.calcite.rex.RexInputRef;
+import org.apache.calcite.rex.RexProgram;
 import org.apache.calcite.runtime.Bindable;
 import org.apache.calcite.sql.SqlExplainLevel;
 import org.apache.calcite.util.BuiltInMethod;
@@ -18,6 +21,10 @@ import java.lang.reflect.Modifier;
 import java.util.*;
 
 public class StreamMycatEnumerableRelImplementor extends MycatEnumerableRelImplementor{
+    /**
+     * 正在生成根节点,根节点的结果直接交给ObservablePlanImplementorImpl,可以输出RowBatch
+     */
+    private boolean batchOutput;
 
     public StreamMycatEnumerableRelImplementor(Map<String, Object> internalParameters) {
         super(internalParameters);
@@ -26,6 +33,7 @@ public class StreamMycatEnumerableRelImplementor extends MycatEnumerableRelImple
     public ClassDeclaration implementHybridRoot(MycatRel rootRel, EnumerableRel.Prefer prefer) {
         EnumerableRel.Result result;
         try {
+            batchOutput = true;
             if (rootRel.isSupportStream()){
                 result = rootRel.implementStream(this,prefer);
             }else {
@@ -84,8 +92,44 @@ public class StreamMycatEnumerableRelImplementor extends MycatEnumerableRelImple
                 memberDeclarations);
     }
 
+    public boolean isBatchOutput() {
+        return batchOutput;
+    }
+
+    /**
+     * 把Calc(包括Filter,Project)生成按RowBatch计算的代码,输入的行先装到RowBatch,
+     * 不是根节点时再拆成行给上层的算子
+     *
+     * @return 表达式不支持时返回null,按行计算
+     */
+    public Expression implementBatchCalc(Expression inputObservable, RexProgram program, boolean batchOutput) {
+        if (!batchOutput && program.getCondition() == null
+                && program.getProjectList().stream().allMatch(p -> program.expandLocalRef(p) instanceof RexInputRef)) {
+            //只是调整列的顺序,装批再拆开没有收益
+            return null;
+        }
+        RowBatchCalcTranslator translator = new RowBatchCalcTranslator(program);
+        FunctionExpression<?> calc = translator.translate();
+        if (calc == null) {
+            return null;
+        }
+        Expression batches = Expressions.call(RxBuiltInMethod.OBSERVABLE_BATCH.method,
+                inputObservable,
+                Expressions.constant(translator.getInputTypes()),
+                Expressions.constant(RowBatch.DEFAULT_CAPACITY));
+        Expression output = Expressions.call(RxBuiltInMethod.OBSERVABLE_CALC_BATCH.method,
+                batches,
+                Expressions.constant(translator.getOutputTypes()),
+                calc);
+        if (batchOutput) {
+            return output;
+        }
+        return Expressions.call(RxBuiltInMethod.OBSERVABLE_UNBATCH.method, output);
+    }
+
     @Override
     public EnumerableRel.Result visitChild(EnumerableRel parent, int ordinal, EnumerableRel child, EnumerableRel.Prefer prefer) {
+        batchOutput = false;
        if (child instanceof MycatRel){
            MycatRel childRel = (MycatRel) child;
            if (childRel.isSupportStream()){
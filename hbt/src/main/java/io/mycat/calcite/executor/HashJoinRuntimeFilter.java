@@ -0,0 +1,124 @@
+/**
+ * Copyright (C) <2021>  <chen junwen>
+ * <p>
+ * This program is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * <p>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU General Public License along with this program.  If
+ * not, see <http://www.gnu.org/licenses/>.
+ */
+package io.mycat.calcite.executor;
+
+import io.mycat.calcite.logical.MycatView;
+import org.apache.calcite.rel.type.RelDataType;
+import org.apache.calcite.rex.RexBuilder;
+import org.apache.calcite.rex.RexNode;
+import org.apache.calcite.sql.fun.SqlStdOperatorTable;
+import org.apache.calcite.sql.type.SqlTypeFamily;
+import org.apache.calcite.sql.type.SqlTypeUtil;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * hash join的运行时过滤器
+ * <p>
+ * build端(右表)读完后收集连接键的摘要,键的个数不超过maxInListSize时生成IN列表,
+ * 否则数值类型生成min/max范围条件,追加到probe端(左表)MycatView的SQL上,分片只返回可能连接上的行.
+ * 条件只会放宽不会漏行,最终结果仍然由hash join判断
+ */
+public class HashJoinRuntimeFilter {
+    private final int probeKey;
+    private final int maxInListSize;
+    private final Set<Object> values = new LinkedHashSet<>();
+    private boolean overflow;
+    private boolean numeric = true;
+    private boolean string = true;
+    private BigDecimal min;
+    private BigDecimal max;
+
+    public HashJoinRuntimeFilter(int probeKey, int maxInListSize) {
+        this.probeKey = probeKey;
+        this.maxInListSize = maxInListSize;
+    }
+
+    public void add(Object key) {
+        if (key == null) {
+            //等值连接不会匹配null
+            return;
+        }
+        if (!(key instanceof String)) {
+            string = false;
+        }
+        if (key instanceof Number && numeric) {
+            try {
+                BigDecimal decimal = new BigDecimal(key.toString());
+                min = (min == null || decimal.compareTo(min) < 0) ? decimal : min;
+                max = (max == null || decimal.compareTo(max) > 0) ? decimal : max;
+            } catch (NumberFormatException e) {
+                //NaN,Infinity
+                numeric = false;
+            }
+        } else {
+            numeric = false;
+        }
+        if (!overflow) {
+            values.add(key);
+            if (values.size() > maxInListSize) {
+                overflow = true;
+                values.clear();
+            }
+        }
+    }
+
+    /**
+     * @return 追加到probe端的条件,无法表达或者没有收益时返回null
+     */
+    public RexNode toCondition(MycatView probe) {
+        RexBuilder rexBuilder = probe.getCluster().getRexBuilder();
+        RelDataType type = probe.getRowType().getFieldList().get(probeKey).getType();
+        return toCondition(rexBuilder, rexBuilder.makeInputRef(probe.getRelNode(), probeKey), type);
+    }
+
+    /**
+     * @param ref  probe端连接键的引用
+     * @param type probe端连接键的类型
+     */
+    RexNode toCondition(RexBuilder rexBuilder, RexNode ref, RelDataType type) {
+        if (!overflow && values.isEmpty()) {
+            return null;
+        }
+        boolean numericColumn = SqlTypeUtil.isNumeric(type);
+        boolean stringColumn = SqlTypeFamily.CHARACTER.contains(type);
+        if (!(numericColumn && numeric) && !(stringColumn && string)) {
+            return null;
+        }
+        if (!overflow) {
+            List<RexNode> literals = new ArrayList<>(values.size());
+            for (Object value : values) {
+                literals.add(numericColumn ?
+                        rexBuilder.makeExactLiteral(new BigDecimal(value.toString())) :
+                        rexBuilder.makeLiteral((String) value));
+            }
+            return rexBuilder.makeIn(ref, literals);
+        }
+        if (numericColumn) {
+            return rexBuilder.makeCall(SqlStdOperatorTable.AND,
+                    rexBuilder.makeCall(SqlStdOperatorTable.GREATER_THAN_OR_EQUAL, ref, rexBuilder.makeExactLiteral(min)),
+                    rexBuilder.makeCall(SqlStdOperatorTable.LESS_THAN_OR_EQUAL, ref, rexBuilder.makeExactLiteral(max)));
+        }
+        return null;
+    }
+
+    public int getProbeKey() {
+        return probeKey;
+    }
+}
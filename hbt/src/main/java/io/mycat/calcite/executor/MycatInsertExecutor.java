@@ -17,6 +17,7 @@ import io.mycat.*;
 import io.mycat.calcite.ExplainWriter;
 import io.mycat.calcite.physical.MycatInsertRel;
 import io.mycat.gsi.GSIService;
+import io.mycat.plug.sequence.SequenceHandler;
 import io.mycat.router.CustomRuleFunction;
 import io.mycat.router.ShardingTableHandler;
 import io.mycat.util.FastSqlUtils;
@@ -55,11 +56,20 @@ public class MycatInsertExecutor {
     public long affectedRow = 0;
     public String sequence;
     private boolean done = false;
+    /**
+     * 是否需要维护全局索引
+     */
+    private final boolean needIndex;
+    /**
+     * 每一行的数据节点和全部字段值(只计算主键,索引列和覆盖列),用于维护全局索引
+     */
+    private final List<Pair<String, List<Object>>> indexRows = new ArrayList<>();
 
     public MycatInsertExecutor(MycatDataContext context, MycatInsertRel mycatInsertRel, List<Object> params) {
         this.context = context;
         this.mycatInsertRel = mycatInsertRel;
         this.params = params;
+        this.needIndex = MetaClusterCurrent.exist(GSIService.class) && mycatInsertRel.getLogicTable().canIndex();
 
         this.multi = !params.isEmpty() && (params.get(0) instanceof List);
         if (multi) {
@@ -79,6 +89,18 @@ public class MycatInsertExecutor {
         String parameterizedSql = key.getParameterizedSql();
         MySqlInsertStatement sqlStatement = (MySqlInsertStatement) SQLUtils.parseSingleMysqlStatement(parameterizedSql);
         Group value = entry.getValue();
+        if (!multi) {
+            // 一个数据节点的所有行已经在同一条语句里
+            List<Object> arg = value.args.getFirst();
+            sqlStatement.accept(new MySqlASTVisitorAdapter() {
+                @Override
+                public void endVisit(SQLVariantRefExpr x) {
+                    SQLReplaceable parent = (SQLReplaceable) x.getParent();
+                    parent.replace(x, SQLExprUtils.fromJavaObject(arg.get(x.getIndex())));
+                }
+            });
+            return Pair.of(context.resolveDatasourceTargetName(key.getTarget(), true), sqlStatement.toString());
+        }
         List<SQLInsertStatement.ValuesClause> valuesList = sqlStatement.getValuesList();
         SQLInsertStatement.ValuesClause values = sqlStatement.getValues();
         valuesList.clear();
@@ -118,34 +140,39 @@ public class MycatInsertExecutor {
         int finalAutoIncrementIndex = mycatInsertRel.getFinalAutoIncrementIndex();
         List<Integer> shardingKeys = mycatInsertRel.getShardingKeys();
         String[] columnNames = mycatInsertRel.getColumnNames();
-        Supplier<Number> stringSupplier = logicTable.nextSequence();
 
-        Map<SQL, Group> group = new HashMap<>();
-        int count = 0;
-        for (SQLInsertStatement.ValuesClause valuesClause : mySqlInsertStatement.getValuesList()) {
-            MySqlInsertStatement cloneStatement = FastSqlUtils.clone(mySqlInsertStatement);
-            List<SQLInsertStatement.ValuesClause> valuesList = cloneStatement.getValuesList();
-            valuesList.clear();
+        // 取下所有行,语句只作为模板,每个数据节点只克隆和渲染一次
+        List<SQLInsertStatement.ValuesClause> rows = new ArrayList<>(mySqlInsertStatement.getValuesList());
+        mySqlInsertStatement.getValuesList().clear();
+
+        boolean fillSequence = finalAutoIncrementIndex == -1 && logicTable.isAutoIncrement();
+        Number[] sequences = fillSequence ? reserveSequence(logicTable, rows.size()) : null;
 
-            boolean fillSequence = finalAutoIncrementIndex == -1 && logicTable.isAutoIncrement();
-            Number sequence;
+        Map<String, Pair<DataNode, List<SQLInsertStatement.ValuesClause>>> dataNodeRows = new LinkedHashMap<>();
+        for (int i = 0; i < rows.size(); i++) {
+            SQLInsertStatement.ValuesClause valuesClause = rows.get(i);
             if (fillSequence) {
-                sequence = stringSupplier.get();
-                valuesClause.addValue(SQLExprUtils.fromJavaObject(sequence));
+                valuesClause.addValue(SQLExprUtils.fromJavaObject(sequences[i]));
             }
-
             Map<String, List<RangeVariable>> variables = compute(shardingKeys, columnNames, valuesClause.getValues(), params);
             DataNode dataNode = function.calculateOne((Map) variables);
+            addIndexRow(dataNode, valuesClause.getValues(), params);
+            dataNodeRows.computeIfAbsent(dataNode.getUniqueName(), k -> new Pair<>(dataNode, new ArrayList<>()))
+                    .getValue().add(valuesClause);
+        }
 
+        Map<SQL, Group> group = new HashMap<>();
+        for (Pair<DataNode, List<SQLInsertStatement.ValuesClause>> entry : dataNodeRows.values()) {
+            DataNode dataNode = entry.getKey();
+            MySqlInsertStatement cloneStatement = FastSqlUtils.clone(mySqlInsertStatement);
             SQLExprTableSource tableSource = cloneStatement.getTableSource();
             tableSource.setExpr(dataNode.getTable());
             tableSource.setSchema(dataNode.getSchema());
-            cloneStatement.addValueCause(valuesClause);
+            for (SQLInsertStatement.ValuesClause valuesClause : entry.getValue()) {
+                cloneStatement.addValueCause(valuesClause);
+            }
 
-            int size = valuesClause.getValues().size();
-            int startIndex = count * size;
             List<Object> outParams = new ArrayList<>();
-
             cloneStatement.accept(new MySqlASTVisitorAdapter(){
                 @Override
                 public boolean visit(SQLVariantRefExpr x) {
@@ -158,8 +185,6 @@ public class MycatInsertExecutor {
             SQL key = SQL.of(parameterizedString, dataNode, cloneStatement, outParams);
             Group group1 = group.computeIfAbsent(key, key1 -> new Group());
             group1.args.add(outParams);
-
-            count++;
         }
         return group;
     }
@@ -171,39 +196,67 @@ public class MycatInsertExecutor {
         int finalAutoIncrementIndex = mycatInsertRel.getFinalAutoIncrementIndex();
         List<Integer> shardingKeys = mycatInsertRel.getShardingKeys();
         String[] columnNames = mycatInsertRel.getColumnNames();
-        Supplier<Number> stringSupplier = logicTable.nextSequence();
-        Map<SQL, Group> group = new HashMap<>();
-        for (Object param : params) {
-            MySqlInsertStatement mySqlInsertStatement = (MySqlInsertStatement) mycatInsertRel.getMySqlInsertStatement();
-            List<Object> arg = (List<Object>) param;
-            Number sequence = null;
-            SQLInsertStatement.ValuesClause valuesClause = mySqlInsertStatement.getValues();
+        MySqlInsertStatement mySqlInsertStatement = mycatInsertRel.getMySqlInsertStatement();
+        SQLInsertStatement.ValuesClause valuesClause = mySqlInsertStatement.getValues();
 
-            if (finalAutoIncrementIndex == -1 && logicTable.isAutoIncrement()) {
-                arg.add(sequence = stringSupplier.get());
-                SQLVariantRefExpr sqlVariantRefExpr = new SQLVariantRefExpr();
-                sqlVariantRefExpr.setIndex(valuesClause.getValues().size());
-                sqlVariantRefExpr.setName("?");
-                valuesClause.addValue(sqlVariantRefExpr);
-            }
+        boolean fillSequence = finalAutoIncrementIndex == -1 && logicTable.isAutoIncrement();
+        Number[] sequences = null;
+        if (fillSequence) {
+            sequences = reserveSequence(logicTable, params.size());
+            SQLVariantRefExpr sqlVariantRefExpr = new SQLVariantRefExpr();
+            sqlVariantRefExpr.setIndex(valuesClause.getValues().size());
+            sqlVariantRefExpr.setName("?");
+            valuesClause.addValue(sqlVariantRefExpr);
+        }
 
-            Map<String, List<RangeVariable>> variables = compute(shardingKeys, columnNames, valuesClause.getValues(), (List) param);
+        Map<String, Pair<DataNode, Group>> dataNodeArgs = new LinkedHashMap<>();
+        for (int i = 0; i < params.size(); i++) {
+            List<Object> arg = (List<Object>) params.get(i);
+            if (fillSequence) {
+                arg.add(sequences[i]);
+            }
+            Map<String, List<RangeVariable>> variables = compute(shardingKeys, columnNames, valuesClause.getValues(), arg);
             DataNode dataNode = function.calculateOne((Map) variables);
-            SQLExprTableSource tableSource = mySqlInsertStatement.getTableSource();
+            addIndexRow(dataNode, valuesClause.getValues(), arg);
+            dataNodeArgs.computeIfAbsent(dataNode.getUniqueName(), k -> new Pair<>(dataNode, new Group()))
+                    .getValue().args.add(arg);
+        }
+
+        Map<SQL, Group> group = new HashMap<>();
+        for (Pair<DataNode, Group> entry : dataNodeArgs.values()) {
+            DataNode dataNode = entry.getKey();
+            MySqlInsertStatement cloneStatement = FastSqlUtils.clone(mySqlInsertStatement);
+            SQLExprTableSource tableSource = cloneStatement.getTableSource();
             tableSource.setExpr(dataNode.getTable());
             tableSource.setSchema(dataNode.getSchema());
 
             StringBuilder sb = new StringBuilder();
             List<Object> out = new ArrayList<>();
-            MycatPreparedStatementUtil.outputToParameterized(mySqlInsertStatement, sb, out);
+            MycatPreparedStatementUtil.outputToParameterized(cloneStatement, sb, out);
             String parameterizedString = sb.toString();
-            SQL key = SQL.of(parameterizedString, dataNode, mySqlInsertStatement, arg);
+            LinkedList<List<Object>> args = entry.getValue().args;
+            SQL key = SQL.of(parameterizedString, dataNode, cloneStatement, args.getFirst());
             Group group1 = group.computeIfAbsent(key, key1 -> new Group());
-            group1.args.add(arg);
+            group1.args.addAll(args);
         }
         return group;
     }
 
+    /**
+     * 一次取出整批插入需要的自增值
+     */
+    private static Number[] reserveSequence(ShardingTableHandler logicTable, int count) {
+        Supplier<Number> supplier = logicTable.nextSequence();
+        if (supplier instanceof SequenceHandler) {
+            return ((SequenceHandler) supplier).nextSequenceBlock(count);
+        }
+        Number[] sequences = new Number[count];
+        for (int i = 0; i < count; i++) {
+            sequences[i] = supplier.get();
+        }
+        return sequences;
+    }
+
     private static Map<String, List<RangeVariable>> compute(List<Integer> shardingKeys,
                                                             String[] columnNames,
                                                             List<SQLExpr> values,
@@ -258,33 +311,52 @@ public class MycatInsertExecutor {
         return explainWriter.ret();
     }
 
-    public void onInsertSuccess() {
-        ShardingTableHandler logicTable = mycatInsertRel.getLogicTable();
-        if (!logicTable.canIndex()) {
+    private void addIndexRow(DataNode dataNode, List<SQLExpr> values, List<Object> params) {
+        if (!needIndex) {
             return;
         }
-        if (!MetaClusterCurrent.exist(GSIService.class)) {
+        ShardingTableHandler logicTable = mycatInsertRel.getLogicTable();
+        String[] columnNames = mycatInsertRel.getColumnNames();
+        List<Object> row = new ArrayList<>(values.size());
+        for (int i = 0; i < values.size(); i++) {
+            SQLExpr sqlExpr = values.get(i);
+            SimpleColumnInfo column = logicTable.getColumnByName(columnNames[i]);
+            if (sqlExpr instanceof SQLVariantRefExpr) {
+                row.add(params.get(((SQLVariantRefExpr) sqlExpr).getIndex()));
+            } else if (sqlExpr instanceof SQLNullExpr
+                    || column == null
+                    || (!column.isPrimaryKey() && column.getIndexCoveringList().isEmpty())) {
+                row.add(null);
+            } else {
+                try {
+                    row.add(MycatSQLEvalVisitorUtils.eval(DbType.mysql, sqlExpr, params));
+                } catch (Throwable throwable) {
+                    throw new MycatException("全局索引列" + columnNames[i] + "不支持该插入值:" + sqlExpr);
+                }
+            }
+        }
+        indexRows.add(Pair.of(dataNode.getTargetName(), row));
+    }
+
+    /**
+     * 执行插入前登记全局索引,提交事务时生效
+     */
+    public void onInsert(String txId) {
+        if (!needIndex) {
             return;
         }
+        ShardingTableHandler logicTable = mycatInsertRel.getLogicTable();
         GSIService gsiService = MetaClusterCurrent.wrapper(GSIService.class);
-        MycatDataContext mycatDataContext = this.context;
-        TransactionSession transactionSession = mycatDataContext.getTransactionSession();
-        String txId = transactionSession.getXid();
 
         String[] columnNames = mycatInsertRel.getColumnNames();
         SimpleColumnInfo[] columns = new SimpleColumnInfo[columnNames.length];
         for (int i = 0; i < columnNames.length; i++) {
             columns[i] = logicTable.getColumnByName(columnNames[i]);
         }
-
-        for (Map.Entry<SQL, Group> entry : groupMap.entrySet()) {
-            SQL key = entry.getKey();
-            Group value = entry.getValue();
-            LinkedList<List<Object>> args = value.getArgs();
-            for (List<Object> arg : args) {
-                gsiService.insert(txId, logicTable.getSchemaName(),
-                        logicTable.getTableName(), columns, arg, key.getTarget());
-            }
+        gsiService.beginWrite(txId, logicTable.getSchemaName(), logicTable.getTableName());
+        for (Pair<String, List<Object>> indexRow : indexRows) {
+            gsiService.insert(txId, logicTable.getSchemaName(),
+                    logicTable.getTableName(), columns, indexRow.getValue(), indexRow.getKey());
         }
     }
-}
\ No newline at end of file
+}
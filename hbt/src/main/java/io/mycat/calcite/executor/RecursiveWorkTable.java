@@ -0,0 +1,108 @@
+/**
+ * Copyright (C) <2021>  <chen junwen>
+ * <p>
+ * This program is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * <p>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU General Public License along with this program.  If
+ * not, see <http://www.gnu.org/licenses/>.
+ */
+package io.mycat.calcite.executor;
+
+import io.mycat.serializable.MaterializedRecordSetFactory;
+import io.mycat.serializable.OffHeapObjectList;
+import org.apache.calcite.linq4j.AbstractEnumerable;
+import org.apache.calcite.linq4j.Enumerable;
+import org.apache.calcite.linq4j.Enumerator;
+import org.apache.calcite.linq4j.Linq4j;
+
+/**
+ * 递归查询(RepeatUnion)的工作表
+ * <p>
+ * 只保存上一轮迭代新产生的行(delta),迭代部分扫描的就是这些行.
+ * TableSpool把本轮的行写到新的记录集,本轮读完后替换掉上一轮的记录集,
+ * 记录集超过MaterializedRecordSetFactory的阈值后落盘
+ */
+public class RecursiveWorkTable {
+    private OffHeapObjectList delta;
+
+    public Enumerable<Object[]> scan() {
+        return new AbstractEnumerable<Object[]>() {
+            @Override
+            public Enumerator<Object[]> enumerator() {
+                OffHeapObjectList current = delta;
+                if (current == null) {
+                    return Linq4j.emptyEnumerator();
+                }
+                return Linq4j.iterableEnumerator(current);
+            }
+        };
+    }
+
+    public Enumerable<Object[]> spool(Enumerable<Object[]> input) {
+        return new AbstractEnumerable<Object[]>() {
+            @Override
+            public Enumerator<Object[]> enumerator() {
+                Enumerator<Object[]> inputEnumerator = input.enumerator();
+                OffHeapObjectList next = MaterializedRecordSetFactory.DEFAULT_FACTORY.createRecordSet();
+                return new Enumerator<Object[]>() {
+                    Object[] current;
+                    boolean flushed;
+
+                    @Override
+                    public Object[] current() {
+                        return current;
+                    }
+
+                    @Override
+                    public boolean moveNext() {
+                        if (flushed) {
+                            return false;
+                        }
+                        if (inputEnumerator.moveNext()) {
+                            current = inputEnumerator.current();
+                            next.addObjects(current);
+                            return true;
+                        }
+                        flushed = true;
+                        next.finish();
+                        replace(next);
+                        return false;
+                    }
+
+                    @Override
+                    public void reset() {
+                        throw new UnsupportedOperationException();
+                    }
+
+                    @Override
+                    public void close() {
+                        inputEnumerator.close();
+                        if (!flushed) {
+                            //没有读完的一轮不替换工作表
+                            flushed = true;
+                            next.close();
+                        }
+                    }
+                };
+            }
+        };
+    }
+
+    private void replace(OffHeapObjectList next) {
+        OffHeapObjectList old = this.delta;
+        this.delta = next;
+        if (old != null) {
+            old.close();
+        }
+    }
+
+    public void close() {
+        replace(null);
+    }
+}
@@ -0,0 +1,271 @@
+/**
+ * Copyright (C) <2021>  <chen junwen>
+ * <p>
+ * This program is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * <p>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU General Public License along with this program.  If
+ * not, see <http://www.gnu.org/licenses/>.
+ */
+package io.mycat.calcite.executor;
+
+import io.mycat.MetaClusterCurrent;
+import io.mycat.NameableThreadFactory;
+import io.mycat.config.ServerConfig;
+import io.mycat.serializable.MaterializedRecordSetFactory;
+import io.mycat.serializable.OffHeapObjectList;
+import org.apache.calcite.linq4j.AbstractEnumerable;
+import org.apache.calcite.linq4j.Enumerable;
+import org.apache.calcite.linq4j.Enumerator;
+import org.apache.calcite.linq4j.Linq4j;
+import org.apache.calcite.linq4j.function.Function1;
+import org.apache.calcite.linq4j.function.Functions;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * 窗口函数按分区键hash分桶并行计算
+ * <p>
+ * 输入行数不超过PARALLEL_THRESHOLD时直接在当前线程计算.
+ * 否则按所有窗口共同的分区键把行分到若干个桶(超过阈值的行落盘),
+ * 同一个分区的行一定在同一个桶,每个桶独立执行窗口计算,同时最多windowParallelism个桶在内存中,
+ * 计算结果写入落盘列表.
+ * <p>
+ * 输入有序时(collation不为null)窗口的输出按输入的排序输出:每个桶的结果先排序,全部完成后多路归并
+ */
+public class WindowPartitionExecutor {
+    private static final int THREADS = Runtime.getRuntime().availableProcessors();
+    private static final ThreadPoolExecutor WINDOW_EXECUTOR = new ThreadPoolExecutor(THREADS, THREADS,
+            60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), new NameableThreadFactory("windowPartition", true));
+    private static final int PARALLEL_THRESHOLD = 10000;
+    private static final int BUCKETS_PER_THREAD = 4;
+
+    static {
+        WINDOW_EXECUTOR.allowCoreThreadTimeOut(true);
+    }
+
+    public static Enumerable<Object> execute(Enumerable<Object[]> input,
+                                             Function1<Object[], Object> partitionKey,
+                                             Function1<Enumerable<Object[]>, Enumerable<Object>> window,
+                                             Comparator<Object[]> collation) {
+        int parallelism = MetaClusterCurrent.exist(ServerConfig.class) ?
+                MetaClusterCurrent.wrapper(ServerConfig.class).getWindowParallelism() : 1;
+        parallelism = Math.min(parallelism, THREADS);
+        if (parallelism <= 1) {
+            return sort(window.apply(input), collation);
+        }
+        int finalParallelism = parallelism;
+        return new AbstractEnumerable<Object>() {
+            @Override
+            public Enumerator<Object> enumerator() {
+                List<Object[]> head = new ArrayList<>();
+                Enumerator<Object[]> enumerator = input.enumerator();
+                try {
+                    while (head.size() < PARALLEL_THRESHOLD && enumerator.moveNext()) {
+                        head.add(enumerator.current());
+                    }
+                    if (head.size() < PARALLEL_THRESHOLD) {
+                        return sort(window.apply(Linq4j.asEnumerable(head)), collation).enumerator();
+                    }
+                    OffHeapObjectList[] buckets = new OffHeapObjectList[finalParallelism * BUCKETS_PER_THREAD];
+                    for (int i = 0; i < buckets.length; i++) {
+                        buckets[i] = MaterializedRecordSetFactory.DEFAULT_FACTORY.createRecordSet();
+                    }
+                    for (Object[] row : head) {
+                        addToBucket(buckets, partitionKey, row);
+                    }
+                    head = null;
+                    while (enumerator.moveNext()) {
+                        addToBucket(buckets, partitionKey, enumerator.current());
+                    }
+                    for (OffHeapObjectList bucket : buckets) {
+                        bucket.finish();
+                    }
+                    return new BucketEnumerator(buckets, window, collation, finalParallelism);
+                } finally {
+                    enumerator.close();
+                }
+            }
+        };
+    }
+
+    private static Enumerable<Object> sort(Enumerable<Object> enumerable, Comparator<Object[]> collation) {
+        if (collation == null) {
+            return enumerable;
+        }
+        return enumerable.orderBy(Functions.identitySelector(), (o1, o2) -> collation.compare((Object[]) o1, (Object[]) o2));
+    }
+
+    private static void addToBucket(OffHeapObjectList[] buckets, Function1<Object[], Object> partitionKey, Object[] row) {
+        Object key = partitionKey.apply(row);
+        int hash = key == null ? 0 : key.hashCode();
+        hash ^= (hash >>> 16);
+        buckets[Math.floorMod(hash, buckets.length)].addObjects(row);
+    }
+
+    /**
+     * 取走一个桶的结果后才提交下一个桶;
+     * 不要求顺序时按完成顺序输出各个桶的结果,否则等全部桶完成后按collation多路归并
+     */
+    private static class BucketEnumerator implements Enumerator<Object> {
+        private final OffHeapObjectList[] buckets;
+        private final Function1<Enumerable<Object[]>, Enumerable<Object>> window;
+        private final Comparator<Object[]> collation;
+        private final CompletionService<OffHeapObjectList> completionService = new ExecutorCompletionService<>(WINDOW_EXECUTOR);
+        /**
+         * 计算完成的桶结果,由计算任务在锁内登记,close时统一释放
+         */
+        private final List<OffHeapObjectList> results = new ArrayList<>();
+        private boolean closed;
+        private int submitted;
+        private int finished;
+        private Iterator<Object[]> current = null;
+        private PriorityQueue<PeekingIterator> merging = null;
+        private Object row;
+
+        BucketEnumerator(OffHeapObjectList[] buckets,
+                         Function1<Enumerable<Object[]>, Enumerable<Object>> window,
+                         Comparator<Object[]> collation,
+                         int parallelism) {
+            this.buckets = buckets;
+            this.window = window;
+            this.collation = collation;
+            while (submitted < Math.min(parallelism, buckets.length)) {
+                submitNext();
+            }
+        }
+
+        private void submitNext() {
+            OffHeapObjectList bucket = buckets[submitted++];
+            completionService.submit(() -> {
+                OffHeapObjectList result = MaterializedRecordSetFactory.DEFAULT_FACTORY.createRecordSet();
+                try {
+                    for (Object output : sort(window.apply(Linq4j.asEnumerable(bucket)), collation)) {
+                        result.addObjects((Object[]) output);
+                    }
+                    result.finish();
+                } catch (Throwable throwable) {
+                    result.close();
+                    throw throwable;
+                } finally {
+                    bucket.close();
+                }
+                synchronized (results) {
+                    if (closed) {
+                        result.close();
+                        return null;
+                    }
+                    results.add(result);
+                    return result;
+                }
+            });
+        }
+
+        private OffHeapObjectList takeNext() {
+            try {
+                OffHeapObjectList result = completionService.take().get();
+                finished++;
+                if (submitted < buckets.length) {
+                    submitNext();
+                }
+                return result;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                close();
+                throw new RuntimeException(e);
+            } catch (ExecutionException e) {
+                close();
+                throw new RuntimeException(e.getCause());
+            }
+        }
+
+        @Override
+        public Object current() {
+            return row;
+        }
+
+        @Override
+        public boolean moveNext() {
+            if (collation != null) {
+                return moveNextMerged();
+            }
+            while (current == null || !current.hasNext()) {
+                if (finished == buckets.length) {
+                    return false;
+                }
+                current = takeNext().iterator();
+            }
+            row = current.next();
+            return true;
+        }
+
+        private boolean moveNextMerged() {
+            if (merging == null) {
+                while (finished < buckets.length) {
+                    takeNext();
+                }
+                merging = new PriorityQueue<>(Math.max(1, results.size()), (o1, o2) -> collation.compare(o1.peek, o2.peek));
+                for (OffHeapObjectList result : results) {
+                    PeekingIterator iterator = new PeekingIterator(result.iterator());
+                    if (iterator.peek != null) {
+                        merging.add(iterator);
+                    }
+                }
+            }
+            PeekingIterator iterator = merging.poll();
+            if (iterator == null) {
+                return false;
+            }
+            row = iterator.peek;
+            if (iterator.advance()) {
+                merging.add(iterator);
+            }
+            return true;
+        }
+
+        @Override
+        public void reset() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void close() {
+            //已经提交的桶由计算任务关闭,close之后才完成的结果也由计算任务释放
+            for (int i = submitted; i < buckets.length; i++) {
+                buckets[i].close();
+            }
+            synchronized (results) {
+                closed = true;
+                for (OffHeapObjectList result : results) {
+                    result.close();
+                }
+                results.clear();
+            }
+            submitted = buckets.length;
+            finished = buckets.length;
+            current = null;
+            merging = null;
+        }
+    }
+
+    private static class PeekingIterator {
+        private final Iterator<Object[]> iterator;
+        private Object[] peek;
+
+        PeekingIterator(Iterator<Object[]> iterator) {
+            this.iterator = iterator;
+            advance();
+        }
+
+        boolean advance() {
+            peek = iterator.hasNext() ? iterator.next() : null;
+            return peek != null;
+        }
+    }
+}
@@ -14,6 +14,7 @@
  */
 package io.mycat.calcite.logical;
 
+import cn.mycat.vertx.xa.MySQLManager;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMultimap;
 import com.google.common.collect.Iterables;
@@ -22,13 +23,19 @@ import io.mycat.MetaClusterCurrent;
 import io.mycat.TableHandler;
 import io.mycat.calcite.*;
 import io.mycat.calcite.physical.MycatMergeSort;
+import io.mycat.calcite.rewriter.DataNodeConditionPruner;
 import io.mycat.calcite.rewriter.Distribution;
 import io.mycat.calcite.rewriter.PredicateAnalyzer;
+import io.mycat.calcite.rewriter.ShardingRouteEvaluator;
 import io.mycat.calcite.table.GlobalTable;
 import io.mycat.calcite.table.MycatLogicTable;
 import io.mycat.calcite.table.MycatPhysicalTable;
 import io.mycat.calcite.table.ShardingTable;
 import io.mycat.config.ServerConfig;
+import io.mycat.replica.PhysicsInstance;
+import io.mycat.replica.ReplicaSelector;
+import io.mycat.replica.ReplicaSelectorManager;
+import io.mycat.statistic.StatisticCenter;
 import org.apache.calcite.adapter.enumerable.JavaRowFormat;
 import org.apache.calcite.adapter.enumerable.PhysType;
 import org.apache.calcite.adapter.enumerable.PhysTypeImpl;
@@ -43,6 +50,7 @@ import org.apache.calcite.prepare.RelOptTableImpl;
 import org.apache.calcite.rel.*;
 import org.apache.calcite.rel.core.Collect;
 import org.apache.calcite.rel.core.TableScan;
+import org.apache.calcite.rel.logical.LogicalFilter;
 import org.apache.calcite.rel.logical.LogicalSort;
 import org.apache.calcite.rel.logical.LogicalTableScan;
 import org.apache.calcite.rel.logical.LogicalUnion;
@@ -69,6 +77,10 @@ public class MycatView extends AbstractRelNode implements MycatRel {
     final Distribution distribution;
     final RexNode conditions;
     final boolean containsOrder;
+    /**
+     * 随执行计划缓存的等值路由,第一次执行时编译
+     */
+    private volatile ShardingRouteEvaluator routeEvaluator;
 
     public MycatView(RelTraitSet relTrait, RelNode input, Distribution dataNode) {
         this(relTrait, input, dataNode, null);
@@ -110,6 +122,13 @@ public class MycatView extends AbstractRelNode implements MycatRel {
         return new MycatView(input.getTraitSet().replace(MycatConvention.INSTANCE), input, dataNodeInfo, this.conditions);
     }
 
+    /**
+     * 在下推的关系表达式上追加过滤条件,用于运行时过滤
+     */
+    public MycatView addFilter(RexNode condition) {
+        return changeTo(LogicalFilter.create(relNode, condition), distribution);
+    }
+
     public static MycatView ofBottom(RelNode input, Distribution dataNodeInfo) {
         return new MycatView(input.getTraitSet().replace(MycatConvention.INSTANCE), input, dataNodeInfo);
     }
@@ -193,16 +212,26 @@ public class MycatView extends AbstractRelNode implements MycatRel {
     }
 
     public Stream<Map<String, DataNode>> assignParams(List<Object> params) {
-        return distribution.getDataNodes(table -> PredicateAnalyzer.analyze(table, conditions == null ?
-                ImmutableList.of() : ImmutableList.of(conditions), params));
+        return distribution.getDataNodes(table -> {
+            ShardingRouteEvaluator evaluator = this.routeEvaluator;
+            if (evaluator == null) {
+                this.routeEvaluator = evaluator = ShardingRouteEvaluator.compile(table, conditions);
+            }
+            List<DataNode> dataNodes = evaluator.evaluate(table, params);
+            if (dataNodes != null) {
+                return dataNodes;
+            }
+            return PredicateAnalyzer.analyze(table, conditions == null ?
+                    ImmutableList.of() : ImmutableList.of(conditions), params);
+        });
     }
 
     public ImmutableMultimap<String, SqlString> expandToSql(boolean update, List<Object> params) {
         ServerConfig serverConfig = MetaClusterCurrent.wrapper(ServerConfig.class);
-        return expandToSql(update, params, serverConfig.getMergeUnionSize());
+        return expandToSql(update, params, serverConfig.getMergeUnionSize(), serverConfig.getMergeUnionMaxRows());
     }
 
-    public ImmutableMultimap<String, SqlString> expandToSql(boolean update, List<Object> params, int mergeUnionSize) {
+    public ImmutableMultimap<String, SqlString> expandToSql(boolean update, List<Object> params, int mergeUnionSize, long mergeUnionMaxRows) {
         Stream<Map<String, DataNode>> dataNodes = assignParams(params);
         if (distribution.type() == Distribution.Type.BroadCast) {
             GlobalTable globalTable = distribution.getGlobalTables().get(0);
@@ -215,27 +244,35 @@ public class MycatView extends AbstractRelNode implements MycatRel {
             SqlString sqlString = MycatCalciteSupport.INSTANCE.convertToSql(relNode, dialect, m, update, params);
             return ImmutableMultimap.of(targetName, sqlString);
         }
+        List<Map<String, DataNode>> dataNodeList = dataNodes.collect(Collectors.toList());
+        //多个分片时按分片裁剪IN/OR条件
+        DataNodeConditionPruner pruner = (dataNodeList.size() > 1 && !distribution.getShardingTables().isEmpty())
+                ? new DataNodeConditionPruner(params) : null;
         if (mergeUnionSize == 0 || containsOrder) {
             ImmutableMultimap.Builder<String, SqlString> builder = ImmutableMultimap.builder();
-            dataNodes.forEach(m -> {
+            dataNodeList.forEach(m -> {
                 String targetName = m.values().iterator().next().getTargetName();
                 SqlDialect dialect = MycatCalciteSupport.INSTANCE.getSqlDialectByTargetName(targetName);
-                SqlString sqlString = MycatCalciteSupport.INSTANCE.convertToSql(relNode, dialect, m, update, params);
+                RelNode node = pruner == null ? relNode : pruner.prune(relNode, m);
+                SqlString sqlString = MycatCalciteSupport.INSTANCE.convertToSql(node, dialect, m, update, params);
                 builder.put(targetName, sqlString);
             });
             return builder.build();
         }
-        Map<String, List<Map<String, DataNode>>> collect = dataNodes.collect(Collectors.groupingBy(m -> m.values().iterator().next().getTargetName()));
+        Map<String, List<Map<String, DataNode>>> collect = dataNodeList.stream().collect(Collectors.groupingBy(m -> m.values().iterator().next().getTargetName()));
         ImmutableMultimap.Builder<String, SqlString> resMapBuilder = ImmutableMultimap.builder();
         for (Map.Entry<String, List<Map<String, DataNode>>> entry : collect.entrySet()) {
             String targetName = entry.getKey();
             SqlDialect dialect = MycatCalciteSupport.INSTANCE.getSqlDialectByTargetName(targetName);
-            Iterator<List<Map<String, DataNode>>> iterator = Iterables.partition(entry.getValue(), mergeUnionSize + 1).iterator();
+            int unionWidth = computeUnionWidth(entry.getValue().size(), mergeUnionSize,
+                    estimateRowsPerTable(), mergeUnionMaxRows, getAvailableConnections(targetName, update));
+            Iterator<List<Map<String, DataNode>>> iterator = Iterables.partition(entry.getValue(), unionWidth).iterator();
             while (iterator.hasNext()) {
                 List<Map<String, DataNode>> eachList = iterator.next();
                 ImmutableList.Builder<RelNode> builderList = ImmutableList.builder();
                 for (Map<String, DataNode> each : eachList) {
-                    RelNode newNode = relNode.accept(new RelShuttleImpl() {
+                    RelNode node = pruner == null ? relNode : pruner.prune(relNode, each);
+                    RelNode newNode = node.accept(new RelShuttleImpl() {
                         @Override
                         public RelNode visit(LogicalSort sort) {
                             return super.visit(sort);
@@ -270,6 +307,79 @@ public class MycatView extends AbstractRelNode implements MycatRel {
         return resMapBuilder.build();
     }
 
+    /**
+     * 计算同一个目标上每条UNION ALL语句合并的物理表数量
+     * <p>
+     * 默认按mergeUnionSize合并.
+     * 单表预计行数较多时减少合并数量,使每条语句预计行数不超过maxRows,让大表分散到多个连接并行扫描;
+     * 空闲连接不足时加大合并数量,使语句数不超过空闲连接数,避免排队等待连接.
+     * 没有空闲连接(0)时全部合并,空闲连接数未知(-1)时不调整
+     *
+     * @param rowsPerTable 单个物理表的预计行数,NULL表示没有统计信息
+     * @param maxRows      一条语句预计返回的最大行数,0表示不限制
+     * @param available    目标当前空闲的连接数
+     */
+    static int computeUnionWidth(int tableCount, int mergeUnionSize, Double rowsPerTable, long maxRows, int available) {
+        int width = mergeUnionSize + 1;
+        if (maxRows > 0 && rowsPerTable != null && rowsPerTable > 0) {
+            width = (int) Math.max(1, Math.min(width, maxRows / rowsPerTable));
+        }
+        if (available == 0) {
+            //连接池已经用满,合并成一条语句只占一个连接
+            width = tableCount;
+        } else if (available > 0) {
+            int minWidth = (tableCount + available - 1) / available;
+            width = Math.max(width, minWidth);
+        }
+        return Math.max(1, Math.min(width, tableCount));
+    }
+
+    /**
+     * 按统计信息估算分片表单个物理表的行数,没有统计信息时返回NULL
+     */
+    private Double estimateRowsPerTable() {
+        Double res = null;
+        for (ShardingTable shardingTable : distribution.getShardingTables()) {
+            Double rows = StatisticCenter.INSTANCE.getLogicTableRow(shardingTable.getSchemaName(), shardingTable.getTableName());
+            int size = shardingTable.dataNodes().size();
+            if (rows == null || size == 0) {
+                continue;
+            }
+            double each = rows / size;
+            res = res == null ? each : Math.max(res, each);
+        }
+        return res;
+    }
+
+    /**
+     * @return 目标(集群或者数据源)当前空闲的连接数,-1表示未知
+     */
+    private static int getAvailableConnections(String targetName, boolean update) {
+        if (!MetaClusterCurrent.exist(MySQLManager.class)) {
+            return -1;
+        }
+        MySQLManager mySQLManager = MetaClusterCurrent.wrapper(MySQLManager.class);
+        if (MetaClusterCurrent.exist(ReplicaSelectorManager.class)) {
+            ReplicaSelectorManager selectorManager = MetaClusterCurrent.wrapper(ReplicaSelectorManager.class);
+            ReplicaSelector replicaSelector = selectorManager.getReplicaMap().get(targetName);
+            if (replicaSelector != null) {
+                //语句会落到负载均衡选中的一个数据源上,不能累加,取可以选择的数据源中空闲连接最多的
+                List<PhysicsInstance> instances = update ? replicaSelector.getWriteDataSourceByReplicaType()
+                        : replicaSelector.getDataSourceByLoadBalacneType();
+                int max = -1;
+                for (PhysicsInstance instance : instances) {
+                    int n = mySQLManager.getAvailableNumber(instance.getName());
+                    if (n < 0) {
+                        return -1;
+                    }
+                    max = Math.max(max, n);
+                }
+                return max;
+            }
+        }
+        return mySQLManager.getAvailableNumber(targetName);
+    }
+
 //    public List<String> getTargets(List<Object> params) {
 //        distribution.
 //        if (this.distribution.isPhy() || this.distribution.isBroadCast()) {
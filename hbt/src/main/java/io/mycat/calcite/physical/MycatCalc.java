@@ -301,6 +301,8 @@ public class MycatCalc extends Calc implements MycatRel {
         final JavaTypeFactory typeFactory = implementor.getTypeFactory();
         final BlockBuilder builder = new BlockBuilder();
         final EnumerableRel child = (EnumerableRel) getInput();
+        //访问子节点之前读取,子节点不能输出RowBatch
+        final boolean batchOutput = implementor.isBatchOutput();
 
         final Result result =
                 implementor.visitChild(this, 0, child, pref);
@@ -324,6 +326,13 @@ public class MycatCalc extends Calc implements MycatRel {
             final RexSimplify simplify =
                     new RexSimplify(rexBuilder, predicates, RexUtil.EXECUTOR);
             final RexProgram program = this.program.normalize(rexBuilder, simplify);
+            if (result.physType.getFormat() == JavaRowFormat.ARRAY && physType.getFormat() == JavaRowFormat.ARRAY) {
+                Expression batchCalc = implementor.implementBatchCalc(inputObservalbe, program, batchOutput);
+                if (batchCalc != null) {
+                    builder.add(batchCalc);
+                    return implementor.result(physType, builder.toBlock());
+                }
+            }
             Expression condition = null;
             Expression project = null;
             ParameterExpression rowParameter = Expressions.parameter(inputJavaType, "row");
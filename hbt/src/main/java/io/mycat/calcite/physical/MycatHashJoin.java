@@ -17,10 +17,14 @@ package io.mycat.calcite.physical;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import io.mycat.calcite.*;
+import io.mycat.calcite.logical.MycatView;
 import org.apache.calcite.adapter.enumerable.*;
+import org.apache.calcite.linq4j.Enumerable;
+import org.apache.calcite.linq4j.function.Function1;
 import org.apache.calcite.linq4j.tree.BlockBuilder;
 import org.apache.calcite.linq4j.tree.Expression;
 import org.apache.calcite.linq4j.tree.Expressions;
+import org.apache.calcite.linq4j.tree.Types;
 import org.apache.calcite.plan.RelOptCluster;
 import org.apache.calcite.plan.RelOptCost;
 import org.apache.calcite.plan.RelOptPlanner;
@@ -37,6 +41,7 @@ import org.apache.calcite.rel.metadata.RelMdUtil;
 import org.apache.calcite.rel.metadata.RelMetadataQuery;
 import org.apache.calcite.rex.RexNode;
 import org.apache.calcite.rex.RexUtil;
+import org.apache.calcite.runtime.NewMycatDataContext;
 import org.apache.calcite.util.BuiltInMethod;
 import org.apache.calcite.util.Util;
 
@@ -45,6 +50,9 @@ import java.util.List;
 import java.util.Set;
 
 public class MycatHashJoin extends Join implements MycatRel {
+    private static final Method RUNTIME_FILTER = Types.lookupMethod(NewMycatDataContext.class,
+            "runtimeFilter", Enumerable.class, RelNode.class, int.class, Function1.class);
+
     protected MycatHashJoin(RelOptCluster cluster,
                             RelTraitSet traitSet,
                             RelNode left,
@@ -206,6 +214,17 @@ public class MycatHashJoin extends Join implements MycatRel {
         Expression rightExpression =
                 toEnumerate(builder.append(
                         "right", rightResult.block));
+        if (isSupportRuntimeFilter()) {
+            int leftKey = joinInfo.leftKeys.get(0);
+            int rightKey = joinInfo.rightKeys.get(0);
+            rightExpression = builder.append("rightWithRuntimeFilter",
+                    Expressions.call(implementor.getRootExpression(),
+                            RUNTIME_FILTER,
+                            rightExpression,
+                            implementor.stash(left, RelNode.class),
+                            Expressions.constant(leftKey),
+                            rightResult.physType.generateAccessor(ImmutableList.of(rightKey))));
+        }
         final PhysType physType =
                 PhysTypeImpl.of(
                         implementor.getTypeFactory(), getRowType(), pref.preferArray());
@@ -246,6 +265,15 @@ public class MycatHashJoin extends Join implements MycatRel {
                                         .append(predicate)))
                         .toBlock());
     }
+    /**
+     * 右表是build端,会先于左表读完,inner/right join可以用右表的连接键过滤左表
+     */
+    private boolean isSupportRuntimeFilter() {
+        return (joinType == JoinRelType.INNER || joinType == JoinRelType.RIGHT)
+                && left instanceof MycatView
+                && !joinInfo.leftKeys.isEmpty();
+    }
+
     @Override
     public boolean isSupportStream() {
         return false;
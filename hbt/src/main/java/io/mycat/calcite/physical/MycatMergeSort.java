@@ -15,7 +15,6 @@
 package io.mycat.calcite.physical;
 
 
-import com.google.common.collect.Iterators;
 import io.mycat.calcite.*;
 import io.mycat.calcite.logical.MycatView;
 import io.reactivex.rxjava3.core.Observable;
@@ -41,6 +40,7 @@ import org.apache.calcite.rex.RexLiteral;
 import org.apache.calcite.rex.RexNode;
 import org.apache.calcite.runtime.NewMycatDataContext;
 import org.apache.calcite.util.BuiltInMethod;
+import org.apache.calcite.util.LoserTree;
 import org.apache.calcite.util.Pair;
 import org.apache.calcite.util.RxBuiltInMethodImpl;
 import org.jetbrains.annotations.NotNull;
@@ -149,7 +149,7 @@ public class MycatMergeSort extends Sort implements MycatRel {
                     list.add(source.iterator());
                 }
 
-                return Iterators.<TSource>mergeSorted(list, (o1, o2) -> {
+                return LoserTree.<TSource>mergeSorted(list, (o1, o2) -> {
                     TKey left = keySelector.apply(o1);
                     TKey right = keySelector.apply(o2);
                     return comparator.compare(left, right);
@@ -17,10 +17,13 @@ package io.mycat.calcite.physical;
 import io.mycat.calcite.ExplainWriter;
 import io.mycat.calcite.MycatConvention;
 import io.mycat.calcite.MycatRel;
+import io.mycat.calcite.executor.RecursiveWorkTable;
 import org.apache.calcite.adapter.enumerable.*;
+import org.apache.calcite.linq4j.Enumerable;
 import org.apache.calcite.linq4j.tree.BlockBuilder;
 import org.apache.calcite.linq4j.tree.Expression;
 import org.apache.calcite.linq4j.tree.Expressions;
+import org.apache.calcite.linq4j.tree.Types;
 import org.apache.calcite.plan.RelOptCluster;
 import org.apache.calcite.plan.RelOptTable;
 import org.apache.calcite.plan.RelTraitSet;
@@ -30,10 +33,15 @@ import org.apache.calcite.rel.RelNode;
 import org.apache.calcite.rel.core.Spool;
 import org.apache.calcite.rel.core.TableSpool;
 import org.apache.calcite.rel.metadata.RelMetadataQuery;
+import org.apache.calcite.runtime.NewMycatDataContext;
 import org.apache.calcite.schema.ModifiableTable;
 import org.apache.calcite.util.BuiltInMethod;
 
+import java.lang.reflect.Method;
+
 public class MycatTableSpool extends TableSpool implements MycatRel {
+    static final Method GET_WORK_TABLE = Types.lookupMethod(NewMycatDataContext.class, "getWorkTable", String.class);
+    static final Method WORK_TABLE_SPOOL = Types.lookupMethod(RecursiveWorkTable.class, "spool", Enumerable.class);
 
     private MycatTableSpool(RelOptCluster cluster, RelTraitSet traitSet,
                                  RelNode input, Type readType, Type writeType, RelOptTable table) {
@@ -80,6 +88,19 @@ public class MycatTableSpool extends TableSpool implements MycatRel {
         Result inputResult = implementor.visitChild(this, 0, (EnumerableRel) input, pref);
 
         String tableName = table.getQualifiedName().get(table.getQualifiedName().size() - 1);
+        if (inputResult.format == JavaRowFormat.ARRAY) {
+            //  return root.getWorkTable(tableName).spool(<inputExp>);
+            Expression inputExp = toEnumerate(builder.append("input", inputResult.block));
+            builder.add(Expressions.call(
+                    Expressions.call(implementor.getRootExpression(), GET_WORK_TABLE, Expressions.constant(tableName)),
+                    WORK_TABLE_SPOOL,
+                    inputExp));
+            PhysType physType = PhysTypeImpl.of(
+                    implementor.getTypeFactory(),
+                    getRowType(),
+                    JavaRowFormat.ARRAY);
+            return implementor.result(physType, builder.toBlock());
+        }
         Expression tableExp = Expressions.convert_(
                 Expressions.call(
                         Expressions.call(
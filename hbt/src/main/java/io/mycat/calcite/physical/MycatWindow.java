@@ -19,17 +19,22 @@ import io.mycat.calcite.ExplainWriter;
 import io.mycat.calcite.MycatConvention;
 import io.mycat.calcite.MycatEnumerableRelImplementor;
 import io.mycat.calcite.MycatRel;
+import io.mycat.calcite.executor.WindowPartitionExecutor;
 import org.apache.calcite.adapter.enumerable.*;
 import org.apache.calcite.adapter.enumerable.impl.WinAggAddContextImpl;
 import org.apache.calcite.adapter.enumerable.impl.WinAggResetContextImpl;
 import org.apache.calcite.adapter.enumerable.impl.WinAggResultContextImpl;
 import org.apache.calcite.adapter.java.JavaTypeFactory;
 import org.apache.calcite.config.CalciteSystemProperty;
+import org.apache.calcite.linq4j.Enumerable;
+import org.apache.calcite.linq4j.function.Function1;
 import org.apache.calcite.linq4j.tree.*;
 import org.apache.calcite.plan.RelOptCluster;
 import org.apache.calcite.plan.RelOptCost;
 import org.apache.calcite.plan.RelOptPlanner;
 import org.apache.calcite.plan.RelTraitSet;
+import org.apache.calcite.rel.RelCollation;
+import org.apache.calcite.rel.RelCollations;
 import org.apache.calcite.rel.RelFieldCollation;
 import org.apache.calcite.rel.RelNode;
 import org.apache.calcite.rel.core.AggregateCall;
@@ -50,12 +55,10 @@ import org.apache.calcite.util.ImmutableBitSet;
 import org.apache.calcite.util.Pair;
 import org.apache.calcite.util.Util;
 
+import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.lang.reflect.Type;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Iterator;
-import java.util.List;
+import java.util.*;
 import java.util.function.Function;
 
 /**
@@ -63,6 +66,8 @@ import java.util.function.Function;
  * {@link MycatConvention Mycat calling convention}.
  */
 public class MycatWindow extends Window implements MycatRel {
+    private static final Method PARTITION_PARALLEL = Types.lookupMethod(WindowPartitionExecutor.class,
+            "execute", Enumerable.class, Function1.class, Function1.class, Comparator.class);
 
     public MycatWindow(RelOptCluster cluster, RelTraitSet traits, RelNode child,
                        List<RexLiteral> constants, RelDataType rowType, List<Window.Group> groups) {
@@ -173,9 +178,25 @@ public class MycatWindow extends Window implements MycatRel {
     public Result implement(EnumerableRelImplementor implementor, Prefer pref) {
         final JavaTypeFactory typeFactory = implementor.getTypeFactory();
         final EnumerableRel child = (EnumerableRel) getInput();
-        final BlockBuilder builder = new BlockBuilder();
+        final BlockBuilder outerBuilder = new BlockBuilder();
         final Result result = implementor.visitChild(this, 0, child, pref);
-        Expression source_ = toEnumerate(builder.append("source", result.block));
+        final Expression input_ = toEnumerate(outerBuilder.append("source", result.block));
+
+        //所有窗口的分区都能按同一组键切开时,窗口计算放到lambda里按分区并行执行
+        final ImmutableBitSet parallelKeys = pref.prefer(result.format) == JavaRowFormat.ARRAY ?
+                getParallelPartitionKeys(result.physType) : null;
+        final BlockBuilder builder;
+        final ParameterExpression partition_;
+        Expression source_;
+        if (parallelKeys != null) {
+            builder = new BlockBuilder(true, outerBuilder);
+            partition_ = Expressions.parameter(Enumerable.class, outerBuilder.newName("partition"));
+            source_ = partition_;
+        } else {
+            builder = outerBuilder;
+            partition_ = null;
+            source_ = input_;
+        }
 
         final List<Expression> translatedConstants =
                 new ArrayList<>(constants.size());
@@ -528,7 +549,54 @@ public class MycatWindow extends Window implements MycatRel {
         //   return Linq4j.asEnumerable(list);
         builder.add(
                 Expressions.return_(null, source_));
-        return implementor.result(inputPhysType, builder.toBlock());
+        if (partition_ != null) {
+            outerBuilder.add(
+                    Expressions.return_(null,
+                            Expressions.call(
+                                    PARTITION_PARALLEL,
+                                    input_,
+                                    result.physType.generateAccessor(parallelKeys.asList()),
+                                    Expressions.lambda(Function1.class, builder.toBlock(), partition_),
+                                    getInputCollationComparator(outerBuilder, result.physType))));
+        }
+        return implementor.result(inputPhysType, outerBuilder.toBlock());
+    }
+
+    /**
+     * 输出沿用输入的排序(RelMdCollation按输入推导窗口的collation),并行计算的结果需要按它归并;
+     * 输入的多个collation依次作为比较的键,满足其中第一个的同时也满足其余的
+     *
+     * @return 输入无序时返回null常量
+     */
+    private Expression getInputCollationComparator(BlockBuilder builder, PhysType inputPhysType) {
+        List<RelFieldCollation> fieldCollations = new ArrayList<>();
+        Set<Integer> fields = new HashSet<>();
+        List<RelCollation> collations = getCluster().getMetadataQuery().collations(getInput());
+        for (RelCollation collation : collations == null ? Collections.<RelCollation>emptyList() : collations) {
+            for (RelFieldCollation fieldCollation : collation.getFieldCollations()) {
+                if (fields.add(fieldCollation.getFieldIndex())) {
+                    fieldCollations.add(fieldCollation);
+                }
+            }
+        }
+        if (fieldCollations.isEmpty()) {
+            return Expressions.constant(null, Comparator.class);
+        }
+        return builder.append("collation", inputPhysType.generateComparator(RelCollations.of(fieldCollations)));
+    }
+
+    /**
+     * @return 所有窗口的分区键的交集,不能按分区并行时返回null
+     */
+    private ImmutableBitSet getParallelPartitionKeys(PhysType inputPhysType) {
+        if (inputPhysType.getFormat() != JavaRowFormat.ARRAY) {
+            return null;
+        }
+        ImmutableBitSet keys = null;
+        for (Window.Group group : groups) {
+            keys = keys == null ? group.keys : keys.intersect(group.keys);
+        }
+        return keys == null || keys.isEmpty() ? null : keys;
     }
 
     private Function<BlockBuilder, WinAggFrameResultContext>
@@ -0,0 +1,91 @@
+/**
+ * Copyright (C) <2021>  <chen junwen>
+ * <p>
+ * This program is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * <p>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU General Public License along with this program.  If
+ * not, see <http://www.gnu.org/licenses/>.
+ */
+package io.mycat.calcite.physical;
+
+import io.mycat.calcite.*;
+import io.mycat.calcite.executor.RecursiveWorkTable;
+import org.apache.calcite.adapter.enumerable.JavaRowFormat;
+import org.apache.calcite.adapter.enumerable.PhysType;
+import org.apache.calcite.adapter.enumerable.PhysTypeImpl;
+import org.apache.calcite.linq4j.tree.BlockBuilder;
+import org.apache.calcite.linq4j.tree.Expression;
+import org.apache.calcite.linq4j.tree.Expressions;
+import org.apache.calcite.linq4j.tree.Types;
+import org.apache.calcite.plan.RelOptCluster;
+import org.apache.calcite.plan.RelTraitSet;
+import org.apache.calcite.rel.AbstractRelNode;
+import org.apache.calcite.rel.RelNode;
+import org.apache.calcite.rel.RelWriter;
+import org.apache.calcite.rel.type.RelDataType;
+
+import java.lang.reflect.Method;
+import java.util.List;
+
+import static io.mycat.calcite.logical.MycatView.toEnumerable;
+import static io.mycat.calcite.logical.MycatView.toRows;
+
+/**
+ * 扫描递归查询的工作表,只读取上一轮迭代新产生的行
+ */
+public class MycatWorkTableScan extends AbstractRelNode implements MycatRel {
+    private static final Method WORK_TABLE_SCAN = Types.lookupMethod(RecursiveWorkTable.class, "scan");
+    private final String tableName;
+
+    public MycatWorkTableScan(RelOptCluster cluster, RelDataType rowType, String tableName) {
+        super(cluster, cluster.traitSetOf(MycatConvention.INSTANCE));
+        this.rowType = rowType;
+        this.tableName = tableName;
+    }
+
+    @Override
+    public RelNode copy(RelTraitSet traitSet, List<RelNode> inputs) {
+        return new MycatWorkTableScan(getCluster(), rowType, tableName);
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    @Override
+    public RelWriter explainTerms(RelWriter pw) {
+        return super.explainTerms(pw).item("table", tableName);
+    }
+
+    @Override
+    public ExplainWriter explain(ExplainWriter writer) {
+        return writer.name("MycatWorkTableScan").into()
+                .item("table", tableName)
+                .ret();
+    }
+
+    @Override
+    public Result implement(MycatEnumerableRelImplementor implementor, Prefer pref) {
+        final BlockBuilder builder = new BlockBuilder();
+        final PhysType physType =
+                PhysTypeImpl.of(
+                        implementor.getTypeFactory(),
+                        getRowType(),
+                        JavaRowFormat.ARRAY);
+        //  root.getWorkTable(tableName).scan()
+        final Expression expression = toEnumerable(
+                Expressions.call(
+                        Expressions.call(implementor.getRootExpression(),
+                                MycatTableSpool.GET_WORK_TABLE,
+                                Expressions.constant(tableName)),
+                        WORK_TABLE_SCAN));
+        builder.add(toRows(physType, expression, getRowType().getFieldCount()));
+        return implementor.result(physType, builder.toBlock());
+    }
+}
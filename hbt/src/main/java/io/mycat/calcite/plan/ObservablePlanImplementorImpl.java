@@ -22,6 +22,7 @@ import io.mycat.Response;
 import io.mycat.api.collector.MySQLColumnDef;
 import io.mycat.api.collector.MysqlPayloadObject;
 import io.mycat.api.collector.MysqlRow;
+import io.mycat.api.collector.RowBatch;
 import io.mycat.calcite.CodeExecuterContext;
 import io.mycat.calcite.physical.MycatInsertRel;
 import io.mycat.calcite.physical.MycatUpdateRel;
@@ -76,12 +77,28 @@ public class ObservablePlanImplementorImpl implements PlanImplementor {
 
     @Override
     public Future<Void> execute(Plan plan) {
-        Observable<MysqlPayloadObject> rowObservable = getMysqlPayloadObjectObservable(context,params,plan);
+        Observable<MysqlPayloadObject> rowObservable;
+        if (!context.isInTransaction() && MetaClusterCurrent.exist(QueryResultCache.class)) {
+            QueryResultCache queryResultCache = MetaClusterCurrent.wrapper(QueryResultCache.class);
+            rowObservable = queryResultCache.get(plan, params, () -> getMysqlPayloadObjectObservable(context, params, plan));
+        } else {
+            //直接写到客户端,RowBatch不需要复制成行
+            rowObservable = getMysqlPayloadObjectObservable(context, params, plan, true);
+        }
         return response.sendResultSet(rowObservable);
     }
 
     @NotNull
     public static Observable<MysqlPayloadObject> getMysqlPayloadObjectObservable(MycatDataContext context,List<Object> params,Plan plan) {
+        return getMysqlPayloadObjectObservable(context, params, plan, false);
+    }
+
+    /**
+     * @param rowBatch 为true时根节点输出的RowBatch原样发出,订阅者必须在onNext里同步处理完,
+     *                 否则复制成MysqlRow
+     */
+    @NotNull
+    public static Observable<MysqlPayloadObject> getMysqlPayloadObjectObservable(MycatDataContext context,List<Object> params,Plan plan,boolean rowBatch) {
         Observable<MysqlPayloadObject> rowObservable = Observable.<MysqlPayloadObject>create(emitter -> {
             emitter.onNext(new MySQLColumnDef(plan.getMetaData()));
             CodeExecuterContext codeExecuterContext = plan.getCodeExecuterContext();
@@ -89,31 +106,50 @@ public class ObservablePlanImplementorImpl implements PlanImplementor {
             Scheduler scheduler = MetaClusterCurrent.wrapper(Scheduler.class);
             Future<IdentityHashMap<RelNode, List<Observable<Object[]>>>> future = scheduler.schedule(context,params,plan.getCodeExecuterContext());
             future.onSuccess(relNodeListIdentityHashMap -> {
+                                IdentityHashMap<RelNode, List<Observable<Object[]>>> map = relNodeListIdentityHashMap;
+                                AsyncMycatDataContextImpl newMycatDataContext =
+                                        new AsyncMycatDataContextImpl(context, codeExecuterContext, (IdentityHashMap) map, params, plan.forUpdate());
                                 try {
-                                    IdentityHashMap<RelNode, List<Observable<Object[]>>> map = relNodeListIdentityHashMap;
-                                    AsyncMycatDataContextImpl newMycatDataContext =
-                                            new AsyncMycatDataContextImpl(context, codeExecuterContext, (IdentityHashMap) map, params, plan.forUpdate());
                                     Object bindObservable;
                                     bindObservable = bindable.bindObservable(newMycatDataContext);
-                                    Observable<Object[]> observable;
+                                    Observable<Object> observable;
                                     if (bindObservable instanceof Observable) {
-                                        observable = (Observable) bindObservable;
+                                        //完成,出错或者被取消都会释放工作表
+                                        observable = ((Observable<Object>) bindObservable).doFinally(newMycatDataContext::close);
                                     } else {
                                         Enumerable<Object[]> enumerable = (Enumerable) bindObservable;
                                         observable = Observable.create(emitter1 -> {
                                             try (Enumerator<Object[]> enumerator = enumerable.enumerator()) {
-                                                while (enumerator.moveNext()) {
+                                                while (!emitter1.isDisposed() && enumerator.moveNext()) {
                                                     emitter1.onNext(enumerator.current());
                                                 }
                                             } catch (Throwable throwable) {
                                                 emitter1.onError(throwable);
+                                            } finally {
+                                                //枚举器关闭之后再释放,避免还在读的工作表被提前关闭
+                                                newMycatDataContext.close();
                                             }
                                             emitter1.onComplete();
                                         });
                                     }
-                                    observable.subscribe(objects -> emitter.onNext(new MysqlRow(objects)),
-                                            throwable -> emitter.onError(throwable), () -> emitter.onComplete());
+                                    //客户端断开时把取消传到各个分片查询
+                                    emitter.setDisposable(observable.subscribe(next -> {
+                                                if (!(next instanceof RowBatch)) {
+                                                    emitter.onNext(new MysqlRow((Object[]) next));
+                                                    return;
+                                                }
+                                                RowBatch batch = (RowBatch) next;
+                                                if (rowBatch) {
+                                                    emitter.onNext(batch);
+                                                } else {
+                                                    for (int i = 0; i < batch.getSize(); i++) {
+                                                        emitter.onNext(new MysqlRow(batch.getRow(i)));
+                                                    }
+                                                }
+                                            },
+                                            throwable -> emitter.onError(throwable), () -> emitter.onComplete()));
                                 }catch (Throwable throwable){
+                                    newMycatDataContext.close();
                                     emitter.onError(throwable);
                                 }
                             }).onFailure(event -> emitter.onError(event));
@@ -0,0 +1,289 @@
+/**
+ * Copyright (C) <2021>  <chen junwen>
+ * <p>
+ * This program is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * <p>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU General Public License along with this program.  If
+ * not, see <http://www.gnu.org/licenses/>.
+ */
+package io.mycat.calcite.plan;
+
+import cn.mycat.vertx.xa.XaSqlConnection;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalListener;
+import com.google.common.collect.Iterables;
+import io.mycat.MetaClusterCurrent;
+import io.mycat.TableHandler;
+import io.mycat.api.collector.MysqlPayloadObject;
+import io.mycat.calcite.CodeExecuterContext;
+import io.mycat.calcite.logical.MycatView;
+import io.mycat.calcite.rewriter.Distribution;
+import io.mycat.calcite.spm.Plan;
+import io.reactivex.rxjava3.core.Observable;
+import lombok.Getter;
+import org.apache.calcite.rel.RelNode;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 查询结果缓存
+ * <p>
+ * 只缓存所有MycatView都只读取开启了缓存的表的计划,以计划与参数为key,
+ * 每个缓存项记录读取的表与表的版本号,runMycatInsertRel/runMycatUpdateRel写表时版本号加一并删除该表的缓存项;
+ * 事务内写过的表在事务结束前不读写缓存,事务结束后再失效一次
+ */
+public class QueryResultCache {
+    private final int maxRows;
+    private final Cache<Key, Entry> cache;
+    private final Map<String, TableState> tableStates = new HashMap<>();
+
+    public QueryResultCache(Collection<String> tables, long maxSize, int maxRows) {
+        for (String table : tables) {
+            tableStates.put(table.toLowerCase(), new TableState());
+        }
+        this.maxRows = maxRows;
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(maxSize)
+                .removalListener((RemovalListener<Key, Entry>) notification -> {
+                    Entry entry = notification.getValue();
+                    if (entry != null) {
+                        for (String table : entry.tables) {
+                            tableStates.get(table).keys.remove(notification.getKey());
+                        }
+                    }
+                })
+                .build();
+    }
+
+    public static String getTableName(TableHandler tableHandler) {
+        return (tableHandler.getSchemaName() + "." + tableHandler.getTableName()).toLowerCase();
+    }
+
+    public static void onWrite(XaSqlConnection connection, Iterable<? extends TableHandler> tables) {
+        if (MetaClusterCurrent.exist(QueryResultCache.class)) {
+            QueryResultCache queryResultCache = MetaClusterCurrent.wrapper(QueryResultCache.class);
+            for (TableHandler table : tables) {
+                queryResultCache.invalidate(getTableName(table), connection);
+            }
+        }
+    }
+
+    public Map<String, TableState> getTableStates() {
+        return Collections.unmodifiableMap(tableStates);
+    }
+
+    public long size() {
+        return cache.size();
+    }
+
+    public Observable<MysqlPayloadObject> get(Plan plan, List<Object> params, Supplier<Observable<MysqlPayloadObject>> loader) {
+        return get(getTables(plan), plan, params, loader);
+    }
+
+    /**
+     * @param tables 计划读取的表,null表示不能缓存
+     * @param plan   按引用比较的计划
+     */
+    Observable<MysqlPayloadObject> get(List<String> tables, Object plan, List<Object> params, Supplier<Observable<MysqlPayloadObject>> loader) {
+        if (tables == null) {
+            return loader.get();
+        }
+        boolean writing = false;
+        long[] versions = new long[tables.size()];
+        for (int i = 0; i < versions.length; i++) {
+            TableState tableState = tableStates.get(tables.get(i));
+            writing |= tableState.isWriting();
+            versions[i] = tableState.version.get();
+        }
+        Key key = new Key(plan, params == null ? Collections.emptyList() : new ArrayList<>(params));
+        Entry entry = cache.getIfPresent(key);
+        if (!writing && entry != null && entry.isValid()) {
+            for (String table : tables) {
+                tableStates.get(table).hit.increment();
+            }
+            return Observable.fromIterable(entry.rows);
+        }
+        for (String table : tables) {
+            tableStates.get(table).miss.increment();
+        }
+        Observable<MysqlPayloadObject> observable = loader.get();
+        if (writing) {
+            return observable;
+        }
+        List<MysqlPayloadObject> rows = new ArrayList<>();
+        boolean[] overflow = new boolean[1];
+        return observable
+                .doOnNext(mysqlPayloadObject -> {
+                    if (overflow[0]) {
+                        return;
+                    }
+                    //第一个是列定义
+                    if (rows.size() > maxRows) {
+                        overflow[0] = true;
+                        rows.clear();
+                        return;
+                    }
+                    rows.add(mysqlPayloadObject);
+                })
+                .doOnComplete(() -> {
+                    if (!overflow[0]) {
+                        put(key, new Entry(tables, versions, rows));
+                    }
+                });
+    }
+
+    /**
+     * @return 不能缓存返回null
+     */
+    private List<String> getTables(Plan plan) {
+        CodeExecuterContext codeExecuterContext = plan.getCodeExecuterContext();
+        if (codeExecuterContext == null || plan.forUpdate()) {
+            return null;
+        }
+        List<String> tables = new ArrayList<>();
+        for (RelNode relNode : codeExecuterContext.getMycatViews().keySet()) {
+            if (!(relNode instanceof MycatView)) {
+                return null;
+            }
+            Distribution distribution = ((MycatView) relNode).getDistribution();
+            for (TableHandler tableHandler : Iterables.concat(distribution.getShardingTables(),
+                    distribution.getGlobalTables(),
+                    distribution.getNormalTables())) {
+                String tableName = getTableName(tableHandler);
+                if (!tableStates.containsKey(tableName)) {
+                    return null;
+                }
+                if (!tables.contains(tableName)) {
+                    tables.add(tableName);
+                }
+            }
+        }
+        return tables.isEmpty() ? null : tables;
+    }
+
+    private void put(Key key, Entry entry) {
+        if (!entry.isValid()) {
+            return;
+        }
+        for (String table : entry.tables) {
+            tableStates.get(table).keys.add(key);
+        }
+        cache.put(key, entry);
+        //与失效并发时重新检查
+        if (!entry.isValid()) {
+            cache.invalidate(key);
+        }
+    }
+
+    void invalidate(String table, XaSqlConnection connection) {
+        TableState tableState = tableStates.get(table);
+        if (tableState == null) {
+            return;
+        }
+        if (connection != null && connection.isInTransaction()) {
+            synchronized (tableState.writers) {
+                tableState.writers.put(connection, Boolean.TRUE);
+            }
+        }
+        tableState.invalidate();
+    }
+
+    public class TableState {
+        @Getter
+        private final AtomicLong version = new AtomicLong();
+        @Getter
+        private final LongAdder hit = new LongAdder();
+        @Getter
+        private final LongAdder miss = new LongAdder();
+        private final Set<Key> keys = ConcurrentHashMap.newKeySet();
+        /**
+         * 写过该表还没结束的事务
+         */
+        private final WeakHashMap<XaSqlConnection, Boolean> writers = new WeakHashMap<>();
+
+        private void invalidate() {
+            version.incrementAndGet();
+            for (Key key : keys) {
+                cache.invalidate(key);
+            }
+        }
+
+        private boolean isWriting() {
+            synchronized (writers) {
+                if (writers.isEmpty()) {
+                    return false;
+                }
+                boolean finished = writers.keySet().removeIf(connection -> !connection.isInTransaction());
+                if (finished) {
+                    invalidate();
+                }
+                return !writers.isEmpty();
+            }
+        }
+
+        public double getHitRatio() {
+            long h = hit.sum();
+            long total = h + miss.sum();
+            return total == 0 ? 0 : h / (double) total;
+        }
+    }
+
+    private class Entry {
+        final List<String> tables;
+        final long[] versions;
+        final List<MysqlPayloadObject> rows;
+
+        Entry(List<String> tables, long[] versions, List<MysqlPayloadObject> rows) {
+            this.tables = tables;
+            this.versions = versions;
+            this.rows = rows;
+        }
+
+        boolean isValid() {
+            for (int i = 0; i < versions.length; i++) {
+                if (tableStates.get(tables.get(i)).version.get() != versions[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private static final class Key {
+        final Object plan;
+        final List<Object> params;
+
+        Key(Object plan, List<Object> params) {
+            this.plan = plan;
+            this.params = params;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return plan == key.plan && params.equals(key.params);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(plan) + params.hashCode();
+        }
+    }
+}
@@ -0,0 +1,144 @@
+/**
+ * Copyright (C) <2021>  <chen junwen>
+ * <p>
+ * This program is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * <p>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU General Public License along with this program.  If
+ * not, see <http://www.gnu.org/licenses/>.
+ */
+package io.mycat.calcite.rewriter;
+
+import io.mycat.DataNode;
+import io.mycat.TableHandler;
+import io.mycat.calcite.MycatCalciteSupport;
+import io.mycat.calcite.table.MycatLogicTable;
+import io.mycat.router.ShardingTableHandler;
+import io.mycat.util.CalciteUtls;
+import org.apache.calcite.plan.RelOptPredicateList;
+import org.apache.calcite.plan.RelOptUtil;
+import org.apache.calcite.rel.RelNode;
+import org.apache.calcite.rel.RelShuttleImpl;
+import org.apache.calcite.rel.core.TableScan;
+import org.apache.calcite.rel.logical.LogicalFilter;
+import org.apache.calcite.rex.RexBuilder;
+import org.apache.calcite.rex.RexNode;
+import org.apache.calcite.rex.RexSimplify;
+import org.apache.calcite.rex.RexUtil;
+import org.apache.calcite.sql.SqlKind;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * 按分片裁剪下推SQL中的IN/OR条件
+ * <p>
+ * 例如 id in (1,2,3,4) 路由到两个分片时,每个分片只保留路由到本分片的值,
+ * 避免每个分片都执行完整的IN列表.
+ * 只处理直接在分片表扫描上的过滤条件,不能确定路由的析取项原样保留.
+ * 同一个实例在一次SQL展开中复用,每个析取项只计算一次路由
+ */
+public class DataNodeConditionPruner {
+    private final List<Object> params;
+    /**
+     * 合取项 -> 析取项,NULL表示不需要裁剪
+     */
+    private final IdentityHashMap<RexNode, List<RexNode>> disjunctionCache = new IdentityHashMap<>();
+    /**
+     * 析取项 -> 路由到的分片,NULL表示不能确定
+     */
+    private final IdentityHashMap<RexNode, Set<String>> routeCache = new IdentityHashMap<>();
+
+    public DataNodeConditionPruner(List<Object> params) {
+        this.params = params;
+    }
+
+    public RelNode prune(RelNode relNode, Map<String, DataNode> dataNodeMap) {
+        return relNode.accept(new RelShuttleImpl() {
+            @Override
+            public RelNode visit(LogicalFilter filter) {
+                RelNode res = super.visit(filter);
+                if (!(res instanceof LogicalFilter) || !(filter.getInput() instanceof TableScan)) {
+                    return res;
+                }
+                LogicalFilter newFilter = (LogicalFilter) res;
+                MycatLogicTable logicTable = filter.getInput().getTable().unwrap(MycatLogicTable.class);
+                if (logicTable == null || !logicTable.isSharding()) {
+                    return res;
+                }
+                TableHandler tableHandler = logicTable.logicTable();
+                DataNode dataNode = dataNodeMap.get(tableHandler.getUniqueName());
+                if (dataNode == null) {
+                    return res;
+                }
+                RexNode condition = pruneCondition((ShardingTableHandler) tableHandler, newFilter.getCondition(), dataNode.getUniqueName());
+                if (condition == newFilter.getCondition()) {
+                    return res;
+                }
+                return newFilter.copy(newFilter.getTraitSet(), newFilter.getInput(), condition);
+            }
+        });
+    }
+
+    RexNode pruneCondition(ShardingTableHandler table, RexNode condition, String dataNodeName) {
+        RexBuilder rexBuilder = MycatCalciteSupport.RexBuilder;
+        List<RexNode> conjunctions = RelOptUtil.conjunctions(condition);
+        List<RexNode> newConjunctions = new ArrayList<>(conjunctions.size());
+        boolean changed = false;
+        for (RexNode conjunction : conjunctions) {
+            List<RexNode> disjunctions = disjunctionCache.computeIfAbsent(conjunction, this::expand);
+            if (disjunctions == null) {
+                newConjunctions.add(conjunction);
+                continue;
+            }
+            List<RexNode> retain = new ArrayList<>(disjunctions.size());
+            for (RexNode disjunction : disjunctions) {
+                Set<String> targets = routeCache.computeIfAbsent(disjunction, d -> route(table, d));
+                if (targets == null || targets.contains(dataNodeName)) {
+                    retain.add(disjunction);
+                }
+            }
+            if (retain.isEmpty() || retain.size() == disjunctions.size()) {
+                //全部被裁掉说明路由与条件不一致,保留原条件
+                newConjunctions.add(conjunction);
+                continue;
+            }
+            changed = true;
+            newConjunctions.add(RexUtil.composeDisjunction(rexBuilder, retain));
+        }
+        if (!changed) {
+            return condition;
+        }
+        //重新合并成SEARCH,生成SQL时还原为IN
+        RexSimplify rexSimplify = new RexSimplify(rexBuilder, RelOptPredicateList.EMPTY, RexUtil.EXECUTOR);
+        return rexSimplify.simplifyUnknownAsFalse(RexUtil.composeConjunction(rexBuilder, newConjunctions));
+    }
+
+    private List<RexNode> expand(RexNode conjunction) {
+        RexNode expand = conjunction;
+        if (conjunction.isA(SqlKind.SEARCH)) {
+            expand = RexUtil.expandSearch(MycatCalciteSupport.RexBuilder, null, conjunction);
+        }
+        if (!expand.isA(SqlKind.OR)) {
+            return null;
+        }
+        List<RexNode> disjunctions = RelOptUtil.disjunctions(expand);
+        if (disjunctions.size() < 2) {
+            return null;
+        }
+        return disjunctions;
+    }
+
+    private Set<String> route(ShardingTableHandler table, RexNode disjunction) {
+        List<DataNode> dataNodes = CalciteUtls.route(table, PredicateAnalyzer.bindParams(disjunction, params));
+        if (dataNodes == null) {
+            return null;
+        }
+        return dataNodes.stream().map(DataNode::getUniqueName).collect(Collectors.toSet());
+    }
+}
@@ -26,10 +26,7 @@ import org.apache.calcite.rex.*;
 import org.apache.calcite.sql.SqlKind;
 import org.apache.calcite.sql.type.SqlTypeName;
 
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 import java.util.stream.Collectors;
 
 import static io.mycat.util.CalciteUtls.unCastWrapper;
@@ -39,60 +36,109 @@ public class PredicateAnalyzer {
     public static List<DataNode> analyze(ShardingTable table, List<RexNode> conditions, List<Object> params) {
         List<RexNode> rexNodes = new ArrayList<>();
         for (RexNode condition : conditions) {
-            rexNodes.add(condition.accept(new RexShuttle() {
-                @Override
-                public RexNode visitDynamicParam(RexDynamicParam dynamicParam) {
-                    RexBuilder rexBuilder = MycatCalciteSupport.RexBuilder;
-                    Object o = params.get(dynamicParam.getIndex());
-                    RelDataType type;
-                    RelDataTypeFactory typeFactory = MycatCalciteSupport.TypeFactory;
-                    if (o == null) {
-                        type = typeFactory.createSqlType(SqlTypeName.NULL);
-                    } else {
-                        type = typeFactory.createJavaType(o.getClass());
-                    }
-                    return rexBuilder.makeLiteral(o, type, true);
-                }
-            }));
+            rexNodes.add(bindParams(condition, params));
         }
         List<DataNode> backendTableInfos = CalciteUtls.getBackendTableInfos(table, rexNodes);
 
         if (backendTableInfos.size() > 1 && MetaClusterCurrent.exist(GSIService.class)) {
             GSIService gsiService = MetaClusterCurrent.wrapper(GSIService.class);
-            if (rexNodes.size() == 1) {
-                RexNode rexNode = rexNodes.get(0);
-                if (rexNode.getKind() == SqlKind.EQUALS) {
-                    RexCall rexNode1 = (RexCall) rexNode;
-                    List<RexNode> operands = rexNode1.getOperands();
-                    RexNode left = operands.get(0);
-                    left = unCastWrapper(left);
-                    RexNode right = operands.get(1);
-                    right = unCastWrapper(right);
-                    int index = ((RexInputRef) left).getIndex();
-                    Object value = ((RexLiteral) right).getValue2();
-                    Map<String, DataNode> dataNodeMap = backendTableInfos.stream().collect(Collectors.toMap(DataNode::getTargetName, e -> e));
-                    Collection<String> dataNodes = gsiService.queryDataNode(
-                            table.getSchemaName(),
-                            table.getTableName(),
-                            index, value);
+            RexNode condition = RexUtil.composeConjunction(MycatCalciteSupport.RexBuilder, rexNodes);
+            Collection<String> dataNodes = queryDataNodeByIndex(gsiService, table, condition);
+            if (dataNodes != null) {
+                //同时满足分片条件和索引条件的行只会在两者的交集中
+                Set<String> targets = new HashSet<>(dataNodes);
+                List<DataNode> res = backendTableInfos.stream()
+                        .filter(dataNode -> targets.contains(dataNode.getTargetName()))
+                        .collect(Collectors.toList());
+                if (res.isEmpty()) {
+                    //索引确认没有匹配的行,保留一个分片执行,返回空结果
+                    return Collections.singletonList(backendTableInfos.get(0));
+                }
+                return res;
+            }
+        }
+        return backendTableInfos;
+    }
+
+    /**
+     * 把条件中的参数替换成常量
+     */
+    public static RexNode bindParams(RexNode condition, List<Object> params) {
+        return condition.accept(new RexShuttle() {
+            @Override
+            public RexNode visitDynamicParam(RexDynamicParam dynamicParam) {
+                RexBuilder rexBuilder = MycatCalciteSupport.RexBuilder;
+                Object o = params.get(dynamicParam.getIndex());
+                RelDataType type;
+                RelDataTypeFactory typeFactory = MycatCalciteSupport.TypeFactory;
+                if (o == null) {
+                    type = typeFactory.createSqlType(SqlTypeName.NULL);
+                } else {
+                    type = typeFactory.createJavaType(o.getClass());
+                }
+                return rexBuilder.makeLiteral(o, type, true);
+            }
+        });
+    }
+
+    /**
+     * 从条件中找出索引列的等值条件,通过全局索引查出数据所在节点
+     *
+     * @return 返回NULL=不能走索引, 其他=数据只可能存在于集合中的节点
+     */
+    private static Collection<String> queryDataNodeByIndex(GSIService gsiService, ShardingTable table, RexNode rexNode) {
+        switch (rexNode.getKind()) {
+            case AND: {
+                Set<String> res = null;
+                for (RexNode operand : ((RexCall) rexNode).getOperands()) {
+                    Collection<String> dataNodes = queryDataNodeByIndex(gsiService, table, operand);
                     if (dataNodes == null) {
-                        return backendTableInfos;
+                        continue;
                     }
-                    if (dataNodes.isEmpty()) {
-                        return new ArrayList<>();
+                    if (res == null) {
+                        res = new HashSet<>(dataNodes);
+                    } else {
+                        res.retainAll(dataNodes);
                     }
-                    List<DataNode> res = new ArrayList<>();
-                    for (String dataNodeKey : dataNodes) {
-                        DataNode dataNode = dataNodeMap.get(dataNodeKey);
-                        if (dataNode == null) {
-                            throw new IllegalStateException("数据源[" + dataNodeKey + "]不存在, 所有数据源=" + dataNodeMap.keySet());
-                        }
-                        res.add(dataNode);
+                }
+                return res;
+            }
+            case OR: {
+                Set<String> res = new HashSet<>();
+                for (RexNode operand : ((RexCall) rexNode).getOperands()) {
+                    Collection<String> dataNodes = queryDataNodeByIndex(gsiService, table, operand);
+                    if (dataNodes == null) {
+                        return null;
                     }
-                    return res;
+                    res.addAll(dataNodes);
+                }
+                return res;
+            }
+            case SEARCH: {
+                RexNode expand = RexUtil.expandSearch(MycatCalciteSupport.RexBuilder, null, rexNode);
+                if (expand.getKind() == SqlKind.SEARCH) {
+                    return null;
                 }
+                return queryDataNodeByIndex(gsiService, table, expand);
             }
+            case EQUALS: {
+                List<RexNode> operands = ((RexCall) rexNode).getOperands();
+                RexNode left = unCastWrapper(operands.get(0));
+                RexNode right = unCastWrapper(operands.get(1));
+                if (left instanceof RexLiteral && right instanceof RexInputRef) {
+                    RexNode tmp = left;
+                    left = right;
+                    right = tmp;
+                }
+                if (left instanceof RexInputRef && right instanceof RexLiteral) {
+                    int index = ((RexInputRef) left).getIndex();
+                    Object value = ((RexLiteral) right).getValue2();
+                    return gsiService.queryDataNode(table.getSchemaName(), table.getTableName(), index, value);
+                }
+                return null;
+            }
+            default:
+                return null;
         }
-        return backendTableInfos;
     }
 }
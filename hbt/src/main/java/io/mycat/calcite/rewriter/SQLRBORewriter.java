@@ -186,6 +186,22 @@ public class SQLRBORewriter extends RelShuttleImpl {
             return super.visitCall(call);
         }
 
+        @Override
+        public Void visitOver(RexOver over) {
+            //窗口函数本身能否下推由project根据分区键判断,这里只检查参数
+            for (RexNode operand : over.getOperands()) {
+                operand.accept(this);
+            }
+            RexWindow window = over.getWindow();
+            for (RexNode partitionKey : window.partitionKeys) {
+                partitionKey.accept(this);
+            }
+            for (RexFieldCollation orderKey : window.orderKeys) {
+                orderKey.left.accept(this);
+            }
+            return null;
+        }
+
         @Override
         public Void visitCorrelVariable(RexCorrelVariable correlVariable) {
             containsUsedDefinedFunction = true;
@@ -781,6 +797,66 @@ public class SQLRBORewriter extends RelShuttleImpl {
         }
     }
 
+    /**
+     * 每个窗口的分区键都包含分片表的全部分片键时,同一个分区的行都在同一个分片,窗口可以在分片上计算
+     */
+    private static boolean isShardLocalWindow(RelNode input, LogicalProject project) {
+        ColumnRefResolver columnMapping = new ColumnRefResolver();
+        input.accept(columnMapping);
+        for (RexNode node : project.getProjects()) {
+            List<RexOver> overs = new ArrayList<>();
+            node.accept(new RexVisitorImpl<Void>(true) {
+                @Override
+                public Void visitOver(RexOver over) {
+                    overs.add(over);
+                    return super.visitOver(over);
+                }
+            });
+            for (RexOver over : overs) {
+                if (!partitionByShardingKeys(columnMapping, over.getWindow().partitionKeys)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static boolean partitionByShardingKeys(ColumnRefResolver columnMapping, List<RexNode> partitionKeys) {
+        Map<TableScan, Set<Integer>> coveredShardingKeys = new HashMap<>();
+        for (RexNode partitionKey : partitionKeys) {
+            if (!(partitionKey instanceof RexInputRef)) {
+                continue;
+            }
+            int index = ((RexInputRef) partitionKey).getIndex();
+            for (ColumnInfo columnInfo : columnMapping.getBottomColumnInfoList(index)) {
+                if (columnInfo == null) {
+                    continue;
+                }
+                MycatLogicTable logicTable = columnInfo.getTableScan().getTable().unwrap(MycatLogicTable.class);
+                if (logicTable == null || !logicTable.isSharding()) {
+                    continue;
+                }
+                if (logicTable.getTable().getColumns().get(columnInfo.getIndex()).isShardingKey()) {
+                    coveredShardingKeys.computeIfAbsent(columnInfo.getTableScan(), k -> new HashSet<>()).add(columnInfo.getIndex());
+                }
+            }
+        }
+        for (Map.Entry<TableScan, Set<Integer>> e : coveredShardingKeys.entrySet()) {
+            List<SimpleColumnInfo> columns = e.getKey().getTable().unwrap(MycatLogicTable.class).getTable().getColumns();
+            boolean all = true;
+            for (int i = 0; i < columns.size(); i++) {
+                if (columns.get(i).isShardingKey() && !e.getValue().contains(i)) {
+                    all = false;
+                    break;
+                }
+            }
+            if (all) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     public static RelNode project(RelNode original, LogicalProject project) {
         Distribution dataNodeInfo = null;
         RelNode input = original;
@@ -795,6 +871,9 @@ public class SQLRBORewriter extends RelShuttleImpl {
                     input = project.copy(project.getTraitSet(), ImmutableList.of(input));
                     return mycatView.changeTo(input, dataNodeInfo);
                 }
+                if (!isShardLocalWindow(input, project)) {
+                    return project.copy(project.getTraitSet(), ImmutableList.of(original));
+                }
             }
         }
         if (input instanceof QueryBuilder) {
@@ -0,0 +1,135 @@
+/**
+ * Copyright (C) <2021>  <chen junwen>
+ * <p>
+ * This program is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * <p>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU General Public License along with this program.  If
+ * not, see <http://www.gnu.org/licenses/>.
+ */
+package io.mycat.calcite.rewriter;
+
+import com.alibaba.druid.sql.SQLUtils;
+import io.mycat.DataNode;
+import io.mycat.SimpleColumnInfo;
+import io.mycat.calcite.table.ShardingTable;
+import io.mycat.router.CustomRuleFunction;
+import io.mycat.util.CalciteUtls;
+import org.apache.calcite.plan.RelOptUtil;
+import org.apache.calcite.rex.*;
+import org.apache.calcite.sql.SqlKind;
+
+import java.util.Collections;
+import java.util.List;
+
+import static io.mycat.util.CalciteUtls.unCastWrapper;
+
+/**
+ * 预编译的等值路由
+ * <p>
+ * 条件中分片键都是顶层AND下的 分片键 = ?/常量 时,编译期记下每个分片键对应的参数下标,
+ * 执行时直接取参数值交给分片算法计算分片,不再改写RexNode和构造RangeVariable.
+ * 不满足条件或者算法不能确定唯一分片时返回NULL,由PredicateAnalyzer走通用路由
+ */
+public class ShardingRouteEvaluator {
+    public static final ShardingRouteEvaluator NONE = new ShardingRouteEvaluator(null, new int[0], new Object[0]);
+
+    private final CustomRuleFunction function;
+    /**
+     * 分片键对应的参数下标,-1表示常量
+     */
+    private final int[] paramIndexes;
+    private final Object[] constants;
+
+    private ShardingRouteEvaluator(CustomRuleFunction function, int[] paramIndexes, Object[] constants) {
+        this.function = function;
+        this.paramIndexes = paramIndexes;
+        this.constants = constants;
+    }
+
+    public static ShardingRouteEvaluator compile(ShardingTable table, RexNode condition) {
+        CustomRuleFunction function = table.function();
+        List<String> routeKeys = function.getRouteKeys();
+        if (condition == null || routeKeys.isEmpty()) {
+            return NONE;
+        }
+        List<SimpleColumnInfo> columns = table.getColumns();
+        int[] paramIndexes = new int[routeKeys.size()];
+        Object[] constants = new Object[routeKeys.size()];
+        boolean[] bound = new boolean[routeKeys.size()];
+        for (RexNode rexNode : RelOptUtil.conjunctions(condition)) {
+            if (!rexNode.isA(SqlKind.EQUALS)) {
+                continue;
+            }
+            List<RexNode> operands = ((RexCall) rexNode).getOperands();
+            RexNode left = unCastWrapper(operands.get(0));
+            RexNode right = unCastWrapper(operands.get(1));
+            if (!(left instanceof RexInputRef)) {
+                RexNode tmp = left;
+                left = right;
+                right = tmp;
+            }
+            if (!(left instanceof RexInputRef)) {
+                continue;
+            }
+            String columnName = columns.get(((RexInputRef) left).getIndex()).getColumnName();
+            for (int i = 0; i < routeKeys.size(); i++) {
+                if (!SQLUtils.nameEquals(routeKeys.get(i), columnName)) {
+                    continue;
+                }
+                if (bound[i]) {
+                    //同一个分片键有多个等值条件,通用路由会取并集
+                    return NONE;
+                }
+                if (right instanceof RexDynamicParam) {
+                    paramIndexes[i] = ((RexDynamicParam) right).getIndex();
+                } else if (right instanceof RexLiteral) {
+                    paramIndexes[i] = -1;
+                    constants[i] = CalciteUtls.getLiteralValue((RexLiteral) right);
+                } else {
+                    return NONE;
+                }
+                bound[i] = true;
+            }
+        }
+        for (boolean b : bound) {
+            if (!b) {
+                return NONE;
+            }
+        }
+        return new ShardingRouteEvaluator(function, paramIndexes, constants);
+    }
+
+    /**
+     * @return NULL=需要走通用路由
+     */
+    public List<DataNode> evaluate(ShardingTable table, List<Object> params) {
+        if (function == null || table.function() != function) {
+            return null;
+        }
+        Object[] keyValues = new Object[paramIndexes.length];
+        for (int i = 0; i < paramIndexes.length; i++) {
+            int paramIndex = paramIndexes[i];
+            if (paramIndex >= params.size()) {
+                return null;
+            }
+            Object value = paramIndex == -1 ? constants[i] : params.get(paramIndex);
+            //与参数转成字面量后的值保持一致,其他类型走通用路由
+            if (!(value instanceof String || value instanceof Long || value instanceof Integer
+                    || value instanceof Short || value instanceof Byte)) {
+                return null;
+            }
+            keyValues[i] = value;
+        }
+        DataNode dataNode = function.calculateByKeys(keyValues);
+        if (dataNode == null) {
+            return null;
+        }
+        return Collections.singletonList(dataNode);
+    }
+}
@@ -0,0 +1,49 @@
+/**
+ * Copyright (C) <2021>  <chen junwen>
+ * <p>
+ * This program is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * <p>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU General Public License along with this program.  If
+ * not, see <http://www.gnu.org/licenses/>.
+ */
+package io.mycat.calcite.rules;
+
+import io.mycat.calcite.MycatConvention;
+import io.mycat.calcite.MycatConverterRule;
+import io.mycat.calcite.MycatRules;
+import io.mycat.calcite.physical.MycatWorkTableScan;
+import org.apache.calcite.plan.RelOptTable;
+import org.apache.calcite.rel.RelNode;
+import org.apache.calcite.rel.logical.LogicalTableScan;
+import org.apache.calcite.schema.TransientTable;
+import org.apache.calcite.tools.RelBuilderFactory;
+
+import java.util.List;
+
+/**
+ * 递归查询迭代部分对工作表(TransientTable)的扫描
+ */
+public class MycatWorkTableScanRule extends MycatConverterRule {
+
+    public MycatWorkTableScanRule(final MycatConvention out,
+                                  RelBuilderFactory relBuilderFactory) {
+        super(LogicalTableScan.class,
+                (LogicalTableScan scan) -> scan.getTable().unwrap(TransientTable.class) != null,
+                MycatRules.IN_CONVENTION, out, relBuilderFactory, "MycatWorkTableScanRule");
+    }
+
+    @Override
+    public RelNode convert(RelNode rel) {
+        LogicalTableScan scan = (LogicalTableScan) rel;
+        RelOptTable table = scan.getTable();
+        List<String> qualifiedName = table.getQualifiedName();
+        return new MycatWorkTableScan(scan.getCluster(), scan.getRowType(),
+                qualifiedName.get(qualifiedName.size() - 1));
+    }
+}
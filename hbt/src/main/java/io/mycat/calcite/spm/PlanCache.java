@@ -25,4 +25,9 @@ public interface PlanCache {
     void put(String parameterizedString, List<SqlTypeName> types, Plan plan);
 
     void clear();
+
+    /**
+     * 让引用了该表的计划失效
+     */
+    void invalidate(String schemaName, String tableName);
 }
\ No newline at end of file
@@ -1,15 +1,31 @@
 package io.mycat.calcite.spm;
 
+import com.alibaba.druid.sql.SQLUtils;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
+import com.google.common.collect.Iterables;
+import io.mycat.TableHandler;
+import io.mycat.calcite.logical.MycatView;
+import io.mycat.calcite.physical.MycatInsertRel;
+import io.mycat.calcite.physical.MycatLookUpView;
+import io.mycat.calcite.physical.MycatUpdateRel;
+import io.mycat.calcite.rewriter.Distribution;
+import io.mycat.calcite.table.MycatTransientSQLTableScan;
+import io.mycat.router.ShardingTableHandler;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.SneakyThrows;
+import org.apache.calcite.rel.RelNode;
+import org.apache.calcite.rel.core.TableModify;
+import org.apache.calcite.rel.core.TableScan;
 import org.apache.calcite.sql.type.SqlTypeName;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -81,6 +97,75 @@ public class PlanCacheImpl implements PlanCache{
         }
     }
 
+    /**
+     * 按计划引用的表失效,不能确定引用了哪些表的计划也一起失效
+     */
+    @Override
+    public void invalidate(String schemaName, String tableName) {
+        String name = getTableName(schemaName, tableName);
+        this.cache.asMap().values().removeIf(reference -> {
+            Plan plan = reference.get();
+            if (plan == null) {
+                return false;
+            }
+            Set<String> tables = getTables(plan);
+            return tables == null || tables.contains(name);
+        });
+    }
+
+    private static String getTableName(String schemaName, String tableName) {
+        return (SQLUtils.normalize(schemaName) + "." + SQLUtils.normalize(tableName)).toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * @return 计划引用的逻辑表 schema.table, 不能确定时返回null
+     */
+    public static Set<String> getTables(Plan plan) {
+        RelNode physical = plan.getPhysical();
+        Set<String> tables = new HashSet<>();
+        if (physical == null || !collectTables(physical, tables)) {
+            return null;
+        }
+        return tables;
+    }
+
+    private static boolean collectTables(RelNode relNode, Set<String> tables) {
+        if (relNode instanceof MycatView) {
+            addTables(((MycatView) relNode).getDistribution(), tables);
+            return true;
+        }
+        if (relNode instanceof MycatLookUpView) {
+            return collectTables(((MycatLookUpView) relNode).getRelNode(), tables);
+        }
+        if (relNode instanceof MycatInsertRel) {
+            ShardingTableHandler logicTable = ((MycatInsertRel) relNode).getLogicTable();
+            tables.add(getTableName(logicTable.getSchemaName(), logicTable.getTableName()));
+            return true;
+        }
+        if (relNode instanceof MycatUpdateRel) {
+            addTables(((MycatUpdateRel) relNode).getValues(), tables);
+            return true;
+        }
+        if (relNode instanceof TableScan || relNode instanceof TableModify
+                || relNode instanceof MycatTransientSQLTableScan) {
+            return false;
+        }
+        for (RelNode input : relNode.getInputs()) {
+            if (!collectTables(input, tables)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void addTables(Distribution distribution, Set<String> tables) {
+        for (TableHandler tableHandler : Iterables.concat(distribution.getShardingTables(),
+                distribution.getGlobalTables(),
+                distribution.getNormalTables())) {
+            tables.add(getTableName(tableHandler.getSchemaName(), tableHandler.getTableName()));
+        }
+    }
+
 
 
 }
@@ -30,6 +30,8 @@ import org.apache.calcite.sql.type.*;
 
 import java.lang.reflect.Method;
 import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 
 public  class DateAddFunction extends SqlFunction {
@@ -70,6 +72,23 @@ public  class DateAddFunction extends SqlFunction {
               Method dateAdd = Types.lookupMethod(MycatBuiltInMethodImpl.class, "dateAddString", String.class, Duration.class);
               return Expressions.call(dateAdd,second,one);
             }
+            if (SqlTypeName.STRING_TYPES.contains(call.getType().getSqlTypeName())) {
+              //TIMESTAMP/DATE参数直接计算,不再转成字符串重新解析
+              Expression temporal = one;
+              Expression amount = second;
+              if (second.getType() == LocalDateTime.class || second.getType() == LocalDate.class) {
+                temporal = second;
+                amount = one;
+              }
+              if (temporal.getType() == LocalDateTime.class && amount.getType() == Duration.class) {
+                Method method = Types.lookupMethod(MycatBuiltInMethodImpl.class, "dateAddTimestamp", LocalDateTime.class, Duration.class);
+                return Expressions.call(method, temporal, amount);
+              }
+              if (temporal.getType() == LocalDate.class && amount.getType() == Duration.class) {
+                Method method = Types.lookupMethod(MycatBuiltInMethodImpl.class, "dateAddDate", LocalDate.class, Duration.class);
+                return Expressions.call(method, temporal, amount);
+              }
+            }
             return null;
           }
         };
@@ -17,28 +17,30 @@
 package io.mycat.calcite.sqlfunction.datefunction;
 
 
+import org.apache.calcite.adapter.enumerable.RexImpTable;
+import org.apache.calcite.adapter.enumerable.RexToLixTranslator;
 import org.apache.calcite.linq4j.function.Parameter;
+import org.apache.calcite.linq4j.tree.Expression;
+import org.apache.calcite.linq4j.tree.Expressions;
+import org.apache.calcite.linq4j.tree.Types;
 import org.apache.calcite.mycat.MycatBuiltInMethodImpl;
 import org.apache.calcite.rel.type.RelDataType;
+import org.apache.calcite.rex.RexCall;
+import org.apache.calcite.rex.RexNode;
 import org.apache.calcite.schema.ScalarFunction;
 import org.apache.calcite.schema.impl.ScalarFunctionImpl;
 import org.apache.calcite.sql.SqlCall;
+import org.apache.calcite.sql.SqlKind;
+import org.apache.calcite.sql.type.SqlTypeName;
 import org.apache.calcite.sql.validate.SqlValidator;
 import org.apache.calcite.sql.validate.SqlValidatorScope;
 import org.jetbrains.annotations.Nullable;
 
-import java.time.DayOfWeek;
 import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-import java.time.format.DateTimeFormatterBuilder;
-import java.time.format.SignStyle;
-import java.time.format.TextStyle;
-import java.time.temporal.ChronoField;
-import java.time.temporal.IsoFields;
 import java.time.temporal.Temporal;
-import java.time.temporal.WeekFields;
+import java.util.List;
 import java.util.Locale;
 
 
@@ -82,252 +84,49 @@ public class DateFormatFunction extends MycatDateFunction {
 
     @Nullable
     private static String dateFormat(String format, Locale locale, Temporal temporal) {
-        DateTimeFormatterBuilder dateTimeFormatterBuilder = new DateTimeFormatterBuilder();
-        int length = format.length();
-        for (int i = 0; i < length; i++) {
-            int next = i + 1;
-            if (format.charAt(i) == '%' && next != length) {
-                char c = format.charAt(next);
-                if (isOption(c)) {
-                    i+=1;
-                    switch (c) {
-                        case 'a': {
-                            dateTimeFormatterBuilder.appendText(ChronoField.DAY_OF_WEEK, TextStyle.SHORT);
-                            break;
-                        }
-                        case 'b': {
-                            dateTimeFormatterBuilder.appendText(ChronoField.MONTH_OF_YEAR, TextStyle.SHORT);
-                            break;
-                        }
-                        case 'c': {
-                            dateTimeFormatterBuilder.appendValue(ChronoField.MONTH_OF_YEAR, 1, 2, SignStyle.NORMAL);
-                            break;
-                        }
-                        case 'D': {
+        return MySQLDateFormatter.compile(format, locale).format(temporal);
+    }
 
-                            int day = temporal.get(ChronoField.DAY_OF_MONTH);
-                            String text = String.format("%01d", temporal.get(ChronoField.DAY_OF_MONTH));
-                            dateTimeFormatterBuilder.appendLiteral(text);
-                            String order;
-                            if (day >= 10 && day <= 19)
-                                order = ("th");
-                            else {
-                                int tmp = (int) (day % 10);
-                                switch (tmp) {
-                                    case 1:
-                                        order = ("st");
-                                        break;
-                                    case 2:
-                                        order = ("nd");
-                                        break;
-                                    case 3:
-                                        order = ("rd");
-                                        break;
-                                    default:
-                                        order = ("th");
-                                        break;
-                                }
-                            }
-                            dateTimeFormatterBuilder.appendLiteral(order);
-                            break;
-                        }
-                        case 'd': {
-                            dateTimeFormatterBuilder.appendValue(ChronoField.DAY_OF_MONTH, 2);
-                            break;
-                        }
-                        case 'e': {
-                            dateTimeFormatterBuilder.appendValue(ChronoField.DAY_OF_MONTH, 1, 2, SignStyle.NORMAL);
-                            break;
-                        }
-                        case 'f': {
-                            dateTimeFormatterBuilder.appendValue(ChronoField.INSTANT_SECONDS, 6);
-                            break;
-                        }
-                        case 'H': {
-                            dateTimeFormatterBuilder.appendValue(ChronoField.HOUR_OF_DAY, 2);
-                            break;
-                        }
-                        case 'h':
-                        case 'I': {
-                            dateTimeFormatterBuilder.appendValue(ChronoField.CLOCK_HOUR_OF_AMPM, 2);
-                            break;
-                        }
-                        case 'i': {
-                            dateTimeFormatterBuilder.appendValue(ChronoField.MINUTE_OF_HOUR, 2);
-                            break;
-                        }
-                        case 'j': {
-                            dateTimeFormatterBuilder.appendValue(ChronoField.DAY_OF_YEAR, 3);
-                            break;
-                        }
-                        case 'k': {
-                            dateTimeFormatterBuilder.appendValue(ChronoField.HOUR_OF_DAY, 1,2,SignStyle.NORMAL);
-                            break;
-                        }
-                        case 'l': {
-                            dateTimeFormatterBuilder.appendText(ChronoField.CLOCK_HOUR_OF_AMPM);
-                            break;
-                        }
-                        case 'M': {
-                            dateTimeFormatterBuilder.appendText(ChronoField.MONTH_OF_YEAR, TextStyle.FULL);
-                            break;
-                        }
-                        case 'm': {
-                            dateTimeFormatterBuilder.appendValue(ChronoField.MONTH_OF_YEAR, 2);
-                            break;
-                        }
-                        case 'p': {
-                            dateTimeFormatterBuilder.appendText(ChronoField.AMPM_OF_DAY);
-                            break;
-                        }
-                        case 'r': {
-                            dateTimeFormatterBuilder
-                                    .appendValue(ChronoField.CLOCK_HOUR_OF_AMPM)
-                                    .appendLiteral(':')
-                                    .appendValue(ChronoField.MINUTE_OF_HOUR)
-                                    .appendLiteral(':')
-                                    .appendValue(ChronoField.SECOND_OF_MINUTE,2,2,SignStyle.NORMAL)
-                                    .appendLiteral(' ')
-                                    .appendText(ChronoField.AMPM_OF_DAY);
-                            break;
-                        }
-                        case 'S':
-                        case 's': {
-                            dateTimeFormatterBuilder.appendValue(ChronoField.SECOND_OF_MINUTE, 2);
-                            break;
-                        }
-                        case 'T': {
-                            dateTimeFormatterBuilder
-                                    .appendValue(ChronoField.HOUR_OF_DAY)
-                                    .appendLiteral(':')
-                                    .appendValue(ChronoField.MINUTE_OF_HOUR)
-                                    .appendLiteral(':')
-                                    .appendValue(ChronoField.SECOND_OF_MINUTE,2,2,SignStyle.NORMAL);
-                            break;
-                        }
-                        case 'U': {
-                            //todo check
-                            dateTimeFormatterBuilder
-                                    .appendValue(IsoFields.WEEK_OF_WEEK_BASED_YEAR);
-                            break;
-                        }
-                        case 'u': {
-                            //todo check
-                            dateTimeFormatterBuilder
-                                    .appendValue(ChronoField.ALIGNED_WEEK_OF_YEAR);
-                            break;
-                        }
-                        case 'V': {
-                            dateTimeFormatterBuilder
-                                    .appendLiteral( String.format("%01d",temporal.get(WeekFields.ISO.weekOfWeekBasedYear())-1));
-                            break;
-                        }
-                        case 'v': {
-                            dateTimeFormatterBuilder
-                                    .appendLiteral( String.format("%01d",temporal.get(WeekFields.SUNDAY_START.weekOfWeekBasedYear())-1));
-                            break;
-                        }
-                        case 'W': {
-                            DayOfWeek dayOfWeek = null;
-                            if (temporal instanceof LocalDateTime){
-                                 dayOfWeek = ((LocalDateTime) temporal).getDayOfWeek();
-                            }
-                            if (temporal instanceof LocalDate){
-                                dayOfWeek = ((LocalDate) temporal).getDayOfWeek();
-                            }
-                            dateTimeFormatterBuilder
-                                    .appendLiteral(dayOfWeek.getDisplayName(TextStyle.FULL,locale));
-                            break;
-                        }
-                        case 'w': {
-                            dateTimeFormatterBuilder
-                                    .appendValue(ChronoField.DAY_OF_WEEK, 1);
-                            break;
-                        }
-                        case 'X': {
-                            //todo check
-                            dateTimeFormatterBuilder
-                                    .appendValue(WeekFields.ISO.weekBasedYear(), 4, 4, SignStyle.NORMAL);
-                            break;
-                        }
-                        case 'x': {
-                            //todo check
-                            dateTimeFormatterBuilder
-                                    .appendValue(WeekFields.SUNDAY_START.weekBasedYear(), 4, 4, SignStyle.NORMAL);
-                            break;
+    public static String dateFormatTimestamp(LocalDateTime timestamp, String format) {
+        if (timestamp == null || format == null) {
+            return null;
+        }
+        return dateFormat(format, Locale.US, timestamp);
+    }
 
-                        }
-                        case 'Y': {
-                            dateTimeFormatterBuilder
-                                    .appendValue(ChronoField.YEAR, 4, 4, SignStyle.NORMAL);
-                            break;
-                        }
-                        case 'y': {
-                            int i1 = temporal.get(ChronoField.YEAR);
-                            String s = String.valueOf(i1);
-                            if (s.length()>2){
-                                s= s.substring(s.length()-2);
-                            }
-                            dateTimeFormatterBuilder
-                                    .appendLiteral(s);
-                            break;
-                        }
-                        case '#': {
-                            for (int j = next; j < length; j++) {
-                                if (Character.isDigit(format.charAt(j))) {
-                                    continue;
-                                } else {
-                                    i = j;
-                                }
-                            }
-                            break;
-                        }
-                        case '.': {
-                            for (int j = next; j < length; j++) {
-                                if (isPunctuation(format.charAt(j))) {
-                                    continue;
-                                } else {
-                                    i = j;
-                                }
-                            }
-                            break;
-                        }
-                        case '@': {
-                            for (int j = next; j < length; j++) {
-                                if (Character.isAlphabetic(format.charAt(j))) {
-                                    continue;
-                                } else {
-                                    i = j;
-                                }
-                            }
-                            break;
-                        }
-                        case '%': {
-                            dateTimeFormatterBuilder
-                                    .appendLiteral('%');
-                            break;
-                        }
-                        default: {
-                           throw new UnsupportedOperationException();
-                        }
+    public static String dateFormatDate(LocalDate date, String format) {
+        if (date == null || format == null) {
+            return null;
+        }
+        return dateFormat(format, Locale.US, date);
+    }
 
-                    }
-                } else {
-                    dateTimeFormatterBuilder.appendLiteral(c);
+    /**
+     * 参数是TIMESTAMP/DATE时直接传LocalDateTime/LocalDate,不再转成字符串后逐行重新解析
+     */
+    @Override
+    public Expression implement(RexToLixTranslator translator, RexCall call, RexImpTable.NullAs nullAs) {
+        List<RexNode> operands = call.getOperands();
+        if (operands.size() == 2) {
+            RexNode date = operands.get(0);
+            if (date.getKind() == SqlKind.CAST && !SqlTypeName.DATETIME_TYPES.contains(date.getType().getSqlTypeName())) {
+                date = ((RexCall) date).getOperands().get(0);
+            }
+            SqlTypeName sqlTypeName = date.getType().getSqlTypeName();
+            if (sqlTypeName == SqlTypeName.TIMESTAMP || sqlTypeName == SqlTypeName.DATE) {
+                Expression dateExpr = translator.translate(date);
+                Expression formatExpr = translator.translate(operands.get(1));
+                if (dateExpr.getType() == LocalDateTime.class) {
+                    return Expressions.call(Types.lookupMethod(DateFormatFunction.class, "dateFormatTimestamp", LocalDateTime.class, String.class),
+                            dateExpr, formatExpr);
+                }
+                if (dateExpr.getType() == LocalDate.class) {
+                    return Expressions.call(Types.lookupMethod(DateFormatFunction.class, "dateFormatDate", LocalDate.class, String.class),
+                            dateExpr, formatExpr);
                 }
-            } else {
-                dateTimeFormatterBuilder.appendLiteral(format.charAt(i));
             }
         }
-        DateTimeFormatter dateTimeFormatter = dateTimeFormatterBuilder.toFormatter(locale);
-
-        if (temporal instanceof LocalDate) {
-            return ((LocalDate) temporal).format(dateTimeFormatter);
-        }
-        if (temporal instanceof LocalDateTime) {
-            return ((LocalDateTime) temporal).format(dateTimeFormatter);
-        }
-        return null;
+        return super.implement(translator, call, nullAs);
     }
 
     public static boolean isOption(char c) {
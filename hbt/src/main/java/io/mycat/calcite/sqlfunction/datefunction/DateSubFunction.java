@@ -30,6 +30,8 @@ import org.apache.calcite.sql.type.*;
 
 import java.lang.reflect.Method;
 import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.Period;
 import java.util.List;
 
@@ -76,6 +78,27 @@ public  class DateSubFunction extends SqlFunction {
             Method dateAdd = Types.lookupMethod(MycatBuiltInMethodImpl.class, "dateSubString", String.class, Period.class);
             return Expressions.call(dateAdd,one,second);
           }
+          if (SqlTypeName.STRING_TYPES.contains(call.getType().getSqlTypeName())) {
+            //TIMESTAMP/DATE参数直接计算,不再转成字符串重新解析
+            Expression temporal = one;
+            Expression amount = second;
+            if (second.getType() == LocalDateTime.class || second.getType() == LocalDate.class) {
+              temporal = second;
+              amount = one;
+            }
+            if (temporal.getType() == LocalDateTime.class && amount.getType() == Duration.class) {
+              Method method = Types.lookupMethod(MycatBuiltInMethodImpl.class, "dateSubTimestamp", LocalDateTime.class, Duration.class);
+              return Expressions.call(method, temporal, amount);
+            }
+            if (temporal.getType() == LocalDate.class && amount.getType() == Duration.class) {
+              Method method = Types.lookupMethod(MycatBuiltInMethodImpl.class, "dateSubDate", LocalDate.class, Duration.class);
+              return Expressions.call(method, temporal, amount);
+            }
+            if (temporal.getType() == LocalDate.class && amount.getType() == Period.class) {
+              Method method = Types.lookupMethod(MycatBuiltInMethodImpl.class, "dateSubDate", LocalDate.class, Period.class);
+              return Expressions.call(method, temporal, amount);
+            }
+          }
         throw new UnsupportedOperationException("unsupport:"+call);
         }
       };
@@ -0,0 +1,298 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mycat.calcite.sqlfunction.datefunction;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.SignStyle;
+import java.time.format.TextStyle;
+import java.time.temporal.ChronoField;
+import java.time.temporal.Temporal;
+import java.time.temporal.WeekFields;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 预编译的DATE_FORMAT格式
+ * <p>
+ * 格式串只解析一次,不依赖日期值的部分合并成DateTimeFormatter,
+ * 依赖日期值的部分(%D %W %y)每行计算,编译结果按格式串缓存
+ * <p>
+ * 周数与MySQL WEEK()一致:%U对应模式0,%u对应模式1,%V/%X对应模式2,%v/%x对应模式3(ISO)
+ */
+public class MySQLDateFormatter {
+    private static final int MAX_CACHE_SIZE = 1024;
+    /**
+     * 周日开始,第一个周日所在的周为第一周
+     */
+    private static final WeekFields SUNDAY_FIRST = WeekFields.of(DayOfWeek.SUNDAY, 7);
+    private static final ConcurrentHashMap<Locale, ConcurrentHashMap<String, MySQLDateFormatter>> CACHE = new ConcurrentHashMap<>();
+
+    private final Item[] items;
+
+    private MySQLDateFormatter(Item[] items) {
+        this.items = items;
+    }
+
+    public static MySQLDateFormatter compile(String format, Locale locale) {
+        ConcurrentHashMap<String, MySQLDateFormatter> map = CACHE.computeIfAbsent(locale, l -> new ConcurrentHashMap<>());
+        MySQLDateFormatter formatter = map.get(format);
+        if (formatter == null) {
+            if (map.size() > MAX_CACHE_SIZE) {
+                map.clear();
+            }
+            formatter = new Compiler(format, locale).compile();
+            map.put(format, formatter);
+        }
+        return formatter;
+    }
+
+    /**
+     * @return 只支持LocalDate与LocalDateTime,其他类型返回null
+     */
+    public String format(Temporal temporal) {
+        if (!(temporal instanceof LocalDateTime) && !(temporal instanceof LocalDate)) {
+            return null;
+        }
+        StringBuilder sb = new StringBuilder();
+        for (Item item : items) {
+            item.format(temporal, sb);
+        }
+        return sb.toString();
+    }
+
+    interface Item {
+        void format(Temporal temporal, StringBuilder sb);
+    }
+
+    static class Compiler {
+        private final String format;
+        private final Locale locale;
+        private final List<Item> items = new ArrayList<>();
+        private DateTimeFormatterBuilder builder = new DateTimeFormatterBuilder();
+        private boolean builderEmpty = true;
+
+        Compiler(String format, Locale locale) {
+            this.format = format;
+            this.locale = locale;
+        }
+
+        private DateTimeFormatterBuilder builder() {
+            builderEmpty = false;
+            return builder;
+        }
+
+        private void literal(String text) {
+            builder().appendLiteral(text);
+        }
+
+        private void dynamic(Item item) {
+            flush();
+            items.add(item);
+        }
+
+        private void flush() {
+            if (!builderEmpty) {
+                DateTimeFormatter formatter = builder.toFormatter(locale);
+                items.add((temporal, sb) -> formatter.formatTo(temporal, sb));
+                builder = new DateTimeFormatterBuilder();
+                builderEmpty = true;
+            }
+        }
+
+        MySQLDateFormatter compile() {
+            int length = format.length();
+            for (int i = 0; i < length; i++) {
+                int next = i + 1;
+                if (format.charAt(i) == '%' && next != length) {
+                    char c = format.charAt(next);
+                    if (DateFormatFunction.isOption(c)) {
+                        i += 1;
+                        i = option(c, next, i);
+                    } else {
+                        builder().appendLiteral(c);
+                    }
+                } else {
+                    builder().appendLiteral(format.charAt(i));
+                }
+            }
+            flush();
+            return new MySQLDateFormatter(items.toArray(new Item[0]));
+        }
+
+        private int option(char c, int next, int i) {
+            int length = format.length();
+            switch (c) {
+                case 'a':
+                    builder().appendText(ChronoField.DAY_OF_WEEK, TextStyle.SHORT);
+                    break;
+                case 'b':
+                    builder().appendText(ChronoField.MONTH_OF_YEAR, TextStyle.SHORT);
+                    break;
+                case 'c':
+                    builder().appendValue(ChronoField.MONTH_OF_YEAR, 1, 2, SignStyle.NORMAL);
+                    break;
+                case 'D':
+                    dynamic((temporal, sb) -> {
+                        int day = temporal.get(ChronoField.DAY_OF_MONTH);
+                        sb.append(day).append(ordinal(day));
+                    });
+                    break;
+                case 'd':
+                    builder().appendValue(ChronoField.DAY_OF_MONTH, 2);
+                    break;
+                case 'e':
+                    builder().appendValue(ChronoField.DAY_OF_MONTH, 1, 2, SignStyle.NORMAL);
+                    break;
+                case 'f':
+                    builder().appendValue(ChronoField.MICRO_OF_SECOND, 6);
+                    break;
+                case 'H':
+                    builder().appendValue(ChronoField.HOUR_OF_DAY, 2);
+                    break;
+                case 'h':
+                case 'I':
+                    builder().appendValue(ChronoField.CLOCK_HOUR_OF_AMPM, 2);
+                    break;
+                case 'i':
+                    builder().appendValue(ChronoField.MINUTE_OF_HOUR, 2);
+                    break;
+                case 'j':
+                    builder().appendValue(ChronoField.DAY_OF_YEAR, 3);
+                    break;
+                case 'k':
+                    builder().appendValue(ChronoField.HOUR_OF_DAY, 1, 2, SignStyle.NORMAL);
+                    break;
+                case 'l':
+                    builder().appendText(ChronoField.CLOCK_HOUR_OF_AMPM);
+                    break;
+                case 'M':
+                    builder().appendText(ChronoField.MONTH_OF_YEAR, TextStyle.FULL);
+                    break;
+                case 'm':
+                    builder().appendValue(ChronoField.MONTH_OF_YEAR, 2);
+                    break;
+                case 'p':
+                    builder().appendText(ChronoField.AMPM_OF_DAY);
+                    break;
+                case 'r':
+                    builder()
+                            .appendValue(ChronoField.CLOCK_HOUR_OF_AMPM)
+                            .appendLiteral(':')
+                            .appendValue(ChronoField.MINUTE_OF_HOUR)
+                            .appendLiteral(':')
+                            .appendValue(ChronoField.SECOND_OF_MINUTE, 2, 2, SignStyle.NORMAL)
+                            .appendLiteral(' ')
+                            .appendText(ChronoField.AMPM_OF_DAY);
+                    break;
+                case 'S':
+                case 's':
+                    builder().appendValue(ChronoField.SECOND_OF_MINUTE, 2);
+                    break;
+                case 'T':
+                    builder()
+                            .appendValue(ChronoField.HOUR_OF_DAY)
+                            .appendLiteral(':')
+                            .appendValue(ChronoField.MINUTE_OF_HOUR)
+                            .appendLiteral(':')
+                            .appendValue(ChronoField.SECOND_OF_MINUTE, 2, 2, SignStyle.NORMAL);
+                    break;
+                case 'U':
+                    builder().appendValue(SUNDAY_FIRST.weekOfYear(), 2);
+                    break;
+                case 'u':
+                    builder().appendValue(WeekFields.ISO.weekOfYear(), 2);
+                    break;
+                case 'V':
+                    builder().appendValue(SUNDAY_FIRST.weekOfWeekBasedYear(), 2);
+                    break;
+                case 'v':
+                    builder().appendValue(WeekFields.ISO.weekOfWeekBasedYear(), 2);
+                    break;
+                case 'W':
+                    dynamic((temporal, sb) -> sb.append(DayOfWeek.from(temporal).getDisplayName(TextStyle.FULL, locale)));
+                    break;
+                case 'w':
+                    builder().appendValue(ChronoField.DAY_OF_WEEK, 1);
+                    break;
+                case 'X':
+                    builder().appendValue(SUNDAY_FIRST.weekBasedYear(), 4, 4, SignStyle.NORMAL);
+                    break;
+                case 'x':
+                    builder().appendValue(WeekFields.ISO.weekBasedYear(), 4, 4, SignStyle.NORMAL);
+                    break;
+                case 'Y':
+                    builder().appendValue(ChronoField.YEAR, 4, 4, SignStyle.NORMAL);
+                    break;
+                case 'y':
+                    dynamic((temporal, sb) -> {
+                        String s = String.valueOf(temporal.get(ChronoField.YEAR));
+                        sb.append(s.length() > 2 ? s.substring(s.length() - 2) : s);
+                    });
+                    break;
+                case '#':
+                    for (int j = next; j < length; j++) {
+                        if (!Character.isDigit(format.charAt(j))) {
+                            i = j;
+                        }
+                    }
+                    break;
+                case '.':
+                    for (int j = next; j < length; j++) {
+                        if (!DateFormatFunction.isPunctuation(format.charAt(j))) {
+                            i = j;
+                        }
+                    }
+                    break;
+                case '@':
+                    for (int j = next; j < length; j++) {
+                        if (!Character.isAlphabetic(format.charAt(j))) {
+                            i = j;
+                        }
+                    }
+                    break;
+                case '%':
+                    literal("%");
+                    break;
+                default:
+                    throw new UnsupportedOperationException();
+            }
+            return i;
+        }
+
+        private static String ordinal(int day) {
+            if (day >= 10 && day <= 19) {
+                return "th";
+            }
+            switch (day % 10) {
+                case 1:
+                    return "st";
+                case 2:
+                    return "nd";
+                case 3:
+                    return "rd";
+                default:
+                    return "th";
+            }
+        }
+    }
+}
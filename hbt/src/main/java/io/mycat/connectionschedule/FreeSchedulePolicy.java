@@ -21,9 +21,11 @@ import io.mycat.MycatDataContext;
 import io.vertx.core.Future;
 import io.vertx.sqlclient.SqlConnection;
 
+import java.util.function.BooleanSupplier;
+
 public class FreeSchedulePolicy implements SchedulePolicy{
     @Override
-    public Future<SqlConnection> getConnetion(MycatDataContext dataContext, int order, int refCount, String target, long deadline, Future<SqlConnection> recycleConnectionFuture) {
+    public Future<SqlConnection> getConnetion(MycatDataContext dataContext, int order, int refCount, String target, long deadline, Future<SqlConnection> recycleConnectionFuture, BooleanSupplier cancelled) {
         return null;
     }
 }
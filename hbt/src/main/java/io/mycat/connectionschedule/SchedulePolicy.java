@@ -21,7 +21,9 @@ import io.mycat.MycatDataContext;
 import io.vertx.core.Future;
 import io.vertx.sqlclient.SqlConnection;
 
+import java.util.function.BooleanSupplier;
+
 public interface SchedulePolicy {
         Future<SqlConnection> getConnetion(MycatDataContext context, int order, int refCount, String target, long deadline,
-                                           Future<SqlConnection> recycleConnectionFuture);
+                                           Future<SqlConnection> recycleConnectionFuture, BooleanSupplier cancelled);
     }
\ No newline at end of file
@@ -69,7 +69,8 @@ public  class Scheduler implements Runnable {
         Future<Void> closeFuture = Future.future(promise -> {
             Observable<Object[]> observable = Objects.requireNonNull(VertxExecuter.runQuery(connectionFuture,
                     sqlString.getSql(),
-                    MycatPreparedStatementUtil.extractParams(params, sqlString.getDynamicParameters()), calciteRowMetaData));
+                    MycatPreparedStatementUtil.extractParams(params, sqlString.getDynamicParameters()), calciteRowMetaData,
+                    () -> cancel.get() || emitter.isDisposed()));
             observable.subscribe(objects -> {
                         if (cancel.get()) {
                             return;
@@ -95,7 +96,10 @@ public  class Scheduler implements Runnable {
                 subTask = queue.take();
                 MySQLManager mySQLManager = MetaClusterCurrent.wrapper(MySQLManager.class);
                 ReplicaSelectorManager selector = MetaClusterCurrent.wrapper(ReplicaSelectorManager.class);
-                if (subTask != null) {
+                if (subTask != null && subTask.getCancelled().getAsBoolean()) {
+                    subTask.getPromise().tryFail("cancelled");
+                    subTask = null;
+                } else if (subTask != null) {
                     SubTask curTask = subTask;
                     String datasourceName = selector.getDatasourceNameByReplicaName(curTask.getTarget(), false, null);
                     Future<SqlConnection> connectionFuture = mySQLManager.getConnection(datasourceName);
@@ -103,7 +107,9 @@ public  class Scheduler implements Runnable {
                             .onSuccess(sqlConnection -> curTask.getPromise().complete(sqlConnection))
                             .onFailure(throwable -> {
                                 long now = System.currentTimeMillis();
-                                if (curTask.getDeadline() >= now) {
+                                if (curTask.getCancelled().getAsBoolean()) {
+                                    curTask.getPromise().tryFail("cancelled");
+                                } else if (curTask.getDeadline() >= now) {
                                     queue.add(curTask);
                                 } else {
                                     curTask.getPromise().tryFail("timeout");
@@ -169,11 +175,7 @@ public  class Scheduler implements Runnable {
                                                                                          CodeExecuterContext executerContext) {
 
         SchedulePolicy schedulePolicy = !context.isInTransaction() ?
-                (xaSqlConnection, order, refCount, target, deadline, recycleConnectionFuture) -> {
-                    recycleConnectionFuture.onSuccess(sqlConnection -> sqlConnection.close());
-                    Scheduler scheduler = MetaClusterCurrent.wrapper(Scheduler.class);
-                    return Future.future(promise -> scheduler.queue.add(new SubTask(order, refCount, context.resolveDatasourceTargetName(target), promise, deadline)));
-                } :
+                freeSchedulePolicy(context) :
                 new SequenceSchedulePolicy();
         Map<RelNode, Integer> mycatViews = executerContext.getMycatViews();
         IdentityHashMap<RelNode, List<Observable<Object[]>>> observableIdentityHashMap = new IdentityHashMap<>();
@@ -194,6 +196,27 @@ public  class Scheduler implements Runnable {
         return observableIdentityHashMap;
     }
 
+    private static SchedulePolicy freeSchedulePolicy(MycatDataContext context) {
+        return (xaSqlConnection, order, refCount, target, deadline, recycleConnectionFuture, cancelled) -> {
+            recycleConnectionFuture.onSuccess(sqlConnection -> sqlConnection.close());
+            Scheduler scheduler = MetaClusterCurrent.wrapper(Scheduler.class);
+            return Future.future(promise -> scheduler.queue.add(new SubTask(order, refCount, context.resolveDatasourceTargetName(target), promise, deadline, cancelled)));
+        };
+    }
+
+    /**
+     * 非事务下单独调度一个运行时生成的MycatView(例如追加了运行时过滤条件)
+     */
+    public List<Observable<Object[]>> scheduleView(MycatDataContext context,
+                                                   MycatView mycatView,
+                                                   List<Object> params,
+                                                   CodeExecuterContext executerContext) {
+        if (context.isInTransaction()) {
+            throw new UnsupportedOperationException("scheduleView is not supported in transaction");
+        }
+        return schedule(freeSchedulePolicy(context), context, mycatView, 1, params, executerContext);
+    }
+
     private List<Observable<Object[]>> schedule(SchedulePolicy schedulePolicy,
                                                 MycatDataContext context,
                                           RelNode relNode,
@@ -232,11 +255,15 @@ public  class Scheduler implements Runnable {
         return Observable.create(emitter -> {
             Promise<Void> resultSetClosePromise = VertxUtil.newPromise();
             Promise<SqlConnection> sqlConnectionRecyclePromise = VertxUtil.newPromise();
-            emitter.setCancellable(() -> resultSetClosePromise.tryComplete());
+            AtomicBoolean cancel = new AtomicBoolean(false);
+            //例如LIMIT已经满足,还没有开始的查询不再执行,正在执行的停止读取
+            emitter.setCancellable(() -> {
+                cancel.set(true);
+                resultSetClosePromise.tryComplete();
+            });
             Future<Void> resultSetCloseFuture = resultSetClosePromise.future();
             Future<SqlConnection> connectionFuture = schedulePolicy
-                    .getConnetion(context, order, refCount, (target), deadline, sqlConnectionRecyclePromise.future());
-            AtomicBoolean cancel = new AtomicBoolean(false);
+                    .getConnetion(context, order, refCount, (target), deadline, sqlConnectionRecyclePromise.future(), cancel::get);
             Future<Void> closeFuture = addTask(connectionFuture,
                     emitter, sqlString, params, calciteRowMetaData,cancel);
             closeFuture.onFailure(event -> emitter.tryOnError(event));
@@ -27,6 +27,7 @@ import io.vertx.sqlclient.SqlConnection;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.function.BooleanSupplier;
 
 public class SequenceSchedulePolicy implements SchedulePolicy {
     final Map<String, Future<SqlConnection>> futures = new HashMap<>();
@@ -34,7 +35,8 @@ public class SequenceSchedulePolicy implements SchedulePolicy {
     @Override
     public Future<SqlConnection> getConnetion(MycatDataContext dataContext,
                                               int order, int refCount, String targetArg, long deadline,
-                                              Future<SqlConnection> recycleConnectionFuture) {
+                                              Future<SqlConnection> recycleConnectionFuture,
+                                              BooleanSupplier cancelled) {
         synchronized (futures) {
             String target = dataContext.resolveDatasourceTargetName(targetArg, true);
             Future<SqlConnection> sqlConnectionFuture = futures.get(target);
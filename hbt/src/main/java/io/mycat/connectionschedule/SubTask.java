@@ -22,6 +22,7 @@ import io.vertx.sqlclient.SqlConnection;
 import lombok.Getter;
 
 import java.util.Comparator;
+import java.util.function.BooleanSupplier;
 import java.util.function.ToIntFunction;
 
 @Getter
@@ -31,15 +32,24 @@ public class SubTask implements Comparable<SubTask> {
         final int count;
         final Promise<SqlConnection> promise;
         final long deadline;
+        /**
+         * 下游已经不需要结果时不再获取连接
+         */
+        final BooleanSupplier cancelled;
         static final Comparator<SubTask> subTaskComparator = Comparator.comparingInt((ToIntFunction<SubTask>) value -> value.order)
                 .thenComparing((Comparator.comparingInt((ToIntFunction<SubTask>) value -> value.count).reversed()));
 
         public SubTask(int order, int count, String target, Promise<SqlConnection> promise, long deadline) {
+            this(order, count, target, promise, deadline, () -> false);
+        }
+
+        public SubTask(int order, int count, String target, Promise<SqlConnection> promise, long deadline, BooleanSupplier cancelled) {
             this.order = order;
             this.target = target;
             this.count = count;
             this.promise = promise;
             this.deadline = deadline;
+            this.cancelled = cancelled;
         }
 
         @Override
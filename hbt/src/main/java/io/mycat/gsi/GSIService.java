@@ -67,6 +67,21 @@ public interface GSIService {
 
     void insert(String txId, String schemaName, String tableName, SimpleColumnInfo[] columns, List<Object> values,String dataNodeKey);
 
+    /**
+     * 删除一行的索引, columns需要包含主键和索引列
+     */
+    void delete(String txId, String schemaName, String tableName, SimpleColumnInfo[] columns, List<Object> values,String dataNodeKey);
+
+    /**
+     * 语句开始修改表,语句结束之前该表的索引不用于路由
+     */
+    void beginWrite(String txId, String schemaName, String tableName);
+
+    /**
+     * 语句结束(成功或失败),事务还没有提交
+     */
+    void afterStatement(String txId);
+
     void updateByPrimaryKey(String txId, String schemaName, String tableName,
                             Map<SimpleColumnInfo,Object> setValues,
                             Collection<Map<SimpleColumnInfo,Object>> whereList, String dataNodeKey);
@@ -0,0 +1,66 @@
+package io.mycat.gsi;
+
+import cn.mycat.vertx.xa.XaSqlConnection;
+import io.mycat.MetaClusterCurrent;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 前端事务与全局索引事务的对应关系
+ * <p>
+ * 同一个事务内的DML共用一个索引事务id,新增的索引项执行前就写入,删除的索引项事务提交后才生效,回滚则丢弃.
+ * 自动提交的语句执行完马上提交索引事务
+ */
+public class GSITransactions {
+    private static final AtomicLong ID_GENERATOR = new AtomicLong();
+    private static final Map<XaSqlConnection, String> TX_IDS = new WeakHashMap<>();
+
+    public static String getTxId(XaSqlConnection connection) {
+        synchronized (TX_IDS) {
+            return TX_IDS.computeIfAbsent(connection, c -> "gsi-" + ID_GENERATOR.incrementAndGet());
+        }
+    }
+
+    /**
+     * 语句执行完成,不在事务中时直接提交索引事务.
+     * 执行失败也提交:自动提交的语句可能在部分分片已经生效,删除类的修改只在语句成功后才登记,
+     * 所以这里提交最多多出索引项(路由多访问分片),不会缺少索引项
+     */
+    public static void afterStatement(XaSqlConnection connection) {
+        if (!connection.isInTransaction()) {
+            commit(connection);
+            return;
+        }
+        String txId;
+        synchronized (TX_IDS) {
+            txId = TX_IDS.get(connection);
+        }
+        if (txId != null && MetaClusterCurrent.exist(GSIService.class)) {
+            MetaClusterCurrent.wrapper(GSIService.class).afterStatement(txId);
+        }
+    }
+
+    public static void commit(XaSqlConnection connection) {
+        String txId = remove(connection);
+        if (txId != null && MetaClusterCurrent.exist(GSIService.class)) {
+            GSIService gsiService = MetaClusterCurrent.wrapper(GSIService.class);
+            gsiService.preCommit(txId);
+            gsiService.commit(txId);
+        }
+    }
+
+    public static void rollback(XaSqlConnection connection) {
+        String txId = remove(connection);
+        if (txId != null && MetaClusterCurrent.exist(GSIService.class)) {
+            MetaClusterCurrent.wrapper(GSIService.class).rollback(txId);
+        }
+    }
+
+    private static String remove(XaSqlConnection connection) {
+        synchronized (TX_IDS) {
+            return TX_IDS.remove(connection);
+        }
+    }
+}
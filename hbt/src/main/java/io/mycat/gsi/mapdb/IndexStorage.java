@@ -11,6 +11,7 @@ import org.mapdb.BTreeMap;
 
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
 import java.util.concurrent.ConcurrentNavigableMap;
 import java.util.function.Function;
 
@@ -24,13 +25,29 @@ public class IndexStorage {
      * 索引定义元信息
      */
     private IndexInfo indexInfo;
+    /**
+     * 主键列,拼在索引键后面区分索引值相同的行
+     */
+    private SimpleColumnInfo[] primaryKeys;
     /**
      * 索引存储数据
-     * key = 索引键
+     * key = [0]~[N]索引键 [N+1]~[M]主键 [M+1]数据节点
      * value = [0]数据节点信息 [1]~[N]覆盖字段
      */
     private BTreeMap<Object[], Object[]> storage;
     private Function<SimpleColumnInfo,Class> typeMap;
+    /**
+     * 存储名称 schema.table.index
+     */
+    private String name;
+    /**
+     * 已有的行回填完成前索引不完整,不能用于路由
+     */
+    private volatile boolean built;
+    /**
+     * 回填期间索引再次失效时递增,本次回填的结果作废
+     */
+    private volatile int buildVersion;
 
     /**
      * 左前缀扫描
@@ -40,7 +57,7 @@ public class IndexStorage {
     public Collection<RowIndexValues> getByPrefix(Object...prefixs){
         SimpleColumnInfo[] indexColumnInfos = indexInfo.getIndexes();
         for (int i = 0; i < prefixs.length; i++) {
-            prefixs[i] = cast(indexColumnInfos[i],prefixs[i]);
+            prefixs[i] = castKey(indexColumnInfos[i],prefixs[i]);
         }
         ConcurrentNavigableMap<Object[], Object[]> subMap = storage.prefixSubMap(prefixs);
         return LazyTransformCollection.transform(subMap.entrySet(),
@@ -52,12 +69,48 @@ public class IndexStorage {
         return cast;
     }
 
+    public Object castKey(SimpleColumnInfo columnInfo,Object value){
+        return MapDBUtils.normalizeKey(cast(columnInfo, value));
+    }
+
+    /**
+     * @param indexValues 索引列的值
+     * @param primaryKeyValues 主键的值
+     * @return 存储键, 第一个索引列为null时返回null(等值查询不会匹配null)
+     */
+    public Object[] toKey(List<Object> indexValues, List<Object> primaryKeyValues, String dataNodeKey) {
+        SimpleColumnInfo[] indexes = indexInfo.getIndexes();
+        Object[] key = new Object[indexes.length + primaryKeys.length + 1];
+        for (int i = 0; i < indexes.length; i++) {
+            key[i] = castKey(indexes[i], indexValues.get(i));
+        }
+        if (key[0] == null) {
+            return null;
+        }
+        for (int i = 0; i < primaryKeys.length; i++) {
+            key[indexes.length + i] = castKey(primaryKeys[i], primaryKeyValues.get(i));
+        }
+        key[key.length - 1] = dataNodeKey;
+        return key;
+    }
+
+    public Object[] toValue(List<Object> coveringValues, String dataNodeKey) {
+        SimpleColumnInfo[] covering = indexInfo.getCovering();
+        Object[] value = new Object[covering.length + 1];
+        value[0] = dataNodeKey;
+        for (int i = 0; i < covering.length; i++) {
+            value[i + 1] = cast(covering[i], coveringValues.get(i));
+        }
+        return value;
+    }
+
     public RowIndexValues parse(Object[] keys, Object[] values){
         RowIndexValues rowIndexValues = new RowIndexValues(indexInfo);
 
-        // 索引键信息
-        for (int i = 0; i < keys.length; i++) {
-            SimpleColumnInfo columnInfo = indexInfo.getIndexes()[i];
+        // 索引键信息, 后面是主键和数据节点
+        SimpleColumnInfo[] indexes = indexInfo.getIndexes();
+        for (int i = 0; i < indexes.length; i++) {
+            SimpleColumnInfo columnInfo = indexes[i];
             Object value = cast(columnInfo,keys[i]);
             rowIndexValues.getIndexes().add(new IndexValue(columnInfo,value));
         }
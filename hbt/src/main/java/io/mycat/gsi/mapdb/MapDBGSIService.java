@@ -14,8 +14,11 @@ public class MapDBGSIService implements GSIService {
     private final MapDBRepository repository;
 
     public MapDBGSIService(File file, MetadataManager metadataManager) {
-//        DB db = DBMaker.fileDB(file).make();
-        this.repository = new MapDBRepository(null, metadataManager);
+        DB db = DBMaker.fileDB(file)
+                .fileMmapEnableIfSupported()
+                .transactionEnable()
+                .make();
+        this.repository = new MapDBRepository(db, metadataManager);
     }
 
     @Override
@@ -40,12 +43,29 @@ public class MapDBGSIService implements GSIService {
 
     @Override
     public Collection<String> queryDataNode(String schemaName, String tableName, int index, Object value) {
+        if (value == null) {
+            return null;
+        }
+        Map<String, IndexStorage> indexStorageMap = repository.getIndexStorageMap(schemaName, tableName);
+        if (indexStorageMap == null || !repository.isAvailable(schemaName, tableName)) {
+            return null;
+        }
         MetadataManager metadataManager = getMetadataManager();
         TableHandler table = metadataManager.getTable(schemaName, tableName);
         SimpleColumnInfo columnInfo = table.getColumns().get(index);
-        Map<String, IndexStorage> indexStorageMap = repository.getIndexStorageMap(schemaName, tableName);
 
-        IndexStorage indexStorage = IndexChooser.HIT_MAX_COLUMNS.choseIndex(indexStorageMap.values(), new SimpleColumnInfo[]{columnInfo});
+        // 只有第一列是查询列的索引才能做前缀查询,还在回填的索引不完整
+        List<IndexStorage> candidates = new ArrayList<>();
+        for (IndexStorage indexStorage : indexStorageMap.values()) {
+            if (indexStorage.isBuilt()
+                    && indexStorage.getIndexInfo().getIndexes()[0].getColumnName().equalsIgnoreCase(columnInfo.getColumnName())) {
+                candidates.add(indexStorage);
+            }
+        }
+        if (candidates.isEmpty()) {
+            return null;
+        }
+        IndexStorage indexStorage = IndexChooser.HIT_MAX_COLUMNS.choseIndex(candidates, new SimpleColumnInfo[]{columnInfo});
         Collection<RowIndexValues> rowIndexValues = indexStorage.getByPrefix(value);
         Set<String> dataNodeSet = new LinkedHashSet<>();
         for (RowIndexValues rowIndexValue : rowIndexValues) {
@@ -66,8 +86,25 @@ public class MapDBGSIService implements GSIService {
     }
 
     @Override
-    public void updateByPrimaryKey(String txId, String schemaName, String tableName, Map<SimpleColumnInfo, Object> setValues, Collection<Map<SimpleColumnInfo, Object>> whereList, String dataNodeKey) {
+    public void delete(String txId, String schemaName, String tableName, SimpleColumnInfo[] columns, List<Object> values, String dataNodeKey) {
+        repository.delete(txId, schemaName, tableName, columns, values, dataNodeKey);
+    }
 
+    @Override
+    public void beginWrite(String txId, String schemaName, String tableName) {
+        if (isIndexTable(schemaName, tableName)) {
+            repository.beginWrite(txId, schemaName, tableName);
+        }
+    }
+
+    @Override
+    public void afterStatement(String txId) {
+        repository.afterStatement(txId);
+    }
+
+    @Override
+    public void updateByPrimaryKey(String txId, String schemaName, String tableName, Map<SimpleColumnInfo, Object> setValues, Collection<Map<SimpleColumnInfo, Object>> whereList, String dataNodeKey) {
+        //更新语句由VertxExecuter按删除旧行加插入新行维护索引
     }
 
     @Override
@@ -1,11 +1,18 @@
 package io.mycat.gsi.mapdb;
 
+import com.alibaba.druid.sql.ast.expr.SQLExprUtils;
 import io.mycat.*;
+import io.mycat.api.collector.RowBaseIterator;
 import io.mycat.calcite.table.SchemaHandler;
+import io.mycat.datasource.jdbc.datasource.DefaultConnection;
+import io.mycat.datasource.jdbc.datasource.JdbcConnectionManager;
 import io.mycat.gsi.GSIService.IndexValue;
 import io.mycat.gsi.GSIService.RowIndexValues;
+import io.mycat.replica.ReplicaSelectorManager;
+import io.mycat.router.ShardingTableHandler;
 import io.mycat.util.NameMap;
 import lombok.extern.slf4j.Slf4j;
+import org.mapdb.Atomic;
 import org.mapdb.BTreeMap;
 import org.mapdb.DB;
 import org.mapdb.Serializer;
@@ -15,12 +22,25 @@ import org.mapdb.serializer.SerializerUtils;
 import java.math.BigDecimal;
 import java.sql.JDBCType;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
  * https://jankotek.gitbooks.io/mapdb/content/db/
  * 数据结构实现来自： https://github.com/jankotek/mapdb
+ * <p>
+ * 索引只能多出索引项(路由多访问分片),不能缺少索引项(漏数据):
+ * 新增的索引项交给写线程写入BTreeMap,写入完成前该表的索引不用于路由;删除的索引项缓存在事务中,提交时才交给写线程删除,回滚不撤销新增的索引项.
+ * 所有对db的修改与落盘(db.commit)都在同一个写线程执行,不阻塞事件循环,落盘每FLUSH_INTERVAL_MS合并一次.
+ * 新定义的索引要先从分片回填已有的行,回填完成前以及语句执行期间该表的索引不用于路由
  *
  * @author wangzihaogithub
  */
@@ -46,9 +66,54 @@ public class MapDBRepository {
     private final Map<JDBCType,Class> typeClassMap = new HashMap<>();
     private Function<SimpleColumnInfo,Class> typeMap = columnInfo -> typeClassMap.get(columnInfo.getJdbcType());
 
+    private static final long FLUSH_INTERVAL_MS = 200;
+    /**
+     * 超过这个时间没有结束的事务视为连接已经断开,丢弃它缓存的删除(只多出索引项,不影响路由)
+     */
+    private static final long TRANSACTION_TIMEOUT_MS = TimeUnit.MINUTES.toMillis(30);
+    private static final long BUILD_RETRY_MS = TimeUnit.SECONDS.toMillis(30);
+    private static final int BUILD_BATCH_SIZE = 10000;
+    private static final long CLOSE_TIMEOUT_MS = TimeUnit.SECONDS.toMillis(10);
+    /**
+     * 写线程,串行执行索引的修改与落盘
+     */
+    private static final ScheduledExecutorService FLUSH_EXECUTOR =
+            Executors.newSingleThreadScheduledExecutor(new NameableThreadFactory("mapDB-gsi-flush", true));
+    private static final ScheduledExecutorService BUILD_EXECUTOR =
+            Executors.newSingleThreadScheduledExecutor(new NameableThreadFactory("mapDB-gsi-build", true));
+    /**
+     * 未提交的索引修改, key = 事务id
+     */
+    private final Map<String, IndexTransaction> transactionMap = new ConcurrentHashMap<>();
+    /**
+     * schema.table => 正在执行的修改该表的语句数加上还没写入的新增索引项批数
+     */
+    private final Map<String, AtomicInteger> writingTableMap = new ConcurrentHashMap<>();
+    /**
+     * 回填完成的索引,重启后不需要重新回填
+     */
+    private final Set<String> builtIndexes;
+    /**
+     * 等待回填或者正在回填的索引
+     */
+    private final Set<String> buildingIndexes = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean dirty = new AtomicBoolean();
+    /**
+     * 运行中为true,正常关闭时置为false.启动时为true说明上次崩溃,最后一批没有落盘的修改已经丢失
+     */
+    private final Atomic.Boolean running;
+
     public MapDBRepository(DB db, MetadataManager metadataManager) {
         this.db = db;
         this.metadataManager = metadataManager;
+        this.running = db.atomicBoolean("gsi.running").createOrOpen();
+        this.builtIndexes = db.hashSet("gsi.built", Serializer.STRING).createOrOpen();
+        if (running.get()) {
+            log.warn("gsi上次没有正常关闭,最后一批修改可能没有落盘,所有索引重新回填");
+            builtIndexes.clear();
+        }
+        running.set(true);
+        db.commit();
         // 数字
         typeClassMap.put(JDBCType.BIT,Byte.class);
         typeClassMap.put(JDBCType.TINYINT,Integer.class);
@@ -101,12 +166,20 @@ public class MapDBRepository {
             public void run() {
                 log.info("before close");
                 try {
-                    db.close();
-                }finally {
+                    //排在前面的修改先写入
+                    FLUSH_EXECUTOR.submit(() -> {
+                        running.set(false);
+                        db.commit();
+                        db.close();
+                    }).get(CLOSE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                } catch (Throwable throwable) {
+                    log.error("gsi close fail", throwable);
+                } finally {
                     log.info("after close");
                 }
             }
         });
+        FLUSH_EXECUTOR.scheduleWithFixedDelay(this::flush, FLUSH_INTERVAL_MS, FLUSH_INTERVAL_MS, TimeUnit.MILLISECONDS);
     }
 
     public MetadataManager getMetadataManager() {
@@ -134,7 +207,7 @@ public class MapDBRepository {
 
     private Object getValue(SimpleColumnInfo columnInfo, SimpleColumnInfo[] columns,List<Object> values){
         for (int i = 0; i < columns.length; i++) {
-            if(columnInfo.getId() == columns[i].getId()){
+            if(columnInfo.getColumnName().equalsIgnoreCase(columns[i].getColumnName())){
                 return values.get(i);
             }
         }
@@ -159,39 +232,152 @@ public class MapDBRepository {
     }
 
     public void insert(String txId, String schemaName, String tableName, SimpleColumnInfo[] columns, List<Object> values, String dataNodeKey) {
-        TableHandler table = getMetadataManager().getTable(schemaName, tableName);
-        Map<String,IndexInfo> indexMap = table.getIndexes();
-        if(indexMap == null){
-            return;
-        }
+        change(txId, schemaName, tableName, columns, values, dataNodeKey, false);
+    }
+
+    public void delete(String txId, String schemaName, String tableName, SimpleColumnInfo[] columns, List<Object> values, String dataNodeKey) {
+        change(txId, schemaName, tableName, columns, values, dataNodeKey, true);
+    }
 
-        Map<String, Map<String, IndexStorage>> tableIndexMap = getSchemaTableIndexStorageMap().get(schemaName);
-        if(tableIndexMap == null){
+    private void change(String txId, String schemaName, String tableName, SimpleColumnInfo[] columns, List<Object> values, String dataNodeKey, boolean delete) {
+        if(getIndexStorageMap(schemaName, tableName) == null){
             return;
         }
-        Map<String, IndexStorage> indexStorageMap = tableIndexMap.get(tableName);
+        TableHandler table = getMetadataManager().getTable(schemaName, tableName);
+        List<Object> primaryKeyValues = table.getPrimaryKeyList().stream()
+                .map(columnInfo -> getValue(columnInfo, columns, values))
+                .collect(Collectors.toList());
+        change(txId, schemaName, tableName, table.getIndexes(), primaryKeyValues, columns, values, dataNodeKey, delete);
+    }
+
+    void change(String txId, String schemaName, String tableName, Map<String, IndexInfo> indexes, List<Object> primaryKeyValues,
+                SimpleColumnInfo[] columns, List<Object> values, String dataNodeKey, boolean delete) {
+        Map<String, IndexStorage> indexStorageMap = getIndexStorageMap(schemaName, tableName);
         if(indexStorageMap == null){
             return;
         }
-        List<RowIndexValues> rowIndexValuesList = getRowIndexValuesList(indexMap, columns, values);
-        for (RowIndexValues rowIndexValues : rowIndexValuesList) {
-            IndexInfo indexInfo = rowIndexValues.getIndexInfo();
-            IndexStorage indexStorage = indexStorageMap.get(indexInfo.getIndexName());
+        IndexTransaction transaction = beginWrite(txId, schemaName, tableName);
+        Map<IndexKey, Object[]> puts = new LinkedHashMap<>();
+        for (RowIndexValues rowIndexValues : getRowIndexValuesList(indexes, columns, values)) {
+            IndexStorage indexStorage = indexStorageMap.get(rowIndexValues.getIndexInfo().getIndexName());
+            if (indexStorage == null) {
+                continue;
+            }
+            List<Object> indexValues = rowIndexValues.getIndexes().stream().map(IndexValue::getValue).collect(Collectors.toList());
+            Object[] key = indexStorage.toKey(indexValues, primaryKeyValues, dataNodeKey);
+            if (key == null) {
+                continue;
+            }
+            IndexKey indexKey = new IndexKey(indexStorage, key);
+            if (delete) {
+                transaction.delete(indexKey);
+            } else {
+                transaction.cancelDelete(indexKey);
+                List<Object> coveringValues = rowIndexValues.getCoverings().stream().map(IndexValue::getValue).collect(Collectors.toList());
+                puts.put(indexKey, indexStorage.toValue(coveringValues, dataNodeKey));
+            }
+        }
+        if (!puts.isEmpty()) {
+            put(getTableKey(schemaName, tableName), puts);
+        }
+    }
+
+    /**
+     * 新增的索引项交给写线程写入,写入完成前该表的索引不用于路由
+     */
+    private void put(String table, Map<IndexKey, Object[]> puts) {
+        AtomicInteger writing = writingTableMap.computeIfAbsent(table, s -> new AtomicInteger());
+        writing.incrementAndGet();
+        try {
+            write(() -> {
+                try {
+                    for (Map.Entry<IndexKey, Object[]> entry : puts.entrySet()) {
+                        IndexStorage indexStorage = entry.getKey().storage;
+                        try {
+                            indexStorage.getStorage().put(entry.getKey().key, entry.getValue());
+                        } catch (Throwable throwable) {
+                            log.error("gsi {} put fail, rebuild index", indexStorage, throwable);
+                            invalidate(indexStorage);
+                        }
+                    }
+                } finally {
+                    writing.decrementAndGet();
+                }
+            });
+        } catch (Throwable throwable) {
+            writing.decrementAndGet();
+            throw throwable;
+        }
+    }
+
+    /**
+     * 在写线程执行对db的修改,下一次flush落盘
+     */
+    private void write(Runnable runnable) {
+        FLUSH_EXECUTOR.execute(() -> {
+            runnable.run();
+            dirty.set(true);
+        });
+    }
+
+    /**
+     * 等待已经提交给写线程的修改完成
+     */
+    void awaitWrites() {
+        await(FLUSH_EXECUTOR.submit(() -> {
+        }));
+    }
 
-            List<Object> storageKeys = rowIndexValues.getIndexes().stream().map(this::getValueAndCast).collect(Collectors.toList());
-            List<Object> storageValues = rowIndexValues.getCoverings().stream().map(this::getValueAndCast).collect(Collectors.toList());
-            storageValues.add(0,dataNodeKey);
+    private static void await(Future<?> future) {
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
 
-            indexStorage.getStorage().put(storageKeys.toArray(),storageValues.toArray());
+    /**
+     * 标记当前语句开始修改该表,语句结束前该表的索引不用于路由.
+     * 自动提交的更新语句执行后才登记新的索引值,这段时间其他连接已经能看到新值
+     */
+    public IndexTransaction beginWrite(String txId, String schemaName, String tableName) {
+        IndexTransaction transaction = transactionMap.computeIfAbsent(txId, IndexTransaction::new);
+        String table = getTableKey(schemaName, tableName);
+        if (transaction.beginWrite(table)) {
+            writingTableMap.computeIfAbsent(table, s -> new AtomicInteger()).incrementAndGet();
         }
-        db.commit();
+        return transaction;
     }
 
-    private Object getValueAndCast(IndexValue indexValue){
-        Object value = indexValue.getValue();
-        Class javaClass = typeMap.apply(indexValue.getColumn());
-        Object result = MapDBUtils.cast(value, javaClass);
-        return result;
+    /**
+     * 语句结束,索引恢复用于路由.事务的删除仍然等到提交时才生效
+     */
+    public void afterStatement(String txId) {
+        IndexTransaction transaction = transactionMap.get(txId);
+        if (transaction != null) {
+            endWrite(transaction);
+        }
+    }
+
+    private void endWrite(IndexTransaction transaction) {
+        for (String table : transaction.endWrite()) {
+            writingTableMap.get(table).decrementAndGet();
+        }
+    }
+
+    /**
+     * @return false表示该表有正在执行的修改语句,不能用于路由
+     */
+    public boolean isAvailable(String schemaName, String tableName) {
+        AtomicInteger writing = writingTableMap.get(getTableKey(schemaName, tableName));
+        return writing == null || writing.get() == 0;
+    }
+
+    private static String getTableKey(String schemaName, String tableName) {
+        return (schemaName + "." + tableName).toLowerCase();
     }
 
     public Map<String, IndexStorage> getIndexStorageMap(String schemaName, String tableName){
@@ -208,28 +394,202 @@ public class MapDBRepository {
     }
 
     public boolean commit(String txId) {
-        //todo 事物id未实行
-        try {
-            db.commit();
+        IndexTransaction transaction = transactionMap.remove(txId);
+        if (transaction == null) {
             return true;
-        }catch (Error error){
-            return false;
-        }catch (Exception e){
-            return false;
         }
+        endWrite(transaction);
+        List<IndexKey> deletes = transaction.getDeletes();
+        if (!deletes.isEmpty()) {
+            write(() -> {
+                try {
+                    for (IndexKey indexKey : deletes) {
+                        indexKey.storage.getStorage().remove(indexKey.key);
+                    }
+                } catch (Throwable throwable) {
+                    //删除失败只会多出索引项
+                    log.error("gsi commit transaction {} fail", transaction.id, throwable);
+                }
+            });
+        }
+        return true;
     }
 
+    /**
+     * 回滚只丢弃缓存的删除,已经写入的新增索引项保留,最多让路由多访问分片
+     */
     public boolean rollback(String txId) {
+        IndexTransaction transaction = transactionMap.remove(txId);
+        if (transaction != null) {
+            endWrite(transaction);
+        }
+        return true;
+    }
+
+    private void flush() {
         try {
-            db.rollback();
-            return true;
-        }catch (Error error){
-            return false;
-        }catch (Exception e){
-            return false;
+            long now = System.currentTimeMillis();
+            for (IndexTransaction transaction : transactionMap.values()) {
+                if (now - transaction.createTime > TRANSACTION_TIMEOUT_MS && transactionMap.remove(transaction.id, transaction)) {
+                    log.warn("gsi transaction {} timeout, drop its deletes", transaction.id);
+                    endWrite(transaction);
+                }
+            }
+            if (dirty.getAndSet(false)) {
+                db.commit();
+            }
+        } catch (Throwable throwable) {
+            log.error("gsi flush fail", throwable);
+        }
+    }
+
+    /**
+     * 索引不完整,重新回填.在写线程调用
+     */
+    private void invalidate(IndexStorage indexStorage) {
+        synchronized (indexStorage) {
+            indexStorage.setBuilt(false);
+            indexStorage.setBuildVersion(indexStorage.getBuildVersion() + 1);
+        }
+        builtIndexes.remove(indexStorage.getName());
+        dirty.set(true);
+        scheduleBuild(indexStorage, 0);
+    }
+
+    private void scheduleBuild(IndexStorage indexStorage, long delayMs) {
+        if (indexStorage.isBuilt() || !buildingIndexes.add(indexStorage.getName())) {
+            return;
+        }
+        BUILD_EXECUTOR.schedule(() -> build(indexStorage), delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 从各个分片回填已有的行.
+     * 回填期间新增的行与回填在同一个写线程写入,回填只补上没有的索引项,所以回填完成后索引不会缺少索引项
+     */
+    private void build(IndexStorage indexStorage) {
+        IndexInfo indexInfo = indexStorage.getIndexInfo();
+        int version = indexStorage.getBuildVersion();
+        try {
+            TableHandler table = getMetadataManager().getTable(indexInfo.getSchemaName(), indexInfo.getTableName());
+            if (!(table instanceof ShardingTableHandler)) {
+                buildingIndexes.remove(indexStorage.getName());
+                return;
+            }
+            log.info("gsi {} build start", indexInfo);
+            SimpleColumnInfo[] columns = getBuildColumns(indexStorage);
+            for (DataNode dataNode : ((ShardingTableHandler) table).dataNodes()) {
+                backfill(indexStorage, columns, dataNode);
+            }
+            boolean built;
+            synchronized (indexStorage) {
+                built = version == indexStorage.getBuildVersion();
+                if (built) {
+                    indexStorage.setBuilt(true);
+                }
+            }
+            if (built) {
+                //与invalidate在同一个线程按顺序执行,被invalidate之后不再登记
+                write(() -> {
+                    synchronized (indexStorage) {
+                        if (version == indexStorage.getBuildVersion()) {
+                            builtIndexes.add(indexStorage.getName());
+                        }
+                    }
+                });
+            }
+            buildingIndexes.remove(indexStorage.getName());
+            if (built) {
+                log.info("gsi {} build finished", indexInfo);
+            } else {
+                scheduleBuild(indexStorage, 0);
+            }
+        } catch (Throwable throwable) {
+            log.error("gsi {} build fail, retry after {}ms", indexInfo, BUILD_RETRY_MS, throwable);
+            buildingIndexes.remove(indexStorage.getName());
+            scheduleBuild(indexStorage, BUILD_RETRY_MS);
+        }
+    }
+
+    /**
+     * 回填查询的列,主键在最前面,按主键分批读取
+     */
+    static SimpleColumnInfo[] getBuildColumns(IndexStorage indexStorage) {
+        Map<String, SimpleColumnInfo> columns = new LinkedHashMap<>();
+        IndexInfo indexInfo = indexStorage.getIndexInfo();
+        for (SimpleColumnInfo[] columnInfos : Arrays.asList(indexStorage.getPrimaryKeys(), indexInfo.getIndexes(), indexInfo.getCovering())) {
+            for (SimpleColumnInfo columnInfo : columnInfos) {
+                columns.putIfAbsent(columnInfo.getColumnName().toLowerCase(), columnInfo);
+            }
+        }
+        return columns.values().toArray(new SimpleColumnInfo[0]);
+    }
+
+    static String getBuildSql(SimpleColumnInfo[] columns, int primaryKeyCount, DataNode dataNode, List<Object> lastPrimaryKey) {
+        StringBuilder sql = new StringBuilder("select ");
+        sql.append(Arrays.stream(columns).map(c -> "`" + c.getColumnName() + "`").collect(Collectors.joining(",")));
+        sql.append(" from `").append(dataNode.getSchema()).append("`.`").append(dataNode.getTable()).append("`");
+        String primaryKeys = Arrays.stream(columns, 0, primaryKeyCount)
+                .map(c -> "`" + c.getColumnName() + "`").collect(Collectors.joining(","));
+        if (lastPrimaryKey != null) {
+            sql.append(" where (").append(primaryKeys).append(") > (")
+                    .append(lastPrimaryKey.stream().map(v -> SQLExprUtils.fromJavaObject(v).toString()).collect(Collectors.joining(",")))
+                    .append(")");
+        }
+        sql.append(" order by ").append(primaryKeys).append(" limit ").append(BUILD_BATCH_SIZE);
+        return sql.toString();
+    }
+
+    private void backfill(IndexStorage indexStorage, SimpleColumnInfo[] columns, DataNode dataNode) {
+        ReplicaSelectorManager replicaSelectorManager = MetaClusterCurrent.wrapper(ReplicaSelectorManager.class);
+        JdbcConnectionManager jdbcConnectionManager = MetaClusterCurrent.wrapper(JdbcConnectionManager.class);
+        String datasource = replicaSelectorManager.getDatasourceNameByReplicaName(dataNode.getTargetName(), true, null);
+        int primaryKeyCount = indexStorage.getPrimaryKeys().length;
+        List<Object> lastPrimaryKey = null;
+        try (DefaultConnection connection = jdbcConnectionManager.getConnection(datasource)) {
+            int count;
+            do {
+                count = 0;
+                List<List<Object>> rows = new ArrayList<>();
+                try (RowBaseIterator iterator = connection.executeQuery(getBuildSql(columns, primaryKeyCount, dataNode, lastPrimaryKey))) {
+                    while (iterator.next()) {
+                        rows.add(Arrays.asList(iterator.getObjects(columns.length)));
+                    }
+                }
+                if (!rows.isEmpty()) {
+                    putIfAbsent(indexStorage, columns, rows, dataNode.getTargetName());
+                    lastPrimaryKey = rows.get(rows.size() - 1).subList(0, primaryKeyCount);
+                    count = rows.size();
+                }
+            } while (count >= BUILD_BATCH_SIZE);
         }
     }
 
+    /**
+     * 回填的行不覆盖已有的索引项,已有的索引项由并发的修改写入,比回填读到的更新.
+     * 在写线程写入,等待写入完成后返回
+     */
+    void putIfAbsent(IndexStorage indexStorage, SimpleColumnInfo[] columns, List<List<Object>> rows, String dataNodeKey) {
+        IndexInfo indexInfo = indexStorage.getIndexInfo();
+        Map<Object[], Object[]> entries = new LinkedHashMap<>();
+        for (List<Object> row : rows) {
+            List<Object> indexValues = Arrays.stream(indexInfo.getIndexes()).map(c -> getValue(c, columns, row)).collect(Collectors.toList());
+            List<Object> primaryKeyValues = Arrays.stream(indexStorage.getPrimaryKeys()).map(c -> getValue(c, columns, row)).collect(Collectors.toList());
+            Object[] key = indexStorage.toKey(indexValues, primaryKeyValues, dataNodeKey);
+            if (key == null) {
+                continue;
+            }
+            List<Object> coveringValues = Arrays.stream(indexInfo.getCovering()).map(c -> getValue(c, columns, row)).collect(Collectors.toList());
+            entries.put(key, indexStorage.toValue(coveringValues, dataNodeKey));
+        }
+        await(FLUSH_EXECUTOR.submit(() -> {
+            for (Map.Entry<Object[], Object[]> entry : entries.entrySet()) {
+                indexStorage.getStorage().putIfAbsent(entry.getKey(), entry.getValue());
+            }
+            dirty.set(true);
+        }));
+    }
+
     /**
      * 重新定义索引
      * @param metadataManager 元数据
@@ -257,15 +617,33 @@ public class MapDBRepository {
                 if(indexes == null){
                     continue;
                 }
+                List<SimpleColumnInfo> primaryKeys = tableHandler.getPrimaryKeyList();
+                if (primaryKeys.isEmpty()) {
+                    log.warn("table {}.{} has no primary key, gsi is ignored", tableHandler.getSchemaName(), tableHandler.getTableName());
+                    continue;
+                }
                 for (IndexInfo indexInfo : indexes.values()) {
-                    IndexStorage indexStorage = buildIndexData(indexInfo);
+                    IndexStorage indexStorage = buildIndexData(indexInfo, primaryKeys.toArray(new SimpleColumnInfo[0]));
                     putIndex(indexStorage,schemaTableIndexStorageMap);
+                    scheduleBuild(indexStorage, 0);
                 }
             }
         }
         return schemaTableIndexStorageMap;
     }
 
+    /**
+     * 不经过元数据直接登记一个索引,不会自动回填
+     */
+    IndexStorage addIndex(IndexInfo indexInfo, SimpleColumnInfo[] primaryKeys) {
+        IndexStorage indexStorage = buildIndexData(indexInfo, primaryKeys);
+        if (schemaTableIndexStorageMap == null) {
+            schemaTableIndexStorageMap = new LinkedHashMap<>();
+        }
+        putIndex(indexStorage, schemaTableIndexStorageMap);
+        return indexStorage;
+    }
+
     private IndexStorage putIndex(IndexStorage indexStorage,Map<String,Map<String,Map<String, IndexStorage>>> schemaTableIndexStorageMap){
         Map<String, Map<String, IndexStorage>> tableIndexMap = schemaTableIndexStorageMap.computeIfAbsent(
                 indexStorage.getIndexInfo().getSchemaName(), k -> new LinkedHashMap<>());
@@ -276,24 +654,28 @@ public class MapDBRepository {
         return indexMap.put(indexStorage.getIndexInfo().getIndexName(),indexStorage);
     }
 
-    private IndexStorage buildIndexData(IndexInfo indexInfo){
+    private IndexStorage buildIndexData(IndexInfo indexInfo, SimpleColumnInfo[] primaryKeys){
         IndexStorage index = new IndexStorage();
         index.setIndexInfo(indexInfo);
+        index.setPrimaryKeys(primaryKeys);
 
-        Serializer[] keySerializers = new Serializer[indexInfo.getIndexes().length];
+        int indexCount = indexInfo.getIndexes().length;
+        Serializer[] keySerializers = new Serializer[indexCount + primaryKeys.length + 1];
         Serializer[] valueSerializers = new Serializer[indexInfo.getCovering().length + 1];
         Class[] keyTypes = new Class[keySerializers.length];
         Class[] valueTypes = new Class[valueSerializers.length];
 
-        for (int i = 0; i < keySerializers.length; i++) {
-            SimpleColumnInfo columnInfo = indexInfo.getIndexes()[i];
+        for (int i = 0; i < keySerializers.length - 1; i++) {
+            SimpleColumnInfo columnInfo = i < indexCount ? indexInfo.getIndexes()[i] : primaryKeys[i - indexCount];
             Class type = typeMap.apply(columnInfo);
             if(type == null){
                 throw new IllegalStateException("不支持的字段类型" + columnInfo);
             }
             keyTypes[i] = type;
-            keySerializers[i] = SerializerUtils.serializerForClass(type);
+            keySerializers[i] = MapDBUtils.nullable(SerializerUtils.serializerForClass(type));
         }
+        keyTypes[keyTypes.length - 1] = String.class;
+        keySerializers[keySerializers.length - 1] = SerializerUtils.serializerForClass(String.class);
 
         valueSerializers[0] = SerializerUtils.serializerForClass(String.class);
         for (int i = 1; i < valueSerializers.length; i++) {
@@ -303,16 +685,91 @@ public class MapDBRepository {
                 throw new IllegalStateException("不支持的字段类型" + columnInfo);
             }
             valueTypes[i] = type;
-            valueSerializers[i] = SerializerUtils.serializerForClass(type);
+            valueSerializers[i] = MapDBUtils.nullable(SerializerUtils.serializerForClass(type));
         }
 
-        BTreeMap<Object[], Object[]> bTreeMap = db.treeMap(indexInfo.getSchemaName()+"."+indexInfo.getTableName()+"."+indexInfo.getIndexName())
+        String name = indexInfo.getSchemaName()+"."+indexInfo.getTableName()+"."+indexInfo.getIndexName();
+        BTreeMap<Object[], Object[]> bTreeMap = db.treeMap(name)
                 .keySerializer(new SerializerArrayTuple(keySerializers))
                 .valueSerializer(new SerializerArrayTuple(valueSerializers))
                 .createOrOpen();
+        index.setName(name);
         index.setStorage(bTreeMap);
         index.setTypeMap(typeMap);
+        index.setBuilt(builtIndexes.contains(name));
         return index;
     }
 
+    /**
+     * 一个事务的索引修改
+     */
+    private static class IndexTransaction {
+        private final String id;
+        private final long createTime = System.currentTimeMillis();
+        /**
+         * 当前语句修改的表
+         */
+        private final Set<String> writingTables = new HashSet<>();
+        /**
+         * 提交时才删除的索引项
+         */
+        private final Set<IndexKey> deletes = new LinkedHashSet<>();
+
+        IndexTransaction(String id) {
+            this.id = id;
+        }
+
+        synchronized boolean beginWrite(String table) {
+            return writingTables.add(table);
+        }
+
+        synchronized List<String> endWrite() {
+            List<String> tables = new ArrayList<>(writingTables);
+            writingTables.clear();
+            return tables;
+        }
+
+        synchronized void delete(IndexKey indexKey) {
+            deletes.add(indexKey);
+        }
+
+        /**
+         * 同一个事务后面又写入了相同的索引项(例如只修改覆盖列),提交时不能再删除
+         */
+        synchronized void cancelDelete(IndexKey indexKey) {
+            deletes.remove(indexKey);
+        }
+
+        synchronized List<IndexKey> getDeletes() {
+            return new ArrayList<>(deletes);
+        }
+    }
+
+    private static class IndexKey {
+        private final IndexStorage storage;
+        private final Object[] key;
+
+        IndexKey(IndexStorage storage, Object[] key) {
+            this.storage = storage;
+            this.key = key;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof IndexKey)) {
+                return false;
+            }
+            IndexKey indexKey = (IndexKey) o;
+            return storage == indexKey.storage && Arrays.deepEquals(key, indexKey.key);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(storage) + Arrays.deepHashCode(key);
+        }
+    }
+
 }
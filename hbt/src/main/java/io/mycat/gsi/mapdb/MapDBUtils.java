@@ -2,11 +2,75 @@ package io.mycat.gsi.mapdb;
 
 import com.alibaba.fastjson.parser.ParserConfig;
 import com.alibaba.fastjson.util.TypeUtils;
+import org.jetbrains.annotations.NotNull;
+import org.mapdb.DataInput2;
+import org.mapdb.DataOutput2;
+import org.mapdb.Serializer;
+
+import java.io.IOException;
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.regex.Pattern;
 
 public class MapDBUtils {
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
 
     public static Object cast(Object value,Class javaClass){
         Object result = TypeUtils.cast(value, javaClass, ParserConfig.getGlobalInstance());
         return result;
     }
+
+    /**
+     * 索引键里的字符串按mysql默认的_ci排序规则归一化(忽略大小写,重音和尾部空格),
+     * 否则 where phone = 'ABC' 查不到 'abc' 所在的分片
+     */
+    public static Object normalizeKey(Object value) {
+        if (!(value instanceof String)) {
+            return value;
+        }
+        String s = Normalizer.normalize((String) value, Normalizer.Form.NFD);
+        s = COMBINING_MARKS.matcher(s).replaceAll("");
+        int end = s.length();
+        while (end > 0 && s.charAt(end - 1) == ' ') {
+            end--;
+        }
+        return s.substring(0, end).toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * 允许null的序列化器,null排在最前面
+     */
+    public static <T> Serializer<T> nullable(Serializer<T> serializer) {
+        return new Serializer<T>() {
+            @Override
+            public void serialize(@NotNull DataOutput2 out, @NotNull T value) throws IOException {
+                out.writeBoolean(value != null);
+                if (value != null) {
+                    serializer.serialize(out, value);
+                }
+            }
+
+            @Override
+            public T deserialize(@NotNull DataInput2 input, int available) throws IOException {
+                if (!input.readBoolean()) {
+                    return null;
+                }
+                return serializer.deserialize(input, available < 0 ? available : available - 1);
+            }
+
+            @Override
+            public int compare(T first, T second) {
+                if (first == second) {
+                    return 0;
+                }
+                if (first == null) {
+                    return -1;
+                }
+                if (second == null) {
+                    return 1;
+                }
+                return serializer.compare(first, second);
+            }
+        };
+    }
 }
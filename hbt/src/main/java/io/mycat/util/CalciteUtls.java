@@ -28,7 +28,11 @@ import org.apache.calcite.sql.SqlDialect;
 import org.apache.calcite.sql.SqlIdentifier;
 import org.apache.calcite.sql.SqlKind;
 import org.apache.calcite.sql.SqlNode;
+import org.apache.calcite.util.DateString;
+import org.apache.calcite.util.TimeString;
+import org.apache.calcite.util.TimestampString;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -77,18 +81,11 @@ public class CalciteUtls {
         if (LOGGER.isDebugEnabled()) {
             LOGGER.debug("origin  filters:{}", filters);
         }
-        DataMappingEvaluator record = new DataMappingEvaluator();
-        for (RexNode filter : filters) {
-            DataMappingEvaluator dataMappingRule = new DataMappingEvaluator();
-            boolean success = addOrRootFilter(table, dataMappingRule, filter);
-            if (success) {
-                record.merge(dataMappingRule);
-            }
-        }
-        if (LOGGER.isDebugEnabled()) {
-            LOGGER.debug("optimize filters:{}", filters);
+        RexNode condition = RexUtil.composeConjunction(MycatCalciteSupport.INSTANCE.RexBuilder, filters);
+        List<DataNode> dataNodeList = route(table, condition);
+        if (dataNodeList == null) {
+            dataNodeList = table.function().calculate(Collections.emptyMap());
         }
-        List<DataNode> dataNodeList = table.function().calculate(record.getColumnMap());
         return dataNodeList;
     }
 
@@ -163,21 +160,6 @@ public class CalciteUtls {
         return "";
     }
 
-    public static boolean addOrRootFilter(ShardingTableHandler table, DataMappingEvaluator evaluator, RexNode filter) {
-        if (filter.isA(SqlKind.OR)) {
-            List<RexNode> operands = ((RexCall) filter).getOperands();
-            int size = operands.size();
-            int count = 0;
-            for (RexNode operand : operands) {
-                if (addFilter(table, evaluator, operand)) {
-                    ++count;
-                }
-            }
-            return count == size;
-        }
-        return addFilter(table, evaluator, filter);
-    }
-
     /**
      * SELECT * FROM travelrecord WHERE id >= 1 AND id <= 10;
      * SELECT * FROM travelrecord WHERE id not in (1,2);
@@ -193,103 +175,150 @@ public class CalciteUtls {
      * (id < 10 AND ((id/2) =0 OR id = 3)) OR
      * (id < 100 AND days = 1) OR
      * (id < 100 AND traveldate = '2020-08-22');
+     * <p>
+     * OR(包括IN展开后的OR)的各个分支分别计算分片再取并集,AND的各个条件计算的分片取交集
      *
      * @param table
-     * @param evaluator
-     * @param filter
-     * @return
+     * @param condition
+     * @return NULL=条件不能用于剪枝
      */
-    public static boolean addFilter(ShardingTableHandler table, DataMappingEvaluator evaluator, RexNode filter) {
-        List<SimpleColumnInfo> rowOrder = table.getColumns();
-        if (filter.isA(SqlKind.AND)) {
-            List<RexNode> operands = ((RexCall) filter).getOperands();
-            int size = operands.size();
-            boolean[] trueList = new boolean[size];
-            for (int i = 0, j = 1; i < size && j < size; i++, j++) {
-                RexNode left = operands.get(i);
-                RexNode right = operands.get(j);
-                if (left instanceof RexCall && right instanceof RexCall) {
-                    if ((left.isA(SqlKind.GREATER_THAN_OR_EQUAL) || left.isA(SqlKind.GREATER_THAN)) && (right.isA(SqlKind.LESS_THAN_OR_EQUAL) || right.isA(SqlKind.LESS_THAN))) {
-                        RexNode fisrtExpr = unCastWrapper(((RexCall) left).getOperands().get(0));
-                        RexNode secondExpr = unCastWrapper(((RexCall) right).getOperands().get(0));
-                        if (fisrtExpr instanceof RexInputRef && secondExpr instanceof RexInputRef) {
-                            int index = ((RexInputRef) fisrtExpr).getIndex();
-                            if (index == ((RexInputRef) secondExpr).getIndex()) {
-                                RexNode start = unCastWrapper(((RexCall) left).getOperands().get(1));
-                                RexNode end = unCastWrapper(((RexCall) right).getOperands().get(1));
-                                if (start instanceof RexLiteral && end instanceof RexLiteral) {
-                                    Object startValue = ((RexLiteral) start).getValue2();
-                                    Object endValue = ((RexLiteral) end).getValue2();
-                                    evaluator.assignmentRange(rowOrder.get(index).getColumnName(), startValue, endValue);
-                                    trueList[i] = trueList[i] || true;
-                                    trueList[j] = trueList[j] || true;
-                                }
-                            }
-                        }
+    @Nullable
+    public static List<DataNode> route(ShardingTableHandler table, RexNode condition) {
+        switch (condition.getKind()) {
+            case OR: {
+                Map<String, DataNode> res = new LinkedHashMap<>();
+                for (RexNode operand : ((RexCall) condition).getOperands()) {
+                    List<DataNode> dataNodes = route(table, operand);
+                    if (dataNodes == null) {
+                        return null;
+                    }
+                    for (DataNode dataNode : dataNodes) {
+                        res.putIfAbsent(dataNode.getUniqueName(), dataNode);
                     }
                 }
-                for (int k = 0; k < size; k++) {
-                    if (!trueList[k]) {
-                        if (!addFilter(table, evaluator, operands.get(k))) {
-                            return false;
+                return new ArrayList<>(res.values());
+            }
+            case SEARCH: {
+                //IN 和 BETWEEN 会转成SEARCH
+                RexNode expand = RexUtil.expandSearch(MycatCalciteSupport.INSTANCE.RexBuilder, null, condition);
+                if (expand.getKind() == SqlKind.SEARCH) {
+                    return null;
+                }
+                return route(table, expand);
+            }
+            case AND: {
+                List<RexNode> simpleConditions = new ArrayList<>();
+                List<RexNode> complexConditions = new ArrayList<>();
+                for (RexNode operand : ((RexCall) condition).getOperands()) {
+                    if (operand.isA(SqlKind.OR) || operand.isA(SqlKind.SEARCH) || operand.isA(SqlKind.AND)) {
+                        complexConditions.add(operand);
+                    } else {
+                        simpleConditions.add(operand);
+                    }
+                }
+                List<DataNode> res = routeConjunction(table, simpleConditions);
+                for (RexNode complexCondition : complexConditions) {
+                    List<DataNode> dataNodes = route(table, complexCondition);
+                    if (dataNodes == null) {
+                        continue;
+                    }
+                    if (res == null) {
+                        res = dataNodes;
+                    } else {
+                        Set<String> uniqueNames = dataNodes.stream().map(DataNode::getUniqueName).collect(Collectors.toSet());
+                        List<DataNode> intersection = res.stream()
+                                .filter(dataNode -> uniqueNames.contains(dataNode.getUniqueName()))
+                                .collect(Collectors.toList());
+                        //交集为空说明条件矛盾,查询结果必然为空,保留原来的分片即可
+                        if (!intersection.isEmpty()) {
+                            res = intersection;
                         }
                     }
                 }
-                return true;
+                return res;
             }
-            return false;
-        } else if (filter.isA(SqlKind.EQUALS)) {
-            RexCall call = (RexCall) filter;
-
-            RexNode left = call.getOperands().get(0);
-            left = unCastWrapper(left);
-
-            RexNode right = call.getOperands().get(1);
-            right = unCastWrapper(right);
+            default:
+                return routeConjunction(table, Collections.singletonList(condition));
+        }
+    }
 
-            if (left instanceof RexInputRef && right instanceof RexLiteral) {
-                int index = ((RexInputRef) left).getIndex();
-                evaluator.assignment(rowOrder.get(index).getColumnName(),  ((RexLiteral) right).getValue2());
-                return true;
+    /**
+     * 等值与比较条件,同一列的上下界合并成范围
+     */
+    @Nullable
+    private static List<DataNode> routeConjunction(ShardingTableHandler table, List<RexNode> conditions) {
+        List<SimpleColumnInfo> rowOrder = table.getColumns();
+        DataMappingEvaluator evaluator = new DataMappingEvaluator();
+        Map<String, Object> lowerBounds = new HashMap<>();
+        Map<String, Object> upperBounds = new HashMap<>();
+        for (RexNode condition : conditions) {
+            if (!(condition instanceof RexCall)) {
+                continue;
             }
-        } else if (filter.isA(SqlKind.GREATER_THAN) || filter.isA(SqlKind.LESS_THAN)
-                || filter.isA(SqlKind.LESS_THAN_OR_EQUAL) || filter.isA(SqlKind.GREATER_THAN_OR_EQUAL)) {
-            //这里处理[大于,小于,大于等于,小于等于]的情况.
-            RexCall call = (RexCall) filter;
-
-            RexNode left = call.getOperands().get(0);
-            left = unCastWrapper(left);
-
-            RexNode right = call.getOperands().get(1);
-            right = unCastWrapper(right);
-
-            if (left instanceof RexInputRef && right instanceof RexLiteral) {
-                int index = ((RexInputRef) left).getIndex();
-                Object value = ((RexLiteral) right).getValue2();
-                String columnName = rowOrder.get(index).getColumnName();
-                if (filter.isA(SqlKind.GREATER_THAN)) {
-                    evaluator.assignmentRange(columnName, value, null);
-                    return true;
-                } else if (filter.isA(SqlKind.LESS_THAN)) {
-                    evaluator.assignmentRange(columnName, null, value);
-                    return true;
-                } else if (filter.isA(SqlKind.GREATER_THAN_OR_EQUAL)) {
-                    evaluator.assignmentRange(columnName, value, null);
-                    evaluator.assignment(columnName, value);
-                    return true;
-                } else if (filter.isA(SqlKind.LESS_THAN_OR_EQUAL)) {
-                    evaluator.assignmentRange(columnName, null, value);
+            RexCall call = (RexCall) condition;
+            if (call.getOperands().size() != 2) {
+                continue;
+            }
+            SqlKind kind = call.getKind();
+            RexNode left = unCastWrapper(call.getOperands().get(0));
+            RexNode right = unCastWrapper(call.getOperands().get(1));
+            if (left instanceof RexLiteral && right instanceof RexInputRef) {
+                RexNode tmp = left;
+                left = right;
+                right = tmp;
+                kind = kind.reverse();
+            }
+            if (!(left instanceof RexInputRef && right instanceof RexLiteral)) {
+                continue;
+            }
+            String columnName = rowOrder.get(((RexInputRef) left).getIndex()).getColumnName();
+            Object value = getLiteralValue((RexLiteral) right);
+            if (value == null) {
+                continue;
+            }
+            switch (kind) {
+                case EQUALS:
                     evaluator.assignment(columnName, value);
-                    return true;
-                }
+                    break;
+                case GREATER_THAN:
+                case GREATER_THAN_OR_EQUAL:
+                    lowerBounds.put(columnName, value);
+                    break;
+                case LESS_THAN:
+                case LESS_THAN_OR_EQUAL:
+                    upperBounds.put(columnName, value);
+                    break;
+                default:
+                    break;
             }
-        } else if (filter.isA(SqlKind.OR)) {
-            //这里处理IN的情况，IN会转成多个OR. 例如： id in(1,2,3) 等同于 OR id = 1 or id = 2 or id = 3;
-            return addOrRootFilter(table, evaluator, filter);
-        } else {
-            return false;
         }
-        return false;
+        Set<String> rangeColumns = new HashSet<>(lowerBounds.keySet());
+        rangeColumns.addAll(upperBounds.keySet());
+        for (String columnName : rangeColumns) {
+            if (!evaluator.getColumnMap().containsKey(columnName)) {
+                evaluator.assignmentRange(columnName, lowerBounds.get(columnName), upperBounds.get(columnName));
+            }
+        }
+        if (evaluator.getColumnMap().isEmpty()) {
+            return null;
+        }
+        return table.function().calculate(evaluator.getColumnMap());
+    }
+
+    /**
+     * 日期时间的getValue2是天数/毫秒数,转成与参数值一致的字符串形式
+     */
+    public static Object getLiteralValue(RexLiteral literal) {
+        switch (literal.getTypeName()) {
+            case DATE:
+                return literal.getValueAs(DateString.class).toString();
+            case TIME:
+                return literal.getValueAs(TimeString.class).toString();
+            case TIMESTAMP:
+                return literal.getValueAs(TimestampString.class).toString();
+            default:
+                return literal.getValue2();
+        }
     }
 
     public static RexNode unCastWrapper(RexNode left) {
@@ -141,6 +141,15 @@ public class BaseRowObservable extends RowObservable implements StreamMysqlColle
                 case SMALLINT:
                 case INTEGER:
                 case BIGINT: {
+                    //常见的整数类型直接取值,不经过Numeric包装
+                    value = row.getValue(columnIndex);
+                    if (value == null || value instanceof Long) {
+                        break;
+                    }
+                    if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+                        value = ((Number) value).longValue();
+                        break;
+                    }
                     Numeric numeric = row.getNumeric(columnIndex);
                     if (numeric == null) {
                         value = null;
@@ -153,6 +162,14 @@ public class BaseRowObservable extends RowObservable implements StreamMysqlColle
                 case FLOAT:
                 case REAL:
                 case DOUBLE: {
+                    value = row.getValue(columnIndex);
+                    if (value == null || value instanceof Double) {
+                        break;
+                    }
+                    if (value instanceof Float) {
+                        value = ((Float) value).doubleValue();
+                        break;
+                    }
                     Numeric numeric = row.getNumeric(columnIndex);
                     if (numeric == null) {
                         value = null;
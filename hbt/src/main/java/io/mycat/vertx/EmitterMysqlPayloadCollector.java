@@ -57,4 +57,8 @@ public class EmitterMysqlPayloadCollector implements StreamMysqlCollector {
         emitter.onNext(packet);
     }
 
+    @Override
+    public boolean isCancelled() {
+        return emitter.isDisposed();
+    }
 }
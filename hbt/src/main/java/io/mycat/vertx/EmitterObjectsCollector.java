@@ -23,16 +23,26 @@ import io.vertx.mysqlclient.impl.codec.StreamMysqlCollector;
 import io.vertx.sqlclient.Row;
 import lombok.AllArgsConstructor;
 
+import java.util.function.BooleanSupplier;
+
 @AllArgsConstructor
 public class EmitterObjectsCollector implements StreamMysqlCollector {
     protected final ObservableEmitter<Object[]> emitter;
     protected MycatRowMetaData rowMetaData;
     protected int currentRowCount;
+    protected BooleanSupplier cancelled;
 
     public EmitterObjectsCollector(ObservableEmitter<Object[]> emitter,
                                    MycatRowMetaData rowMetaData) {
+        this(emitter, rowMetaData, () -> false);
+    }
+
+    public EmitterObjectsCollector(ObservableEmitter<Object[]> emitter,
+                                   MycatRowMetaData rowMetaData,
+                                   BooleanSupplier cancelled) {
         this.emitter = emitter;
         this.rowMetaData = rowMetaData;
+        this.cancelled = cancelled;
     }
 
     @Override
@@ -49,4 +59,9 @@ public class EmitterObjectsCollector implements StreamMysqlCollector {
         emitter.onNext(BaseRowObservable.getObjects(row, rowMetaData));
     }
 
+    @Override
+    public boolean isCancelled() {
+        return emitter.isDisposed() || cancelled.getAsBoolean();
+    }
+
 }
@@ -17,8 +17,23 @@
 package io.mycat.vertx;
 
 import cn.mycat.vertx.xa.XaSqlConnection;
+import com.alibaba.druid.sql.SQLUtils;
+import com.alibaba.druid.sql.ast.SQLExpr;
+import com.alibaba.druid.sql.ast.SQLStatement;
+import com.alibaba.druid.sql.ast.expr.SQLIdentifierExpr;
+import com.alibaba.druid.sql.ast.expr.SQLInListExpr;
+import com.alibaba.druid.sql.ast.expr.SQLListExpr;
+import com.alibaba.druid.sql.ast.expr.SQLVariantRefExpr;
+import com.alibaba.druid.sql.ast.statement.SQLDeleteStatement;
+import com.alibaba.druid.sql.ast.statement.SQLSelectQueryBlock;
+import com.alibaba.druid.sql.ast.statement.SQLUpdateSetItem;
+import com.alibaba.druid.sql.ast.statement.SQLUpdateStatement;
+import com.google.common.collect.Iterables;
 import com.mchange.util.AssertException;
+import io.mycat.MetaClusterCurrent;
 import io.mycat.MycatDataContext;
+import io.mycat.SimpleColumnInfo;
+import io.mycat.TableHandler;
 import io.mycat.TransactionSession;
 import io.mycat.api.collector.MysqlPayloadObject;
 import io.mycat.beans.mycat.MycatRowMetaData;
@@ -27,12 +42,19 @@ import io.mycat.calcite.executor.MycatInsertExecutor;
 import io.mycat.calcite.executor.MycatUpdateExecutor;
 import io.mycat.calcite.physical.MycatInsertRel;
 import io.mycat.calcite.physical.MycatUpdateRel;
+import io.mycat.calcite.plan.QueryResultCache;
+import io.mycat.calcite.rewriter.Distribution;
+import io.mycat.gsi.GSIService;
+import io.mycat.gsi.GSITransactions;
+import io.mycat.router.ShardingTableHandler;
+import io.mycat.util.FastSqlUtils;
 import io.mycat.util.SQL;
 import io.reactivex.rxjava3.core.Observable;
 import io.vertx.core.AsyncResult;
 import io.vertx.core.CompositeFuture;
 import io.vertx.core.Future;
 import io.vertx.core.Handler;
+import io.vertx.core.buffer.Buffer;
 import io.vertx.mysqlclient.MySQLClient;
 import io.vertx.sqlclient.*;
 import org.jetbrains.annotations.NotNull;
@@ -40,6 +62,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
+import java.util.function.BooleanSupplier;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -50,7 +73,13 @@ public class VertxExecuter {
                                                    MycatDataContext context,
                                                    MycatInsertRel insertRel,
                                                    List<Object> params) {
+        List<ShardingTableHandler> writeTables = Collections.singletonList(insertRel.getLogicTable());
+        QueryResultCache.onWrite(sqlConnection, writeTables);
         MycatInsertExecutor insertExecutor = MycatInsertExecutor.create(context, insertRel, params);
+        boolean needIndex = insertExecutor.isNeedIndex();
+        if (needIndex) {
+            insertExecutor.onInsert(GSITransactions.getTxId(sqlConnection));
+        }
         Map<SQL, Group> groupMap = insertExecutor.getGroupMap();
         Map<String, List<Map.Entry<SQL, Group>>> map1 = groupMap.entrySet().stream().collect(Collectors.groupingBy(i -> i.getKey().getTarget()));
         TransactionSession transactionSession = context.getTransactionSession();
@@ -72,11 +101,22 @@ public class VertxExecuter {
                 .map(compositeFuture -> list.stream().map(l -> l.result())
                         .reduce((longs, longs2) ->
                                 new long[]{longs[0] + longs2[0], Math.max(longs[1], longs2[1])})
-                        .orElse(new long[2])).onComplete(event -> sqlConnection.closeStatementState());
+                        .orElse(new long[2])).onComplete(event -> {
+                    QueryResultCache.onWrite(sqlConnection, writeTables);
+                    if (needIndex) {
+                        GSITransactions.afterStatement(sqlConnection);
+                    }
+                    sqlConnection.closeStatementState();
+                });
     }
 
 
     public static Future<long[]> runMycatUpdateRel(XaSqlConnection sqlConnection, MycatDataContext context, MycatUpdateRel updateRel, List<Object> params) {
+        Distribution distribution = updateRel.getValues();
+        Iterable<TableHandler> writeTables = Iterables.concat(distribution.getShardingTables(),
+                distribution.getGlobalTables(),
+                distribution.getNormalTables());
+        QueryResultCache.onWrite(sqlConnection, writeTables);
         final Set<SQL> reallySqlSet = MycatUpdateExecutor.buildReallySqlList(updateRel, updateRel.getValues(),
                 updateRel.getSqlStatement(),
                 params);
@@ -92,21 +132,163 @@ public class VertxExecuter {
             }
         }
         Map<String, List<SQL>> targets = reallySqlSet.stream().collect(Collectors.groupingBy(k -> k.getTarget()));
+        ShardingTableHandler indexTable = getIndexTable(distribution, updateRel.getSqlStatement());
+        String gsiTxId = null;
+        if (indexTable != null) {
+            gsiTxId = GSITransactions.getTxId(sqlConnection);
+            MetaClusterCurrent.wrapper(GSIService.class).beginWrite(gsiTxId, indexTable.getSchemaName(), indexTable.getTableName());
+        }
         List<Future<long[]>> res = new LinkedList<>();
         for (Map.Entry<String, List<SQL>> e : targets.entrySet()) {
-            res.add(runUpdate(e.getValue().stream().collect(Collectors.toMap(SQL::getParameterizedSql, SQL::getParameters,
-                    (a, b) -> b)),
-                    sqlConnection.getConnection(targetMap.get(e.getKey()))));
+            Future<SqlConnection> connection = sqlConnection.getConnection(targetMap.get(e.getKey()));
+            if (indexTable != null) {
+                res.add(runUpdateWithIndex(indexTable, gsiTxId, e.getValue(), connection));
+            } else {
+                res.add(runUpdate(e.getValue().stream().collect(Collectors.toMap(SQL::getParameterizedSql, SQL::getParameters,
+                        (a, b) -> b)),
+                        connection));
+            }
         }
         return CompositeFuture.all((List) res).map(new SumUpdateResult(updateRel.isGlobal(), res))
                 .onComplete(new Handler<AsyncResult<long[]>>() {
                     @Override
                     public void handle(AsyncResult<long[]> event) {
+                        QueryResultCache.onWrite(sqlConnection, writeTables);
+                        if (indexTable != null) {
+                            GSITransactions.afterStatement(sqlConnection);
+                        }
                         sqlConnection.closeStatementState();
                     }
                 });
     }
 
+    /**
+     * @return 修改了全局索引相关列(主键,索引列,覆盖列)的分片表,不需要维护索引时返回null
+     */
+    private static ShardingTableHandler getIndexTable(Distribution distribution, SQLStatement statement) {
+        if (!MetaClusterCurrent.exist(GSIService.class) || distribution.getShardingTables().size() != 1) {
+            return null;
+        }
+        ShardingTableHandler table = distribution.getShardingTables().get(0);
+        if (!table.canIndex()) {
+            return null;
+        }
+        if (statement instanceof SQLDeleteStatement) {
+            return table;
+        }
+        if (statement instanceof SQLUpdateStatement) {
+            for (SQLUpdateSetItem item : ((SQLUpdateStatement) statement).getItems()) {
+                SimpleColumnInfo column = table.getColumnByName(SQLUtils.normalize(item.getColumn().toString()));
+                if (column == null || column.isPrimaryKey() || !column.getIndexCoveringList().isEmpty()) {
+                    return table;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 维护全局索引的更新/删除:
+     * 执行前按原条件查出(for update)受影响行的旧索引值,更新语句执行后再按主键查出新索引值.
+     * 删除旧索引项只在语句成功后登记,失败时索引最多多出索引项
+     */
+    private static Future<long[]> runUpdateWithIndex(ShardingTableHandler table,
+                                                     String txId,
+                                                     List<SQL> sqls,
+                                                     Future<SqlConnection> sqlConnectionFuture) {
+        List<SimpleColumnInfo> columns = table.getColumns().stream()
+                .filter(c -> c.isPrimaryKey() || !c.getIndexCoveringList().isEmpty())
+                .collect(Collectors.toList());
+        List<SimpleColumnInfo> primaryKeys = table.getPrimaryKeyList();
+        SimpleColumnInfo[] columnArray = columns.toArray(new SimpleColumnInfo[0]);
+        GSIService gsiService = MetaClusterCurrent.wrapper(GSIService.class);
+        Map<String, SQL> sqlMap = sqls.stream().collect(Collectors.toMap(SQL::getParameterizedSql, i -> i, (a, b) -> b));
+        List<long[]> list = Collections.synchronizedList(new ArrayList<>());
+        Future<Void> future = Future.succeededFuture();
+        for (SQL sql : sqlMap.values()) {
+            SQLStatement statement = sql.getStatement();
+            List<Object> parameters = sql.getParameters();
+            FastSqlUtils.Select select = statement instanceof SQLUpdateStatement ?
+                    FastSqlUtils.conversionToSelectSql((SQLUpdateStatement) statement, columns, parameters) :
+                    FastSqlUtils.conversionToSelectSql((SQLDeleteStatement) statement, columns, parameters);
+            //锁住受影响的行,读到的旧值和新值不会被并发的修改改掉
+            select.getStatement().getSelect().getQueryBlock().setForUpdate(true);
+            String selectSql = select.getStatement().toString();
+            future = future.flatMap(unused -> sqlConnectionFuture.flatMap(connection -> {
+                Future<List<List<Object>>> before = queryRows(connection, selectSql, select.getParameters());
+                return before.flatMap(oldRows -> ((Future<Object>) new UpdateByConnection(sqlConnectionFuture, sql.getParameterizedSql(), parameters, list)
+                        .apply(null))
+                        .flatMap(o -> {
+                            if (oldRows.isEmpty() || !(statement instanceof SQLUpdateStatement)) {
+                                return Future.succeededFuture(Collections.<List<Object>>emptyList());
+                            }
+                            List<Object> primaryKeyValues = new ArrayList<>();
+                            String afterSql = selectByPrimaryKey(select, columns, primaryKeys, oldRows, primaryKeyValues);
+                            return queryRows(connection, afterSql, primaryKeyValues);
+                        })
+                        .<Void>map(newRows -> {
+                            for (List<Object> oldRow : oldRows) {
+                                gsiService.delete(txId, table.getSchemaName(), table.getTableName(), columnArray, oldRow, sql.getTarget());
+                            }
+                            for (List<Object> newRow : newRows) {
+                                gsiService.insert(txId, table.getSchemaName(), table.getTableName(), columnArray, newRow, sql.getTarget());
+                            }
+                            return null;
+                        }));
+            }));
+        }
+        return future.map(sumUpdateResult(list));
+    }
+
+    private static String selectByPrimaryKey(FastSqlUtils.Select select,
+                                             List<SimpleColumnInfo> columns,
+                                             List<SimpleColumnInfo> primaryKeys,
+                                             List<List<Object>> rows,
+                                             List<Object> outParams) {
+        SQLSelectQueryBlock queryBlock = select.getStatement().getSelect().getQueryBlock();
+        queryBlock.setOrderBy(null);
+        queryBlock.setLimit(null);
+        SQLExpr keyExpr;
+        if (primaryKeys.size() == 1) {
+            keyExpr = new SQLIdentifierExpr(primaryKeys.get(0).getColumnName());
+        } else {
+            SQLListExpr listExpr = new SQLListExpr();
+            for (SimpleColumnInfo primaryKey : primaryKeys) {
+                listExpr.addItem(new SQLIdentifierExpr(primaryKey.getColumnName()));
+            }
+            keyExpr = listExpr;
+        }
+        SQLInListExpr inListExpr = new SQLInListExpr(keyExpr);
+        for (List<Object> row : rows) {
+            SQLListExpr values = new SQLListExpr();
+            for (SimpleColumnInfo primaryKey : primaryKeys) {
+                outParams.add(row.get(columns.indexOf(primaryKey)));
+                values.addItem(new SQLVariantRefExpr("?"));
+            }
+            inListExpr.addTarget(primaryKeys.size() == 1 ? values.getItems().get(0) : values);
+        }
+        queryBlock.setWhere(inListExpr);
+        return select.getStatement().toString();
+    }
+
+    private static Future<List<List<Object>>> queryRows(SqlConnection connection, String sql, List<Object> values) {
+        return connection.preparedQuery(sql).execute(Tuple.tuple(values)).map(rows -> {
+            List<List<Object>> res = new ArrayList<>();
+            for (Row row : rows) {
+                List<Object> objects = new ArrayList<>(row.size());
+                for (int i = 0; i < row.size(); i++) {
+                    Object value = row.getValue(i);
+                    if (value instanceof Buffer) {
+                        value = ((Buffer) value).getBytes();
+                    }
+                    objects.add(value);
+                }
+                res.add(objects);
+            }
+            return res;
+        });
+    }
+
     public static Observable<MysqlPayloadObject> runQueryOutputAsMysqlPayloadObject(Future<SqlConnection> connectionFuture,
                                                                                     String sql,
                                                                                     List<Object> values) {
@@ -136,24 +318,47 @@ public class VertxExecuter {
                                                 String sql,
                                                 List<Object> values,
                                                 MycatRowMetaData rowMetaData) {
+        return runQuery(connectionFuture, sql, values, rowMetaData, () -> false);
+    }
+
+    /**
+     * @param cancelled 为true时后端停止读取结果集
+     */
+    public static Observable<Object[]> runQuery(Future<SqlConnection> connectionFuture,
+                                                String sql,
+                                                List<Object> values,
+                                                MycatRowMetaData rowMetaData,
+                                                BooleanSupplier cancelled) {
         return Observable.create(emitter -> {
+            //取消之后的失败(例如没有获取连接,查询被中断)按正常结束处理
+            Handler<Throwable> onFailure = throwable -> {
+                if (cancelled.getAsBoolean()) {
+                    emitter.onComplete();
+                } else {
+                    emitter.onError(throwable);
+                }
+            };
             // 连接到达
             connectionFuture.onSuccess(connection -> {
+                if (cancelled.getAsBoolean()) {
+                    emitter.onComplete();
+                    return;
+                }
                 // 预编译到达
                 connection.prepare(sql)
                         .onSuccess(preparedStatement -> {
+                            if (cancelled.getAsBoolean()) {
+                                emitter.onComplete();
+                                return;
+                            }
                             // 查询结果到达
                             PreparedQuery<RowSet<Row>> query = preparedStatement.query();
-                            query.collecting(new EmitterObjectsCollector(emitter, rowMetaData)).execute(Tuple.tuple(values))
+                            query.collecting(new EmitterObjectsCollector(emitter, rowMetaData, cancelled)).execute(Tuple.tuple(values))
                                     .onSuccess(event -> emitter.onComplete())
-                                    .onFailure(throwable -> emitter.onError(throwable));
+                                    .onFailure(onFailure);
                         })
-                        .onFailure(throwable -> {
-                            emitter.onError(throwable);
-                        });
-            }).onFailure(throwable -> {
-                emitter.onError(throwable);
-            });
+                        .onFailure(onFailure);
+            }).onFailure(onFailure);
         });
     }
 
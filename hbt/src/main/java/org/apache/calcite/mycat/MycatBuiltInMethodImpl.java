@@ -1307,19 +1307,24 @@ public class MycatBuiltInMethodImpl {
             return null;
         }
         Temporal temporal = timestampStringToTimestamp(s);
-        LocalDateTime of;
-        boolean date = false;
         if (temporal instanceof LocalDate) {
-            date = true;
-            of = LocalDateTime.of((LocalDate) temporal, LocalTime.ofSecondOfDay(0)).plus(duration);
-        } else {
-            of = ((LocalDateTime) temporal).plus(duration);
+            return dateAddDate((LocalDate) temporal, duration);
         }
-        if (of.toLocalTime().equals(LocalTime.ofSecondOfDay(0))) {
-            return of.toLocalDate().toString();
-        } else {
-            return of.toLocalDate() + " " + of.toLocalTime();
+        return dateAddTimestamp((LocalDateTime) temporal, duration);
+    }
+
+    public static String dateAddTimestamp(LocalDateTime timestamp, Duration duration) {
+        if (timestamp == null || duration == null) {
+            return null;
         }
+        return dateTimeToString(timestamp.plus(duration));
+    }
+
+    public static String dateAddDate(LocalDate date, Duration duration) {
+        if (date == null || duration == null) {
+            return null;
+        }
+        return dateTimeToString(date.atStartOfDay().plus(duration));
     }
 
     public static String dateSubString(String s, Duration duration) {
@@ -1327,15 +1332,36 @@ public class MycatBuiltInMethodImpl {
             return null;
         }
         Temporal temporal = timestampStringToTimestamp(s);
-        LocalDateTime of;
-        boolean date = false;
         if (temporal instanceof LocalDate) {
-            date = true;
-            of = LocalDateTime.of((LocalDate) temporal, LocalTime.ofSecondOfDay(0)).minus(duration);
-        } else {
-            of = ((LocalDateTime) temporal).minus(duration);
+            return dateSubDate((LocalDate) temporal, duration);
         }
-        if (of.toLocalTime().equals(LocalTime.ofSecondOfDay(0))) {
+        return dateSubTimestamp((LocalDateTime) temporal, duration);
+    }
+
+    public static String dateSubTimestamp(LocalDateTime timestamp, Duration duration) {
+        if (timestamp == null || duration == null) {
+            return null;
+        }
+        return dateTimeToString(timestamp.minus(duration));
+    }
+
+    public static String dateSubDate(LocalDate date, Duration duration) {
+        if (date == null || duration == null) {
+            return null;
+        }
+        return dateTimeToString(date.atStartOfDay().minus(duration));
+    }
+
+    public static String dateSubDate(LocalDate date, Period sub) {
+        if (date == null || sub == null) return null;
+        return dateToString(date.minus(sub));
+    }
+
+    /**
+     * 零点只输出日期部分,与DATE_ADD/DATE_SUB原来的字符串结果一致
+     */
+    private static String dateTimeToString(LocalDateTime of) {
+        if (of.toLocalTime().equals(LocalTime.MIDNIGHT)) {
             return of.toLocalDate().toString();
         } else {
             return of.toLocalDate() + " " + of.toLocalTime();
@@ -22,6 +22,26 @@ public interface NewMycatDataContext extends DataContext {
                                                org.apache.calcite.linq4j.function.Function1 function1,
                                                java.util.Comparator comparator, int offset, int fetch);
 
+    /**
+     * hash join的build端,读完后根据连接键生成probe端的运行时过滤条件
+     *
+     * @param build            build端(右表)
+     * @param probe            probe端(左表)
+     * @param probeKey         probe端连接键的下标
+     * @param buildKeySelector 从build端的行取连接键
+     */
+    default Enumerable runtimeFilter(Enumerable build,
+                                     org.apache.calcite.rel.RelNode probe,
+                                     int probeKey,
+                                     org.apache.calcite.linq4j.function.Function1 buildKeySelector) {
+        return build;
+    }
+
+    /**
+     * 递归查询的工作表,同名的TableSpool和工作表扫描共用一个
+     */
+    io.mycat.calcite.executor.RecursiveWorkTable getWorkTable(String name);
+
     public Object getSessionVariable(String name);
 
     public Object getGlobalVariable(String name);
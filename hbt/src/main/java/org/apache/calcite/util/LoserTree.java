@@ -0,0 +1,141 @@
+package org.apache.calcite.util;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * 败者树,k路归并每选出一个最小值只需要log(k)次比较,相等时下标小的优先(稳定)
+ * <p>
+ * 用法:set/exhaust所有叶子后build,之后每次取winner,更新该叶子后adjust
+ */
+public class LoserTree<T> {
+    private final Comparator<? super T> comparator;
+    private final int k;
+    /**
+     * tree[0]是胜者,tree[1..k-1]是各个内部节点的败者
+     */
+    private final int[] tree;
+    private final Object[] keys;
+    private final boolean[] exhausted;
+
+    public LoserTree(int k, Comparator<? super T> comparator) {
+        if (k <= 0) {
+            throw new IllegalArgumentException("k must be positive:" + k);
+        }
+        this.k = k;
+        this.comparator = comparator;
+        this.tree = new int[k];
+        this.keys = new Object[k];
+        this.exhausted = new boolean[k];
+    }
+
+    public int size() {
+        return k;
+    }
+
+    public void set(int leaf, T key) {
+        keys[leaf] = key;
+        exhausted[leaf] = false;
+    }
+
+    public void exhaust(int leaf) {
+        keys[leaf] = null;
+        exhausted[leaf] = true;
+    }
+
+    public void build() {
+        //下标k是比所有叶子都小的哨兵
+        Arrays.fill(tree, k);
+        for (int i = k - 1; i >= 0; i--) {
+            adjust(i);
+        }
+    }
+
+    /**
+     * 叶子的值变化后从该叶子到根重新比赛
+     */
+    public void adjust(int leaf) {
+        int winner = leaf;
+        for (int t = (leaf + k) >> 1; t > 0; t >>= 1) {
+            if (less(tree[t], winner)) {
+                int tmp = tree[t];
+                tree[t] = winner;
+                winner = tmp;
+            }
+        }
+        tree[0] = winner;
+    }
+
+    /**
+     * @return 最小值所在叶子,全部耗尽返回-1
+     */
+    public int winner() {
+        int winner = tree[0];
+        return exhausted[winner] ? -1 : winner;
+    }
+
+    public T key(int leaf) {
+        return (T) keys[leaf];
+    }
+
+    private boolean less(int a, int b) {
+        if (a == k) {
+            return true;
+        }
+        if (b == k) {
+            return false;
+        }
+        if (exhausted[a]) {
+            return false;
+        }
+        if (exhausted[b]) {
+            return true;
+        }
+        int c = comparator.compare((T) keys[a], (T) keys[b]);
+        return c < 0 || (c == 0 && a < b);
+    }
+
+    public static <T> Iterator<T> mergeSorted(List<? extends Iterator<? extends T>> iterators,
+                                              Comparator<? super T> comparator) {
+        if (iterators.isEmpty()) {
+            return Collections.emptyIterator();
+        }
+        LoserTree<T> loserTree = new LoserTree<>(iterators.size(), comparator);
+        for (int i = 0; i < iterators.size(); i++) {
+            Iterator<? extends T> iterator = iterators.get(i);
+            if (iterator.hasNext()) {
+                loserTree.set(i, iterator.next());
+            } else {
+                loserTree.exhaust(i);
+            }
+        }
+        loserTree.build();
+        return new Iterator<T>() {
+            @Override
+            public boolean hasNext() {
+                return loserTree.winner() >= 0;
+            }
+
+            @Override
+            public T next() {
+                int winner = loserTree.winner();
+                if (winner < 0) {
+                    throw new NoSuchElementException();
+                }
+                T res = loserTree.key(winner);
+                Iterator<? extends T> iterator = iterators.get(winner);
+                if (iterator.hasNext()) {
+                    loserTree.set(winner, iterator.next());
+                } else {
+                    loserTree.exhaust(winner);
+                }
+                loserTree.adjust(winner);
+                return res;
+            }
+        };
+    }
+}
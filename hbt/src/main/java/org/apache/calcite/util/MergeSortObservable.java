@@ -0,0 +1,255 @@
+package org.apache.calcite.util;
+
+import io.reactivex.rxjava3.core.Observable;
+import io.reactivex.rxjava3.core.ObservableSource;
+import io.reactivex.rxjava3.core.Observer;
+import io.reactivex.rxjava3.disposables.Disposable;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 多个有序分片结果的流式归并,用败者树选最小值
+ * <p>
+ * 每个分片只缓存还没轮到输出的行,输出够skip+limit行后马上取消所有分片的订阅,
+ * 分片的Observable被取消后会关闭结果集,不会再把整个分片结果读到内存
+ */
+public class MergeSortObservable<T> extends Observable<T> {
+    private final List<? extends ObservableSource<T>> sources;
+    private final Comparator<? super T> comparator;
+    private final long skip;
+    private final long limit;
+
+    public MergeSortObservable(List<? extends ObservableSource<T>> sources,
+                               Comparator<? super T> comparator,
+                               long skip,
+                               long limit) {
+        this.sources = sources;
+        this.comparator = comparator;
+        this.skip = Math.max(skip, 0);
+        this.limit = limit < 0 ? Long.MAX_VALUE : limit;
+    }
+
+    @Override
+    protected void subscribeActual(Observer<? super T> observer) {
+        int k = sources.size();
+        if (k == 0 || limit == 0) {
+            Observable.<T>empty().subscribe(observer);
+            return;
+        }
+        MergeCoordinator<T> coordinator = new MergeCoordinator<>(observer, k, comparator, skip, limit);
+        observer.onSubscribe(coordinator);
+        //即使已经取消也要订阅,让分片查询走完取消流程并释放连接
+        for (int i = 0; i < k; i++) {
+            sources.get(i).subscribe(coordinator.inners[i]);
+        }
+    }
+
+    static final class MergeCoordinator<T> extends AtomicInteger implements Disposable {
+        final Observer<? super T> downstream;
+        final InnerObserver<T>[] inners;
+        final LoserTree<T> loserTree;
+        final AtomicReference<Throwable> error = new AtomicReference<>();
+        volatile boolean disposed;
+
+        /**
+         * 以下字段只在drain中访问
+         */
+        long skip;
+        long remaining;
+        /**
+         * 败者树建好之前,还没有拿到第一行的叶子下标
+         */
+        int initIndex;
+        /**
+         * 刚输出过,等待补充下一行的叶子下标
+         */
+        int pendingLeaf = -1;
+
+        MergeCoordinator(Observer<? super T> downstream, int k, Comparator<? super T> comparator, long skip, long limit) {
+            this.downstream = downstream;
+            this.inners = new InnerObserver[k];
+            for (int i = 0; i < k; i++) {
+                inners[i] = new InnerObserver<>(this);
+            }
+            this.loserTree = new LoserTree<>(k, comparator);
+            this.skip = skip;
+            this.remaining = limit;
+        }
+
+        void onError(Throwable e) {
+            if (error.compareAndSet(null, e)) {
+                drain();
+            }
+        }
+
+        void drain() {
+            if (getAndIncrement() != 0) {
+                return;
+            }
+            int missed = 1;
+            for (; ; ) {
+                if (drainLoop()) {
+                    return;
+                }
+                missed = addAndGet(-missed);
+                if (missed == 0) {
+                    return;
+                }
+            }
+        }
+
+        /**
+         * @return true表示已经结束
+         */
+        private boolean drainLoop() {
+            for (; ; ) {
+                if (disposed) {
+                    clear();
+                    return true;
+                }
+                Throwable e = error.get();
+                if (e != null) {
+                    dispose();
+                    clear();
+                    downstream.onError(e);
+                    return true;
+                }
+                int k = inners.length;
+                if (initIndex < k) {
+                    while (initIndex < k && fill(initIndex)) {
+                        initIndex++;
+                    }
+                    if (initIndex < k) {
+                        return false;
+                    }
+                    loserTree.build();
+                }
+                if (pendingLeaf >= 0) {
+                    if (!fill(pendingLeaf)) {
+                        return false;
+                    }
+                    loserTree.adjust(pendingLeaf);
+                    pendingLeaf = -1;
+                }
+                int winner = loserTree.winner();
+                if (winner < 0) {
+                    disposed = true;
+                    downstream.onComplete();
+                    return true;
+                }
+                T value = loserTree.key(winner);
+                pendingLeaf = winner;
+                if (skip > 0) {
+                    skip--;
+                    continue;
+                }
+                downstream.onNext(value);
+                if (--remaining == 0) {
+                    dispose();
+                    clear();
+                    downstream.onComplete();
+                    return true;
+                }
+            }
+        }
+
+        /**
+         * 把叶子的下一行放进败者树
+         *
+         * @return false表示该分片的下一行还没到达
+         */
+        private boolean fill(int leaf) {
+            InnerObserver<T> inner = inners[leaf];
+            boolean done = inner.done;
+            T value = inner.queue.poll();
+            if (value != null) {
+                loserTree.set(leaf, value);
+                return true;
+            }
+            if (done) {
+                loserTree.exhaust(leaf);
+                return true;
+            }
+            return false;
+        }
+
+        private void clear() {
+            for (InnerObserver<T> inner : inners) {
+                inner.queue.clear();
+            }
+        }
+
+        @Override
+        public void dispose() {
+            if (!disposed) {
+                disposed = true;
+                for (InnerObserver<T> inner : inners) {
+                    inner.dispose();
+                }
+                if (getAndIncrement() == 0) {
+                    clear();
+                }
+            }
+        }
+
+        @Override
+        public boolean isDisposed() {
+            return disposed;
+        }
+    }
+
+    static final class InnerObserver<T> extends AtomicReference<Disposable> implements Observer<T>, Disposable {
+        final MergeCoordinator<T> parent;
+        final Queue<T> queue = new ConcurrentLinkedQueue<>();
+        volatile boolean done;
+
+        InnerObserver(MergeCoordinator<T> parent) {
+            this.parent = parent;
+        }
+
+        @Override
+        public void onSubscribe(Disposable d) {
+            if (!compareAndSet(null, d)) {
+                d.dispose();
+            }
+        }
+
+        @Override
+        public void onNext(T t) {
+            queue.offer(t);
+            parent.drain();
+        }
+
+        @Override
+        public void onError(Throwable e) {
+            done = true;
+            parent.onError(e);
+        }
+
+        @Override
+        public void onComplete() {
+            done = true;
+            parent.drain();
+        }
+
+        @Override
+        public void dispose() {
+            Disposable d = getAndSet(DISPOSED);
+            if (d != null && d != DISPOSED) {
+                d.dispose();
+            }
+        }
+
+        @Override
+        public boolean isDisposed() {
+            return get() == DISPOSED;
+        }
+
+        private static final Disposable DISPOSED = Disposable.disposed();
+    }
+}
@@ -1,9 +1,11 @@
 package org.apache.calcite.util;
 
 import com.google.common.collect.ImmutableMap;
+import io.mycat.api.collector.RowBatch;
 import io.reactivex.rxjava3.core.Observable;
 import org.apache.calcite.linq4j.Enumerable;
 import org.apache.calcite.linq4j.function.Function1;
+import org.apache.calcite.linq4j.function.Function2;
 import org.apache.calcite.linq4j.function.Predicate1;
 import org.apache.calcite.linq4j.tree.Types;
 import org.apache.calcite.runtime.Bindable;
@@ -20,6 +22,9 @@ public enum RxBuiltInMethod {
             "select", Observable.class, Function1.class),
     OBSERVABLE_FILTER(RxBuiltInMethodImpl.class,
             "filter", Observable.class, Predicate1.class),
+    OBSERVABLE_BATCH(RxBuiltInMethodImpl.class, "batch", Observable.class, RowBatch.ColumnType[].class, int.class),
+    OBSERVABLE_CALC_BATCH(RxBuiltInMethodImpl.class, "calcBatch", Observable.class, RowBatch.ColumnType[].class, Function2.class),
+    OBSERVABLE_UNBATCH(RxBuiltInMethodImpl.class, "unbatch", Observable.class),
     OBSERVABLE_UNION_ALL(RxBuiltInMethodImpl.class, "unionAll", Observable.class, Observable.class),
     OBSERVABLE_TOP_N(RxBuiltInMethodImpl.class, "topN", Observable.class, Comparator.class, long.class, long.class),
     OBSERVABLE_SORT(RxBuiltInMethodImpl.class, "sort", Observable.class, Comparator.class),
@@ -1,22 +1,20 @@
 package org.apache.calcite.util;
 
 
-import hu.akarnokd.rxjava3.operators.Flowables;
+import io.mycat.api.collector.RowBatch;
 import io.mycat.serializable.MaterializedRecordSetFactory;
 import io.mycat.serializable.OffHeapObjectList;
-import io.reactivex.rxjava3.core.BackpressureStrategy;
-import io.reactivex.rxjava3.core.Flowable;
 import io.reactivex.rxjava3.core.Observable;
 import org.apache.calcite.linq4j.AbstractEnumerable;
 import org.apache.calcite.linq4j.Enumerable;
 import org.apache.calcite.linq4j.Enumerator;
 import org.apache.calcite.linq4j.Linq4j;
+import org.apache.calcite.linq4j.function.Function2;
 import org.apache.calcite.linq4j.function.Predicate1;
 
 import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
-import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
 
 public class RxBuiltInMethodImpl {
@@ -30,6 +28,59 @@ public class RxBuiltInMethodImpl {
     }
 
 
+    /**
+     * 把行装到RowBatch,每个订阅复用同一个批次,下游在onNext返回之后不能再持有它
+     */
+    public static Observable<RowBatch> batch(Observable<Object[]> input, RowBatch.ColumnType[] types, int capacity) {
+        return Observable.create(emitter -> {
+            RowBatch batch = new RowBatch(types, capacity);
+            emitter.setDisposable(input.subscribe(row -> {
+                batch.addRow(row);
+                if (batch.isFull()) {
+                    emitter.onNext(batch);
+                    batch.clear();
+                }
+            }, emitter::onError, () -> {
+                if (batch.getSize() > 0) {
+                    emitter.onNext(batch);
+                    batch.clear();
+                }
+                emitter.onComplete();
+            }));
+        });
+    }
+
+    /**
+     * calc把输入批次中满足条件的行计算后写到输出批次,输出批次每个订阅复用一个,空的批次不发出
+     */
+    public static Observable<RowBatch> calcBatch(Observable<RowBatch> input,
+                                                 RowBatch.ColumnType[] types,
+                                                 Function2<RowBatch, RowBatch, RowBatch> calc) {
+        return Observable.defer(() -> {
+            RowBatch[] output = new RowBatch[1];
+            return input.map(batch -> {
+                if (output[0] == null) {
+                    output[0] = new RowBatch(types, batch.getCapacity());
+                } else {
+                    output[0].clear();
+                }
+                return calc.apply(batch, output[0]);
+            }).filter(batch -> batch.getSize() > 0);
+        });
+    }
+
+    /**
+     * 复制成行,给还不支持RowBatch的算子使用
+     */
+    public static Observable<Object[]> unbatch(Observable<RowBatch> input) {
+        return Observable.create(emitter -> emitter.setDisposable(input.subscribe(batch -> {
+            int size = batch.getSize();
+            for (int i = 0; i < size && !emitter.isDisposed(); i++) {
+                emitter.onNext(batch.getRow(i));
+            }
+        }, emitter::onError, emitter::onComplete)));
+    }
+
     public static Observable<Object[]> unionAll(List<Observable<Object[]>> inputs) {
         return Observable.merge(inputs);
     }
@@ -68,13 +119,11 @@ public class RxBuiltInMethodImpl {
     public static <T> Observable<T> mergeSort(List<Observable<T>> inputs,
                                               Comparator<T> sortFunction,
                                               long skip, long limit) {
-        return mergeSort(inputs, sortFunction).skip(skip).take(limit);
+        return new MergeSortObservable<>(inputs, sortFunction, skip, limit);
     }
 
     public static <T> Observable<T> mergeSort(List<Observable<T>> inputs, Comparator<T> sortFunction) {
-        Flowable<T> flowable = Flowables.orderedMerge(inputs.stream().map(i -> i.toFlowable(BackpressureStrategy.BUFFER)).collect(Collectors.toList()),
-                sortFunction);
-        return flowable.toObservable();
+        return new MergeSortObservable<>(inputs, sortFunction, 0, -1);
     }
 
     public static Enumerable<Object[]> matierial(Enumerable<Object[]> input) {
@@ -0,0 +1,139 @@
+package io.mycat;
+
+import io.mycat.api.collector.RowBaseIterator;
+import io.mycat.beans.mycat.ResultSetBuilder;
+import io.mycat.config.LogicSchemaConfig;
+import io.mycat.config.NormalTableConfig;
+import io.mycat.datasource.jdbc.DatasourceProvider;
+import io.mycat.datasource.jdbc.datasource.DefaultConnection;
+import io.mycat.datasource.jdbc.datasource.JdbcConnectionManager;
+import io.mycat.plug.loadBalance.LoadBalanceManager;
+import io.mycat.plug.sequence.SequenceGenerator;
+import io.mycat.replica.ReplicaSelectorManager;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.JDBCType;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class MetadataManagerTest {
+    private final AtomicInteger queryCount = new AtomicInteger();
+    private MetadataManager old;
+
+    /**
+     * 不连接数据库,所有查询都返回空结果
+     */
+    class FakeJdbcConnectionManager extends JdbcConnectionManager {
+
+        FakeJdbcConnectionManager() {
+            super(Collections.emptyMap(), Collections.emptyMap(), proxy(DatasourceProvider.class), null);
+        }
+
+        @Override
+        public DefaultConnection getConnection(String name, Boolean autocommit, int transactionIsolation, boolean readOnly) {
+            return new DefaultConnection(proxy(Connection.class), null, autocommit, transactionIsolation, readOnly, this) {
+                @Override
+                public RowBaseIterator executeQuery(String sql) {
+                    queryCount.incrementAndGet();
+                    return ResultSetBuilder.create().addColumnInfo("name", JDBCType.VARCHAR).build();
+                }
+            };
+        }
+
+        @Override
+        public void closeConnection(DefaultConnection connection) {
+
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> clazz) {
+        return (T) Proxy.newProxyInstance(clazz.getClassLoader(), new Class[]{clazz}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "equals":
+                    return proxy == args[0];
+                case "toString":
+                    return clazz.getSimpleName();
+                default:
+                    return null;
+            }
+        });
+    }
+
+    private static LogicSchemaConfig schema(String schemaName, String... tableNames) {
+        LogicSchemaConfig schemaConfig = new LogicSchemaConfig();
+        schemaConfig.setSchemaName(schemaName);
+        for (String tableName : tableNames) {
+            schemaConfig.getNormalTables().put(tableName, NormalTableConfig.create(schemaName, tableName,
+                    "create table " + tableName + "(id bigint primary key)", "c0"));
+        }
+        return schemaConfig;
+    }
+
+    private static List<LogicSchemaConfig> schemas(LogicSchemaConfig... schemaConfigs) {
+        return new ArrayList<>(Arrays.asList(schemaConfigs));
+    }
+
+    @Before
+    public void setUp() {
+        old = MetadataManager.createMetadataManager(schemas(schema("db1", "travelrecord", "company"), schema("db2", "user")),
+                new LoadBalanceManager(),
+                new SequenceGenerator(0, null),
+                proxy(ReplicaSelectorManager.class),
+                new FakeJdbcConnectionManager(),
+                "prototype");
+        queryCount.set(0);
+    }
+
+    @Test
+    public void testReuseUnchangedTables() {
+        LogicSchemaConfig db1 = schema("db1", "travelrecord", "company");
+        db1.getNormalTables().get("company").setCreateTableSQL("create table company(id bigint primary key, name varchar(64))");
+        MetadataManager metadataManager = MetadataManager.createIncrementalMetadataManager(old,
+                schemas(db1, schema("db2", "user")),
+                Collections.emptySet(),
+                Collections.singletonMap("db1", Collections.singleton("company")));
+
+        //没有变化的表直接复用旧的对象,也不再读取全局变量和后端的表
+        Assert.assertSame(old.getTable("db1", "travelrecord"), metadataManager.getTable("db1", "travelrecord"));
+        Assert.assertSame(old.getTable("db2", "user"), metadataManager.getTable("db2", "user"));
+        Assert.assertSame(old.getTable("mysql", "proc"), metadataManager.getTable("mysql", "proc"));
+        Assert.assertEquals(0, queryCount.get());
+
+        //变化的表重新加载
+        TableHandler company = metadataManager.getTable("db1", "company");
+        Assert.assertNotSame(old.getTable("db1", "company"), company);
+        Assert.assertEquals(2, company.getColumns().size());
+        Assert.assertEquals(1, old.getTable("db1", "company").getColumns().size());
+    }
+
+    @Test
+    public void testDropTable() {
+        MetadataManager metadataManager = MetadataManager.createIncrementalMetadataManager(old,
+                schemas(schema("db1", "travelrecord"), schema("db2", "user")),
+                Collections.emptySet(),
+                Collections.singletonMap("db1", Collections.singleton("company")));
+        Assert.assertNull(metadataManager.getTable("db1", "company"));
+        Assert.assertSame(old.getTable("db1", "travelrecord"), metadataManager.getTable("db1", "travelrecord"));
+        //旧的元数据可能还在使用,不受影响
+        Assert.assertNotNull(old.getTable("db1", "company"));
+    }
+
+    @Test
+    public void testReloadChangedSchema() {
+        MetadataManager metadataManager = MetadataManager.createIncrementalMetadataManager(old,
+                schemas(schema("db1", "travelrecord", "company"), schema("db2", "user", "orders")),
+                Collections.singleton("db2"),
+                Collections.emptyMap());
+        Assert.assertNotSame(old.getTable("db2", "user"), metadataManager.getTable("db2", "user"));
+        Assert.assertNotNull(metadataManager.getTable("db2", "orders"));
+        Assert.assertSame(old.getTable("db1", "travelrecord"), metadataManager.getTable("db1", "travelrecord"));
+        Assert.assertSame(old.getTable("db1", "company"), metadataManager.getTable("db1", "company"));
+    }
+}
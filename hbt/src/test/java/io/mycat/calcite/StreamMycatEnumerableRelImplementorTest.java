@@ -0,0 +1,182 @@
+package io.mycat.calcite;
+
+import io.mycat.api.collector.RowBatch;
+import io.reactivex.rxjava3.core.Observable;
+import org.apache.calcite.linq4j.tree.*;
+import org.apache.calcite.rel.type.RelDataType;
+import org.apache.calcite.rex.RexBuilder;
+import org.apache.calcite.rex.RexNode;
+import org.apache.calcite.rex.RexProgram;
+import org.apache.calcite.rex.RexProgramBuilder;
+import org.apache.calcite.sql.fun.SqlStdOperatorTable;
+import org.apache.calcite.sql.type.SqlTypeName;
+import org.codehaus.commons.compiler.CompilerFactoryFactory;
+import org.codehaus.commons.compiler.IClassBodyEvaluator;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.function.Function;
+
+public class StreamMycatEnumerableRelImplementorTest {
+    private static final RexBuilder rexBuilder = MycatCalciteSupport.RexBuilder;
+    private static final RelDataType INPUT_ROW_TYPE = MycatCalciteSupport.TypeFactory.builder()
+            .add("id", SqlTypeName.BIGINT).nullable(true)
+            .add("price", SqlTypeName.DOUBLE).nullable(true)
+            .add("name", SqlTypeName.VARCHAR).nullable(true)
+            .add("flag", SqlTypeName.BOOLEAN).nullable(true)
+            .add("num", SqlTypeName.INTEGER).nullable(true)
+            .build();
+
+    private static RexNode ref(int index) {
+        return rexBuilder.makeInputRef(INPUT_ROW_TYPE.getFieldList().get(index).getType(), index);
+    }
+
+    private static RexNode literal(long value) {
+        return rexBuilder.makeExactLiteral(BigDecimal.valueOf(value));
+    }
+
+    private static RexNode call(org.apache.calcite.sql.SqlOperator operator, RexNode... operands) {
+        return rexBuilder.makeCall(operator, operands);
+    }
+
+    private static RexProgram program(RexNode condition, RexNode... projects) {
+        RexProgramBuilder builder = new RexProgramBuilder(INPUT_ROW_TYPE, rexBuilder);
+        if (condition != null) {
+            builder.addCondition(condition);
+        }
+        for (int i = 0; i < projects.length; i++) {
+            builder.addProject(projects[i], "c" + i);
+        }
+        return builder.getProgram();
+    }
+
+    /**
+     * 与生成Bindable一样用janino编译生成的代码
+     */
+    @SuppressWarnings("unchecked")
+    private static Function<Object, Object> compile(RexProgram program, boolean batchOutput) throws Exception {
+        StreamMycatEnumerableRelImplementor implementor = new StreamMycatEnumerableRelImplementor(new HashMap<>());
+        ParameterExpression input = Expressions.parameter(Object.class, "rows");
+        Expression expression = implementor.implementBatchCalc(Expressions.convert_(input, Observable.class), program, batchOutput);
+        if (expression == null) {
+            return null;
+        }
+        MethodDeclaration apply = Expressions.methodDecl(Modifier.PUBLIC, Object.class, "apply",
+                Collections.singletonList(input), Blocks.toFunctionBlock(expression));
+        String code = Expressions.toString(Collections.singletonList(apply), "\n", false);
+        IClassBodyEvaluator cbe = CompilerFactoryFactory.getDefaultCompilerFactory().newClassBodyEvaluator();
+        cbe.setImplementedInterfaces(new Class[]{Function.class});
+        cbe.setParentClassLoader(StreamMycatEnumerableRelImplementorTest.class.getClassLoader());
+        return (Function<Object, Object>) cbe.createInstance(new StringReader(code));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Object[]> execute(RexProgram program, List<Object[]> rows) throws Exception {
+        Function<Object, Object> function = compile(program, false);
+        Assert.assertNotNull(function);
+        return ((Observable<Object[]>) function.apply(Observable.fromIterable(rows))).toList().blockingGet();
+    }
+
+    private static void assertRows(List<Object[]> expected, List<Object[]> actual) {
+        Assert.assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            Assert.assertArrayEquals(expected.get(i), actual.get(i));
+        }
+    }
+
+    @Test
+    public void testFilterProject() throws Exception {
+        List<Object[]> rows = new ArrayList<>();
+        List<Object[]> expected = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            Long id = i % 11 == 0 ? null : (long) i;
+            Double price = i % 13 == 0 ? null : i * 0.25;
+            rows.add(new Object[]{id, price, "name" + i, null, null});
+            //id > 100 AND price < 500
+            if (id != null && price != null && id > 100 && price < 500) {
+                expected.add(new Object[]{"name" + i, id + 1, price * 2, id});
+            }
+        }
+        RexProgram program = program(
+                call(SqlStdOperatorTable.AND,
+                        call(SqlStdOperatorTable.GREATER_THAN, ref(0), literal(100)),
+                        call(SqlStdOperatorTable.LESS_THAN, ref(1), literal(500))),
+                ref(2),
+                call(SqlStdOperatorTable.PLUS, ref(0), literal(1)),
+                call(SqlStdOperatorTable.MULTIPLY, ref(1), literal(2)),
+                ref(0));
+        assertRows(expected, execute(program, rows));
+    }
+
+    @Test
+    public void testNull() throws Exception {
+        List<Object[]> rows = Arrays.asList(
+                new Object[]{null, null, "a", true, 1L},
+                new Object[]{null, null, "b", false, 2L},
+                new Object[]{1L, null, "c", null, null},
+                new Object[]{200L, null, "d", null, 3L});
+        //id > 100 OR flag,null OR true为true,null OR false为null
+        RexProgram program = program(
+                call(SqlStdOperatorTable.OR,
+                        call(SqlStdOperatorTable.GREATER_THAN, ref(0), literal(100)),
+                        ref(3)),
+                ref(2),
+                call(SqlStdOperatorTable.IS_NULL, ref(0)),
+                call(SqlStdOperatorTable.PLUS, ref(0), ref(4)),
+                call(SqlStdOperatorTable.AND, ref(3), call(SqlStdOperatorTable.IS_NOT_NULL, ref(4))));
+        assertRows(Arrays.asList(
+                new Object[]{"a", true, null, true},
+                new Object[]{"d", false, 203L, null}),
+                execute(program, rows));
+    }
+
+    @Test
+    public void testIntegerOverflow() throws Exception {
+        //INTEGER与按行计算一样溢出,结果按INTEGER装箱
+        RexProgram program = program(null, call(SqlStdOperatorTable.PLUS, ref(4), literal(1)));
+        assertRows(Arrays.asList(new Object[]{Integer.MIN_VALUE}, new Object[]{3}),
+                execute(program, Arrays.asList(
+                        new Object[]{null, null, null, null, (long) Integer.MAX_VALUE},
+                        new Object[]{null, null, null, null, 2L})));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testBatchOutput() throws Exception {
+        RexProgram program = program(call(SqlStdOperatorTable.GREATER_THAN, ref(0), literal(1)), ref(2), ref(0));
+        Function<Object, Object> function = compile(program, true);
+        List<Object[]> rows = new ArrayList<>();
+        List<Object[]> expected = new ArrayList<>();
+        for (long i = 0; i < 2500; i++) {
+            rows.add(new Object[]{i, null, "name" + i, null, null});
+            if (i > 1) {
+                expected.add(new Object[]{"name" + i, i});
+            }
+        }
+        List<Object[]> result = new ArrayList<>();
+        ((Observable<RowBatch>) function.apply(Observable.fromIterable(rows))).subscribe(batch -> {
+            //批次在onNext返回之后会被复用,只能同步读取
+            //原样输出的列保存原来的对象,参与计算的列按基本类型保存
+            Assert.assertEquals(RowBatch.ColumnType.OBJECT, batch.getColumnType(0));
+            Assert.assertEquals(RowBatch.ColumnType.BIGINT, batch.getColumnType(1));
+            for (int i = 0; i < batch.getSize(); i++) {
+                result.add(batch.getRow(i));
+            }
+        });
+        assertRows(expected, result);
+    }
+
+    @Test
+    public void testUnsupported() throws Exception {
+        //字符串比较与除法按行计算
+        Assert.assertNull(compile(program(call(SqlStdOperatorTable.EQUALS, ref(2), rexBuilder.makeLiteral("a")), ref(0)), false));
+        Assert.assertNull(compile(program(null, call(SqlStdOperatorTable.DIVIDE, ref(0), literal(2))), false));
+        //只是调整列的顺序,不是根节点时按行处理
+        Assert.assertNull(compile(program(null, ref(2), ref(0)), false));
+        Assert.assertNotNull(compile(program(null, ref(2), ref(0)), true));
+    }
+}
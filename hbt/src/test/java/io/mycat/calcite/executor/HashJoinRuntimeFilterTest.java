@@ -0,0 +1,110 @@
+package io.mycat.calcite.executor;
+
+import io.mycat.calcite.MycatCalciteSupport;
+import org.apache.calcite.rel.type.RelDataType;
+import org.apache.calcite.rex.RexBuilder;
+import org.apache.calcite.rex.RexCall;
+import org.apache.calcite.rex.RexLiteral;
+import org.apache.calcite.rex.RexNode;
+import org.apache.calcite.sql.SqlKind;
+import org.apache.calcite.sql.type.SqlTypeName;
+import org.apache.calcite.util.Sarg;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+
+public class HashJoinRuntimeFilterTest {
+    private static final RexBuilder rexBuilder = MycatCalciteSupport.RexBuilder;
+    private static final RelDataType BIGINT = MycatCalciteSupport.TypeFactory.createSqlType(SqlTypeName.BIGINT);
+    private static final RelDataType VARCHAR = MycatCalciteSupport.TypeFactory.createSqlType(SqlTypeName.VARCHAR, 64);
+
+    private static RexNode toCondition(HashJoinRuntimeFilter filter, RelDataType type) {
+        return filter.toCondition(rexBuilder, rexBuilder.makeInputRef(type, filter.getProbeKey()), type);
+    }
+
+    private static Sarg sarg(RexNode condition) {
+        Assert.assertEquals(SqlKind.SEARCH, condition.getKind());
+        return (Sarg) ((RexLiteral) ((RexCall) condition).getOperands().get(1)).getValue();
+    }
+
+    private static BigDecimal bound(RexNode condition, SqlKind kind) {
+        Assert.assertEquals(kind, condition.getKind());
+        return ((RexLiteral) ((RexCall) condition).getOperands().get(1)).getValueAs(BigDecimal.class);
+    }
+
+    @Test
+    public void testInList() {
+        HashJoinRuntimeFilter filter = new HashJoinRuntimeFilter(0, 3);
+        filter.add(1);
+        filter.add(2L);
+        filter.add(2L);
+        filter.add(null);
+        filter.add(3);
+        Sarg sarg = sarg(toCondition(filter, BIGINT));
+        Assert.assertEquals(3, sarg.rangeSet.asRanges().size());
+        Assert.assertTrue(sarg.rangeSet.contains(new BigDecimal(1)));
+        Assert.assertTrue(sarg.rangeSet.contains(new BigDecimal(3)));
+        //不在build端的键被剪掉
+        Assert.assertFalse(sarg.rangeSet.contains(new BigDecimal(4)));
+        Assert.assertFalse(sarg.rangeSet.contains(new BigDecimal(0)));
+    }
+
+    @Test
+    public void testStringInList() {
+        HashJoinRuntimeFilter filter = new HashJoinRuntimeFilter(0, 2);
+        filter.add("a");
+        filter.add("b");
+        Sarg sarg = sarg(toCondition(filter, VARCHAR));
+        Assert.assertEquals(2, sarg.rangeSet.asRanges().size());
+    }
+
+    @Test
+    public void testMinMax() {
+        HashJoinRuntimeFilter filter = new HashJoinRuntimeFilter(0, 2);
+        filter.add(5);
+        filter.add(-3);
+        filter.add(10L);
+        filter.add(new BigDecimal("7.5"));
+        //超过IN列表的大小后退化为范围条件
+        RexNode condition = toCondition(filter, BIGINT);
+        Assert.assertEquals(SqlKind.AND, condition.getKind());
+        RexNode lower = ((RexCall) condition).getOperands().get(0);
+        RexNode upper = ((RexCall) condition).getOperands().get(1);
+        Assert.assertEquals(0, bound(lower, SqlKind.GREATER_THAN_OR_EQUAL).compareTo(new BigDecimal(-3)));
+        Assert.assertEquals(0, bound(upper, SqlKind.LESS_THAN_OR_EQUAL).compareTo(new BigDecimal(10)));
+    }
+
+    @Test
+    public void testDisabledWhenBuildSideTooLarge() {
+        //字符串超过IN列表的大小没有范围条件,不生成过滤条件
+        HashJoinRuntimeFilter filter = new HashJoinRuntimeFilter(0, 2);
+        filter.add("a");
+        filter.add("b");
+        filter.add("c");
+        Assert.assertNull(toCondition(filter, VARCHAR));
+
+        //NaN无法表达范围
+        filter = new HashJoinRuntimeFilter(0, 1);
+        filter.add(1.0);
+        filter.add(Double.NaN);
+        Assert.assertNull(toCondition(filter, BIGINT));
+    }
+
+    @Test
+    public void testNoCondition() {
+        //build端为空或者只有null
+        HashJoinRuntimeFilter filter = new HashJoinRuntimeFilter(0, 2);
+        Assert.assertNull(toCondition(filter, BIGINT));
+        filter.add(null);
+        Assert.assertNull(toCondition(filter, BIGINT));
+
+        //键的类型与probe端列的类型不一致
+        filter = new HashJoinRuntimeFilter(0, 2);
+        filter.add("1");
+        Assert.assertNull(toCondition(filter, BIGINT));
+        filter = new HashJoinRuntimeFilter(0, 2);
+        filter.add(1);
+        Assert.assertNull(toCondition(filter, VARCHAR));
+    }
+}
@@ -0,0 +1,72 @@
+package io.mycat.calcite.executor;
+
+import io.mycat.AsyncMycatDataContextImpl;
+import org.apache.calcite.linq4j.Enumerable;
+import org.apache.calcite.linq4j.Enumerator;
+import org.apache.calcite.linq4j.Linq4j;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+public class RecursiveWorkTableTest {
+
+    private static Enumerable<Object[]> rows(int count) {
+        List<Object[]> rows = new ArrayList<>(count);
+        for (long i = 0; i < count; i++) {
+            rows.add(new Object[]{i});
+        }
+        return Linq4j.asEnumerable(rows);
+    }
+
+    private static int count(Enumerable<Object[]> enumerable) {
+        int count = 0;
+        try (Enumerator<Object[]> enumerator = enumerable.enumerator()) {
+            while (enumerator.moveNext()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Test
+    public void testSpoolReplacesDelta() {
+        RecursiveWorkTable workTable = new RecursiveWorkTable();
+        Assert.assertEquals(0, count(workTable.scan()));
+        Assert.assertEquals(3, count(workTable.spool(rows(3))));
+        Assert.assertEquals(3, count(workTable.scan()));
+        Assert.assertEquals(5, count(workTable.spool(rows(5))));
+        Assert.assertEquals(5, count(workTable.scan()));
+        workTable.close();
+        Assert.assertEquals(0, count(workTable.scan()));
+    }
+
+    @Test
+    public void testUnfinishedSpoolKeepsDelta() {
+        RecursiveWorkTable workTable = new RecursiveWorkTable();
+        count(workTable.spool(rows(2)));
+        try (Enumerator<Object[]> enumerator = workTable.spool(rows(10)).enumerator()) {
+            Assert.assertTrue(enumerator.moveNext());
+        }
+        Assert.assertEquals(2, count(workTable.scan()));
+        workTable.close();
+    }
+
+    @Test
+    public void testDataContextCloseReleasesWorkTables() {
+        AsyncMycatDataContextImpl context = new AsyncMycatDataContextImpl(null, null,
+                new IdentityHashMap<>(), Collections.emptyList(), false);
+        RecursiveWorkTable workTable = context.getWorkTable("t");
+        Assert.assertSame(workTable, context.getWorkTable("t"));
+        count(workTable.spool(rows(4)));
+        Assert.assertEquals(4, count(workTable.scan()));
+
+        context.close();
+        Assert.assertEquals(0, count(workTable.scan()));
+        Assert.assertNotSame(workTable, context.getWorkTable("t"));
+        context.close();
+    }
+}
@@ -0,0 +1,97 @@
+package io.mycat.calcite.executor;
+
+import io.mycat.MetaClusterCurrent;
+import io.mycat.config.ServerConfig;
+import org.apache.calcite.linq4j.Enumerable;
+import org.apache.calcite.linq4j.Enumerator;
+import org.apache.calcite.linq4j.Linq4j;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+
+public class WindowPartitionExecutorTest {
+    private static final int ROWS = 50000;
+    private Map<Class, Object> oldContext;
+
+    @Before
+    public void setUp() {
+        oldContext = MetaClusterCurrent.context.get();
+        ServerConfig serverConfig = new ServerConfig();
+        serverConfig.setWindowParallelism(4);
+        HashMap<Class, Object> context = new HashMap<>(oldContext);
+        context.put(ServerConfig.class, serverConfig);
+        MetaClusterCurrent.register(context);
+    }
+
+    @After
+    public void tearDown() {
+        MetaClusterCurrent.register(oldContext);
+    }
+
+    private static Enumerable<Object[]> input() {
+        List<Object[]> rows = new ArrayList<>(ROWS);
+        for (long i = 0; i < ROWS; i++) {
+            rows.add(new Object[]{i, i % 37});
+        }
+        return Linq4j.asEnumerable(rows);
+    }
+
+    /**
+     * 模拟窗口计算:按分区输出,分区内逆序,追加分区的行数
+     */
+    private static Enumerable<Object> window(Enumerable<Object[]> partition) {
+        Map<Object, List<Object[]>> groups = new HashMap<>();
+        for (Object[] row : partition) {
+            groups.computeIfAbsent(row[1], k -> new ArrayList<>()).add(row);
+        }
+        List<Object> res = new ArrayList<>();
+        for (List<Object[]> group : groups.values()) {
+            for (int i = group.size() - 1; i >= 0; i--) {
+                Object[] row = group.get(i);
+                res.add(new Object[]{row[0], row[1], (long) group.size()});
+            }
+        }
+        return Linq4j.asEnumerable(res);
+    }
+
+    @Test
+    public void testKeepInputOrder() {
+        Comparator<Object[]> collation = Comparator.comparing(o -> (Long) o[0]);
+        Enumerable<Object> output = WindowPartitionExecutor.execute(input(), row -> row[1],
+                WindowPartitionExecutorTest::window, collation);
+        long expected = 0;
+        try (Enumerator<Object> enumerator = output.enumerator()) {
+            while (enumerator.moveNext()) {
+                Object[] row = (Object[]) enumerator.current();
+                Assert.assertEquals(expected, row[0]);
+                long partitionSize = ROWS / 37 + ((Long) row[1] < ROWS % 37 ? 1 : 0);
+                Assert.assertEquals(partitionSize, row[2]);
+                expected++;
+            }
+        }
+        Assert.assertEquals(ROWS, expected);
+    }
+
+    @Test
+    public void testUnordered() {
+        Enumerable<Object> output = WindowPartitionExecutor.execute(input(), row -> row[1],
+                WindowPartitionExecutorTest::window, null);
+        Set<Object> ids = new HashSet<>();
+        for (Object row : output) {
+            ids.add(((Object[]) row)[0]);
+        }
+        Assert.assertEquals(ROWS, ids.size());
+    }
+
+    @Test
+    public void testCloseEarly() {
+        Enumerable<Object> output = WindowPartitionExecutor.execute(input(), row -> row[1],
+                WindowPartitionExecutorTest::window, null);
+        try (Enumerator<Object> enumerator = output.enumerator()) {
+            Assert.assertTrue(enumerator.moveNext());
+        }
+    }
+}
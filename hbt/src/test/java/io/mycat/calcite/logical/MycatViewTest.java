@@ -0,0 +1,39 @@
+package io.mycat.calcite.logical;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MycatViewTest {
+
+    @Test
+    public void testDefaultWidth() {
+        //没有统计信息,空闲连接数未知,按mergeUnionSize合并
+        Assert.assertEquals(6, MycatView.computeUnionWidth(32, 5, null, 100000, -1));
+        Assert.assertEquals(3, MycatView.computeUnionWidth(3, 5, null, 100000, -1));
+        Assert.assertEquals(1, MycatView.computeUnionWidth(0, 5, null, 100000, -1));
+    }
+
+    @Test
+    public void testLargeTables() {
+        //每个表5万行,每条语句最多10万行
+        Assert.assertEquals(2, MycatView.computeUnionWidth(32, 5, 50000.0, 100000, -1));
+        //单表超过上限也至少一个表
+        Assert.assertEquals(1, MycatView.computeUnionWidth(32, 5, 1000000.0, 100000, -1));
+        //小表不超过mergeUnionSize
+        Assert.assertEquals(6, MycatView.computeUnionWidth(32, 5, 10.0, 100000, -1));
+        //0表示不限制
+        Assert.assertEquals(6, MycatView.computeUnionWidth(32, 5, 1000000.0, 0, -1));
+    }
+
+    @Test
+    public void testAvailableConnections() {
+        //32个表只有4个空闲连接,每条语句至少合并8个表
+        Assert.assertEquals(8, MycatView.computeUnionWidth(32, 5, null, 100000, 4));
+        Assert.assertEquals(8, MycatView.computeUnionWidth(32, 5, 1000000.0, 100000, 4));
+        //空闲连接充足时不调整
+        Assert.assertEquals(6, MycatView.computeUnionWidth(32, 5, null, 100000, 100));
+        Assert.assertEquals(2, MycatView.computeUnionWidth(32, 5, 50000.0, 100000, 100));
+        //没有空闲连接时合并成一条语句
+        Assert.assertEquals(32, MycatView.computeUnionWidth(32, 5, 50000.0, 100000, 0));
+    }
+}
@@ -0,0 +1,155 @@
+package io.mycat.calcite.plan;
+
+import cn.mycat.vertx.xa.XaSqlConnection;
+import io.mycat.api.collector.MysqlPayloadObject;
+import io.mycat.api.collector.MysqlRow;
+import io.reactivex.rxjava3.core.Observable;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+public class QueryResultCacheTest {
+    private static final String TABLE = "db1.travelrecord";
+    private static final String OTHER_TABLE = "db1.company";
+
+    private final QueryResultCache cache = new QueryResultCache(Arrays.asList("db1.TravelRecord", OTHER_TABLE), 100, 10);
+    private final Object plan = new Object();
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private Supplier<Observable<MysqlPayloadObject>> loader(int rowCount) {
+        return () -> {
+            loads.incrementAndGet();
+            List<MysqlPayloadObject> rows = new ArrayList<>();
+            for (int i = 0; i < rowCount; i++) {
+                rows.add(new MysqlRow(new Object[]{i}));
+            }
+            return Observable.fromIterable(rows);
+        };
+    }
+
+    private int query(List<String> tables, Object plan, List<Object> params, int rowCount) {
+        return cache.get(tables, plan, params, loader(rowCount)).test().assertComplete().values().size();
+    }
+
+    private static XaSqlConnection connection(AtomicBoolean inTransaction) {
+        return (XaSqlConnection) Proxy.newProxyInstance(XaSqlConnection.class.getClassLoader(),
+                new Class[]{XaSqlConnection.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "isInTransaction":
+                            return inTransaction.get();
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "equals":
+                            return proxy == args[0];
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    @Test
+    public void testHit() {
+        List<String> tables = Collections.singletonList(TABLE);
+        Assert.assertEquals(3, query(tables, plan, Collections.singletonList(1), 3));
+        Assert.assertEquals(3, query(tables, plan, Collections.singletonList(1), 3));
+        Assert.assertEquals(1, loads.get());
+        Assert.assertEquals(1, cache.size());
+        QueryResultCache.TableState tableState = cache.getTableStates().get(TABLE);
+        Assert.assertEquals(1, tableState.getHit().sum());
+        Assert.assertEquals(1, tableState.getMiss().sum());
+
+        //参数不同或者计划不同不命中
+        query(tables, plan, Collections.singletonList(2), 3);
+        query(tables, new Object(), Collections.singletonList(1), 3);
+        Assert.assertEquals(3, loads.get());
+    }
+
+    @Test
+    public void testNotCacheable() {
+        query(null, plan, Collections.emptyList(), 3);
+        query(null, plan, Collections.emptyList(), 3);
+        Assert.assertEquals(2, loads.get());
+        Assert.assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testVersionInvalidation() {
+        List<String> tables = Collections.singletonList(TABLE);
+        List<String> otherTables = Collections.singletonList(OTHER_TABLE);
+        Object otherPlan = new Object();
+        query(tables, plan, Collections.emptyList(), 3);
+        query(otherTables, otherPlan, Collections.emptyList(), 3);
+        Assert.assertEquals(2, loads.get());
+
+        cache.invalidate(TABLE, null);
+        Assert.assertEquals(1, cache.getTableStates().get(TABLE).getVersion().get());
+        query(tables, plan, Collections.emptyList(), 3);
+        Assert.assertEquals(3, loads.get());
+        //其他表的缓存不受影响
+        query(otherTables, otherPlan, Collections.emptyList(), 3);
+        Assert.assertEquals(3, loads.get());
+        //重新加载后的结果可以命中
+        query(tables, plan, Collections.emptyList(), 3);
+        Assert.assertEquals(3, loads.get());
+    }
+
+    @Test
+    public void testInvalidateDuringLoad() {
+        List<String> tables = Collections.singletonList(TABLE);
+        cache.get(tables, plan, Collections.emptyList(), () -> {
+            loads.incrementAndGet();
+            //加载过程中表被写入,旧的结果不能进入缓存
+            cache.invalidate(TABLE, null);
+            return Observable.fromIterable(Collections.singletonList(new MysqlRow(new Object[]{1})));
+        }).test().assertComplete();
+        query(tables, plan, Collections.emptyList(), 1);
+        Assert.assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void testTransactionBypass() {
+        List<String> tables = Collections.singletonList(TABLE);
+        query(tables, plan, Collections.emptyList(), 3);
+        AtomicBoolean inTransaction = new AtomicBoolean(true);
+        XaSqlConnection connection = connection(inTransaction);
+        cache.invalidate(TABLE, connection);
+
+        //事务还没结束,不读也不写缓存
+        query(tables, plan, Collections.emptyList(), 3);
+        query(tables, plan, Collections.emptyList(), 3);
+        Assert.assertEquals(3, loads.get());
+        Assert.assertEquals(0, cache.size());
+
+        //事务结束后再失效一次,之后恢复缓存
+        long version = cache.getTableStates().get(TABLE).getVersion().get();
+        inTransaction.set(false);
+        query(tables, plan, Collections.emptyList(), 3);
+        Assert.assertEquals(version + 1, cache.getTableStates().get(TABLE).getVersion().get());
+        Assert.assertEquals(4, loads.get());
+        query(tables, plan, Collections.emptyList(), 3);
+        Assert.assertEquals(4, loads.get());
+    }
+
+    @Test
+    public void testMaxRows() {
+        List<String> tables = Collections.singletonList(TABLE);
+        //列定义加上maxRows行可以缓存
+        query(tables, plan, Collections.singletonList(1), 11);
+        query(tables, plan, Collections.singletonList(1), 11);
+        Assert.assertEquals(1, loads.get());
+
+        //超过maxRows的结果完整返回但是不缓存
+        Assert.assertEquals(12, query(tables, plan, Collections.singletonList(2), 12));
+        Assert.assertEquals(12, query(tables, plan, Collections.singletonList(2), 12));
+        Assert.assertEquals(3, loads.get());
+        Assert.assertEquals(1, cache.size());
+    }
+}
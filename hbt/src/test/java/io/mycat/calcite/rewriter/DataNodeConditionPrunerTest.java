@@ -0,0 +1,153 @@
+package io.mycat.calcite.rewriter;
+
+import io.mycat.calcite.MycatCalciteSupport;
+import io.mycat.calcite.table.ShardingTable;
+import org.apache.calcite.plan.RelOptUtil;
+import org.apache.calcite.rel.type.RelDataType;
+import org.apache.calcite.rex.*;
+import org.apache.calcite.sql.SqlKind;
+import org.apache.calcite.sql.fun.SqlStdOperatorTable;
+import org.apache.calcite.sql.type.SqlTypeName;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.*;
+
+import static io.mycat.calcite.rewriter.ShardingRouteEvaluatorTest.id;
+import static io.mycat.calcite.rewriter.ShardingRouteEvaluatorTest.userId;
+
+public class DataNodeConditionPrunerTest {
+    private static final RexBuilder rexBuilder = MycatCalciteSupport.RexBuilder;
+    private static final RelDataType BIGINT = MycatCalciteSupport.TypeFactory.createSqlType(SqlTypeName.BIGINT);
+    private static final String C1 = "c1.db1_1.travelrecord_1";
+    private static final String C2 = "c2.db1_2.travelrecord_2";
+
+    private final ShardingTable table = ShardingRouteEvaluatorTest.createTable();
+
+    private static RexNode equals(RexNode left, RexNode right) {
+        return ShardingRouteEvaluatorTest.equals(left, right);
+    }
+
+    private static RexNode literal(long value) {
+        return rexBuilder.makeExactLiteral(BigDecimal.valueOf(value), BIGINT);
+    }
+
+    private static RexNode in(long... values) {
+        List<RexNode> literals = new ArrayList<>();
+        for (long value : values) {
+            literals.add(literal(value));
+        }
+        return rexBuilder.makeIn(id(), literals);
+    }
+
+    private static RexNode or(RexNode... operands) {
+        return rexBuilder.makeCall(SqlStdOperatorTable.OR, operands);
+    }
+
+    private static RexNode and(RexNode... operands) {
+        return rexBuilder.makeCall(SqlStdOperatorTable.AND, operands);
+    }
+
+    /**
+     * 条件中id = 常量的取值
+     */
+    private static Set<Long> ids(RexNode condition) {
+        Set<Long> ids = new TreeSet<>();
+        for (RexNode conjunction : RelOptUtil.conjunctions(condition)) {
+            RexNode expand = RexUtil.expandSearch(rexBuilder, null, conjunction);
+            for (RexNode disjunction : RelOptUtil.disjunctions(expand)) {
+                if (!disjunction.isA(SqlKind.EQUALS)) {
+                    continue;
+                }
+                List<RexNode> operands = ((RexCall) disjunction).getOperands();
+                if (operands.get(0).equals(id()) && operands.get(1) instanceof RexLiteral) {
+                    ids.add(((RexLiteral) operands.get(1)).getValueAs(Long.class));
+                }
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * 条件中id = ?的参数下标
+     */
+    private static Set<Integer> paramIndexes(RexNode condition) {
+        Set<Integer> indexes = new TreeSet<>();
+        condition.accept(new RexVisitorImpl<Void>(true) {
+            @Override
+            public Void visitDynamicParam(RexDynamicParam dynamicParam) {
+                indexes.add(dynamicParam.getIndex());
+                return null;
+            }
+        });
+        return indexes;
+    }
+
+    @Test
+    public void testInLiterals() {
+        DataNodeConditionPruner pruner = new DataNodeConditionPruner(Collections.emptyList());
+        RexNode condition = in(1, 2, 5, 6);
+        //1,5在c1,2,6在c2
+        Assert.assertEquals(new TreeSet<>(Arrays.asList(1L, 5L)), ids(pruner.pruneCondition(table, condition, C1)));
+        Assert.assertEquals(new TreeSet<>(Arrays.asList(2L, 6L)), ids(pruner.pruneCondition(table, condition, C2)));
+    }
+
+    @Test
+    public void testInDynamicParams() {
+        List<RexNode> params = Arrays.asList(
+                rexBuilder.makeDynamicParam(BIGINT, 0),
+                rexBuilder.makeDynamicParam(BIGINT, 1),
+                rexBuilder.makeDynamicParam(BIGINT, 2));
+        RexNode condition = rexBuilder.makeIn(id(), params);
+        DataNodeConditionPruner pruner = new DataNodeConditionPruner(Arrays.asList(1L, 2L, 5L));
+        Assert.assertEquals(new TreeSet<>(Arrays.asList(0, 2)), paramIndexes(pruner.pruneCondition(table, condition, C1)));
+        Assert.assertEquals(Collections.singleton(1), paramIndexes(pruner.pruneCondition(table, condition, C2)));
+    }
+
+    @Test
+    public void testOrOnNonKeyColumnUnchanged() {
+        DataNodeConditionPruner pruner = new DataNodeConditionPruner(Collections.emptyList());
+        RexNode condition = or(equals(userId(), rexBuilder.makeLiteral("a")),
+                equals(userId(), rexBuilder.makeLiteral("b")));
+        Assert.assertSame(condition, pruner.pruneCondition(table, condition, C1));
+
+        //任一析取项不能确定路由时保留该析取项
+        condition = or(equals(id(), literal(1)), equals(userId(), rexBuilder.makeLiteral("b")));
+        Assert.assertSame(condition, pruner.pruneCondition(table, condition, C1));
+        RexNode pruned = pruner.pruneCondition(table, condition, C2);
+        Assert.assertTrue(ids(pruned).isEmpty());
+        Assert.assertEquals(equals(userId(), rexBuilder.makeLiteral("b")).toString(), pruned.toString());
+    }
+
+    @Test
+    public void testMixedAndOr() {
+        DataNodeConditionPruner pruner = new DataNodeConditionPruner(Collections.emptyList());
+        RexNode user = equals(userId(), rexBuilder.makeLiteral("a"));
+        RexNode condition = and(user, or(equals(id(), literal(1)), equals(id(), literal(2)), equals(id(), literal(6))));
+        RexNode pruned = pruner.pruneCondition(table, condition, C2);
+        Assert.assertEquals(new TreeSet<>(Arrays.asList(2L, 6L)), ids(pruned));
+        //非分片键的合取项保留,化简后可能是SEARCH
+        Assert.assertTrue(RelOptUtil.conjunctions(pruned).stream()
+                .anyMatch(c -> RexUtil.expandSearch(rexBuilder, null, c).toString().equals(user.toString())));
+
+        //析取项本身是AND
+        RexNode branch = and(equals(id(), literal(1)), equals(userId(), rexBuilder.makeLiteral("x")));
+        condition = or(branch, equals(id(), literal(2)));
+        Assert.assertEquals(Collections.singleton(2L), ids(pruner.pruneCondition(table, condition, C2)));
+        pruned = pruner.pruneCondition(table, condition, C1);
+        Assert.assertEquals(Collections.singleton(1L), ids(pruned));
+        Assert.assertEquals(2, RelOptUtil.conjunctions(pruned).size());
+    }
+
+    @Test
+    public void testFullyPrunedKeepsCondition() {
+        DataNodeConditionPruner pruner = new DataNodeConditionPruner(Collections.emptyList());
+        RexNode condition = in(1, 2, 5, 6);
+        //没有值路由到c0,说明路由与条件不一致,保留原条件
+        Assert.assertSame(condition, pruner.pruneCondition(table, condition, "c0.db1_0.travelrecord_0"));
+        //所有值路由到同一个分片,不需要裁剪
+        RexNode single = in(1, 5, 9);
+        Assert.assertSame(single, pruner.pruneCondition(table, single, C1));
+    }
+}
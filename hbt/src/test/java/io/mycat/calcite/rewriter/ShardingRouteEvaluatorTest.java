@@ -0,0 +1,176 @@
+package io.mycat.calcite.rewriter;
+
+import io.mycat.BackendTableInfo;
+import io.mycat.DataNode;
+import io.mycat.SimpleColumnInfo;
+import io.mycat.calcite.MycatCalciteSupport;
+import io.mycat.calcite.table.LogicTable;
+import io.mycat.calcite.table.ShardingTable;
+import io.mycat.router.Mycat1xSingleValueRuleFunction;
+import io.mycat.router.ShardingTableHandler;
+import io.mycat.util.CalciteUtls;
+import org.apache.calcite.rel.type.RelDataType;
+import org.apache.calcite.rex.RexBuilder;
+import org.apache.calcite.rex.RexNode;
+import org.apache.calcite.sql.fun.SqlStdOperatorTable;
+import org.apache.calcite.sql.type.SqlTypeName;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.sql.JDBCType;
+import java.util.*;
+import java.util.stream.Collectors;
+
+public class ShardingRouteEvaluatorTest {
+    private static final RexBuilder rexBuilder = MycatCalciteSupport.RexBuilder;
+    private static final RelDataType BIGINT = MycatCalciteSupport.TypeFactory.createSqlType(SqlTypeName.BIGINT);
+    private static final RelDataType VARCHAR = MycatCalciteSupport.TypeFactory.createSqlType(SqlTypeName.VARCHAR, 64);
+
+    private ShardingTable table;
+
+    /**
+     * 按id取模
+     */
+    static class ModFunction extends Mycat1xSingleValueRuleFunction {
+        private int count;
+
+        @Override
+        public String name() {
+            return "mod";
+        }
+
+        @Override
+        protected void init(ShardingTableHandler tableHandler, Map<String, Object> properties, Map<String, Object> ranges) {
+            this.count = tableHandler.dataNodes().size();
+        }
+
+        @Override
+        public int calculateIndex(String columnValue) {
+            return (int) Math.floorMod(new BigDecimal(columnValue).longValueExact(), (long) count);
+        }
+
+        @Override
+        public int[] calculateIndexRange(String beginValue, String endValue) {
+            return calculateEnumerableRange(this, beginValue, endValue);
+        }
+
+        @Override
+        public boolean isShardingDbKey(String name) {
+            return false;
+        }
+
+        @Override
+        public boolean isShardingTableKey(String name) {
+            return getColumnName().equalsIgnoreCase(name);
+        }
+
+        @Override
+        public String getErUniqueID() {
+            return name() + count;
+        }
+    }
+
+    @Before
+    public void setUp() {
+        table = createTable();
+    }
+
+    /**
+     * 4个分片,按id取模
+     */
+    static ShardingTable createTable() {
+        List<DataNode> dataNodes = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            dataNodes.add(new BackendTableInfo("c" + i, "db1_" + i, "travelrecord_" + i));
+        }
+        List<SimpleColumnInfo> columns = Arrays.asList(
+                new SimpleColumnInfo("id", 0, 0, JDBCType.BIGINT, false, false, true, false, 0),
+                new SimpleColumnInfo("user_id", 0, 0, JDBCType.VARCHAR, true, false, false, false, 1));
+        ModFunction function = new ModFunction();
+        ShardingTable table = LogicTable.createShardingTable("db1", "travelrecord", dataNodes, columns, function,
+                Collections.emptyMap(), "create table travelrecord(id bigint primary key, user_id varchar(64))");
+        function.callInit(table, Collections.singletonMap("columnName", "id"), Collections.emptyMap());
+        return table;
+    }
+
+    static RexNode id() {
+        return rexBuilder.makeInputRef(BIGINT, 0);
+    }
+
+    static RexNode userId() {
+        return rexBuilder.makeInputRef(VARCHAR, 1);
+    }
+
+    static RexNode equals(RexNode left, RexNode right) {
+        return rexBuilder.makeCall(SqlStdOperatorTable.EQUALS, left, right);
+    }
+
+    private static RexNode and(RexNode... operands) {
+        return rexBuilder.makeCall(SqlStdOperatorTable.AND, operands);
+    }
+
+    private static List<String> names(List<DataNode> dataNodes) {
+        return dataNodes.stream().map(DataNode::getUniqueName).collect(Collectors.toList());
+    }
+
+    /**
+     * 编译后的路由与参数替换成字面量后的通用路由结果一致
+     */
+    private void assertSameRoute(ShardingRouteEvaluator evaluator, RexNode literalCondition, List<Object> params) {
+        List<DataNode> dataNodes = evaluator.evaluate(table, params);
+        Assert.assertNotNull(dataNodes);
+        Assert.assertEquals(names(CalciteUtls.route(table, literalCondition)), names(dataNodes));
+    }
+
+    @Test
+    public void testDynamicParam() {
+        RexNode condition = and(equals(userId(), rexBuilder.makeLiteral("a")),
+                equals(id(), rexBuilder.makeDynamicParam(BIGINT, 0)));
+        ShardingRouteEvaluator evaluator = ShardingRouteEvaluator.compile(table, condition);
+        Assert.assertNotSame(ShardingRouteEvaluator.NONE, evaluator);
+        for (long i = -5; i < 20; i++) {
+            RexNode literalCondition = and(equals(userId(), rexBuilder.makeLiteral("a")),
+                    equals(id(), rexBuilder.makeExactLiteral(BigDecimal.valueOf(i), BIGINT)));
+            assertSameRoute(evaluator, literalCondition, Collections.singletonList(i));
+            assertSameRoute(evaluator, literalCondition, Collections.singletonList((int) i));
+            assertSameRoute(evaluator, literalCondition, Collections.singletonList(String.valueOf(i)));
+        }
+    }
+
+    @Test
+    public void testLiteralOnLeft() {
+        RexNode literal = rexBuilder.makeExactLiteral(BigDecimal.valueOf(7), BIGINT);
+        RexNode condition = equals(literal, id());
+        ShardingRouteEvaluator evaluator = ShardingRouteEvaluator.compile(table, condition);
+        assertSameRoute(evaluator, condition, Collections.emptyList());
+        Assert.assertEquals(Collections.singletonList("c3.db1_3.travelrecord_3"),
+                names(evaluator.evaluate(table, Collections.emptyList())));
+    }
+
+    @Test
+    public void testFallback() {
+        RexNode param0 = rexBuilder.makeDynamicParam(BIGINT, 0);
+        RexNode param1 = rexBuilder.makeDynamicParam(BIGINT, 1);
+        //不是顶层AND下的等值条件
+        Assert.assertSame(ShardingRouteEvaluator.NONE, ShardingRouteEvaluator.compile(table,
+                rexBuilder.makeCall(SqlStdOperatorTable.OR, equals(id(), param0), equals(id(), param1))));
+        Assert.assertSame(ShardingRouteEvaluator.NONE, ShardingRouteEvaluator.compile(table,
+                rexBuilder.makeCall(SqlStdOperatorTable.GREATER_THAN, id(), param0)));
+        //同一个分片键有多个等值条件
+        Assert.assertSame(ShardingRouteEvaluator.NONE, ShardingRouteEvaluator.compile(table,
+                and(equals(id(), param0), equals(id(), param1))));
+        //分片键没有出现
+        Assert.assertSame(ShardingRouteEvaluator.NONE, ShardingRouteEvaluator.compile(table,
+                equals(userId(), rexBuilder.makeLiteral("a"))));
+        Assert.assertSame(ShardingRouteEvaluator.NONE, ShardingRouteEvaluator.compile(table, null));
+        Assert.assertNull(ShardingRouteEvaluator.NONE.evaluate(table, Collections.emptyList()));
+
+        ShardingRouteEvaluator evaluator = ShardingRouteEvaluator.compile(table, equals(id(), param0));
+        //参数类型不能保证与字面量一致
+        Assert.assertNull(evaluator.evaluate(table, Collections.singletonList(new BigDecimal("1.5"))));
+        Assert.assertNull(evaluator.evaluate(table, Collections.singletonList(null)));
+        Assert.assertNull(evaluator.evaluate(table, Collections.emptyList()));
+    }
+}
@@ -0,0 +1,100 @@
+package io.mycat.calcite.spm;
+
+import io.mycat.BackendTableInfo;
+import io.mycat.DrdsRunner;
+import io.mycat.SimpleColumnInfo;
+import io.mycat.calcite.MycatCalciteSupport;
+import io.mycat.calcite.logical.MycatView;
+import io.mycat.calcite.rewriter.Distribution;
+import io.mycat.calcite.table.LogicTable;
+import io.mycat.calcite.table.NormalTable;
+import org.apache.calcite.rel.RelNode;
+import org.apache.calcite.rel.core.JoinRelType;
+import org.apache.calcite.rel.type.RelDataType;
+import org.apache.calcite.sql.type.SqlTypeName;
+import org.apache.calcite.tools.RelBuilder;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.sql.JDBCType;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+public class PlanCacheImplTest {
+    private final RelBuilder relBuilder = MycatCalciteSupport.relBuilderFactory.create(DrdsRunner.newCluster(), null);
+    private final PlanCacheImpl planCache = new PlanCacheImpl();
+
+    private final NormalTable travelrecord = table("db1", "travelrecord");
+    private final NormalTable company = table("db1", "company");
+    private final NormalTable other = table("db2", "travelrecord");
+
+    private static NormalTable table(String schemaName, String tableName) {
+        List<SimpleColumnInfo> columns = Collections.singletonList(
+                new SimpleColumnInfo("id", 0, 0, JDBCType.BIGINT, false, false, true, false, 0));
+        return (NormalTable) LogicTable.createNormalTable(schemaName, tableName,
+                new BackendTableInfo("c0", schemaName, tableName), columns, Collections.emptyMap(),
+                "create table " + tableName + "(id bigint primary key)");
+    }
+
+    private RelNode scan(String name) {
+        RelDataType rowType = MycatCalciteSupport.TypeFactory.builder().add("id", SqlTypeName.BIGINT).build();
+        return relBuilder.transientScan(name, rowType).build();
+    }
+
+    private RelNode view(NormalTable table) {
+        return MycatView.ofBottom(scan(table.getTableName()), Distribution.of(table));
+    }
+
+    private static Plan plan(RelNode relNode) {
+        return PlanImpl.of(relNode, null, false);
+    }
+
+    private void put(String sql, RelNode relNode) {
+        planCache.put(sql, Collections.emptyList(), plan(relNode));
+        Assert.assertNotNull(planCache.getMinCostPlan(sql, Collections.emptyList()));
+    }
+
+    private boolean cached(String sql) {
+        return planCache.getMinCostPlan(sql, Collections.emptyList()) != null;
+    }
+
+    @Test
+    public void testGetTables() {
+        Assert.assertEquals(Collections.singleton("db1.travelrecord"), PlanCacheImpl.getTables(plan(view(travelrecord))));
+        RelNode join = relBuilder.push(view(travelrecord)).push(view(company))
+                .join(JoinRelType.INNER, relBuilder.literal(true)).build();
+        Assert.assertEquals(new HashSet<>(Arrays.asList("db1.travelrecord", "db1.company")),
+                PlanCacheImpl.getTables(plan(join)));
+        //没有下推到MycatView的表扫描不能确定引用了哪些表
+        Assert.assertNull(PlanCacheImpl.getTables(plan(scan("travelrecord"))));
+    }
+
+    @Test
+    public void testInvalidateOnlyReferencingPlans() {
+        put("select * from db1.travelrecord", view(travelrecord));
+        put("select * from db1.company", view(company));
+        put("select * from db2.travelrecord", view(other));
+        put("select * from db1.travelrecord join db1.company", relBuilder.push(view(travelrecord)).push(view(company))
+                .join(JoinRelType.INNER, relBuilder.literal(true)).build());
+        put("select * from unknown", scan("unknown"));
+
+        planCache.invalidate("db1", "travelrecord");
+        Assert.assertFalse(cached("select * from db1.travelrecord"));
+        Assert.assertFalse(cached("select * from db1.travelrecord join db1.company"));
+        Assert.assertFalse(cached("select * from unknown"));
+        //其他表以及其他schema的同名表的计划不受影响
+        Assert.assertTrue(cached("select * from db1.company"));
+        Assert.assertTrue(cached("select * from db2.travelrecord"));
+    }
+
+    @Test
+    public void testInvalidateNormalizeName() {
+        put("select * from db1.company", view(company));
+        put("select * from db2.travelrecord", view(other));
+        planCache.invalidate("`DB1`", "Company");
+        Assert.assertFalse(cached("select * from db1.company"));
+        Assert.assertTrue(cached("select * from db2.travelrecord"));
+    }
+}
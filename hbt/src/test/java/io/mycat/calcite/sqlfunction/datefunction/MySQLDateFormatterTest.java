@@ -0,0 +1,36 @@
+package io.mycat.calcite.sqlfunction.datefunction;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Locale;
+
+public class MySQLDateFormatterTest {
+
+    private static String format(String date, String format) {
+        return MySQLDateFormatter.compile(format, Locale.US).format(LocalDate.parse(date));
+    }
+
+    @Test
+    public void testWeek() {
+        //与MySQL的DATE_FORMAT结果对照
+        Assert.assertEquals("00 00 52 53 1998 1998", format("1999-01-01", "%U %u %V %v %X %x"));
+        Assert.assertEquals("01 00 01 53 2021 2020", format("2021-01-03", "%U %u %V %v %X %x"));
+        Assert.assertEquals("01 01 01 01 2021 2021", format("2021-01-04", "%U %u %V %v %X %x"));
+        Assert.assertEquals("52 53 52 01 2024 2025", format("2024-12-30", "%U %u %V %v %X %x"));
+    }
+
+    @Test
+    public void testMicroSecond() {
+        String s = MySQLDateFormatter.compile("%H:%i:%s.%f", Locale.US)
+                .format(LocalDateTime.of(2021, 1, 1, 13, 5, 9, 4000));
+        Assert.assertEquals("13:05:09.000004", s);
+    }
+
+    @Test
+    public void testText() {
+        Assert.assertEquals("Friday 1st January 21", format("2021-01-01", "%W %D %M %y"));
+    }
+}
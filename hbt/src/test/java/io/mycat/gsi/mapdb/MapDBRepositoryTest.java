@@ -0,0 +1,117 @@
+package io.mycat.gsi.mapdb;
+
+import io.mycat.BackendTableInfo;
+import io.mycat.IndexInfo;
+import io.mycat.SimpleColumnInfo;
+import io.mycat.gsi.GSIService.RowIndexValues;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mapdb.DBMaker;
+
+import java.sql.JDBCType;
+import java.util.*;
+
+public class MapDBRepositoryTest {
+    private MapDBRepository repository;
+    private SimpleColumnInfo id;
+    private SimpleColumnInfo phone;
+    private IndexStorage storage;
+    private Map<String, IndexInfo> indexes;
+
+    @Before
+    public void setUp() {
+        repository = new MapDBRepository(DBMaker.memoryDB().transactionEnable().make(), null);
+        id = new SimpleColumnInfo("id", 0, 0, JDBCType.BIGINT, false, false, true, true, 0);
+        phone = new SimpleColumnInfo("phone", 0, 0, JDBCType.VARCHAR, true, false, false, true, 1);
+        IndexInfo indexInfo = new IndexInfo("db1", "travelrecord", "idx_phone",
+                new SimpleColumnInfo[]{null, phone}, new SimpleColumnInfo[]{null, null}, null);
+        indexes = Collections.singletonMap("idx_phone", indexInfo);
+        storage = repository.addIndex(indexInfo, new SimpleColumnInfo[]{id});
+        repository.putIfAbsent(storage, new SimpleColumnInfo[]{id, phone},
+                Arrays.asList(Arrays.asList(1L, "a"), Arrays.asList(2L, "b")), "c0");
+    }
+
+    private Set<String> dataNodes(String value) {
+        Set<String> res = new HashSet<>();
+        for (RowIndexValues rowIndexValues : storage.getByPrefix(value)) {
+            res.addAll(rowIndexValues.getDataNodeKeyList());
+        }
+        return res;
+    }
+
+    /**
+     * 更新语句按删除旧行加插入新行维护索引
+     */
+    private void updatePhone(String txId, long primaryKey, String oldPhone, String newPhone, String dataNode) {
+        SimpleColumnInfo[] columns = {id, phone};
+        repository.beginWrite(txId, "db1", "travelrecord");
+        repository.change(txId, "db1", "travelrecord", indexes, Collections.singletonList(primaryKey),
+                columns, Arrays.asList(primaryKey, oldPhone), dataNode, true);
+        repository.change(txId, "db1", "travelrecord", indexes, Collections.singletonList(primaryKey),
+                columns, Arrays.asList(primaryKey, newPhone), dataNode, false);
+    }
+
+    @Test
+    public void testNewIndexIsNotBuilt() {
+        Assert.assertFalse(storage.isBuilt());
+        Assert.assertEquals(Collections.singleton("c0"), dataNodes("A "));
+        Assert.assertTrue(dataNodes("c").isEmpty());
+    }
+
+    @Test
+    public void testBackfillAddsMissingEntries() {
+        updatePhone("tx", 1L, "a", "x", "c0");
+        repository.putIfAbsent(storage, new SimpleColumnInfo[]{id, phone},
+                Collections.singletonList(Arrays.asList(3L, "x")), "c1");
+        Assert.assertEquals(new HashSet<>(Arrays.asList("c0", "c1")), dataNodes("x"));
+    }
+
+    @Test
+    public void testUpdateInsertsNowAndDeletesOnCommit() {
+        updatePhone("tx", 1L, "a", "c", "c0");
+        Assert.assertFalse(repository.isAvailable("db1", "travelrecord"));
+        //新值写入后可见,旧值提交后才删除
+        repository.awaitWrites();
+        Assert.assertEquals(Collections.singleton("c0"), dataNodes("c"));
+        Assert.assertEquals(Collections.singleton("c0"), dataNodes("a"));
+
+        //语句结束后即使事务没有提交,索引也恢复用于路由
+        repository.afterStatement("tx");
+        Assert.assertTrue(repository.isAvailable("db1", "travelrecord"));
+
+        repository.commit("tx");
+        repository.awaitWrites();
+        Assert.assertTrue(dataNodes("a").isEmpty());
+        Assert.assertEquals(Collections.singleton("c0"), dataNodes("c"));
+    }
+
+    @Test
+    public void testRollbackOnlyKeepsExtraEntries() {
+        updatePhone("tx", 2L, "b", "d", "c0");
+        repository.rollback("tx");
+        repository.awaitWrites();
+        Assert.assertTrue(repository.isAvailable("db1", "travelrecord"));
+        Assert.assertEquals(Collections.singleton("c0"), dataNodes("b"));
+        Assert.assertEquals(Collections.singleton("c0"), dataNodes("d"));
+    }
+
+    @Test
+    public void testRewriteSameKeyIsNotDeleted() {
+        updatePhone("tx", 1L, "a", "A", "c0");
+        repository.commit("tx");
+        repository.awaitWrites();
+        Assert.assertEquals(Collections.singleton("c0"), dataNodes("a"));
+    }
+
+    @Test
+    public void testBuildSql() {
+        SimpleColumnInfo[] columns = MapDBRepository.getBuildColumns(storage);
+        Assert.assertArrayEquals(new SimpleColumnInfo[]{id, phone}, columns);
+        BackendTableInfo dataNode = new BackendTableInfo("c0", "db1_0", "travelrecord_0");
+        Assert.assertEquals("select `id`,`phone` from `db1_0`.`travelrecord_0` order by `id` limit 10000",
+                MapDBRepository.getBuildSql(columns, 1, dataNode, null));
+        Assert.assertEquals("select `id`,`phone` from `db1_0`.`travelrecord_0` where (`id`) > (10) order by `id` limit 10000",
+                MapDBRepository.getBuildSql(columns, 1, dataNode, Collections.singletonList(10L)));
+    }
+}
@@ -0,0 +1,95 @@
+package org.apache.calcite.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+public class LoserTreeTest {
+
+    private static <T> List<T> toList(Iterator<T> iterator) {
+        List<T> list = new ArrayList<>();
+        iterator.forEachRemaining(list::add);
+        return list;
+    }
+
+    @Test
+    public void testMerge() {
+        List<Iterator<Integer>> iterators = Arrays.asList(
+                Arrays.asList(1, 4, 7, 10).iterator(),
+                Collections.<Integer>emptyIterator(),
+                Arrays.asList(2, 3, 8).iterator(),
+                Arrays.asList(5, 6, 9, 11, 12).iterator());
+        Assert.assertEquals(Arrays.asList(1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12),
+                toList(LoserTree.mergeSorted(iterators, Comparator.<Integer>naturalOrder())));
+    }
+
+    @Test
+    public void testEmpty() {
+        Assert.assertFalse(LoserTree.mergeSorted(Collections.<Iterator<Integer>>emptyList(),
+                Comparator.<Integer>naturalOrder()).hasNext());
+        Iterator<Integer> iterator = LoserTree.mergeSorted(Arrays.asList(
+                Collections.<Integer>emptyIterator(),
+                Collections.<Integer>emptyIterator()), Comparator.<Integer>naturalOrder());
+        Assert.assertFalse(iterator.hasNext());
+        try {
+            iterator.next();
+            Assert.fail();
+        } catch (NoSuchElementException ignored) {
+
+        }
+    }
+
+    @Test
+    public void testSingle() {
+        Assert.assertEquals(Arrays.asList(1, 2, 3),
+                toList(LoserTree.mergeSorted(Collections.singletonList(Arrays.asList(1, 2, 3).iterator()),
+                        Comparator.<Integer>naturalOrder())));
+    }
+
+    @Test
+    public void testEqualKeysKeepShardOrder() {
+        //{key,分片下标},key相同时分片下标小的先输出
+        List<Iterator<int[]>> iterators = new ArrayList<>();
+        for (int shard = 0; shard < 5; shard++) {
+            iterators.add(Arrays.asList(new int[]{1, shard}, new int[]{2, shard}).iterator());
+        }
+        List<int[]> res = toList(LoserTree.mergeSorted(iterators, Comparator.comparingInt(i -> i[0])));
+        Assert.assertEquals(10, res.size());
+        for (int i = 0; i < res.size(); i++) {
+            Assert.assertEquals(i / 5 + 1, res.get(i)[0]);
+            Assert.assertEquals(i % 5, res.get(i)[1]);
+        }
+    }
+
+    @Test
+    public void testAdjust() {
+        LoserTree<Integer> loserTree = new LoserTree<>(3, Comparator.naturalOrder());
+        loserTree.set(0, 5);
+        loserTree.set(1, 3);
+        loserTree.exhaust(2);
+        loserTree.build();
+        Assert.assertEquals(1, loserTree.winner());
+        loserTree.set(1, 9);
+        loserTree.adjust(1);
+        Assert.assertEquals(0, loserTree.winner());
+        Assert.assertEquals(5, loserTree.key(0).intValue());
+        loserTree.exhaust(0);
+        loserTree.adjust(0);
+        Assert.assertEquals(1, loserTree.winner());
+        loserTree.exhaust(1);
+        loserTree.adjust(1);
+        Assert.assertEquals(-1, loserTree.winner());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidSize() {
+        new LoserTree<Integer>(0, Comparator.naturalOrder());
+    }
+}
@@ -0,0 +1,152 @@
+package org.apache.calcite.util;
+
+import io.reactivex.rxjava3.core.Observable;
+import io.reactivex.rxjava3.core.ObservableSource;
+import io.reactivex.rxjava3.core.Observer;
+import io.reactivex.rxjava3.disposables.Disposable;
+import io.reactivex.rxjava3.observers.TestObserver;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+public class MergeSortObservableTest {
+
+    /**
+     * 手动发出数据的分片,记录是否被取消
+     */
+    static final class ManualSource implements ObservableSource<Integer> {
+        Observer<? super Integer> observer;
+        final Disposable disposable = Disposable.empty();
+
+        @Override
+        public void subscribe(Observer<? super Integer> observer) {
+            this.observer = observer;
+            observer.onSubscribe(disposable);
+        }
+
+        void emit(Integer... values) {
+            for (Integer value : values) {
+                observer.onNext(value);
+            }
+        }
+    }
+
+    private static Observable<Integer> merge(List<? extends ObservableSource<Integer>> sources, long skip, long limit) {
+        return new MergeSortObservable<>(sources, Comparator.<Integer>naturalOrder(), skip, limit);
+    }
+
+    @Test
+    public void testMerge() {
+        merge(Arrays.asList(
+                Observable.fromIterable(Arrays.asList(1, 4, 7)),
+                Observable.<Integer>empty(),
+                Observable.fromIterable(Arrays.asList(2, 3, 8, 9)),
+                Observable.fromIterable(Arrays.asList(5, 6))), 0, -1)
+                .test()
+                .assertValues(1, 2, 3, 4, 5, 6, 7, 8, 9)
+                .assertComplete();
+    }
+
+    @Test
+    public void testEmptyAndExhausted() {
+        merge(Collections.<ObservableSource<Integer>>emptyList(), 0, -1)
+                .test()
+                .assertNoValues()
+                .assertComplete();
+        merge(Arrays.asList(Observable.<Integer>empty(), Observable.<Integer>empty()), 0, -1)
+                .test()
+                .assertNoValues()
+                .assertComplete();
+        merge(Collections.singletonList(Observable.fromIterable(Arrays.asList(1, 2))), 0, 0)
+                .test()
+                .assertNoValues()
+                .assertComplete();
+    }
+
+    @Test
+    public void testSkipLimit() {
+        merge(Arrays.asList(
+                Observable.fromIterable(Arrays.asList(1, 3, 5, 7)),
+                Observable.fromIterable(Arrays.asList(2, 4, 6, 8))), 2, 3)
+                .test()
+                .assertValues(3, 4, 5)
+                .assertComplete();
+    }
+
+    @Test
+    public void testEqualKeysAcrossShards() {
+        //{key,分片下标},key相同时分片下标小的先输出
+        List<Observable<int[]>> sources = Arrays.asList(
+                Observable.fromIterable(Arrays.asList(new int[]{1, 0}, new int[]{2, 0})),
+                Observable.fromIterable(Arrays.asList(new int[]{1, 1}, new int[]{2, 1})),
+                Observable.fromIterable(Arrays.asList(new int[]{1, 2}, new int[]{2, 2})));
+        List<int[]> values = new MergeSortObservable<>(sources, Comparator.<int[]>comparingInt(i -> i[0]), 0, -1)
+                .test()
+                .assertComplete()
+                .values();
+        Assert.assertEquals(6, values.size());
+        for (int i = 0; i < values.size(); i++) {
+            Assert.assertEquals(i / 3 + 1, values.get(i)[0]);
+            Assert.assertEquals(i % 3, values.get(i)[1]);
+        }
+    }
+
+    @Test
+    public void testWaitForSlowShard() {
+        ManualSource s0 = new ManualSource();
+        ManualSource s1 = new ManualSource();
+        TestObserver<Integer> test = merge(Arrays.asList(s0, s1), 0, -1).test();
+        s0.emit(1, 3);
+        //另一个分片的第一行还没到,不能输出
+        test.assertNoValues();
+        s1.emit(2);
+        test.assertValues(1, 2);
+        s1.observer.onComplete();
+        test.assertValues(1, 2, 3).assertNotComplete();
+        s0.observer.onComplete();
+        test.assertValues(1, 2, 3).assertComplete();
+    }
+
+    @Test
+    public void testErrorPropagation() {
+        ManualSource s0 = new ManualSource();
+        RuntimeException exception = new RuntimeException("shard fail");
+        TestObserver<Integer> test = merge(Arrays.asList(s0, Observable.<Integer>error(exception)), 0, -1).test();
+        test.assertError(exception).assertNoValues();
+        //出错后取消其他分片
+        Assert.assertTrue(s0.disposable.isDisposed());
+    }
+
+    @Test
+    public void testDisposeMidStream() {
+        ManualSource s0 = new ManualSource();
+        ManualSource s1 = new ManualSource();
+        TestObserver<Integer> test = merge(Arrays.asList(s0, s1), 0, -1).test();
+        s0.emit(1, 2);
+        s1.emit(3);
+        test.assertValues(1, 2);
+        test.dispose();
+        Assert.assertTrue(s0.disposable.isDisposed());
+        Assert.assertTrue(s1.disposable.isDisposed());
+        s0.emit(4);
+        s0.observer.onComplete();
+        s1.observer.onComplete();
+        test.assertValues(1, 2).assertNotComplete();
+    }
+
+    @Test
+    public void testLimitCancelsShards() {
+        ManualSource s0 = new ManualSource();
+        ManualSource s1 = new ManualSource();
+        TestObserver<Integer> test = merge(Arrays.asList(s0, s1), 0, 2).test();
+        s0.emit(1, 2, 5);
+        s1.emit(3);
+        test.assertValues(1, 2).assertComplete();
+        Assert.assertTrue(s0.disposable.isDisposed());
+        Assert.assertTrue(s1.disposable.isDisposed());
+    }
+}
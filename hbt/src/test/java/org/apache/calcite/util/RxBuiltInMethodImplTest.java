@@ -0,0 +1,100 @@
+package org.apache.calcite.util;
+
+import io.mycat.api.collector.RowBatch;
+import io.mycat.api.collector.RowBatch.ColumnType;
+import io.reactivex.rxjava3.core.Observable;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class RxBuiltInMethodImplTest {
+    private static final ColumnType[] TYPES = {ColumnType.BIGINT, ColumnType.DOUBLE, ColumnType.OBJECT};
+
+    private static List<Object[]> rows(int count) {
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            rows.add(new Object[]{i % 7 == 0 ? null : (long) i, i % 5 == 0 ? null : i * 0.5, "name" + i});
+        }
+        return rows;
+    }
+
+    @Test
+    public void testBatchReuse() {
+        List<RowBatch> batches = new ArrayList<>();
+        List<Integer> sizes = new ArrayList<>();
+        RxBuiltInMethodImpl.batch(Observable.fromIterable(rows(250)), TYPES, 100)
+                .subscribe(batch -> {
+                    batches.add(batch);
+                    sizes.add(batch.getSize());
+                });
+        Assert.assertEquals(3, batches.size());
+        Assert.assertEquals(Arrays.asList(100, 100, 50), sizes);
+        //每个订阅只用一个批次
+        Assert.assertSame(batches.get(0), batches.get(2));
+        //发出之后已经清空
+        Assert.assertEquals(0, batches.get(0).getSize());
+    }
+
+    @Test
+    public void testBatchUnbatch() {
+        List<Object[]> rows = rows(300);
+        List<Object[]> result = RxBuiltInMethodImpl.unbatch(
+                RxBuiltInMethodImpl.batch(Observable.fromIterable(rows), TYPES, 64))
+                .toList().blockingGet();
+        Assert.assertEquals(rows.size(), result.size());
+        for (int i = 0; i < rows.size(); i++) {
+            Assert.assertArrayEquals(rows.get(i), result.get(i));
+        }
+    }
+
+    @Test
+    public void testColumnTypes() {
+        ColumnType[] types = {ColumnType.BOOLEAN, ColumnType.TINYINT, ColumnType.SMALLINT, ColumnType.INTEGER, ColumnType.FLOAT};
+        RowBatch batch = new RowBatch(types, 4);
+        //行里的整数都是Long,取出时按列的类型装箱
+        batch.addRow(new Object[]{true, 1L, 2L, 3L, 1.5});
+        batch.addRow(new Object[]{0L, null, null, null, null});
+        Assert.assertArrayEquals(new Object[]{true, (byte) 1, (short) 2, 3, 1.5f}, batch.getRow(0));
+        Assert.assertArrayEquals(new Object[]{false, null, null, null, null}, batch.getRow(1));
+        batch.clear();
+        batch.addRow(new Object[]{null, 4L, 5L, 6L, 2.5});
+        Assert.assertArrayEquals(new Object[]{null, (byte) 4, (short) 5, 6, 2.5f}, batch.getRow(0));
+    }
+
+    @Test
+    public void testCalcBatch() {
+        //保留第一列为偶数的行,输出第一列的两倍
+        List<Object[]> result = RxBuiltInMethodImpl.unbatch(RxBuiltInMethodImpl.calcBatch(
+                RxBuiltInMethodImpl.batch(Observable.fromIterable(rows(200)), TYPES, 64),
+                new ColumnType[]{ColumnType.BIGINT},
+                (input, output) -> {
+                    long[] values = input.getLongs(0);
+                    long[] nulls = input.getNulls(0);
+                    long[] outputValues = output.getLongs(0);
+                    for (int i = 0; i < input.getSize(); i++) {
+                        if (!RowBatch.isNull(nulls, i) && values[i] % 2 == 0) {
+                            outputValues[output.addRow()] = values[i] * 2;
+                        }
+                    }
+                    return output;
+                })).toList().blockingGet();
+        List<Object[]> expected = new ArrayList<>();
+        for (Object[] row : rows(200)) {
+            if (row[0] != null && (Long) row[0] % 2 == 0) {
+                expected.add(new Object[]{(Long) row[0] * 2});
+            }
+        }
+        Assert.assertEquals(expected.size(), result.size());
+        for (int i = 0; i < expected.size(); i++) {
+            Assert.assertArrayEquals(expected.get(i), result.get(i));
+        }
+        //没有行满足条件时不发出空的批次
+        Assert.assertEquals(Collections.emptyList(), RxBuiltInMethodImpl.calcBatch(
+                RxBuiltInMethodImpl.batch(Observable.fromIterable(rows(10)), TYPES, 4),
+                TYPES, (input, output) -> output).toList().blockingGet());
+    }
+}
@@ -33,7 +33,22 @@ public  abstract class MycatDatasourcePool {
 
     public abstract Integer getAvailableNumber();
     public abstract Integer getUsedNumber();
+
+    /**
+     * 本连接池对象借出还没有归还的连接数,关闭前需要等它归零
+     * 共享底层连接池的实现关闭时不释放连接,返回0
+     */
+    public int getBorrowedNumber() {
+        return 0;
+    }
     public String getTargetName() {
         return targetName;
     }
+
+    /**
+     * 释放连接池自己持有的资源,已借出的连接由使用者关闭
+     */
+    public Future<Void> close() {
+        return Future.succeededFuture();
+    }
 }
@@ -51,6 +51,16 @@ public class MycatMySQLManagerImpl extends AbstractMySQLManagerImpl {
                                 .recover(throwable -> Future.succeededFuture(new JdbcDatasourcePoolImpl(name))));
                         break;
                     }
+                    if ("mysql".equalsIgnoreCase(datasource.getDbType())) {
+                        VertxMySQLDatasourcePoolImpl vertxDatasourcePool = new VertxMySQLDatasourcePoolImpl(datasource);
+                        futureList.add(vertxDatasourcePool.getConnection()
+                                .flatMap(c -> c.close().map((MycatDatasourcePool) vertxDatasourcePool))
+                                .recover(throwable -> {
+                                    vertxDatasourcePool.close();
+                                    return Future.succeededFuture(new JdbcDatasourcePoolImpl(name));
+                                }));
+                        break;
+                    }
                 case JDBC:
                     hashMap.put(name, new JdbcDatasourcePoolImpl(name));
                     break;
@@ -77,6 +87,25 @@ public class MycatMySQLManagerImpl extends AbstractMySQLManagerImpl {
         return map.get(targetName).getUsedNumber();
     }
 
+    @Override
+    public int getAvailableNumber(String targetName) {
+        MycatDatasourcePool pool = map.get(targetName);
+        if (pool == null) {
+            return -1;
+        }
+        Integer n = pool.getAvailableNumber();
+        return n == null ? -1 : Math.max(0, n);
+    }
+
+    @Override
+    public int getInUseNumber() {
+        int count = 0;
+        for (MycatDatasourcePool pool : map.values()) {
+            count += pool.getBorrowedNumber();
+        }
+        return count;
+    }
+
     @Override
     public Future<Map<String, SqlConnection>> getConnectionMap() {
         return getMapFuture(map.keySet());
@@ -84,7 +113,11 @@ public class MycatMySQLManagerImpl extends AbstractMySQLManagerImpl {
 
     @Override
     public Future<Void> close() {
-        return Future.succeededFuture();
+        List<Future> closeFutures = new ArrayList<>();
+        for (MycatDatasourcePool pool : map.values()) {
+            closeFutures.add(pool.close());
+        }
+        return CompositeFuture.all(closeFutures).mapEmpty();
     }
 
     @Override
@@ -19,7 +19,9 @@ import io.mycat.*;
 import io.mycat.api.collector.MySQLColumnDef;
 import io.mycat.api.collector.MysqlPayloadObject;
 import io.mycat.api.collector.MysqlRow;
+import io.mycat.api.collector.RowBatch;
 import io.mycat.beans.mycat.MycatRowMetaData;
+import io.mycat.gsi.GSITransactions;
 import io.mycat.proxy.session.MySQLServerSession;
 import io.mycat.util.VertxUtil;
 import io.mycat.vertx.ResultSetMapping;
@@ -107,6 +109,7 @@ public class ReceiverImpl implements Response {
         count++;
         boolean hasMoreResultSet = hasMoreResultSet();
        return transactionSession.rollback()
+               .onComplete(u -> GSITransactions.rollback(transactionSession))
                .eventually((u)-> transactionSession.closeStatementState())
                 .flatMap(u->session.writeOk(hasMoreResultSet));
     }
@@ -124,7 +127,15 @@ public class ReceiverImpl implements Response {
     public Future<Void> commit() {
         count++;
         boolean moreResultSet = hasMoreResultSet();
-        return transactionSession.commit().eventually((u)->transactionSession.closeStatementState())
+        return transactionSession.commit()
+                .onComplete(u -> {
+                    if (u.succeeded()) {
+                        GSITransactions.commit(transactionSession);
+                    } else {
+                        GSITransactions.rollback(transactionSession);
+                    }
+                })
+                .eventually((u)->transactionSession.closeStatementState())
                 .flatMap(u->session.writeOk(moreResultSet));
     }
 
@@ -208,6 +219,7 @@ public class ReceiverImpl implements Response {
         private MySQLServerSession session;
         private Disposable disposable;
         Function<Object[], byte[]> convertor;
+        ResultSetMapping.RowBatchConvertor batchConvertor;
 
         public MysqlPayloadObjectObserver(PromiseInternal<Void> promise,
                                           boolean moreResultSet,boolean binary, MySQLServerSession session) {
@@ -226,13 +238,22 @@ public class ReceiverImpl implements Response {
         public void onNext(@NonNull MysqlPayloadObject next) {
             if (next instanceof MysqlRow) {
                 session.writeBytes(this.convertor.apply(((MysqlRow) next).getRow()), false);
+            } else if (next instanceof RowBatch) {
+                //批次在onNext返回之后会被复用,这里同步写完
+                RowBatch batch = (RowBatch) next;
+                int size = batch.getSize();
+                for (int i = 0; i < size; i++) {
+                    session.writeBytes(this.batchConvertor.apply(batch, i), false);
+                }
             } else if (next instanceof MySQLColumnDef) {
                 MycatRowMetaData rowMetaData = ((MySQLColumnDef) next).getMetaData();
                 session.writeColumnCount(rowMetaData.getColumnCount());
                 if (!binary) {
                     convertor = ResultSetMapping.concertToDirectTextResultSet(rowMetaData);
+                    batchConvertor = ResultSetMapping.concertToDirectTextRowBatch(rowMetaData);
                 } else {
                     convertor = ResultSetMapping.concertToDirectBinaryResultSet(rowMetaData);
+                    batchConvertor = ResultSetMapping.concertToDirectBinaryRowBatch(rowMetaData);
                 }
                 Iterator<byte[]> columnIterator = MySQLPacketUtil.generateAllColumnDefPayload(rowMetaData).iterator();
                 while (columnIterator.hasNext()) {
@@ -0,0 +1,212 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mycat.commands;
+
+import com.mysql.cj.conf.ConnectionUrlParser;
+import com.mysql.cj.conf.HostInfo;
+import io.mycat.MetaClusterCurrent;
+import io.mycat.MycatException;
+import io.mycat.config.DatasourceConfig;
+import io.mycat.replica.PhysicsInstance;
+import io.mycat.replica.ReplicaSelector;
+import io.mycat.replica.ReplicaSelectorManager;
+import io.mycat.vertxmycat.VertxMySqlConnection;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.mysqlclient.MySQLAuthenticationPlugin;
+import io.vertx.mysqlclient.MySQLConnectOptions;
+import io.vertx.mysqlclient.MySQLConnection;
+import io.vertx.mysqlclient.MySQLPool;
+import io.vertx.sqlclient.PoolOptions;
+import io.vertx.sqlclient.SqlConnection;
+import io.vertx.sqlclient.spi.DatabaseMetadata;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 基于vertx mysql客户端的非阻塞连接池,查询不占用线程
+ */
+public class VertxMySQLDatasourcePoolImpl extends MycatDatasourcePool {
+    private static final Logger LOGGER = LoggerFactory.getLogger(VertxMySQLDatasourcePoolImpl.class);
+    private static final long MAX_WAIT = TimeUnit.SECONDS.toMillis(60);
+    private final DatasourceConfig config;
+    private final Vertx vertx;
+    private final MySQLPool pool;
+    private final MySQLConnectOptions connectOptions;
+    /**
+     * 物理连接的后端线程id,每个物理连接只查询一次.
+     * 借出的SqlConnection每次都是新包装,握手时创建的DatabaseMetadata才与物理连接一一对应,
+     * 物理连接被回收后条目随之清除
+     */
+    private final Map<DatabaseMetadata, Long> connectionIds = Collections.synchronizedMap(new WeakHashMap<>());
+    private final AtomicInteger usedCounter = new AtomicInteger(0);
+    private final long healthCheckTimerId;
+    private volatile boolean alive = true;
+
+    public VertxMySQLDatasourcePoolImpl(DatasourceConfig config) {
+        super(config.getName());
+        this.config = config;
+        this.vertx = MetaClusterCurrent.wrapper(Vertx.class);
+        ConnectionUrlParser connectionUrlParser = ConnectionUrlParser.parseConnectionString(config.getUrl());
+        HostInfo hostInfo = connectionUrlParser.getHosts().get(0);
+        MySQLConnectOptions connectOptions = new MySQLConnectOptions()
+                .setHost(hostInfo.getHost())
+                .setPort(hostInfo.getPort())
+                .setUser(config.getUser())
+                .setPassword(config.getPassword())
+                .setUseAffectedRows(true)
+                .setCachePreparedStatements(true)
+                .setAuthenticationPlugin(MySQLAuthenticationPlugin.MYSQL_NATIVE_PASSWORD);
+        String database = connectionUrlParser.getPath();
+        if (database != null && !database.isEmpty()) {
+            connectOptions.setDatabase(database);
+        }
+        connectOptions.setConnectTimeout((int) config.getMaxConnectTimeout());
+        connectOptions.setReconnectAttempts(config.getMaxRetryCount());
+        PoolOptions poolOptions = new PoolOptions()
+                .setMaxSize(config.getMaxCon());
+        this.connectOptions = connectOptions;
+        this.pool = MySQLPool.pool(vertx, connectOptions, poolOptions);
+        long period = Math.max(config.getIdleTimeout() / 2, TimeUnit.SECONDS.toMillis(1));
+        this.healthCheckTimerId = vertx.setPeriodic(period, id -> healthCheck());
+    }
+
+    @Override
+    public Future<SqlConnection> getConnection() {
+        Promise<SqlConnection> promise = Promise.promise();
+        long timerId = vertx.setTimer(MAX_WAIT, id -> promise.tryFail(new MycatException("get connection timeout:" + targetName)));
+        pool.getConnection()
+                .flatMap(this::initConnection)
+                .flatMap(connection -> connectionId(connection)
+                        .map(id -> new VertxMySqlConnection(vertx, MySQLConnection.cast(connection),
+                                targetName, id, this::kill, usedCounter::decrementAndGet)))
+                .onComplete(event -> {
+                    vertx.cancelTimer(timerId);
+                    if (event.failed()) {
+                        promise.tryFail(event.cause());
+                        return;
+                    }
+                    usedCounter.incrementAndGet();
+                    VertxMySqlConnection connection = event.result();
+                    if (!promise.tryComplete(connection)) {
+                        connection.close();
+                    }
+                });
+        return promise.future();
+    }
+
+    private Future<SqlConnection> initConnection(SqlConnection connection) {
+        List<String> initSqls = config.getInitSqls();
+        if (!config.isInitSqlsGetConnection() || initSqls.isEmpty()) {
+            return Future.succeededFuture(connection);
+        }
+        Future<Void> future = Future.succeededFuture();
+        for (String initSql : initSqls) {
+            future = future.flatMap(unused -> connection.query(initSql).execute().mapEmpty());
+        }
+        return future.map(connection).onFailure(throwable -> connection.close());
+    }
+
+    private Future<Long> connectionId(SqlConnection connection) {
+        DatabaseMetadata metadata = connection.databaseMetadata();
+        Long id = connectionIds.get(metadata);
+        if (id != null) {
+            return Future.succeededFuture(id);
+        }
+        return connection.query("SELECT CONNECTION_ID()").execute()
+                .map(rows -> {
+                    long res = rows.iterator().next().getLong(0);
+                    connectionIds.put(metadata, res);
+                    return res;
+                })
+                .onFailure(throwable -> connection.close());
+    }
+
+    /**
+     * 用单独的非池化连接KILL后端连接,连接池耗尽时也不需要等待空闲连接
+     */
+    private Future<Void> kill(long connectionId) {
+        return MySQLConnection.connect(vertx, connectOptions)
+                .flatMap(connection -> connection.query("KILL " + connectionId).execute()
+                        .<Void>mapEmpty()
+                        .eventually(unused -> connection.close()));
+    }
+
+    private void healthCheck() {
+        pool.query("select 1").execute(event -> {
+            boolean success = event.succeeded();
+            if (alive != success) {
+                if (success) {
+                    LOGGER.info("datasource:{} is alive", targetName);
+                } else {
+                    LOGGER.error("datasource:{} health check fail", targetName, event.cause());
+                }
+                alive = success;
+                notifyChangeAlive(success);
+            }
+        });
+    }
+
+    /**
+     * 健康状态变化同步到集群的数据源实例,读写选择据此跳过不可用的数据源
+     */
+    private void notifyChangeAlive(boolean success) {
+        if (!MetaClusterCurrent.exist(ReplicaSelectorManager.class)) {
+            return;
+        }
+        ReplicaSelectorManager replicaSelectorManager = MetaClusterCurrent.wrapper(ReplicaSelectorManager.class);
+        for (ReplicaSelector replicaSelector : replicaSelectorManager.getReplicaMap().values()) {
+            PhysicsInstance physicsInstance = replicaSelector.getRawDataSourceMap().get(targetName);
+            if (physicsInstance != null) {
+                physicsInstance.notifyChangeAlive(success);
+            }
+        }
+    }
+
+    public boolean isAlive() {
+        return alive;
+    }
+
+    @Override
+    public Integer getAvailableNumber() {
+        return config.getMaxCon() - usedCounter.get();
+    }
+
+    @Override
+    public Integer getUsedNumber() {
+        return usedCounter.get();
+    }
+
+    @Override
+    public int getBorrowedNumber() {
+        return usedCounter.get();
+    }
+
+    @Override
+    public Future<Void> close() {
+        vertx.cancelTimer(healthCheckTimerId);
+        return pool.close();
+    }
+}
@@ -22,6 +22,7 @@ import cn.mycat.vertx.xa.impl.XaLogImpl;
 import com.mysql.cj.conf.ConnectionUrlParser;
 import com.mysql.cj.conf.HostInfo;
 import io.mycat.*;
+import io.mycat.calcite.plan.QueryResultCache;
 import io.mycat.calcite.spm.Plan;
 import io.mycat.calcite.spm.PlanCache;
 import io.mycat.commands.MycatMySQLManagerImpl;
@@ -38,12 +39,18 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 public class ConfigPrepareExecuter {
     private static final Logger LOGGER = LoggerFactory.getLogger(ConfigPrepareExecuter.class);
+    /**
+     * 旧连接池等待借出的连接归还的最长时间,超过后强制关闭
+     */
+    static final long OLD_MYSQL_MANAGER_MAX_WAIT_MS = TimeUnit.MINUTES.toMillis(10);
+    static final long OLD_MYSQL_MANAGER_CHECK_INTERVAL_MS = 1000;
     private final MycatRouterConfigOps ops;
     ////////////////////////////////////////////////////////////////////////////////////
     private ReplicaSelectorManager replicaSelector;
@@ -103,14 +110,14 @@ public class ConfigPrepareExecuter {
                 break;
             }
             case ROUTER: {
-                this.metadataManager = createMetaData();
+                this.metadataManager = createIncrementalMetaData();
                 clearSqlCache();
                 break;
             }
             case CREATE_TABLE: {
                 String schemaName = ops.getSchemaName();
                 String tableName = ops.getTableName();
-                this.metadataManager = createMetaData();
+                this.metadataManager = createIncrementalMetaData();
                 TableHandler table = this.metadataManager.getTable(schemaName, tableName);
                 table.createPhysicalTables();
                 clearSqlCache();
@@ -121,7 +128,7 @@ public class ConfigPrepareExecuter {
 
                 String schemaName = ops.getSchemaName();
                 String tableName = ops.getTableName();
-                this.metadataManager = createMetaData();
+                this.metadataManager = createIncrementalMetaData();
 
                 TableHandler table = oldMetadataManager.getTable(schemaName, tableName);
                 if (table != null) {
@@ -173,6 +180,20 @@ public class ConfigPrepareExecuter {
                 "prototype");
     }
 
+    /**
+     * 只重新加载本次修改涉及的schema与表,其他表对象、全局变量和连接池都复用当前的
+     */
+    @NotNull
+    private MetadataManager createIncrementalMetaData() {
+        Set<String> changedSchemas = ops.getChangedSchemas();
+        Map<String, Set<String>> changedTables = ops.getChangedTables();
+        if (!MetaClusterCurrent.exist(MetadataManager.class) || (changedSchemas.isEmpty() && changedTables.isEmpty())) {
+            return createMetaData();
+        }
+        return MetadataManager.createIncrementalMetadataManager(MetaClusterCurrent.wrapper(MetadataManager.class),
+                ops.getSchemas(), changedSchemas, changedTables);
+    }
+
     public void fullInitBy(MycatRouterConfig mycatRouterConfig) {
 
         LoadBalanceManager loadBalanceManager = MetaClusterCurrent.wrapper(LoadBalanceManager.class);
@@ -236,16 +257,6 @@ public class ConfigPrepareExecuter {
 
     }
 
-    public enum UpdateType {
-        USER,
-        SEQUENCE,
-        ROUTER,
-        CREATE_TABLE,
-        DROP_TABLE,
-        FULL
-    }
-
-
     public ReplicaSelectorManager getReplicaSelector() {
         return replicaSelector;
     }
@@ -327,16 +338,49 @@ public class ConfigPrepareExecuter {
             context.put(SqlResultSetService.class, sqlResultSetService);
         }
         PlanCache planCache = MetaClusterCurrent.wrapper(PlanCache.class);
-        planCache.clear();
+        UpdateType updateType = ops.getUpdateType();
+        boolean tableChangeOnly = (updateType == UpdateType.CREATE_TABLE || updateType == UpdateType.DROP_TABLE)
+                && ops.getChangedSchemas().isEmpty();
+        if (tableChangeOnly) {
+            //只有表的修改时,只让涉及这些表的计划失效
+            for (Map.Entry<String, Set<String>> entry : ops.getChangedTables().entrySet()) {
+                for (String tableName : entry.getValue()) {
+                    planCache.invalidate(entry.getKey(), tableName);
+                }
+            }
+        } else if (metadataManager != null) {
+            planCache.clear();
+        }
 
-        MySQLManager mySQLManager;
-        context.put(MySQLManager.class, mySQLManager = new MycatMySQLManagerImpl((MycatRouterConfig) context.get(MycatRouterConfig.class)));
+        //数据源和集群没有变化时复用连接池与XA日志
+        boolean rebuildDatasource = replicaSelector != null || jdbcConnectionManager != null
+                || !MetaClusterCurrent.exist(MySQLManager.class);
+        ServerConfig serverConfig = (ServerConfig) context.get(ServerConfig.class);
+        if (rebuildDatasource) {
+            if (MetaClusterCurrent.exist(MySQLManager.class)) {
+                //旧的连接池等正在执行的查询归还连接后再关闭
+                MySQLManager oldMySQLManager = MetaClusterCurrent.wrapper(MySQLManager.class);
+                long deadline = System.currentTimeMillis() + OLD_MYSQL_MANAGER_MAX_WAIT_MS;
+                ScheduleUtil.getTimer().schedule(() -> closeWhenIdle(oldMySQLManager, ScheduleUtil.getTimer(), deadline),
+                        OLD_MYSQL_MANAGER_CHECK_INTERVAL_MS, TimeUnit.MILLISECONDS);
+            }
+            MySQLManager mySQLManager;
+            context.put(MySQLManager.class, mySQLManager = new MycatMySQLManagerImpl((MycatRouterConfig) context.get(MycatRouterConfig.class)));
+            LocalXaMemoryRepositoryImpl localXaMemoryRepository = LocalXaMemoryRepositoryImpl.createLocalXaMemoryRepository(() -> mySQLManager);
+            context.put(XaLog.class, new XaLogImpl(localXaMemoryRepository, serverConfig.getMycatId(), Objects.requireNonNull(mySQLManager)));
+        }
 
         context.put(DrdsRunner.class, new DrdsRunner(() -> ((MetadataManager) context.get(MetadataManager.class)).getSchemaMap(),planCache));
-        ServerConfig serverConfig = (ServerConfig) context.get(ServerConfig.class);
-        LocalXaMemoryRepositoryImpl localXaMemoryRepository = LocalXaMemoryRepositoryImpl.createLocalXaMemoryRepository(() -> mySQLManager);
-        context.put(XaLog.class, new XaLogImpl(localXaMemoryRepository, serverConfig.getMycatId(), Objects.requireNonNull(mySQLManager)));
+        if (serverConfig.getResultCacheTables() == null || serverConfig.getResultCacheTables().isEmpty()) {
+            context.remove(QueryResultCache.class);
+        } else if (rebuildDatasource || !context.containsKey(QueryResultCache.class)) {
+            context.put(QueryResultCache.class, new QueryResultCache(serverConfig.getResultCacheTables(),
+                    serverConfig.getResultCacheSize(), serverConfig.getResultCacheMaxRows()));
+        }
         MetaClusterCurrent.register(context);
+        if (!rebuildDatasource) {
+            return Future.succeededFuture();
+        }
 
         MycatRouterConfig curConfig = MetaClusterCurrent.wrapper(MycatRouterConfig.class);
         boolean allMatchMySQL = curConfig.getDatasources().stream().allMatch(s -> "mysql".equalsIgnoreCase(s.getDbType()));
@@ -347,4 +391,20 @@ public class ConfigPrepareExecuter {
             return Future.succeededFuture();
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * 借出的连接全部归还后关闭连接池,借出数未知时等到deadline
+     */
+    static void closeWhenIdle(MySQLManager mySQLManager, ScheduledExecutorService timer, long deadline) {
+        int inUse = mySQLManager.getInUseNumber();
+        if (inUse == 0 || System.currentTimeMillis() >= deadline) {
+            if (inUse != 0) {
+                LOGGER.warn("close old MySQLManager with {} connections in use", inUse);
+            }
+            mySQLManager.close().onFailure(throwable -> LOGGER.error("close old MySQLManager fail", throwable));
+            return;
+        }
+        timer.schedule(() -> closeWhenIdle(mySQLManager, timer, deadline),
+                OLD_MYSQL_MANAGER_CHECK_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+}
@@ -278,23 +278,24 @@ public class FileMetadataStorageManager extends MetadataStorageManager {
         Path sequences = baseDirectory.resolve("sequences");
         Path sqlcaches = baseDirectory.resolve("sqlcaches");
 
+        //只删除不再存在的配置文件,其他文件内容没有变化时不会重写
         if (routerConfig.isUpdateSchemas()) {
-            cleanDirectory(schemasPath);
+            cleanStaleFiles(schemasPath, routerConfig.getSchemas().stream().map(i -> i.getSchemaName() + ".schema." + suffix));
         }
         if (routerConfig.isUpdateClusters()) {
-            cleanDirectory(clustersPath);
+            cleanStaleFiles(clustersPath, routerConfig.getClusters().stream().map(i -> i.getName() + ".cluster." + suffix));
         }
         if (routerConfig.isUpdateDatasources()) {
-            cleanDirectory(datasources);
+            cleanStaleFiles(datasources, routerConfig.getDatasources().stream().map(i -> i.getName() + ".datasource." + suffix));
         }
         if (routerConfig.isUpdateUsers()) {
-            cleanDirectory(users);
+            cleanStaleFiles(users, routerConfig.getUsers().stream().map(i -> i.getUsername() + ".user." + suffix));
         }
         if (routerConfig.isUpdateSequences()) {
-            cleanDirectory(sequences);
+            cleanStaleFiles(sequences, routerConfig.getSequences().stream().map(i -> i.getName() + ".sequence." + suffix));
         }
         if (routerConfig.isUpdateSqlCaches()) {
-            cleanDirectory(sqlcaches);
+            cleanStaleFiles(sqlcaches, routerConfig.getSqlCaches().stream().map(i -> i.getName() + ".sqlcache." + suffix));
         }
 
         for (LogicSchemaConfig schemaConfig : Optional.ofNullable(routerConfig.getSchemas()).orElse(Collections.emptyList())) {
@@ -373,6 +374,20 @@ public class FileMetadataStorageManager extends MetadataStorageManager {
         }
     }
 
+    @SneakyThrows
+    private void cleanStaleFiles(Path path, Stream<String> fileNames) {
+        Set<String> names = fileNames.collect(Collectors.toSet());
+        if (Files.exists(path)) {
+            try (Stream<Path> files = Files.list(path)) {
+                for (Path file : files.collect(Collectors.toList())) {
+                    if (!names.contains(file.getFileName().toString())) {
+                        FileUtils.forceDelete(file.toFile());
+                    }
+                }
+            }
+        }
+    }
+
     private void writeFile(String t, Path filePath) throws IOException {
         if (Files.exists(filePath)) {
             if (readString(filePath).equals(t)) {
@@ -43,6 +43,11 @@ public class MycatRouterConfigOps implements AutoCloseable {
 
     String tableName;
     String schemaName;
+    /**
+     * 本次修改涉及的schema与表,用于增量更新元数据
+     */
+    final Set<String> changedSchemas = new HashSet<>();
+    final Map<String, Set<String>> changedTables = new HashMap<>();
 
 
     public boolean isUpdateSchemas() {
@@ -94,6 +99,7 @@ public class MycatRouterConfigOps implements AutoCloseable {
             schemas.add(schemaConfig = new LogicSchemaConfig());
             schemaConfig.setSchemaName(schemaName);
         }
+        changedSchemas.add(schemaName);
         updateType = UpdateType.ROUTER;
     }
 
@@ -105,6 +111,7 @@ public class MycatRouterConfigOps implements AutoCloseable {
                         .equals(i.getSchemaName())).findFirst();
         first.ifPresent(schemas::remove);
         schemas.add(schemaConfig);
+        changedSchemas.add(schemaConfig.getSchemaName());
         updateType = UpdateType.ROUTER;
     }
 
@@ -113,6 +120,7 @@ public class MycatRouterConfigOps implements AutoCloseable {
         List<LogicSchemaConfig> schemas = this.schemas;
         Optional<LogicSchemaConfig> first = schemas.stream().filter(i -> i.getSchemaName().equals(schemaName)).findFirst();
         first.ifPresent(i -> i.setTargetName(targetName));
+        changedSchemas.add(schemaName);
         updateType = UpdateType.ROUTER;
     }
 
@@ -124,6 +132,7 @@ public class MycatRouterConfigOps implements AutoCloseable {
         first.ifPresent(o -> {
             schemas.remove(o);
         });
+        changedSchemas.add(schemaName);
         updateType = UpdateType.ROUTER;
     }
 
@@ -165,6 +174,7 @@ public class MycatRouterConfigOps implements AutoCloseable {
         updateType = UpdateType.CREATE_TABLE;
         this.tableName = tableName;
         this.schemaName = schemaName;
+        changedTables.computeIfAbsent(schemaName, k -> new HashSet<>()).add(tableName);
         return normalTableConfig;
     }
 
@@ -203,6 +213,7 @@ public class MycatRouterConfigOps implements AutoCloseable {
         updateType = UpdateType.CREATE_TABLE;
         this.tableName = tableName;
         this.schemaName = schemaName;
+        changedTables.computeIfAbsent(schemaName, k -> new HashSet<>()).add(tableName);
         return globalTableConfig;
     }
 
@@ -235,6 +246,7 @@ public class MycatRouterConfigOps implements AutoCloseable {
         updateType = UpdateType.DROP_TABLE;
         this.tableName = tableName;
         this.schemaName = schemaName;
+        changedTables.computeIfAbsent(schemaName, k -> new HashSet<>()).add(tableName);
     }
 
 
@@ -271,6 +283,7 @@ public class MycatRouterConfigOps implements AutoCloseable {
         updateType = UpdateType.CREATE_TABLE;
         this.tableName = tableName;
         this.schemaName = schemaName;
+        changedTables.computeIfAbsent(schemaName, k -> new HashSet<>()).add(tableName);
         return config;
     }
 
@@ -444,6 +457,14 @@ public class MycatRouterConfigOps implements AutoCloseable {
         return schemaName;
     }
 
+    public Set<String> getChangedSchemas() {
+        return changedSchemas;
+    }
+
+    public Map<String, Set<String>> getChangedTables() {
+        return changedTables;
+    }
+
     public void putHashTable(String schemaName, String tableName, MySqlCreateTableStatement createTableSql) {
         SQLExpr dbPartitionBy = createTableSql.getDbPartitionBy();
         HashMap<String, Object> properties = new HashMap<>();
@@ -1,7 +1,11 @@
 package io.mycat.exporter;
 
 import com.google.common.collect.ImmutableList;
+import io.mycat.MetaClusterCurrent;
 import io.mycat.api.collector.RowBaseIterator;
+import io.mycat.replica.PhysicsInstance;
+import io.mycat.replica.ReplicaSelectorManager;
+import io.mycat.replica.heartbeat.HeartbeatFlow;
 import io.mycat.sqlhandler.dql.HintHandler;
 import io.prometheus.client.Collector;
 import io.prometheus.client.GaugeMetricFamily;
@@ -34,10 +38,23 @@ public class ReplicaCollector extends Collector {
                 int value = (Boolean.parseBoolean(available.toString())) ? 1 : 0;//check the value
                 gaugeMetricFamily.addMetric(collect, value);
             }
-            return ImmutableList.of(gaugeMetricFamily);
+            return ImmutableList.of(gaugeMetricFamily, collectReplicationLag());
         } catch (Throwable e) {
             LOGGER.error("", e);
             throw e;
         }
     }
+
+    private static GaugeMetricFamily collectReplicationLag() {
+        GaugeMetricFamily gaugeMetricFamily = new GaugeMetricFamily("instance_replication_lag_seconds",
+                "instance_replication_lag_seconds", Arrays.asList("NAME"));
+        if (MetaClusterCurrent.exist(ReplicaSelectorManager.class)) {
+            ReplicaSelectorManager replicaSelectorManager = MetaClusterCurrent.wrapper(ReplicaSelectorManager.class);
+            for (HeartbeatFlow heartbeatFlow : replicaSelectorManager.getHeartbeatDetectorMap().values()) {
+                PhysicsInstance instance = heartbeatFlow.instance();
+                gaugeMetricFamily.addMetric(Arrays.asList(instance.getName()), instance.getReplicationLag());
+            }
+        }
+        return gaugeMetricFamily;
+    }
 }
\ No newline at end of file
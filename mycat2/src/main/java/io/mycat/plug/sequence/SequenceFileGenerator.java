@@ -36,10 +36,21 @@ public class SequenceFileGenerator implements SequenceHandler {
     @Override
     public synchronized Number get() {
         long value = this.map.getLong(0);
-        this.map.putLong(value+1);
+        this.map.putLong(0, value + 1);
         return value;
     }
 
+    @Override
+    public synchronized Number[] nextSequenceBlock(int n) {
+        long value = this.map.getLong(0);
+        this.map.putLong(0, value + n);
+        Number[] res = new Number[n];
+        for (int i = 0; i < n; i++) {
+            res[i] = value + i;
+        }
+        return res;
+    }
+
     @Override
     @SneakyThrows
     public void init(SequenceConfig args, long workerId) {
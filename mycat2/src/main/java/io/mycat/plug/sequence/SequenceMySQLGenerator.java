@@ -15,6 +15,7 @@
 package io.mycat.plug.sequence;
 
 import io.mycat.MetaClusterCurrent;
+import io.mycat.NameableThreadFactory;
 import io.mycat.config.SequenceConfig;
 import io.mycat.datasource.jdbc.datasource.DefaultConnection;
 import io.mycat.datasource.jdbc.datasource.JdbcConnectionManager;
@@ -28,19 +29,47 @@ import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
-import java.text.MessageFormat;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.BiFunction;
 
+/**
+ * 号段模式的数据库序列
+ * <p>
+ * 当前号段消耗到PREFETCH_PERCENT%时异步取下一个号段,号段内用AtomicLong无锁发号,
+ * 号段大小根据两次取号段的间隔自适应,以increment为下限,MAX_STEP为上限
+ */
 public class SequenceMySQLGenerator implements SequenceHandler {
     protected static final Logger LOGGER = LoggerFactory
             .getLogger(SequenceMySQLGenerator.class);
+    private static final ExecutorService PREFETCH_EXECUTOR =
+            Executors.newCachedThreadPool(new NameableThreadFactory("sequencePrefetch", true));
+    private static final int PREFETCH_PERCENT = 20;
+    private static final long SEGMENT_DURATION = TimeUnit.MINUTES.toMillis(1);
+    private static final long MAX_STEP = 1000000;
+    private static final long FETCH_TIMEOUT = TimeUnit.SECONDS.toMillis(10);
+
     private String sql;
+    private String nextvalsSql;
     private String queryTargetName;
     private BiFunction<String, String, String> function;
-    private long count = 0;
-    private long limit = -1;
+
+    private volatile Segment current;
+    private final AtomicReference<CompletableFuture<Segment>> next = new AtomicReference<>();
+    /**
+     * 以下字段只在取号段的线程中访问,同一时刻只有一个取号段任务
+     */
+    private long baseStep = -1;
+    private long step = -1;
+    private long lastFetchTime = 0;
 
     public void init(String sql, String targetName) {
         init(sql, targetName, (s, s2) -> {
@@ -55,7 +84,7 @@ public class SequenceMySQLGenerator implements SequenceHandler {
                         }
                     }
                 } catch (SQLException e) {
-                    throw new RuntimeException("can not get queryTargetName:" + s + ",sql:" + s2 + " e");
+                    throw new RuntimeException("can not get queryTargetName:" + s + ",sql:" + s2, e);
                 }
                 return null;
         });
@@ -68,19 +97,136 @@ public class SequenceMySQLGenerator implements SequenceHandler {
     }
 
     @Override
-    public synchronized Number get() {
-        if (count > limit) {
+    public Number get() {
+        for (; ; ) {
+            Segment segment = this.current;
+            if (segment != null) {
+                long value = segment.take(1);
+                if (value != Segment.EXHAUSTED) {
+                    if (value == segment.prefetchPoint) {
+                        prefetch();
+                    }
+                    return value;
+                }
+            }
+            switchSegment(segment);
+        }
+    }
+
+    /**
+     * 在当前号段内一次取出连续的值,号段不够时接着用下一个号段
+     */
+    @Override
+    public Number[] nextSequenceBlock(int n) {
+        Number[] res = new Number[n];
+        int i = 0;
+        while (i < n) {
+            Segment segment = this.current;
+            if (segment != null) {
+                int remaining = n - i;
+                long start = segment.take(remaining);
+                if (start != Segment.EXHAUSTED) {
+                    long end = Math.min(start + remaining - 1, segment.max);
+                    for (long value = start; value <= end; value++) {
+                        res[i++] = value;
+                    }
+                    if (start <= segment.prefetchPoint && segment.prefetchPoint <= end) {
+                        prefetch();
+                    }
+                    continue;
+                }
+            }
+            switchSegment(segment);
+        }
+        return res;
+    }
+
+    private void prefetch() {
+        CompletableFuture<Segment> future = new CompletableFuture<>();
+        if (next.compareAndSet(null, future)) {
+            PREFETCH_EXECUTOR.execute(() -> {
+                try {
+                    future.complete(fetch());
+                } catch (Throwable e) {
+                    LOGGER.error("", e);
+                    future.completeExceptionally(e);
+                }
+            });
+        }
+    }
+
+    /**
+     * 只有预取的号段还没返回时才会阻塞,最多等待FETCH_TIMEOUT毫秒,
+     * 等待不持有锁,超时后插入失败,下一次取号重新发起取号段
+     */
+    private void switchSegment(Segment exhausted) {
+        CompletableFuture<Segment> future;
+        synchronized (this) {
+            if (this.current != exhausted) {
+                return;
+            }
+            prefetch();
+            future = next.get();
+        }
+        Segment segment;
+        try {
+            segment = future.get(FETCH_TIMEOUT, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            next.compareAndSet(future, null);
+            throw new RuntimeException(e.getCause());
+        } catch (TimeoutException e) {
+            next.compareAndSet(future, null);
+            throw new RuntimeException("fetch sequence segment timeout after " + FETCH_TIMEOUT
+                    + "ms, targetName:" + queryTargetName + ",sql:" + sql, e);
+        }
+        synchronized (this) {
+            if (this.current == exhausted) {
+                this.current = segment;
+            }
+            next.compareAndSet(future, null);
+        }
+    }
+
+    private Segment fetch() {
+        long now = System.currentTimeMillis();
+        adjustStep(now);
+        this.lastFetchTime = now;
+        if (nextvalsSql != null && step > baseStep) {
             try {
-                String s = function.apply(queryTargetName, sql);
+                String s = function.apply(queryTargetName, String.format(nextvalsSql, step));
                 String[] split = SplitUtil.split(s, ',');
-                this.count = Long.parseLong(split[0]);
-                this.limit = Long.parseLong(split[1]);
+                return new Segment(Long.parseLong(split[0]), Long.parseLong(split[1]));
             } catch (Throwable e) {
-                LOGGER.error("", e);
-                throw new RuntimeException(e);
+                LOGGER.warn("can not fetch sequence by sql:{},fallback to:{}", nextvalsSql, sql, e);
+                this.nextvalsSql = null;
             }
         }
-        return (count++);
+        String s = function.apply(queryTargetName, sql);
+        String[] split = SplitUtil.split(s, ',');
+        long start = Long.parseLong(split[0]);
+        long increment = Long.parseLong(split[1]);
+        if (baseStep < 0) {
+            this.baseStep = this.step = increment;
+        }
+        return new Segment(start, start + increment - 1);
+    }
+
+    /**
+     * 号段用得太快就翻倍,用得太慢就减半
+     */
+    private void adjustStep(long now) {
+        if (baseStep <= 0 || lastFetchTime == 0) {
+            return;
+        }
+        long duration = now - lastFetchTime;
+        if (duration < SEGMENT_DURATION) {
+            this.step = Math.min(step * 2, Math.max(MAX_STEP, baseStep));
+        } else if (duration >= SEGMENT_DURATION * 2) {
+            this.step = Math.max(step / 2, baseStep);
+        }
     }
 
     @Override
@@ -89,6 +235,7 @@ public class SequenceMySQLGenerator implements SequenceHandler {
         String db = Optional.ofNullable(args.getSchemaName()).orElse(split[0]);
         String targetName = Optional.ofNullable(args.getTargetName()).orElse("prototype");
         init(String.format("select %s.mycat_seq_nextval('%s')",db, args.getName()),targetName);
+        this.nextvalsSql = String.format("select %s.mycat_seq_nextvals('%s',%%d)", db, args.getName());
     }
 
     @Override
@@ -96,4 +243,36 @@ public class SequenceMySQLGenerator implements SequenceHandler {
 
     }
 
-}
\ No newline at end of file
+    private static final class Segment {
+        static final long EXHAUSTED = Long.MIN_VALUE;
+        final AtomicLong value;
+        final long max;
+        final long prefetchPoint;
+
+        Segment(long start, long max) {
+            if (max < start || max < 0) {
+                throw new IllegalStateException("can not get sequence segment:" + start + "," + max);
+            }
+            this.value = new AtomicLong(start);
+            this.max = max;
+            this.prefetchPoint = start + (max - start + 1) * PREFETCH_PERCENT / 100;
+        }
+
+        /**
+         * 无锁取出最多n个连续的值,返回起始值,号段用完返回EXHAUSTED.
+         * 用CAS推进,value不会越过max+1
+         */
+        long take(int n) {
+            for (; ; ) {
+                long start = value.get();
+                if (start > max) {
+                    return EXHAUSTED;
+                }
+                long end = Math.min(start + n - 1, max);
+                if (value.compareAndSet(start, end + 1)) {
+                    return start;
+                }
+            }
+        }
+    }
+}
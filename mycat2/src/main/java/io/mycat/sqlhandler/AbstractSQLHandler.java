@@ -91,15 +91,8 @@ public abstract class AbstractSQLHandler<Statement extends SQLStatement> impleme
 //            connection.executeUpdate(sqlStatement.toString(),false);
 //        }
 //    }
-    public void executeOnDataNodes(SQLStatement sqlStatement, JdbcConnectionManager connectionManager, Collection<DataNode> dataNodes, SQLExprTableSource tableSource) {
-        for (DataNode dataNode : dataNodes) {
-            tableSource.setSimpleName(dataNode.getTable());
-            tableSource.setSchema(dataNode.getSchema());
-            String sql = sqlStatement.toString();
-            try (DefaultConnection connection = connectionManager.getConnection(dataNode.getTargetName())) {
-                connection.executeUpdate(sql, false);
-            }
-        }
+    public Future<Void> executeOnDataNodes(SQLStatement sqlStatement, JdbcConnectionManager connectionManager, Collection<DataNode> dataNodes, SQLExprTableSource tableSource) {
+        return DDLJobExecutor.INSTANCE.execute(sqlStatement, tableSource, dataNodes);
     }
 
     public Set<DataNode> getDataNodes(TableHandler tableHandler) {
@@ -0,0 +1,555 @@
+/**
+ * Copyright (C) <2021>  <chen junwen>
+ * <p>
+ * This program is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * <p>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU General Public License along with this program.  If
+ * not, see <http://www.gnu.org/licenses/>.
+ */
+package io.mycat.sqlhandler;
+
+import com.alibaba.druid.sql.SQLUtils;
+import com.alibaba.druid.sql.ast.SQLExpr;
+import com.alibaba.druid.sql.ast.SQLName;
+import com.alibaba.druid.sql.ast.SQLStatement;
+import com.alibaba.druid.sql.ast.statement.*;
+import com.mysql.cj.conf.ConnectionUrlParser;
+import com.mysql.cj.conf.HostInfo;
+import io.mycat.BackendTableInfo;
+import io.mycat.DataNode;
+import io.mycat.MetaClusterCurrent;
+import io.mycat.MetadataManager;
+import io.mycat.MycatException;
+import io.mycat.config.ServerConfig;
+import io.mycat.datasource.jdbc.datasource.DefaultConnection;
+import io.mycat.datasource.jdbc.datasource.JdbcConnectionManager;
+import io.mycat.datasource.jdbc.datasource.JdbcDataSource;
+import io.mycat.replica.ReplicaSelectorManager;
+import io.vertx.core.CompositeFuture;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import lombok.Getter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 分片DDL任务
+ * <p>
+ * 每个后端主机内按ddlParallelismPerHost并行执行,不同主机之间互不影响,
+ * 执行都在worker线程,不占用vertx context;
+ * 每个分片的状态记录在原型库mycat.ddl_job,失败后通过resumeDDLJob命令指定任务id续做,
+ * 已经成功的分片不再执行,中断时仍在执行的分片先查询分片的实际状态再决定是否重新执行;
+ * 全部成功后删除记录,失败的记录超过EXPIRE_DAYS天后清理;进度通过showDDLJobs命令查看
+ */
+public class DDLJobExecutor {
+    private static final Logger LOGGER = LoggerFactory.getLogger(DDLJobExecutor.class);
+    public static final DDLJobExecutor INSTANCE = new DDLJobExecutor();
+    private static final String DATABASE = "mycat";
+    private static final String TABLE = "ddl_job";
+    private static final int MAX_HISTORY = 100;
+    private static final long EXPIRE_DAYS = 7;
+    private static final int MYCAT_ID_BITS = 10;
+
+    private final AtomicLong idGenerator = new AtomicLong(System.currentTimeMillis());
+    private final AtomicBoolean logTableCreated = new AtomicBoolean(false);
+    private final LinkedHashMap<Long, DDLJob> jobs = new LinkedHashMap<>();
+
+    public enum Status {
+        PENDING,
+        RUNNING,
+        SUCCESS,
+        FAILED
+    }
+
+    @Getter
+    public static class DDLNode {
+        private final DataNode dataNode;
+        private final String sql;
+        private final String host;
+        private volatile Status status = Status.PENDING;
+        private volatile String message;
+
+        public DDLNode(DataNode dataNode, String sql, String host) {
+            this.dataNode = dataNode;
+            this.sql = sql;
+            this.host = host;
+        }
+    }
+
+    @Getter
+    public static class DDLJob {
+        private final long id;
+        private final String logicSql;
+        private final long startTime = System.currentTimeMillis();
+        private final List<DDLNode> nodes;
+        private volatile Status status = Status.PENDING;
+        private volatile String message;
+
+        public DDLJob(long id, String logicSql, List<DDLNode> nodes) {
+            this.id = id;
+            this.logicSql = logicSql;
+            this.nodes = nodes;
+        }
+
+        public int count(Status status) {
+            int n = 0;
+            for (DDLNode node : nodes) {
+                if (node.status == status) {
+                    n++;
+                }
+            }
+            return n;
+        }
+    }
+
+    /**
+     * 中断时处于RUNNING的分片DDL可能已经生效,按语句类型查询information_schema确认分片的实际状态
+     */
+    @Getter
+    public static class ShardCheck {
+        private final String sql;
+        private final List<String> params;
+        /**
+         * true:查询结果大于0说明DDL已经生效,false:查询结果为0说明DDL已经生效
+         */
+        private final boolean appliedIfExists;
+
+        public ShardCheck(String sql, List<String> params, boolean appliedIfExists) {
+            this.sql = sql;
+            this.params = params;
+            this.appliedIfExists = appliedIfExists;
+        }
+
+        public boolean isApplied(long count) {
+            return appliedIfExists == (count > 0);
+        }
+    }
+
+    public Future<Void> execute(SQLStatement sqlStatement, SQLExprTableSource tableSource, Collection<DataNode> dataNodes) {
+        try {
+            String logicSql = sqlStatement.toString();
+            SQLExpr originalExpr = tableSource.getExpr().clone();
+            List<DDLNode> nodes = new ArrayList<>(dataNodes.size());
+            try {
+                for (DataNode dataNode : dataNodes) {
+                    tableSource.setSimpleName(dataNode.getTable());
+                    tableSource.setSchema(dataNode.getSchema());
+                    nodes.add(new DDLNode(dataNode, sqlStatement.toString(), getHost(dataNode.getTargetName())));
+                }
+            } finally {
+                tableSource.setExpr(originalExpr);
+            }
+            DDLJob job = new DDLJob(nextJobId(), logicSql, nodes);
+            Vertx vertx = MetaClusterCurrent.wrapper(Vertx.class);
+            Future<DDLJob> jobFuture = vertx.executeBlocking(promise -> promise.complete(prepare(job)), false);
+            return jobFuture.flatMap(j -> run(vertx, j));
+        } catch (Throwable throwable) {
+            return Future.failedFuture(throwable);
+        }
+    }
+
+    /**
+     * 按任务id续做失败或者中断的任务
+     *
+     * @param rerunUnknown 无法确认实际状态的中断分片是否重新执行
+     * @return 任务的逻辑SQL
+     */
+    private long nextJobId() {
+        int mycatId = MetaClusterCurrent.exist(ServerConfig.class) ? MetaClusterCurrent.wrapper(ServerConfig.class).getMycatId() : 0;
+        return jobId(idGenerator.incrementAndGet(), mycatId);
+    }
+
+    /**
+     * 任务id的低MYCAT_ID_BITS位是mycatId,共用mycat.ddl_job的多个mycat节点不会产生相同的id
+     */
+    static long jobId(long sequence, int mycatId) {
+        return sequence << MYCAT_ID_BITS | (mycatId & ((1 << MYCAT_ID_BITS) - 1));
+    }
+
+    public Future<String> resume(long jobId, boolean rerunUnknown) {
+        synchronized (jobs) {
+            DDLJob job = jobs.get(jobId);
+            if (job != null && job.status == Status.RUNNING) {
+                return Future.failedFuture(new MycatException("ddl job " + jobId + " is running"));
+            }
+        }
+        Vertx vertx = MetaClusterCurrent.wrapper(Vertx.class);
+        Future<DDLJob> jobFuture = vertx.executeBlocking(promise -> promise.complete(load(jobId, rerunUnknown)), false);
+        return jobFuture.flatMap(job -> run(vertx, job).map(job.logicSql));
+    }
+
+    public List<DDLJob> getJobs() {
+        synchronized (jobs) {
+            return new ArrayList<>(jobs.values());
+        }
+    }
+
+    private DDLJob prepare(DDLJob job) {
+        try (DefaultConnection connection = getPrototypeConnection()) {
+            tryCreateLogTable(connection);
+            Connection rawConnection = connection.getRawConnection();
+            deleteExpiredJobs(rawConnection);
+            for (DDLNode node : job.nodes) {
+                persist(rawConnection, job, node);
+            }
+        } catch (Throwable throwable) {
+            LOGGER.warn("can not persist ddl job,the job is not resumable:{}", job.logicSql, throwable);
+        }
+        register(job);
+        return job;
+    }
+
+    private DDLJob load(long jobId, boolean rerunUnknown) {
+        String logicSql = null;
+        List<DDLNode> nodes = new ArrayList<>();
+        try (DefaultConnection connection = getPrototypeConnection();
+             PreparedStatement statement = connection.getRawConnection().prepareStatement(
+                     "select `logic_sql`,`target`,`schema_name`,`table_name`,`sql`,`status` from `" + DATABASE + "`.`" + TABLE + "` where `job_id` = ?")) {
+            statement.setLong(1, jobId);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    logicSql = resultSet.getString(1);
+                    DataNode dataNode = new BackendTableInfo(resultSet.getString(2), resultSet.getString(3), resultSet.getString(4));
+                    DDLNode node = new DDLNode(dataNode, resultSet.getString(5), getHost(dataNode.getTargetName()));
+                    node.status = Status.valueOf(resultSet.getString(6));
+                    nodes.add(node);
+                }
+            }
+        } catch (Throwable throwable) {
+            throw new MycatException("can not load ddl job " + jobId + ":" + throwable.getMessage());
+        }
+        if (nodes.isEmpty()) {
+            throw new MycatException("ddl job " + jobId + " is not found,it may be finished or expired");
+        }
+        LOGGER.info("resume ddl job:{} {}", jobId, logicSql);
+        for (DDLNode node : nodes) {
+            if (node.status == Status.RUNNING) {
+                verify(jobId, node, rerunUnknown);
+            } else if (node.status == Status.FAILED) {
+                node.status = Status.PENDING;
+            }
+        }
+        DDLJob job = new DDLJob(jobId, logicSql, nodes);
+        register(job);
+        return job;
+    }
+
+    /**
+     * 中断时仍在执行的分片,后端还在执行就不再重复执行,已经生效的直接标记成功,确认未生效才重新执行
+     */
+    private void verify(long jobId, DDLNode node, boolean rerunUnknown) {
+        JdbcConnectionManager connectionManager = MetaClusterCurrent.wrapper(JdbcConnectionManager.class);
+        try (DefaultConnection connection = connectionManager.getConnection(node.dataNode.getTargetName())) {
+            Connection rawConnection = connection.getRawConnection();
+            if (count(rawConnection, "select count(1) from information_schema.processlist where `info` = ?",
+                    Collections.singletonList(node.sql)) > 0) {
+                node.status = Status.FAILED;
+                node.message = "the ddl is still running on the backend";
+                return;
+            }
+            ShardCheck check = shardCheck(node.sql, node.dataNode);
+            if (check == null) {
+                node.status = rerunUnknown ? Status.PENDING : Status.FAILED;
+                node.message = rerunUnknown ? null : "can not verify the state of the interrupted ddl,"
+                        + "check the shard manually and resume with rerunUnknown";
+            } else {
+                node.status = check.isApplied(count(rawConnection, check.sql, check.params)) ? Status.SUCCESS : Status.PENDING;
+                node.message = null;
+            }
+        } catch (Throwable throwable) {
+            node.status = Status.FAILED;
+            node.message = throwable.getMessage();
+        }
+        LOGGER.info("ddl job:{} interrupted node {} is verified as {}", jobId, node.dataNode.getUniqueName(), node.status);
+        updateStatus(jobId, node);
+    }
+
+    private static long count(Connection connection, String sql, List<String> params) throws Exception {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            for (int i = 0; i < params.size(); i++) {
+                statement.setString(i + 1, params.get(i));
+            }
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() ? resultSet.getLong(1) : 0;
+            }
+        }
+    }
+
+    /**
+     * @return 无法从information_schema判断是否生效的DDL返回null
+     */
+    public static ShardCheck shardCheck(String sql, DataNode dataNode) {
+        SQLStatement statement;
+        try {
+            statement = SQLUtils.parseSingleMysqlStatement(sql);
+        } catch (Throwable throwable) {
+            return null;
+        }
+        String schema = SQLUtils.normalize(dataNode.getSchema());
+        String table = SQLUtils.normalize(dataNode.getTable());
+        if (statement instanceof SQLCreateTableStatement) {
+            return tableCheck(schema, table, true);
+        }
+        if (statement instanceof SQLDropTableStatement) {
+            return tableCheck(schema, table, false);
+        }
+        if (statement instanceof SQLCreateIndexStatement) {
+            return indexCheck(schema, table, ((SQLCreateIndexStatement) statement).getName(), true);
+        }
+        if (statement instanceof SQLDropIndexStatement) {
+            return indexCheck(schema, table, ((SQLDropIndexStatement) statement).getIndexName(), false);
+        }
+        if (statement instanceof SQLAlterTableStatement) {
+            List<SQLAlterTableItem> items = ((SQLAlterTableStatement) statement).getItems();
+            if (items.size() != 1) {
+                return null;
+            }
+            SQLAlterTableItem item = items.get(0);
+            if (item instanceof SQLAlterTableAddIndex) {
+                return indexCheck(schema, table, ((SQLAlterTableAddIndex) item).getName(), true);
+            }
+            if (item instanceof SQLAlterTableDropIndex) {
+                return indexCheck(schema, table, ((SQLAlterTableDropIndex) item).getIndexName(), false);
+            }
+            if (item instanceof SQLAlterTableAddColumn) {
+                List<SQLColumnDefinition> columns = ((SQLAlterTableAddColumn) item).getColumns();
+                return columns.size() == 1 ? columnCheck(schema, table, columns.get(0).getName().getSimpleName(), true) : null;
+            }
+            if (item instanceof SQLAlterTableDropColumnItem) {
+                List<SQLName> columns = ((SQLAlterTableDropColumnItem) item).getColumns();
+                return columns.size() == 1 ? columnCheck(schema, table, columns.get(0).getSimpleName(), false) : null;
+            }
+        }
+        return null;
+    }
+
+    private static ShardCheck tableCheck(String schema, String table, boolean appliedIfExists) {
+        return new ShardCheck("select count(1) from information_schema.tables where `table_schema` = ? and `table_name` = ?",
+                Arrays.asList(schema, table), appliedIfExists);
+    }
+
+    private static ShardCheck indexCheck(String schema, String table, SQLName indexName, boolean appliedIfExists) {
+        if (indexName == null) {
+            return null;
+        }
+        return new ShardCheck("select count(1) from information_schema.statistics where `table_schema` = ? and `table_name` = ? and `index_name` = ?",
+                Arrays.asList(schema, table, SQLUtils.normalize(indexName.getSimpleName())), appliedIfExists);
+    }
+
+    private static ShardCheck columnCheck(String schema, String table, String column, boolean appliedIfExists) {
+        return new ShardCheck("select count(1) from information_schema.columns where `table_schema` = ? and `table_name` = ? and `column_name` = ?",
+                Arrays.asList(schema, table, SQLUtils.normalize(column)), appliedIfExists);
+    }
+
+    private void register(DDLJob job) {
+        synchronized (jobs) {
+            jobs.remove(job.id);
+            jobs.put(job.id, job);
+            Iterator<DDLJob> iterator = jobs.values().iterator();
+            while (jobs.size() > MAX_HISTORY && iterator.hasNext()) {
+                if (iterator.next().status != Status.RUNNING) {
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    private Future<Void> run(Vertx vertx, DDLJob job) {
+        job.status = Status.RUNNING;
+        int parallelism = Math.max(1, MetaClusterCurrent.wrapper(ServerConfig.class).getDdlParallelismPerHost());
+        Map<String, Queue<DDLNode>> hostQueues = new HashMap<>();
+        AtomicBoolean failed = new AtomicBoolean(false);
+        for (DDLNode node : job.nodes) {
+            if (node.status == Status.PENDING) {
+                hostQueues.computeIfAbsent(node.host, h -> new ConcurrentLinkedQueue<>()).add(node);
+            } else if (node.status == Status.FAILED) {
+                //续做时无法确认状态的分片
+                failed.set(true);
+                job.message = node.dataNode.getUniqueName() + ":" + node.message;
+            }
+        }
+        List<Future> lanes = new ArrayList<>();
+        if (!failed.get()) {
+            for (Queue<DDLNode> queue : hostQueues.values()) {
+                int laneCount = Math.min(parallelism, queue.size());
+                for (int i = 0; i < laneCount; i++) {
+                    Promise<Void> lane = Promise.promise();
+                    runLane(vertx, job, queue, failed, lane);
+                    lanes.add(lane.future());
+                }
+            }
+        }
+        return CompositeFuture.join(lanes).transform(event -> {
+            if (event.succeeded() && !failed.get()) {
+                job.status = Status.SUCCESS;
+                return vertx.executeBlocking(promise -> {
+                    deleteJob(job.id);
+                    promise.complete();
+                }, false);
+            }
+            job.status = Status.FAILED;
+            String message = "ddl job " + job.id + " failed,success:" + job.count(Status.SUCCESS) + "/" + job.nodes.size()
+                    + ",execute /*+ mycat:resumeDDLJob{\"id\":" + job.id + "} */ to resume. " + job.message;
+            return Future.failedFuture(new MycatException(message));
+        });
+    }
+
+    /**
+     * 一个主机上的一条执行通道,一个分片执行完再取下一个,有分片失败后不再开始新的分片
+     */
+    private void runLane(Vertx vertx, DDLJob job, Queue<DDLNode> queue, AtomicBoolean failed, Promise<Void> lane) {
+        DDLNode node;
+        if (failed.get() || (node = queue.poll()) == null) {
+            lane.complete();
+            return;
+        }
+        node.status = Status.RUNNING;
+        vertx.executeBlocking(promise -> {
+            //先记录RUNNING,进程中断后续做时据此确认分片的实际状态
+            updateStatus(job.id, node);
+            JdbcConnectionManager connectionManager = MetaClusterCurrent.wrapper(JdbcConnectionManager.class);
+            try (DefaultConnection connection = connectionManager.getConnection(node.dataNode.getTargetName())) {
+                connection.executeUpdate(node.sql, false);
+                node.status = Status.SUCCESS;
+                node.message = null;
+            } catch (Throwable throwable) {
+                LOGGER.error("ddl job:{} fail on {}", job.id, node.dataNode.getUniqueName(), throwable);
+                node.status = Status.FAILED;
+                node.message = throwable.getMessage();
+                job.message = node.dataNode.getUniqueName() + ":" + throwable.getMessage();
+                failed.set(true);
+            }
+            updateStatus(job.id, node);
+            promise.complete();
+        }, false).onComplete(event -> runLane(vertx, job, queue, failed, lane));
+    }
+
+    private String getHost(String targetName) {
+        JdbcConnectionManager connectionManager = MetaClusterCurrent.wrapper(JdbcConnectionManager.class);
+        Map<String, JdbcDataSource> datasourceInfo = connectionManager.getDatasourceInfo();
+        String datasourceName = targetName;
+        if (!datasourceInfo.containsKey(targetName)) {
+            ReplicaSelectorManager replicaSelectorManager = MetaClusterCurrent.wrapper(ReplicaSelectorManager.class);
+            datasourceName = replicaSelectorManager.getDatasourceNameByReplicaName(targetName, true, null);
+        }
+        JdbcDataSource jdbcDataSource = datasourceInfo.get(datasourceName);
+        if (jdbcDataSource == null || !jdbcDataSource.isMySQLType()) {
+            return datasourceName;
+        }
+        try {
+            HostInfo hostInfo = ConnectionUrlParser.parseConnectionString(jdbcDataSource.getUrl()).getHosts().get(0);
+            return hostInfo.getHost() + ":" + hostInfo.getPort();
+        } catch (Throwable throwable) {
+            return datasourceName;
+        }
+    }
+
+    private DefaultConnection getPrototypeConnection() {
+        MetadataManager metadataManager = MetaClusterCurrent.wrapper(MetadataManager.class);
+        JdbcConnectionManager connectionManager = MetaClusterCurrent.wrapper(JdbcConnectionManager.class);
+        return connectionManager.getConnection(metadataManager.getPrototype());
+    }
+
+    private void tryCreateLogTable(DefaultConnection connection) {
+        if (logTableCreated.get()) {
+            return;
+        }
+        try (Statement statement = connection.getRawConnection().createStatement()) {
+            statement.execute("create database if not exists `" + DATABASE + "`");
+            statement.execute("create table if not exists `" + DATABASE + "`.`" + TABLE + "`("
+                    + "`job_id` bigint NOT NULL,"
+                    + "`node` varchar(255) NOT NULL,"
+                    + "`target` varchar(64) NOT NULL,"
+                    + "`schema_name` varchar(64) NOT NULL,"
+                    + "`table_name` varchar(64) NOT NULL,"
+                    + "`sql` text NOT NULL,"
+                    + "`logic_sql` text NOT NULL,"
+                    + "`status` varchar(16) NOT NULL,"
+                    + "`message` text,"
+                    + "`update_time` datetime NOT NULL,"
+                    + "PRIMARY KEY (`job_id`,`node`),"
+                    + "KEY `idx_update_time` (`update_time`)"
+                    + ") ENGINE=InnoDB");
+            logTableCreated.set(true);
+        } catch (Throwable throwable) {
+            LOGGER.warn("can not create {}.{},please create it manually", DATABASE, TABLE, throwable);
+        }
+    }
+
+    private void persist(Connection connection, DDLJob job, DDLNode node) throws Exception {
+        try (PreparedStatement statement = connection.prepareStatement("insert into `" + DATABASE + "`.`" + TABLE
+                + "`(`job_id`,`node`,`target`,`schema_name`,`table_name`,`sql`,`logic_sql`,`status`,`update_time`) values(?,?,?,?,?,?,?,?,?)")) {
+            DataNode dataNode = node.dataNode;
+            statement.setLong(1, job.id);
+            statement.setString(2, dataNode.getUniqueName());
+            statement.setString(3, dataNode.getTargetName());
+            statement.setString(4, dataNode.getSchema());
+            statement.setString(5, dataNode.getTable());
+            statement.setString(6, node.sql);
+            statement.setString(7, job.logicSql);
+            statement.setString(8, node.status.name());
+            statement.setTimestamp(9, new Timestamp(System.currentTimeMillis()));
+            statement.executeUpdate();
+        }
+    }
+
+    /**
+     * 失败后一直没有续做的任务过期清理
+     */
+    private void deleteExpiredJobs(Connection connection) {
+        try (PreparedStatement statement = connection.prepareStatement("delete from `" + DATABASE + "`.`" + TABLE
+                + "` where `update_time` < ?")) {
+            statement.setTimestamp(1, new Timestamp(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(EXPIRE_DAYS)));
+            int count = statement.executeUpdate();
+            if (count > 0) {
+                LOGGER.info("delete {} expired ddl job records", count);
+            }
+        } catch (Throwable throwable) {
+            LOGGER.warn("can not delete expired ddl jobs", throwable);
+        }
+    }
+
+    private void updateStatus(long jobId, DDLNode node) {
+        try (DefaultConnection connection = getPrototypeConnection();
+             PreparedStatement statement = connection.getRawConnection().prepareStatement("update `" + DATABASE + "`.`" + TABLE
+                     + "` set `status` = ?,`message` = ?,`update_time` = ? where `job_id` = ? and `node` = ?")) {
+            statement.setString(1, node.status.name());
+            statement.setString(2, node.message);
+            statement.setTimestamp(3, new Timestamp(System.currentTimeMillis()));
+            statement.setLong(4, jobId);
+            statement.setString(5, node.dataNode.getUniqueName());
+            statement.executeUpdate();
+        } catch (Throwable throwable) {
+            LOGGER.warn("can not update ddl job:{} status", jobId, throwable);
+        }
+    }
+
+    private void deleteJob(long jobId) {
+        try (DefaultConnection connection = getPrototypeConnection();
+             PreparedStatement statement = connection.getRawConnection().prepareStatement("delete from `" + DATABASE + "`.`" + TABLE
+                     + "` where `job_id` = ?")) {
+            statement.setLong(1, jobId);
+            statement.executeUpdate();
+        } catch (Throwable throwable) {
+            LOGGER.warn("can not delete ddl job:{}", jobId, throwable);
+        }
+    }
+}
@@ -24,6 +24,7 @@ import io.mycat.sqlhandler.AbstractSQLHandler;
 import io.mycat.sqlhandler.SQLRequest;
 import io.vertx.core.Future;
 import io.vertx.core.shareddata.Lock;
+import lombok.SneakyThrows;
 
 import java.util.Collection;
 import java.util.Collections;
@@ -52,24 +53,49 @@ public class AlterTableSQLHandler extends AbstractSQLHandler<SQLAlterTableStatem
                     JdbcConnectionManager connectionManager = MetaClusterCurrent.wrapper(JdbcConnectionManager.class);
                     Set<DataNode> dataNodes = getDataNodes(tableHandler);
                     dataNodes.add(new BackendTableInfo(metadataManager.getPrototype(), schema, tableName));//add Prototype
-                    executeOnDataNodes(sqlAlterTableStatement, connectionManager, dataNodes);
-                    CreateTableSQLHandler.INSTANCE.createTable(Collections.emptyMap(), schema, tableName, createTableStatement);
+                    return executeOnDataNodes(sqlAlterTableStatement, connectionManager, dataNodes)
+                            .flatMap(unused -> {
+                                try {
+                                    CreateTableSQLHandler.INSTANCE.createTable(Collections.emptyMap(), schema, tableName, createTableStatement);
+                                } catch (Exception e) {
+                                    return Future.failedFuture(e);
+                                }
+                                return response.sendOk();
+                            }).onComplete(event -> lock.release());
                 }
+                lock.release();
                 return response.sendOk();
             }catch (Throwable throwable){
-                return Future.failedFuture(throwable);
-            }finally {
                 lock.release();
+                return Future.failedFuture(throwable);
             }
         });
     }
 
 
-    public void executeOnDataNodes(SQLAlterTableStatement alterTableStatement,
+    /**
+     * 分片DDL任务续做成功后,把ALTER应用到逻辑表的建表语句
+     */
+    @SneakyThrows
+    public static void updateMetadata(SQLAlterTableStatement sqlAlterTableStatement) {
+        String schema = SQLUtils.normalize(sqlAlterTableStatement.getSchema());
+        String tableName = SQLUtils.normalize(sqlAlterTableStatement.getTableName());
+        MetadataManager metadataManager = MetaClusterCurrent.wrapper(MetadataManager.class);
+        TableHandler tableHandler = metadataManager.getTable(schema, tableName);
+        if (tableHandler == null) {
+            return;
+        }
+        MySqlCreateTableStatement createTableStatement = (MySqlCreateTableStatement) SQLUtils.parseSingleMysqlStatement(tableHandler.getCreateTableSQL());
+        if (createTableStatement.apply(sqlAlterTableStatement)) {
+            CreateTableSQLHandler.INSTANCE.createTable(Collections.emptyMap(), schema, tableName, createTableStatement);
+        }
+    }
+
+    public Future<Void> executeOnDataNodes(SQLAlterTableStatement alterTableStatement,
                                    JdbcConnectionManager connectionManager,
                                    Collection<DataNode> dataNodes) {
         SQLExprTableSource tableSource = alterTableStatement.getTableSource();
-        executeOnDataNodes(alterTableStatement, connectionManager, dataNodes, tableSource);
+        return executeOnDataNodes(alterTableStatement, connectionManager, dataNodes, tableSource);
     }
 
 }
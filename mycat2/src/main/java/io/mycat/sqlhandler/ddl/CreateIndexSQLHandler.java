@@ -46,20 +46,22 @@ public class CreateIndexSQLHandler extends AbstractSQLHandler<SQLCreateIndexStat
                 String tableName = SQLUtils.normalize(sqlCreateIndexStatement.getTableName());
                 MetadataManager metadataManager = MetaClusterCurrent.wrapper(MetadataManager.class);
 
+                Future<Void> future;
                 if (!sqlCreateIndexStatement.isGlobal()) {
-                    createLocalIndex(sqlCreateIndexStatement,
+                    future = createLocalIndex(sqlCreateIndexStatement,
                             table,
                             schema,
                             tableName,
                             metadataManager);
                 } else {
                     createGlobalIndex(sqlCreateIndexStatement);
+                    future = Future.succeededFuture();
                 }
-                return response.sendOk();
+                return future.onComplete(event -> lock.release())
+                        .transform(event -> event.succeeded() ? response.sendOk() : response.sendError(event.cause()));
             } catch (Throwable throwable) {
-                return response.sendError(throwable);
-            } finally {
                 lock.release();
+                return response.sendError(throwable);
             }
         });
 
@@ -70,11 +72,11 @@ public class CreateIndexSQLHandler extends AbstractSQLHandler<SQLCreateIndexStat
         //todo
     }
 
-    private void createLocalIndex(SQLCreateIndexStatement sqlCreateIndexStatement, SQLExprTableSource table, String schema, String tableName, MetadataManager metadataManager) {
+    private Future<Void> createLocalIndex(SQLCreateIndexStatement sqlCreateIndexStatement, SQLExprTableSource table, String schema, String tableName, MetadataManager metadataManager) {
         JdbcConnectionManager connectionManager = MetaClusterCurrent.wrapper(JdbcConnectionManager.class);
         TableHandler tableHandler = metadataManager.getTable(schema, tableName);
         Collection<DataNode> dataNodes = getDataNodes(tableHandler);
         dataNodes.add(new BackendTableInfo(metadataManager.getPrototype(), schema, tableName));//add Prototype
-        executeOnDataNodes(sqlCreateIndexStatement, connectionManager, dataNodes, table);
+        return executeOnDataNodes(sqlCreateIndexStatement, connectionManager, dataNodes, table);
     }
 }
@@ -48,12 +48,12 @@ public class DropIndexSQLHandler extends AbstractSQLHandler<SQLDropIndexStatemen
                 TableHandler table = metadataManager.getTable(schema, tableName);
                 Set<DataNode> dataNodes = getDataNodes(table);
                 dataNodes.add(new BackendTableInfo(metadataManager.getPrototype(),schema,tableName));//add Prototype
-                executeOnDataNodes(sqlDropIndexStatement,jdbcConnectionManager,dataNodes,tableSource);
-                return response.sendOk();
+                return executeOnDataNodes(sqlDropIndexStatement,jdbcConnectionManager,dataNodes,tableSource)
+                        .flatMap(unused -> response.sendOk())
+                        .onComplete(event -> lock.release());
             }catch (Throwable throwable){
-                return Future.failedFuture(throwable);
-            }finally {
                 lock.release();
+                return Future.failedFuture(throwable);
             }
         });
 
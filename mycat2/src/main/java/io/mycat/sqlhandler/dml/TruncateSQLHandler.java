@@ -39,6 +39,7 @@ public class TruncateSQLHandler extends AbstractSQLHandler<SQLTruncateStatement>
         JdbcConnectionManager jdbcConnectionManager = MetaClusterCurrent.wrapper(JdbcConnectionManager.class);
 
 
+        Future<Void> future = Future.succeededFuture();
         for (SQLExprTableSource source : new ArrayList<>(truncateStatement.getTableSources())) {
             resolveSQLExprTableSource(source,dataContext);
             SQLTruncateStatement eachTruncateStatement   = clone(truncateStatement);
@@ -48,20 +49,20 @@ public class TruncateSQLHandler extends AbstractSQLHandler<SQLTruncateStatement>
             TableHandler table = metadataManager.getTable(
                     SQLUtils.normalize(source.getSchema()),
                     SQLUtils.normalize(source.getTableName()));
-            executeOnDataNodes(eachTruncateStatement,jdbcConnectionManager,getDataNodes(table));
+            future = future.flatMap(unused -> executeOnDataNodes(eachTruncateStatement, jdbcConnectionManager, getDataNodes(table)));
         }
-        return response.sendOk();
+        return future.flatMap(unused -> response.sendOk());
     }
 
     private SQLTruncateStatement clone(SQLTruncateStatement truncateStatement) {
         return (SQLTruncateStatement)SQLUtils.parseSingleMysqlStatement(truncateStatement.toString());
     }
 
-    public void executeOnDataNodes(SQLTruncateStatement truncateStatement,
+    public Future<Void> executeOnDataNodes(SQLTruncateStatement truncateStatement,
                                    JdbcConnectionManager connectionManager,
                                    Collection<DataNode> dataNodes) {
         SQLExprTableSource tableSource = truncateStatement.getTableSources().get(0);
-        executeOnDataNodes(truncateStatement, connectionManager, dataNodes, tableSource);
+        return executeOnDataNodes(truncateStatement, connectionManager, dataNodes, tableSource);
     }
 
 }
@@ -1,11 +1,13 @@
 package io.mycat.sqlhandler.dql;
 
+import cn.mycat.vertx.xa.XaCommitStat;
 import cn.mycat.vertx.xa.XaSqlConnection;
 import com.alibaba.druid.sql.SQLUtils;
 import com.alibaba.druid.sql.ast.SQLCommentHint;
 import com.alibaba.druid.sql.ast.SQLStatement;
 import com.alibaba.druid.sql.ast.expr.SQLCharExpr;
 import com.alibaba.druid.sql.ast.expr.SQLIdentifierExpr;
+import com.alibaba.druid.sql.ast.statement.SQLAlterTableStatement;
 import com.alibaba.druid.sql.ast.statement.SQLInsertStatement;
 import com.alibaba.druid.sql.dialect.mysql.ast.statement.MySqlHintStatement;
 import com.alibaba.druid.sql.dialect.mysql.ast.statement.MySqlInsertStatement;
@@ -15,6 +17,7 @@ import io.mycat.api.collector.RowBaseIterator;
 import io.mycat.beans.mycat.ResultSetBuilder;
 import io.mycat.beans.mysql.MySQLErrorCode;
 import io.mycat.calcite.physical.MycatInsertRel;
+import io.mycat.calcite.plan.QueryResultCache;
 import io.mycat.calcite.spm.Plan;
 import io.mycat.calcite.table.GlobalTable;
 import io.mycat.calcite.table.NormalTable;
@@ -30,12 +33,14 @@ import io.mycat.replica.ReplicaSelector;
 import io.mycat.replica.ReplicaSelectorManager;
 import io.mycat.replica.ReplicaSwitchType;
 import io.mycat.replica.heartbeat.DatasourceStatus;
+import io.mycat.sqlhandler.DDLJobExecutor;
 import io.mycat.replica.heartbeat.HeartBeatStatus;
 import io.mycat.replica.heartbeat.HeartbeatFlow;
 import io.mycat.sqlhandler.AbstractSQLHandler;
 import io.mycat.sqlhandler.ConfigUpdater;
 import io.mycat.sqlhandler.SQLRequest;
 import io.mycat.sqlhandler.SqlHints;
+import io.mycat.sqlhandler.ddl.AlterTableSQLHandler;
 import io.mycat.sqlrecorder.SqlRecord;
 import io.mycat.sqlrecorder.SqlRecorderRuntime;
 import io.mycat.util.JsonUtil;
@@ -552,6 +557,7 @@ public class HintHandler extends AbstractSQLHandler<MySqlHintStatement> {
                         resultSetBuilder.addColumnInfo("IS_SLAVE_BEHIND_MASTER", JDBCType.VARCHAR);
                         resultSetBuilder.addColumnInfo("LAST_SEND_QUERY_TIME", JDBCType.TIMESTAMP);
                         resultSetBuilder.addColumnInfo("LAST_RECEIVED_QUERY_TIME", JDBCType.TIMESTAMP);
+                        resultSetBuilder.addColumnInfo("REPLICATION_LAG", JDBCType.BIGINT);
 
 
                         for (HeartbeatFlow heartbeatFlow : replicaSelectorRuntime.getHeartbeatDetectorMap().values()) {
@@ -610,7 +616,8 @@ public class HintHandler extends AbstractSQLHandler<MySqlHintStatement> {
                                             HB_DS_STATUS,
                                             IS_SLAVE_BEHIND_MASTER,
                                             LAST_SEND_QUERY_TIME,
-                                            LAST_RECEIVED_QUERY_TIME
+                                            LAST_RECEIVED_QUERY_TIME,
+                                            instance.getReplicationLag()
                                     ));
                         }
                         return response.sendResultSet(resultSetBuilder.build());
@@ -687,6 +694,85 @@ public class HintHandler extends AbstractSQLHandler<MySqlHintStatement> {
 
                         return response.sendResultSet(() -> builder.build());
                     }
+                    if ("showXaStat".equalsIgnoreCase(cmd)) {
+                        ResultSetBuilder builder = ResultSetBuilder.create();
+                        builder.addColumnInfo("PHASE", JDBCType.VARCHAR)
+                                .addColumnInfo("COUNT", JDBCType.BIGINT)
+                                .addColumnInfo("TOTAL_MILLIS", JDBCType.BIGINT)
+                                .addColumnInfo("AVG_MILLIS", JDBCType.DOUBLE)
+                                .addColumnInfo("MAX_MILLIS", JDBCType.DOUBLE);
+                        for (XaCommitStat stat : XaCommitStat.values()) {
+                            builder.addObjectRowPayload(Arrays.asList(
+                                    stat.name(),
+                                    stat.getCount(),
+                                    stat.getTotalMillis(),
+                                    stat.getAvgMillis(),
+                                    stat.getMaxMillis()));
+                        }
+                        return response.sendResultSet(builder.build());
+                    }
+                    if ("showResultCache".equalsIgnoreCase(cmd)) {
+                        ResultSetBuilder builder = ResultSetBuilder.create();
+                        builder.addColumnInfo("TABLE_NAME", JDBCType.VARCHAR)
+                                .addColumnInfo("VERSION", JDBCType.BIGINT)
+                                .addColumnInfo("HIT", JDBCType.BIGINT)
+                                .addColumnInfo("MISS", JDBCType.BIGINT)
+                                .addColumnInfo("HIT_RATIO", JDBCType.DOUBLE);
+                        if (MetaClusterCurrent.exist(QueryResultCache.class)) {
+                            QueryResultCache queryResultCache = MetaClusterCurrent.wrapper(QueryResultCache.class);
+                            for (Map.Entry<String, QueryResultCache.TableState> entry : queryResultCache.getTableStates().entrySet()) {
+                                QueryResultCache.TableState tableState = entry.getValue();
+                                builder.addObjectRowPayload(Arrays.asList(
+                                        entry.getKey(),
+                                        tableState.getVersion().get(),
+                                        tableState.getHit().sum(),
+                                        tableState.getMiss().sum(),
+                                        tableState.getHitRatio()));
+                            }
+                        }
+                        return response.sendResultSet(builder.build());
+                    }
+                    if ("showDDLJobs".equalsIgnoreCase(cmd)) {
+                        ResultSetBuilder builder = ResultSetBuilder.create();
+                        builder.addColumnInfo("JOB_ID", JDBCType.BIGINT)
+                                .addColumnInfo("LOGIC_SQL", JDBCType.VARCHAR)
+                                .addColumnInfo("STATUS", JDBCType.VARCHAR)
+                                .addColumnInfo("TOTAL", JDBCType.BIGINT)
+                                .addColumnInfo("SUCCESS", JDBCType.BIGINT)
+                                .addColumnInfo("RUNNING", JDBCType.BIGINT)
+                                .addColumnInfo("FAILED", JDBCType.BIGINT)
+                                .addColumnInfo("START_TIME", JDBCType.TIMESTAMP)
+                                .addColumnInfo("MESSAGE", JDBCType.VARCHAR);
+                        for (DDLJobExecutor.DDLJob job : DDLJobExecutor.INSTANCE.getJobs()) {
+                            builder.addObjectRowPayload(Arrays.asList(
+                                    job.getId(),
+                                    job.getLogicSql(),
+                                    job.getStatus().name(),
+                                    job.getNodes().size(),
+                                    job.count(DDLJobExecutor.Status.SUCCESS),
+                                    job.count(DDLJobExecutor.Status.RUNNING),
+                                    job.count(DDLJobExecutor.Status.FAILED),
+                                    new Timestamp(job.getStartTime()).toLocalDateTime(),
+                                    job.getMessage()));
+                        }
+                        return response.sendResultSet(builder.build());
+                    }
+                    if ("resumeDDLJob".equalsIgnoreCase(cmd)) {
+                        Map map = JsonUtil.from(body, Map.class);
+                        long id = Long.parseLong(Objects.toString(map.get("id")));
+                        boolean rerunUnknown = Boolean.parseBoolean(Objects.toString(map.get("rerunUnknown")));
+                        LockService lockService = MetaClusterCurrent.wrapper(LockService.class);
+                        return lockService.getLockWithTimeout(DDL_LOCK).flatMap(lock -> DDLJobExecutor.INSTANCE.resume(id, rerunUnknown)
+                                .map(logicSql -> {
+                                    SQLStatement statement = SQLUtils.parseSingleMysqlStatement(logicSql);
+                                    if (statement instanceof SQLAlterTableStatement) {
+                                        AlterTableSQLHandler.updateMetadata((SQLAlterTableStatement) statement);
+                                    }
+                                    return logicSql;
+                                })
+                                .onComplete(event -> lock.release()))
+                                .flatMap(logicSql -> response.sendOk());
+                    }
                     if ("showNativeBackends".equalsIgnoreCase(cmd)) {
                         MycatServer server = MetaClusterCurrent.wrapper(MycatServer.class);
                         return response.sendResultSet(server.showNativeBackends());
@@ -15,6 +15,7 @@
 package io.mycat.vertx;
 
 import io.mycat.MySQLPacketUtil;
+import io.mycat.api.collector.RowBatch;
 import io.mycat.beans.mycat.MycatRowMetaData;
 import io.mycat.resultset.BinaryResultSetResponse;
 import io.mycat.resultset.TextConvertorImpl;
@@ -34,111 +35,174 @@ import java.util.function.Function;
 public class ResultSetMapping {
     private static final Logger LOGGER = LoggerFactory.getLogger(ResultSetMapping.class);
 
+    /**
+     * 把RowBatch中的一行转换成行数据包
+     */
+    public interface RowBatchConvertor {
+        byte[] apply(RowBatch batch, int rowIndex);
+    }
+
     public static Function<Object[], byte[]> concertToDirectTextResultSet(MycatRowMetaData rowMetaData) {
         int columnCount = rowMetaData.getColumnCount();
+        int[] columnTypes = new int[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            columnTypes[i] = rowMetaData.getColumnType(i);
+        }
         return new Function<Object[], byte[]>() {
+            /**
+             * 同一个结果集的行按顺序转换,generateTextRow会复制字段内容,所以字段数组可以复用
+             */
+            final byte[][] row = new byte[columnCount][];
+
             @Override
             public byte[] apply(Object[] objects) {
-                byte[][] row = new byte[columnCount][];
-                for (int columnIndex = 0, rowIndex = 0; rowIndex < columnCount; columnIndex++, rowIndex++) {
+                byte[][] row = this.row;
+                for (int columnIndex = 0; columnIndex < columnCount; columnIndex++) {
+                    row[columnIndex] = toText(columnTypes[columnIndex], objects[columnIndex]);
+                }
+                return MySQLPacketUtil.generateTextRow(row);
+            }
+        };
+    }
 
-                    int columnType = rowMetaData.getColumnType(columnIndex);
-                    switch (columnType) {
-                        case Types.VARBINARY:
-                        case Types.LONGVARBINARY:
-                        case 2004://blob
-                        case Types.BINARY: {
-                            Object o = objects[columnIndex];
-                            byte[] bytes = null;
-                            if (o == null) {
+    /**
+     * RowBatch按行转换,基本类型的列不装箱直接编码
+     */
+    public static RowBatchConvertor concertToDirectTextRowBatch(MycatRowMetaData rowMetaData) {
+        int columnCount = rowMetaData.getColumnCount();
+        int[] columnTypes = new int[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            columnTypes[i] = rowMetaData.getColumnType(i);
+        }
+        byte[][] row = new byte[columnCount][];
+        return (batch, rowIndex) -> {
+            for (int columnIndex = 0; columnIndex < columnCount; columnIndex++) {
+                RowBatch.ColumnType type = batch.getColumnType(columnIndex);
+                if (type == RowBatch.ColumnType.OBJECT) {
+                    row[columnIndex] = toText(columnTypes[columnIndex], batch.getObjects(columnIndex)[rowIndex]);
+                } else if (RowBatch.isNull(batch.getNulls(columnIndex), rowIndex)) {
+                    row[columnIndex] = null;
+                } else if (type == RowBatch.ColumnType.BOOLEAN) {
+                    //与按行转换一样,由列的类型决定输出1/0还是true/false
+                    row[columnIndex] = toText(columnTypes[columnIndex], batch.getObject(columnIndex, rowIndex));
+                } else if (type.isLong()) {
+                    row[columnIndex] = toText(columnTypes[columnIndex], batch.getLongs(columnIndex)[rowIndex]);
+                } else if (type == RowBatch.ColumnType.FLOAT) {
+                    row[columnIndex] = Float.toString((float) batch.getDoubles(columnIndex)[rowIndex]).getBytes();
+                } else {
+                    row[columnIndex] = Double.toString(batch.getDoubles(columnIndex)[rowIndex]).getBytes();
+                }
+            }
+            return MySQLPacketUtil.generateTextRow(row);
+        };
+    }
 
-                            } else if (o instanceof byte[]) {
-                                bytes = (byte[]) o;
-                            } else if (o instanceof ByteString) {
-                                bytes = ((ByteString) o).getBytes();
-                            }
-                            row[rowIndex] = bytes == null ? null : bytes;
-                            break;
-                        }
-                        case Types.TIME: {
-                            Object o = objects[columnIndex];
-                            if (o == null) {
-                                row[rowIndex] = null;
-                            } else if (o instanceof Duration) {
-                                row[rowIndex] = TextConvertorImpl.getBytes((Duration) o);
-                            } else if (o instanceof LocalTime) {
-                                row[rowIndex] = TextConvertorImpl.getBytes((LocalTime) o);
-                            } else if (o instanceof Time) {
-                                row[rowIndex] = TextConvertorImpl.getBytes(((Time) o).toLocalTime());
-                            } else if (o instanceof String) {
-                                row[rowIndex] = ((String) o).getBytes();
-                            }  else {
-                                LOGGER.error(" unsupport type:{}  value:{}", o.getClass(), o);
-                                throw new UnsupportedOperationException();
-                            }
-                            break;
-                        }
-                        case Types.TIMESTAMP_WITH_TIMEZONE:
-                        case Types.TIMESTAMP: {
-                            Object o = objects[columnIndex];
-                            if (o == null) {
-                                row[rowIndex] = null;
-                            } else if (o instanceof Timestamp) {
-                                row[rowIndex] = TextConvertorImpl.getBytes(((Timestamp) o).toLocalDateTime());
-                            } else if (o instanceof LocalDateTime) {
-                                row[rowIndex] = TextConvertorImpl.getBytes((LocalDateTime) o);
-                            } else {
-                                LOGGER.error(" unsupport type:{}  value:{}", o.getClass(), o);
-                                throw new UnsupportedOperationException();
-                            }
-                            break;
-                        }
-                        case Types.BIT:
-                        {
-                            Object o = objects[columnIndex];
-                            if (o == null) {
-                                row[rowIndex] = null;
-                            } else if (o instanceof Boolean) {
-                                row[rowIndex] = ((Boolean) o).booleanValue()?new byte[]{1}:new byte[]{0};
-                            } else if (o instanceof Number) {
-                                row[rowIndex] = new byte[]{((Number) o).byteValue()};
-                            } else {
-                                LOGGER.error(" unsupport type:{}  value:{}", o.getClass(), o);
-                                throw new UnsupportedOperationException();
-                            }
-                            break;
-                        }
-                        case Types.BOOLEAN: {
-                            Object o = objects[columnIndex];
-                            if (o == null) {
-                                row[rowIndex] = null;
-                            } else if (o instanceof Boolean) {
-                                row[rowIndex] = TextConvertorImpl.INSTANCE.convertBoolean((Boolean) o);
-                            } else if (o instanceof Number) {
-                                long l = ((Number) o).longValue();
-                                if ((l == -1 || l > 0)) {
-                                    row[rowIndex] = TextConvertorImpl.ONE;
-                                } else {
-                                    row[rowIndex] = TextConvertorImpl.ZERO;
-                                }
-                            }else if (o instanceof String) {
-                                row[rowIndex] = ((String) o).getBytes();
-                            }  else {
-                                LOGGER.error(" unsupport type:{}  value:{}", o.getClass(), o);
-                                throw new UnsupportedOperationException();
-                            }
-                            break;
-                        }
-                        default:
-                            Object object = objects[columnIndex];
-                            row[rowIndex] = (object == null ? null : Objects.toString(object).getBytes());
-                            break;
-                    }
+    public static RowBatchConvertor concertToDirectBinaryRowBatch(MycatRowMetaData rowMetaData) {
+        Function<Object[], byte[]> convertor = concertToDirectBinaryResultSet(rowMetaData);
+        return (batch, rowIndex) -> convertor.apply(batch.getRow(rowIndex));
+    }
 
+    private static byte[] toText(int columnType, long value) {
+        switch (columnType) {
+            case Types.BIT:
+                return new byte[]{(byte) value};
+            case Types.BOOLEAN:
+                return (value == -1 || value > 0) ? TextConvertorImpl.ONE : TextConvertorImpl.ZERO;
+            default:
+                return TextConvertorImpl.getBytes(value);
+        }
+    }
+
+    private static byte[] toText(int columnType, Object o) {
+        byte[] bytes;
+        switch (columnType) {
+            case Types.VARBINARY:
+            case Types.LONGVARBINARY:
+            case 2004://blob
+            case Types.BINARY: {
+                bytes = null;
+                if (o instanceof byte[]) {
+                    bytes = (byte[]) o;
+                } else if (o instanceof ByteString) {
+                    bytes = ((ByteString) o).getBytes();
                 }
-                return MySQLPacketUtil.generateTextRow(row);
+                break;
             }
-        };
+            case Types.TIME: {
+                if (o == null) {
+                    bytes = null;
+                } else if (o instanceof Duration) {
+                    bytes = TextConvertorImpl.getBytes((Duration) o);
+                } else if (o instanceof LocalTime) {
+                    bytes = TextConvertorImpl.getBytes((LocalTime) o);
+                } else if (o instanceof Time) {
+                    bytes = TextConvertorImpl.getBytes(((Time) o).toLocalTime());
+                } else if (o instanceof String) {
+                    bytes = ((String) o).getBytes();
+                }  else {
+                    LOGGER.error(" unsupport type:{}  value:{}", o.getClass(), o);
+                    throw new UnsupportedOperationException();
+                }
+                break;
+            }
+            case Types.TIMESTAMP_WITH_TIMEZONE:
+            case Types.TIMESTAMP: {
+                if (o == null) {
+                    bytes = null;
+                } else if (o instanceof Timestamp) {
+                    bytes = TextConvertorImpl.getBytes(((Timestamp) o).toLocalDateTime());
+                } else if (o instanceof LocalDateTime) {
+                    bytes = TextConvertorImpl.getBytes((LocalDateTime) o);
+                } else {
+                    LOGGER.error(" unsupport type:{}  value:{}", o.getClass(), o);
+                    throw new UnsupportedOperationException();
+                }
+                break;
+            }
+            case Types.BIT:
+            {
+                if (o == null) {
+                    bytes = null;
+                } else if (o instanceof Boolean) {
+                    bytes = ((Boolean) o).booleanValue()?new byte[]{1}:new byte[]{0};
+                } else if (o instanceof Number) {
+                    bytes = new byte[]{((Number) o).byteValue()};
+                } else {
+                    LOGGER.error(" unsupport type:{}  value:{}", o.getClass(), o);
+                    throw new UnsupportedOperationException();
+                }
+                break;
+            }
+            case Types.BOOLEAN: {
+                if (o == null) {
+                    bytes = null;
+                } else if (o instanceof Boolean) {
+                    bytes = TextConvertorImpl.INSTANCE.convertBoolean((Boolean) o);
+                } else if (o instanceof Number) {
+                    long l = ((Number) o).longValue();
+                    if ((l == -1 || l > 0)) {
+                        bytes = TextConvertorImpl.ONE;
+                    } else {
+                        bytes = TextConvertorImpl.ZERO;
+                    }
+                }else if (o instanceof String) {
+                    bytes = ((String) o).getBytes();
+                }  else {
+                    LOGGER.error(" unsupport type:{}  value:{}", o.getClass(), o);
+                    throw new UnsupportedOperationException();
+                }
+                break;
+            }
+            default:
+                if (o instanceof Long || o instanceof Integer
+                        || o instanceof Short || o instanceof Byte) {
+                    bytes = TextConvertorImpl.getBytes(((Number) o).longValue());
+                } else {
+                    bytes = (o == null ? null : Objects.toString(o).getBytes());
+                }
+                break;
+        }
+        return bytes;
     }
 
     public static Function<Object[], byte[]> concertToDirectBinaryResultSet(MycatRowMetaData rowMetaData) {
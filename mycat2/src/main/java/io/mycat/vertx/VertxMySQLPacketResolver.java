@@ -16,99 +16,132 @@ package io.mycat.vertx;
 
 import io.mycat.beans.mysql.packet.MySQLPacketSplitter;
 import io.mycat.mycatmysql.MycatVertxMySQLHandler;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.Unpooled;
 import io.vertx.core.Handler;
 import io.vertx.core.buffer.Buffer;
 import io.vertx.core.net.NetSocket;
 
-import static io.mycat.vertx.VertxMySQLPacketResolver.State.HEAD;
-import static io.mycat.vertx.VertxMySQLPacketResolver.State.PAYLOAD;
-
+/**
+ * 前端报文解码
+ * <p>
+ * 完整落在一个入站Buffer里的报文直接slice出来交给处理器,不复制;
+ * 跨越多个Buffer的报文才复制到按报文长度预分配的Buffer里;
+ * 超过16M拆成多个报文的payload用CompositeByteBuf拼接,不再整体复制
+ * <p>
+ * vertx交给NetSocket handler的Buffer是堆内拷贝,slice出来的payload可以在handler返回后继续持有
+ */
 public class VertxMySQLPacketResolver implements Handler<Buffer> {
-    Buffer head;
-    Buffer payload;
-    State state = HEAD;
-    int currentPacketLength;
-    int reveicePacketLength = 0;
-    MycatVertxMySQLHandler mySQLHandler;
-    NetSocket socket;
-    private short packetId;
+    private static final int HEAD_LENGTH = 4;
+    /**
+     * 报文头跨Buffer时暂存已收到的部分
+     */
+    private final byte[] head = new byte[HEAD_LENGTH];
+    private int headLength = 0;
+    /**
+     * 当前报文跨Buffer时的payload,为null表示当前报文还没收到payload
+     */
+    private Buffer partial;
+    private int currentPacketLength = -1;
+    /**
+     * 16M拆包时前面已完成的报文payload
+     */
+    private CompositeByteBuf multiPayload;
+    private int packetId;
+    private final PacketHandler mySQLHandler;
+    private final NetSocket socket;
 
-    static enum State {
-        HEAD,
-        PAYLOAD
+    public VertxMySQLPacketResolver(NetSocket socket, MycatVertxMySQLHandler mySQLHandler) {
+        this(socket, mySQLHandler::handle);
     }
 
-
-    public VertxMySQLPacketResolver(NetSocket socket, MycatVertxMySQLHandler mySQLHandler) {
+    public VertxMySQLPacketResolver(NetSocket socket, PacketHandler mySQLHandler) {
         this.mySQLHandler = mySQLHandler;
         this.socket = socket;
     }
 
+    /**
+     * 接收解码后的完整报文,16M拆包的报文已经拼接好,packetId是最后一个分包的id
+     */
+    public interface PacketHandler {
+        void handle(int packetId, Buffer payload, NetSocket socket);
+    }
+
     @Override
     public void handle(Buffer event) {
-        for (; ; ) {
-            if (event.length()==0)return;
-            switch (state) {
-                case HEAD: {
-                    if (head == null) {
-                        head = Buffer.buffer();
+        int length = event.length();
+        int offset = 0;
+        while (offset < length) {
+            if (currentPacketLength < 0) {
+                if (headLength == 0 && length - offset >= HEAD_LENGTH) {
+                    currentPacketLength = event.getUnsignedMediumLE(offset);
+                    packetId = event.getUnsignedByte(offset + 3);
+                    offset += HEAD_LENGTH;
+                } else {
+                    while (headLength < HEAD_LENGTH && offset < length) {
+                        head[headLength++] = event.getByte(offset++);
                     }
-                    int restEnd = 4 - head.length();
-                    head.appendBuffer(event.slice(0, Math.min(event.length(), restEnd)));
-                    if (head.length() < 4) {
-                        state = HEAD;
+                    if (headLength < HEAD_LENGTH) {
                         return;
-                    } else {
-                        state = PAYLOAD;
-                        event = event.slice(restEnd, event.length());
-                    }
-                    if (state == PAYLOAD) {
-                        currentPacketLength = readInt(head, 0, 3);
-                        reveicePacketLength = 0;
-                        this.packetId = head.getUnsignedByte(3);
-                        head = null;//help gc
                     }
+                    currentPacketLength = (head[0] & 0xff) | (head[1] & 0xff) << 8 | (head[2] & 0xff) << 16;
+                    packetId = head[3] & 0xff;
+                    headLength = 0;
+                }
+                if (currentPacketLength == 0) {
+                    onPacket(Buffer.buffer(0));
                     continue;
                 }
-                case PAYLOAD: {
-                    if (payload == null) {
-                        payload = Buffer.buffer();
-                    }
-                    int restPacketLength = currentPacketLength - reveicePacketLength;
-                    Buffer curBuffer;
-                    if (event.length() > restPacketLength) {
-                        curBuffer = event.slice(0, restPacketLength);
-                        event = event.slice(restPacketLength, event.length());
-                    } else {
-                        curBuffer = event;
-                        event =Buffer.buffer();
-                    }
-                    payload.appendBuffer(curBuffer);
-                    reveicePacketLength += curBuffer.length();
-                    boolean endPacket = currentPacketLength == reveicePacketLength;
-                    boolean multiPacket = (currentPacketLength == MySQLPacketSplitter.MAX_PACKET_SIZE);
-                    if (endPacket){
-                        state = HEAD;
-                        this.head = null;
-                        reveicePacketLength = 0;
-                    }
-                    if (endPacket && !multiPacket) {
-                        Buffer payload = this.payload;
-                        this.payload = null;
-                        mySQLHandler.handle(packetId, payload, socket);
-                        continue;
-                    }else {
-                        continue;
+            }
+            int rest = length - offset;
+            if (partial == null) {
+                if (rest >= currentPacketLength) {
+                    //报文完整,零拷贝
+                    Buffer payload = event.slice(offset, offset + currentPacketLength);
+                    offset += currentPacketLength;
+                    onPacket(payload);
+                } else {
+                    partial = Buffer.buffer(currentPacketLength);
+                    partial.appendBuffer(event, offset, rest);
+                    return;
+                }
+            } else {
+                int need = currentPacketLength - partial.length();
+                int n = Math.min(need, rest);
+                partial.appendBuffer(event, offset, n);
+                offset += n;
+                if (n < need) {
+                    return;
                 }
+                Buffer payload = partial;
+                partial = null;
+                onPacket(payload);
             }
-            default:
-                throw new IllegalStateException("Unexpected value: " + state);
         }
     }
 
-}
+    private void onPacket(Buffer payload) {
+        boolean multiPacket = currentPacketLength == MySQLPacketSplitter.MAX_PACKET_SIZE;
+        currentPacketLength = -1;
+        if (multiPacket) {
+            if (multiPayload == null) {
+                multiPayload = Unpooled.compositeBuffer(Integer.MAX_VALUE);
+            }
+            multiPayload.addComponent(true, payload.getByteBuf());
+            return;
+        }
+        if (multiPayload != null) {
+            multiPayload.addComponent(true, payload.getByteBuf());
+            payload = Buffer.buffer(multiPayload);
+            multiPayload = null;
+        }
+        mySQLHandler.handle(packetId, payload, socket);
+    }
 
     public static int readInt(Buffer buffer, int start, int length) {
+        if (length == 3) {
+            return buffer.getUnsignedMediumLE(start);
+        }
         int rv = 0;
         for (int i = 0; i < length; i++) {
             byte b = buffer.getByte(start + i);
@@ -14,6 +14,7 @@
  */
 package io.mycat.vertxmycat;
 
+import cn.mycat.vertx.xa.DeferredSetupConnection;
 import com.alibaba.druid.sql.SQLUtils;
 import com.alibaba.druid.sql.ast.SQLExpr;
 import com.alibaba.druid.sql.ast.SQLReplaceable;
@@ -21,6 +22,7 @@ import com.alibaba.druid.sql.ast.SQLStatement;
 import com.alibaba.druid.sql.ast.expr.*;
 import com.alibaba.druid.sql.dialect.mysql.visitor.MySqlASTVisitorAdapter;
 import io.mycat.beans.mysql.MySQLCommandType;
+import io.mycat.beans.mysql.MySQLIsolation;
 import io.mycat.proxy.callback.ResultSetCallBack;
 import io.mycat.proxy.handler.backend.ResultSetHandler;
 import io.mycat.proxy.session.MySQLClientSession;
@@ -32,6 +34,7 @@ import io.vertx.core.Promise;
 import io.vertx.core.buffer.Buffer;
 import io.vertx.core.impl.future.PromiseInternal;
 import io.vertx.mysqlclient.MySQLConnection;
+import io.vertx.mysqlclient.impl.codec.StreamMysqlCollector;
 import io.vertx.sqlclient.*;
 import org.apache.calcite.avatica.util.ByteString;
 import org.jetbrains.annotations.NotNull;
@@ -48,11 +51,16 @@ import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 
-public class AbstractMySqlConnectionImpl extends AbstractMySqlConnection {
+public class AbstractMySqlConnectionImpl extends AbstractMySqlConnection implements DeferredSetupConnection {
    public static final Logger LOGGER = LoggerFactory.getLogger(AbstractMySqlConnectionImpl.class);
     volatile Handler<Throwable> exceptionHandler;
     volatile Handler<Void> closeHandler;
     volatile MySQLClientSession mySQLClientSession;
+    /**
+     * 还没有发送的事务初始化语句,和下一条语句一起发送
+     */
+    private String pendingSetup;
+    private MySQLIsolation pendingIsolation;
 
     public AbstractMySqlConnectionImpl(MySQLClientSession mySQLClientSession) {
         this.mySQLClientSession = mySQLClientSession;
@@ -98,6 +106,8 @@ public class AbstractMySqlConnectionImpl extends AbstractMySqlConnection {
     @Override
     public Future<Void> resetConnection() {
         Promise<Void> promise = Promise.promise();
+        //重置后会话变量恢复为全局值
+        mySQLClientSession.setIsolation(null);
         ResultSetHandler.DEFAULT
                 .request(mySQLClientSession, MySQLCommandType.COM_RESET_CONNECTION, new byte[]{},
                         commandResponse(promise));
@@ -109,6 +119,48 @@ public class AbstractMySqlConnectionImpl extends AbstractMySqlConnection {
         return new RowSetQuery(sql, this);
     }
 
+    @Override
+    public void deferSetup(MySQLIsolation isolation, String sql) {
+        StringBuilder sb = new StringBuilder();
+        if (pendingSetup != null) {
+            sb.append(pendingSetup);
+        }
+        if (isolation != null && isolation != mySQLClientSession.getIsolation()) {
+            sb.append(isolation.getCmd());
+            pendingIsolation = isolation;
+        }
+        sb.append(sql);
+        pendingSetup = sb.toString();
+    }
+
+    @Override
+    public boolean cancelSetup() {
+        boolean pending = pendingSetup != null;
+        pendingSetup = null;
+        pendingIsolation = null;
+        return pending;
+    }
+
+    /**
+     * 有未发送的初始化语句时拼在sql前面作为多语句发送,结果以最后一条语句为准
+     */
+    PromiseInternal<SqlResult<Void>> runTextQuery(String sql, StreamMysqlCollector collector) {
+        MySQLClientSession session = this.mySQLClientSession;
+        String setup = this.pendingSetup;
+        if (setup == null) {
+            return RowSetQuery.runTextQuery(sql, session, collector);
+        }
+        MySQLIsolation isolation = this.pendingIsolation;
+        this.pendingSetup = null;
+        this.pendingIsolation = null;
+        PromiseInternal<SqlResult<Void>> promise = RowSetQuery.runTextQuery(setup + sql, session, collector);
+        if (isolation != null) {
+            //失败时不知道是哪一条语句出错,隔离级别记为未知,下次重新设置
+            promise.onComplete(event -> session.setIsolation(event.succeeded() ? isolation : null));
+        }
+        return promise;
+    }
+
     public static String apply(String parameterizedSql, List<Object> parameters) {
         SQLStatement sqlStatement = SQLUtils.parseSingleMysqlStatement(parameterizedSql);
         sqlStatement.accept(new MySqlASTVisitorAdapter() {
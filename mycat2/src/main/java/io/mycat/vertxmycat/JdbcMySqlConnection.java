@@ -17,8 +17,10 @@ package io.mycat.vertxmycat;
 import io.mycat.MetaClusterCurrent;
 import io.mycat.beans.mycat.JdbcRowMetaData;
 import io.mycat.beans.mysql.MySQLIsolation;
+import io.mycat.config.DatasourceConfig;
 import io.mycat.datasource.jdbc.datasource.DefaultConnection;
 import io.mycat.datasource.jdbc.datasource.JdbcConnectionManager;
+import io.mycat.plug.loadBalance.PeakEwma;
 import io.vertx.core.AsyncResult;
 import io.vertx.core.Future;
 import io.vertx.core.Handler;
@@ -97,7 +99,11 @@ public class JdbcMySqlConnection extends AbstractMySqlConnection {
 
     @Override
     public PreparedQuery<RowSet<Row>> preparedQuery(String sql) {
-        return new RowSetJdbcPreparedJdbcQuery(targetName,sql,connection.unwrap(Connection.class), IO_EXECUTOR);
+        return new RowSetJdbcPreparedJdbcQuery(targetName,sql,connection.unwrap(Connection.class), getConfig(), IO_EXECUTOR);
+    }
+
+    private DatasourceConfig getConfig() {
+        return connection.getDataSource().getConfig();
     }
 
     @Override
@@ -141,11 +147,14 @@ public class JdbcMySqlConnection extends AbstractMySqlConnection {
         public Future<RowSet<Row>> execute() {
             return Future.future(event -> {
                 IO_EXECUTOR.execute(isRead, () -> {
+                    long startTime = PeakEwma.start(targetName);
                     try {
                         event.complete(innerExecute());
                     } catch (Throwable throwable) {
                         LOGGER.error("", throwable);
                         event.tryFail(throwable);
+                    } finally {
+                        PeakEwma.end(targetName, startTime);
                     }
                 });
             });
@@ -232,21 +241,29 @@ public class JdbcMySqlConnection extends AbstractMySqlConnection {
                         @Override
                         public void handle(Promise<SqlResult<R>> promise) {
                             IO_EXECUTOR.execute(isRead, () -> {
+                                long startTime = PeakEwma.start(targetName);
                                 try {
                                     extracted(promise);
                                 } catch (Throwable throwable) {
                                     promise.tryFail(throwable);
+                                } finally {
+                                    PeakEwma.end(targetName, startTime);
                                 }
                             });
                         }
 
                         @SneakyThrows
                         private void extracted(Promise<SqlResult<R>> promise) {
-                            try (Statement statement = rawConnection.createStatement()) {
+                            try (Statement statement = createStatement(rawConnection)) {
                                 if (LOGGER.isDebugEnabled()) {
                                     LOGGER.debug("MycatMySQLManager targetName:{} sql:{}", targetName, sql);
                                 }
-                                statement.execute(sql);
+                                RowSetJdbcPreparedJdbcQuery.setFetchMode(statement, getConfig());
+                                if (statement instanceof java.sql.PreparedStatement) {
+                                    ((java.sql.PreparedStatement) statement).execute();
+                                } else {
+                                    statement.execute(sql);
+                                }
                                 ResultSet resultSet = statement.getResultSet();
                                 RowSetJdbcPreparedJdbcQuery.extracted(promise, statement, resultSet, collector);
                             }catch (Throwable throwable){
@@ -272,5 +289,16 @@ public class JdbcMySqlConnection extends AbstractMySqlConnection {
         public <U> Query<RowSet<U>> mapping(Function<Row, U> mapper) {
             throw new UnsupportedOperationException();
         }
+
+        /**
+         * 驱动只对PreparedStatement使用服务器游标,CURSOR模式下用PreparedStatement执行
+         */
+        private Statement createStatement(Connection rawConnection) throws SQLException {
+            DatasourceConfig config = getConfig();
+            if (config != null && config.computeQueryFetchMode() == DatasourceConfig.QueryFetchMode.CURSOR) {
+                return rawConnection.prepareStatement(sql);
+            }
+            return rawConnection.createStatement();
+        }
     }
 }
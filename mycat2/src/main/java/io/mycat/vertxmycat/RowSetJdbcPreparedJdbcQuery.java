@@ -18,6 +18,8 @@ import io.mycat.beans.mycat.JdbcRowMetaData;
 import io.mycat.beans.mysql.packet.ColumnDefPacket;
 import io.mycat.beans.mysql.packet.ColumnDefPacketImpl;
 import io.mycat.calcite.executor.MycatPreparedStatementUtil;
+import io.mycat.config.DatasourceConfig;
+import io.mycat.plug.loadBalance.PeakEwma;
 import io.vertx.core.Future;
 import io.vertx.core.Promise;
 import io.vertx.jdbcclient.impl.JDBCRow;
@@ -50,13 +52,15 @@ public class RowSetJdbcPreparedJdbcQuery implements AbstractMySqlPreparedQuery<R
     private String targetName;
     private final String sql;
     private final Connection connection;
+    private final DatasourceConfig config;
     private ReadWriteThreadPool threadPool;
     public static final Logger LOGGER = LoggerFactory.getLogger(AbstractMySqlConnectionImpl.class);
 
-    public RowSetJdbcPreparedJdbcQuery(String targetName, String sql, Connection connection, ReadWriteThreadPool threadPool) {
+    public RowSetJdbcPreparedJdbcQuery(String targetName, String sql, Connection connection, DatasourceConfig config, ReadWriteThreadPool threadPool) {
         this.targetName = targetName;
         this.sql = sql;
         this.connection = connection;
+        this.config = config;
         this.threadPool = threadPool;
     }
 
@@ -114,6 +118,26 @@ public class RowSetJdbcPreparedJdbcQuery implements AbstractMySqlPreparedQuery<R
         }
     }
 
+    /**
+     * 按数据源配置让驱动逐行或者分批读取结果集,只用于结果直接交给collector的查询
+     */
+    public static void setFetchMode(Statement statement, DatasourceConfig config) throws SQLException {
+        if (config == null) {
+            return;
+        }
+        switch (config.computeQueryFetchMode()) {
+            case STREAM:
+                statement.setFetchSize(Integer.MIN_VALUE);
+                break;
+            case CURSOR:
+                statement.setFetchSize(config.getQueryFetchSize());
+                break;
+            case NONE:
+            default:
+                break;
+        }
+    }
+
     public static void setParams(Tuple tuple, PreparedStatement preparedStatement) throws SQLException {
         if (tuple.size() > 0) {
             List<Object> list = new ArrayList<>();
@@ -128,10 +152,13 @@ public class RowSetJdbcPreparedJdbcQuery implements AbstractMySqlPreparedQuery<R
     @Override
     public Future<RowSet<Row>> execute(Tuple tuple) {
         return Future.future(promise -> threadPool.execute(true, () -> {
+            long startTime = PeakEwma.start(targetName);
             try {
                 promise.complete(innerExecute(tuple));
             } catch (SQLException throwables) {
                 promise.tryFail(throwables);
+            } finally {
+                PeakEwma.end(targetName, startTime);
             }
         }));
     }
@@ -139,6 +166,7 @@ public class RowSetJdbcPreparedJdbcQuery implements AbstractMySqlPreparedQuery<R
     @Override
     public Future<RowSet<Row>> executeBatch(List<Tuple> batch) {
         return Future.future(promise -> threadPool.execute(true, () -> {
+            long startTime = PeakEwma.start(targetName);
             try {
                 PreparedStatement preparedStatement = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
                 for (Tuple tuple : batch) {
@@ -161,6 +189,8 @@ public class RowSetJdbcPreparedJdbcQuery implements AbstractMySqlPreparedQuery<R
                 promise.tryComplete(vertxRowSet);
             } catch (Throwable throwable) {
                 promise.tryFail(throwable);
+            } finally {
+                PeakEwma.end(targetName, startTime);
             }
         }));
 
@@ -173,7 +203,7 @@ public class RowSetJdbcPreparedJdbcQuery implements AbstractMySqlPreparedQuery<R
 
     @Override
     public <R> PreparedQuery<SqlResult<R>> collecting(Collector<Row, ?, R> collector) {
-        return new SqlResultCollectingPrepareJdbcQuery<R>(sql, connection, collector,threadPool);
+        return new SqlResultCollectingPrepareJdbcQuery<R>(targetName, sql, connection, config, collector, threadPool);
     }
 
     @Override
@@ -250,8 +280,14 @@ public class RowSetJdbcPreparedJdbcQuery implements AbstractMySqlPreparedQuery<R
             Object supplier = collector.supplier().get();
             BiConsumer<Object, Row> accumulator = (BiConsumer) collector.accumulator();
             Function<Object, Object> finisher = (Function) collector.finisher();
+            StreamMysqlCollector streamMysqlCollector = collector instanceof StreamMysqlCollector ? (StreamMysqlCollector) collector : null;
             int count = 0;
             while (resultSet.next()) {
+                if (streamMysqlCollector != null && streamMysqlCollector.isCancelled()) {
+                    //流式结果集关闭时会读完剩余的行,先取消查询
+                    cancel(statement, resultSet);
+                    break;
+                }
                 JDBCRow jdbcRow = new JDBCRow(rowDesc);
                 for (int i = 0; i < columnCount; i++) {
                     jdbcRow.addValue(resultSet.getObject(i + 1));
@@ -266,4 +302,17 @@ public class RowSetJdbcPreparedJdbcQuery implements AbstractMySqlPreparedQuery<R
                     count, 0, 0, (R) supplier, columnDescriptors));
         }
     }
+
+    private static void cancel(Statement statement, ResultSet resultSet) {
+        try {
+            statement.cancel();
+        } catch (Throwable throwable) {
+            LOGGER.warn("cancel statement fail", throwable);
+        }
+        try {
+            resultSet.close();
+        } catch (Throwable throwable) {
+            LOGGER.debug("close cancelled resultSet", throwable);
+        }
+    }
 }
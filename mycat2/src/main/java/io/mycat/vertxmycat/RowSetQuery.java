@@ -18,6 +18,7 @@ import io.mycat.MycatException;
 import io.mycat.beans.mysql.MySQLCommandType;
 import io.mycat.beans.mysql.MySQLErrorCode;
 import io.mycat.beans.mysql.packet.ErrorPacketImpl;
+import io.mycat.plug.loadBalance.PeakEwma;
 import io.mycat.proxy.callback.ResultSetCallBack;
 import io.mycat.proxy.reactor.NIOJob;
 import io.mycat.proxy.reactor.ReactorEnvThread;
@@ -79,7 +80,7 @@ public class RowSetQuery implements Query<RowSet<Row>> {
             }
 
         };
-        return runTextQuery(sql, mySQLClientSession.mySQLClientSession, streamMysqlCollector)
+        return mySQLClientSession.runTextQuery(sql, streamMysqlCollector)
                 .map(voidSqlResult -> {
                     vertxRowSet.setAffectRow(voidSqlResult.rowCount());
                     vertxRowSet.setLastInsertId(voidSqlResult.property(MySQLClient.LAST_INSERTED_ID));
@@ -113,7 +114,11 @@ public class RowSetQuery implements Query<RowSet<Row>> {
         }
         PromiseInternal<SqlResult<Void>> promise = VertxUtil.newPromise();
         if (mySQLClientSession.getIOThread() == Thread.currentThread()) {
-            VertxMycatTextCollector<Object, Object> resultSetHandler = new VertxMycatTextCollector<Object, Object>((Collector) collectorArg);
+            String datasourceName = mySQLClientSession.getDatasourceName();
+            long startTime = PeakEwma.start(datasourceName);
+            promise.onComplete(event -> PeakEwma.end(datasourceName, startTime));
+            VertxMycatTextCollector<Object, Object> resultSetHandler = new VertxMycatTextCollector<Object, Object>((Collector) collectorArg,
+                    () -> killQuery(mySQLClientSession));
             if (LOGGER.isDebugEnabled()) {
                 if (curSql.startsWith("XA ROLLBACK")) {
                     LOGGER.debug("session id:{} sql:{}", mySQLClientSession.sessionId(), curSql, new Throwable());
@@ -159,7 +164,12 @@ public class RowSetQuery implements Query<RowSet<Row>> {
                         public void onErrorPacket(ErrorPacketImpl errorPacket, boolean monopolize,
                                                   MySQLClientSession mysql, Object sender, Object attr) {
                             MycatException mycatException = new MycatException(errorPacket.getErrorCode(), errorPacket.getErrorMessageString());
-                            LOGGER.error("onErrorPacket session id:{} sql:{}", mySQLClientSession.sessionId(), curSql, mycatException);
+                            if (mySQLClientSession.isKilled()) {
+                                //下游取消后被KILL QUERY中断,不是真正的错误
+                                LOGGER.debug("onErrorPacket killed session id:{} sql:{}", mySQLClientSession.sessionId(), curSql, mycatException);
+                            } else {
+                                LOGGER.error("onErrorPacket session id:{} sql:{}", mySQLClientSession.sessionId(), curSql, mycatException);
+                            }
                             promise.tryFail(mycatException);
                         }
                     });
@@ -187,4 +197,30 @@ public class RowSetQuery implements Query<RowSet<Row>> {
         return promise;
     }
 
-}
\ No newline at end of file
+    /**
+     * 下游取消后用同一数据源的另一个连接发送KILL QUERY,让后端停止执行.
+     * 被KILL的连接关闭时直接丢弃,避免迟到的KILL打断复用后的下一条语句
+     */
+    static void killQuery(MySQLClientSession mySQLClientSession) {
+        mySQLClientSession.setKilled(true);
+        long connectionId = mySQLClientSession.getBackendConnectionId();
+        if (connectionId < 0) {
+            return;
+        }
+        String killSql = "KILL QUERY " + connectionId;
+        mySQLClientSession.getDatasource().createSession()
+                .flatMap(killSession -> runTextQuery(killSql, killSession, new StreamMysqlCollector() {
+                    @Override
+                    public void onColumnDefinitions(MySQLRowDesc columnDefinitions) {
+
+                    }
+
+                    @Override
+                    public void onRow(Row row) {
+
+                    }
+                }).eventually(unused -> killSession.close(true, "kill query")))
+                .onFailure(throwable -> LOGGER.warn("session id:{} {} fail", mySQLClientSession.sessionId(), killSql, throwable));
+    }
+
+}
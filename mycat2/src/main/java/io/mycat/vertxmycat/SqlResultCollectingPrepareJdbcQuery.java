@@ -14,6 +14,8 @@
  */
 package io.mycat.vertxmycat;
 
+import io.mycat.config.DatasourceConfig;
+import io.mycat.plug.loadBalance.PeakEwma;
 import io.vertx.core.Future;
 import io.vertx.sqlclient.*;
 
@@ -25,16 +27,22 @@ import java.util.stream.Collector;
 
 public class SqlResultCollectingPrepareJdbcQuery<R> implements AbstractMySqlPreparedQuery<SqlResult<R>> {
 
+    private final String targetName;
     private final String sql;
     private final Connection connection;
+    private final DatasourceConfig config;
     private final Collector<Row, ?, R> collector;
     private ReadWriteThreadPool threadPool;
 
-    public SqlResultCollectingPrepareJdbcQuery(String sql,
+    public SqlResultCollectingPrepareJdbcQuery(String targetName,
+                                               String sql,
                                                Connection connection,
+                                               DatasourceConfig config,
                                                Collector<Row, ?, R> collector, ReadWriteThreadPool threadPool) {
+        this.targetName = targetName;
         this.sql = sql;
         this.connection = connection;
+        this.config = config;
         this.collector = collector;
         this.threadPool = threadPool;
     }
@@ -43,14 +51,18 @@ public class SqlResultCollectingPrepareJdbcQuery<R> implements AbstractMySqlPrep
     public Future<SqlResult<R>> execute(Tuple tuple) {
         return Future.future(promise -> {
             threadPool.execute(true, () -> {
+                long startTime = PeakEwma.start(targetName);
                 try (PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
                     if (tuple.size()>0) {
                         RowSetJdbcPreparedJdbcQuery.setParams(tuple, preparedStatement);
                     }
+                    RowSetJdbcPreparedJdbcQuery.setFetchMode(preparedStatement, config);
                     preparedStatement.execute();
                     RowSetJdbcPreparedJdbcQuery.extracted(promise, preparedStatement, preparedStatement.getResultSet(), collector);
                 } catch (Throwable throwable) {
                     promise.tryFail(throwable);
+                } finally {
+                    PeakEwma.end(targetName, startTime);
                 }
             });
         });
@@ -17,6 +17,7 @@ package io.mycat.vertxmycat;
 import io.vertx.core.AsyncResult;
 import io.vertx.core.Future;
 import io.vertx.core.Handler;
+import io.vertx.mysqlclient.impl.codec.StreamMysqlCollector;
 import io.vertx.sqlclient.Query;
 import io.vertx.sqlclient.Row;
 import io.vertx.sqlclient.RowSet;
@@ -25,8 +26,6 @@ import io.vertx.sqlclient.SqlResult;
 import java.util.function.Function;
 import java.util.stream.Collector;
 
-import static io.mycat.vertxmycat.RowSetQuery.runTextQuery;
-
 public class SqlResultCollectingQuery<R> implements Query<SqlResult<R>> {
         private final Collector<Row, ?, R> collectorArg;
         private final String sql;
@@ -49,7 +48,7 @@ public class SqlResultCollectingQuery<R> implements Query<SqlResult<R>> {
 
         @Override
         public Future<SqlResult<R>> execute() {
-           return (Future)runTextQuery(sql, connection.mySQLClientSession, collectorArg).future();
+           return (Future)connection.runTextQuery(sql, (StreamMysqlCollector) collectorArg).future();
         }
 
         @Override
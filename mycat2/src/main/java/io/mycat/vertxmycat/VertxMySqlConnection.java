@@ -0,0 +1,244 @@
+/**
+ * Copyright (C) <2021>  <chen junwen>
+ * <p>
+ * This program is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * <p>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU General Public License along with this program.  If
+ * not, see <http://www.gnu.org/licenses/>.
+ */
+package io.mycat.vertxmycat;
+
+import io.mycat.plug.loadBalance.PeakEwma;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.mysqlclient.MySQLAuthOptions;
+import io.vertx.mysqlclient.MySQLConnection;
+import io.vertx.mysqlclient.MySQLSetOption;
+import io.vertx.mysqlclient.impl.MySQLRowDesc;
+import io.vertx.mysqlclient.impl.codec.StreamMysqlCollector;
+import io.vertx.sqlclient.*;
+import io.vertx.sqlclient.spi.DatabaseMetadata;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongFunction;
+import java.util.function.Supplier;
+import java.util.stream.Collector;
+
+/**
+ * vertx mysql客户端连接池借出的连接,close时归还连接池
+ * <p>
+ * 查询计入Peak-EWMA负载统计;流式查询被下游取消后通过单独的连接KILL后端连接,
+ * 被KILL的连接随之断开,不会再被复用
+ */
+public class VertxMySqlConnection extends AbstractMySqlConnection {
+    private static final Logger LOGGER = LoggerFactory.getLogger(VertxMySqlConnection.class);
+    private static final long KILL_CLOSE_WAIT = TimeUnit.SECONDS.toMillis(5);
+    private final Vertx vertx;
+    private final MySQLConnection connection;
+    private final String targetName;
+    private final long connectionId;
+    private final LongFunction<Future<Void>> killer;
+    private final Runnable onClose;
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+    private final AtomicBoolean killed = new AtomicBoolean(false);
+    private final Promise<Void> backendClosed = Promise.promise();
+    private volatile Future<Void> killFuture = Future.succeededFuture();
+    private volatile Handler<Void> closeHandler;
+
+    /**
+     * @param connectionId 物理连接的后端线程id,小于0表示未知,取消时不KILL
+     * @param killer       用单独的连接KILL指定的后端线程
+     */
+    public VertxMySqlConnection(Vertx vertx,
+                                MySQLConnection connection,
+                                String targetName,
+                                long connectionId,
+                                LongFunction<Future<Void>> killer,
+                                Runnable onClose) {
+        this.vertx = vertx;
+        this.connection = connection;
+        this.targetName = targetName;
+        this.connectionId = connectionId;
+        this.killer = killer;
+        this.onClose = onClose;
+        connection.closeHandler(unused -> {
+            backendClosed.tryComplete();
+            Handler<Void> handler = this.closeHandler;
+            if (handler != null) {
+                handler.handle(unused);
+            }
+        });
+    }
+
+    @Override
+    public MySQLConnection exceptionHandler(Handler<Throwable> handler) {
+        connection.exceptionHandler(handler);
+        return this;
+    }
+
+    @Override
+    public MySQLConnection closeHandler(Handler<Void> handler) {
+        this.closeHandler = handler;
+        return this;
+    }
+
+    @Override
+    public Future<Void> ping() {
+        return connection.ping();
+    }
+
+    @Override
+    public Future<Void> specifySchema(String schemaName) {
+        return connection.specifySchema(schemaName);
+    }
+
+    @Override
+    public Future<Void> resetConnection() {
+        return connection.resetConnection();
+    }
+
+    @Override
+    public Future<String> getInternalStatistics() {
+        return connection.getInternalStatistics();
+    }
+
+    @Override
+    public Future<Void> setOption(MySQLSetOption option) {
+        return connection.setOption(option);
+    }
+
+    @Override
+    public Future<Void> debug() {
+        return connection.debug();
+    }
+
+    @Override
+    public Future<Void> changeUser(MySQLAuthOptions options) {
+        return connection.changeUser(options);
+    }
+
+    @Override
+    public Future<PreparedStatement> prepare(String sql) {
+        return connection.prepare(sql).map(preparedStatement -> new VertxMySqlPreparedStatement(preparedStatement, this));
+    }
+
+    @Override
+    public Query<RowSet<Row>> query(String sql) {
+        return new VertxMySqlQuery<>(connection.query(sql), this);
+    }
+
+    @Override
+    public PreparedQuery<RowSet<Row>> preparedQuery(String sql) {
+        return new VertxMySqlPreparedQuery<>(connection.preparedQuery(sql), this);
+    }
+
+    <T> Future<T> track(Supplier<Future<T>> execution) {
+        long startTime = PeakEwma.start(targetName);
+        return execution.get().onComplete(event -> PeakEwma.end(targetName, startTime));
+    }
+
+    <R> Collector<Row, ?, R> watch(Collector<Row, ?, R> collector) {
+        if (collector instanceof StreamMysqlCollector) {
+            return (Collector) new CancellableCollector((StreamMysqlCollector) collector);
+        }
+        return collector;
+    }
+
+    /**
+     * KILL整个后端连接而不是只KILL QUERY,连接断开后不会被复用,也就不存在迟到的KILL打断下一条语句
+     */
+    private void killQuery() {
+        if (connectionId < 0 || !killed.compareAndSet(false, true)) {
+            return;
+        }
+        killFuture = killer.apply(connectionId)
+                .recover(throwable -> {
+                    LOGGER.warn("kill fail, datasource:{} connection id:{}", targetName, connectionId, throwable);
+                    return Future.succeededFuture();
+                });
+    }
+
+    /**
+     * 下游取消后不再把行交给收集器,并终止后端仍在执行的查询
+     */
+    private class CancellableCollector implements StreamMysqlCollector {
+        private final StreamMysqlCollector collector;
+
+        CancellableCollector(StreamMysqlCollector collector) {
+            this.collector = collector;
+        }
+
+        @Override
+        public void onColumnDefinitions(MySQLRowDesc columnDefinitions) {
+            if (!checkCancelled()) {
+                collector.onColumnDefinitions(columnDefinitions);
+            }
+        }
+
+        @Override
+        public void onRow(Row row) {
+            if (!checkCancelled()) {
+                collector.onRow(row);
+            }
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return collector.isCancelled();
+        }
+
+        private boolean checkCancelled() {
+            if (collector.isCancelled()) {
+                killQuery();
+                return true;
+            }
+            return false;
+        }
+    }
+
+    @Override
+    public Future<Transaction> begin() {
+        return connection.begin();
+    }
+
+    @Override
+    public boolean isSSL() {
+        return connection.isSSL();
+    }
+
+    @Override
+    public DatabaseMetadata databaseMetadata() {
+        return connection.databaseMetadata();
+    }
+
+    @Override
+    public Future<Void> close() {
+        if (closed.compareAndSet(false, true)) {
+            onClose.run();
+            if (!killed.get()) {
+                return connection.close();
+            }
+            //等待连接断开后再交还,连接池会移除已经断开的连接
+            return killFuture
+                    .flatMap(unused -> waitBackendClosed())
+                    .flatMap(unused -> connection.close());
+        }
+        return Future.succeededFuture();
+    }
+
+    private Future<Void> waitBackendClosed() {
+        long timerId = vertx.setTimer(KILL_CLOSE_WAIT, id -> backendClosed.tryComplete());
+        return backendClosed.future().onComplete(unused -> vertx.cancelTimer(timerId));
+    }
+}
@@ -0,0 +1,58 @@
+/**
+ * Copyright (C) <2021>  <chen junwen>
+ * <p>
+ * This program is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * <p>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU General Public License along with this program.  If
+ * not, see <http://www.gnu.org/licenses/>.
+ */
+package io.mycat.vertxmycat;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.sqlclient.*;
+
+/**
+ * vertx mysql客户端的预处理语句,查询由所属连接包装
+ */
+public class VertxMySqlPreparedStatement implements PreparedStatement {
+    private final PreparedStatement preparedStatement;
+    private final VertxMySqlConnection connection;
+
+    public VertxMySqlPreparedStatement(PreparedStatement preparedStatement, VertxMySqlConnection connection) {
+        this.preparedStatement = preparedStatement;
+        this.connection = connection;
+    }
+
+    @Override
+    public PreparedQuery<RowSet<Row>> query() {
+        return new VertxMySqlPreparedQuery<>(preparedStatement.query(), connection);
+    }
+
+    @Override
+    public Cursor cursor(Tuple args) {
+        return preparedStatement.cursor(args);
+    }
+
+    @Override
+    public RowStream<Row> createStream(int fetch, Tuple args) {
+        return preparedStatement.createStream(fetch, args);
+    }
+
+    @Override
+    public Future<Void> close() {
+        return preparedStatement.close();
+    }
+
+    @Override
+    public void close(Handler<AsyncResult<Void>> completionHandler) {
+        preparedStatement.close(completionHandler);
+    }
+}
@@ -0,0 +1,60 @@
+/**
+ * Copyright (C) <2021>  <chen junwen>
+ * <p>
+ * This program is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * <p>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU General Public License along with this program.  If
+ * not, see <http://www.gnu.org/licenses/>.
+ */
+package io.mycat.vertxmycat;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.sqlclient.Query;
+import io.vertx.sqlclient.Row;
+import io.vertx.sqlclient.RowSet;
+import io.vertx.sqlclient.SqlResult;
+
+import java.util.function.Function;
+import java.util.stream.Collector;
+
+/**
+ * vertx mysql客户端的文本查询,执行计入所属连接的负载统计与取消处理
+ */
+public class VertxMySqlQuery<T> implements Query<T> {
+    private final Query<T> query;
+    private final VertxMySqlConnection connection;
+
+    public VertxMySqlQuery(Query<T> query, VertxMySqlConnection connection) {
+        this.query = query;
+        this.connection = connection;
+    }
+
+    @Override
+    public void execute(Handler<AsyncResult<T>> handler) {
+        execute().onComplete(handler);
+    }
+
+    @Override
+    public Future<T> execute() {
+        return connection.track(query::execute);
+    }
+
+    @Override
+    public <R> Query<SqlResult<R>> collecting(Collector<Row, ?, R> collector) {
+        Collector<Row, ?, R> watched = connection.watch(collector);
+        return new VertxMySqlQuery<>(query.collecting(watched), connection);
+    }
+
+    @Override
+    public <U> Query<RowSet<U>> mapping(Function<Row, U> mapper) {
+        return new VertxMySqlQuery<>(query.mapping(mapper), connection);
+    }
+}
@@ -45,9 +45,19 @@ public class VertxMycatTextCollector<C, R> implements ResultSetHandler {
     private long affectedRows;
     private long lastInsertId;
     private int serverStatusFlags;
+    private Runnable onCancel;
+    private boolean cancelled = false;
 
     public VertxMycatTextCollector(Collector<Row, C, R> collector) {
+        this(collector, null);
+    }
+
+    /**
+     * @param onCancel 第一次发现下游取消时调用,用于停止后端查询
+     */
+    public VertxMycatTextCollector(Collector<Row, C, R> collector, Runnable onCancel) {
         this.collector = collector;
+        this.onCancel = onCancel;
         if (!(this.collector instanceof StreamMysqlCollector)){
             throw new UnsupportedOperationException();
         }
@@ -98,6 +108,16 @@ public class VertxMycatTextCollector<C, R> implements ResultSetHandler {
 
     @Override
     public void onTextRow(MySQLPacket mySQLPacket, int startPos, int endPos) throws MycatException {
+        if (cancelled || ((StreamMysqlCollector) collector).isCancelled()) {
+            //下游已经不需要结果,剩余的行只读取不解码
+            if (!cancelled) {
+                cancelled = true;
+                if (onCancel != null) {
+                    onCancel.run();
+                }
+            }
+            return;
+        }
         Row row = rowResultDecoder.decodeRow(currentColumnDefList.length, Buffer.buffer(mySQLPacket.getBytes(startPos, endPos-startPos)).getByteBuf());
         rowCount++;
         this.accumulator.accept(this.c, row);
@@ -0,0 +1,192 @@
+package io.mycat.config;
+
+import cn.mycat.vertx.xa.MySQLManager;
+import cn.mycat.vertx.xa.XaLog;
+import io.mycat.MetaClusterCurrent;
+import io.mycat.MetadataManager;
+import io.mycat.api.collector.RowBaseIterator;
+import io.mycat.beans.mycat.ResultSetBuilder;
+import io.mycat.calcite.spm.PlanCache;
+import io.mycat.calcite.spm.PlanCacheImpl;
+import io.mycat.datasource.jdbc.DatasourceProvider;
+import io.mycat.datasource.jdbc.datasource.DefaultConnection;
+import io.mycat.datasource.jdbc.datasource.JdbcConnectionManager;
+import io.mycat.plug.loadBalance.LoadBalanceManager;
+import io.mycat.plug.sequence.SequenceGenerator;
+import io.mycat.replica.ReplicaSelectorManager;
+import io.vertx.core.Future;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.JDBCType;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ConfigPrepareExecuterTest {
+    private final AtomicInteger inUse = new AtomicInteger();
+    private final AtomicInteger closeCount = new AtomicInteger();
+    private final MySQLManager mySQLManager = mySQLManager();
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor();
+    private MycatRouterConfig routerConfig;
+    private MetadataManager oldMetadataManager;
+
+    /**
+     * 不连接数据库,所有查询都返回空结果
+     */
+    static class FakeJdbcConnectionManager extends JdbcConnectionManager {
+
+        FakeJdbcConnectionManager() {
+            super(Collections.emptyMap(), Collections.emptyMap(), proxy(DatasourceProvider.class), null);
+        }
+
+        @Override
+        public DefaultConnection getConnection(String name, Boolean autocommit, int transactionIsolation, boolean readOnly) {
+            return new DefaultConnection(proxy(Connection.class), null, autocommit, transactionIsolation, readOnly, this) {
+                @Override
+                public RowBaseIterator executeQuery(String sql) {
+                    return ResultSetBuilder.create().addColumnInfo("name", JDBCType.VARCHAR).build();
+                }
+            };
+        }
+
+        @Override
+        public void closeConnection(DefaultConnection connection) {
+
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> clazz) {
+        return (T) Proxy.newProxyInstance(clazz.getClassLoader(), new Class[]{clazz}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "equals":
+                    return proxy == args[0];
+                case "toString":
+                    return clazz.getSimpleName();
+                default:
+                    return null;
+            }
+        });
+    }
+
+    private MySQLManager mySQLManager() {
+        return (MySQLManager) Proxy.newProxyInstance(MySQLManager.class.getClassLoader(),
+                new Class[]{MySQLManager.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getInUseNumber":
+                            return inUse.get();
+                        case "close":
+                            closeCount.incrementAndGet();
+                            return Future.succeededFuture();
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "equals":
+                            return proxy == args[0];
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    private static LogicSchemaConfig schema(String schemaName, String... tableNames) {
+        LogicSchemaConfig schemaConfig = new LogicSchemaConfig();
+        schemaConfig.setSchemaName(schemaName);
+        for (String tableName : tableNames) {
+            schemaConfig.getNormalTables().put(tableName, NormalTableConfig.create(schemaName, tableName,
+                    "create table " + tableName + "(id bigint primary key)", "c0"));
+        }
+        return schemaConfig;
+    }
+
+    @Before
+    public void setUp() {
+        routerConfig = new MycatRouterConfig();
+        routerConfig.getSchemas().add(schema("db1", "travelrecord", "company"));
+        routerConfig.getSchemas().add(schema("db2", "user"));
+        oldMetadataManager = MetadataManager.createMetadataManager(routerConfig.getSchemas(),
+                new LoadBalanceManager(),
+                new SequenceGenerator(0, null),
+                proxy(ReplicaSelectorManager.class),
+                new FakeJdbcConnectionManager(),
+                "prototype");
+        Map<Class, Object> context = new HashMap<>();
+        context.put(MycatRouterConfig.class, routerConfig);
+        context.put(MetadataManager.class, oldMetadataManager);
+        context.put(ServerConfig.class, new ServerConfig());
+        context.put(PlanCache.class, new PlanCacheImpl());
+        context.put(MySQLManager.class, mySQLManager);
+        context.put(XaLog.class, proxy(XaLog.class));
+        MetaClusterCurrent.register(context);
+    }
+
+    @After
+    public void tearDown() {
+        MetaClusterCurrent.register(new HashMap<>());
+        timer.shutdownNow();
+    }
+
+    @Test
+    public void testRouterChangeReusePools() throws Exception {
+        XaLog xaLog = MetaClusterCurrent.wrapper(XaLog.class);
+        MycatRouterConfigOps ops = new MycatRouterConfigOps(routerConfig, null);
+        ops.putSchema(schema("db2", "user", "orders"));
+        ConfigPrepareExecuter executer = new ConfigPrepareExecuter(ops, null, null);
+        executer.prepareRuntimeObject();
+        Assert.assertTrue(executer.commit().succeeded());
+
+        //数据源没有变化,连接池与XA日志都复用
+        Assert.assertSame(mySQLManager, MetaClusterCurrent.wrapper(MySQLManager.class));
+        Assert.assertSame(xaLog, MetaClusterCurrent.wrapper(XaLog.class));
+        Assert.assertEquals(0, closeCount.get());
+
+        //只重新加载变化的schema
+        MetadataManager metadataManager = MetaClusterCurrent.wrapper(MetadataManager.class);
+        Assert.assertNotSame(oldMetadataManager, metadataManager);
+        Assert.assertSame(oldMetadataManager.getTable("db1", "travelrecord"), metadataManager.getTable("db1", "travelrecord"));
+        Assert.assertSame(oldMetadataManager.getTable("db1", "company"), metadataManager.getTable("db1", "company"));
+        Assert.assertNotSame(oldMetadataManager.getTable("db2", "user"), metadataManager.getTable("db2", "user"));
+        Assert.assertNotNull(metadataManager.getTable("db2", "orders"));
+    }
+
+    @Test
+    public void testCloseWhenIdle() throws Exception {
+        inUse.set(2);
+        ConfigPrepareExecuter.closeWhenIdle(mySQLManager, timer, System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(1));
+        Thread.sleep(ConfigPrepareExecuter.OLD_MYSQL_MANAGER_CHECK_INTERVAL_MS + 500);
+        //还有借出的连接,不关闭
+        Assert.assertEquals(0, closeCount.get());
+
+        inUse.set(0);
+        long deadline = System.currentTimeMillis() + ConfigPrepareExecuter.OLD_MYSQL_MANAGER_CHECK_INTERVAL_MS * 5;
+        while (closeCount.get() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        Assert.assertEquals(1, closeCount.get());
+    }
+
+    @Test
+    public void testCloseAfterDeadline() {
+        //超过最长等待时间后强制关闭
+        inUse.set(1);
+        ConfigPrepareExecuter.closeWhenIdle(mySQLManager, timer, System.currentTimeMillis());
+        Assert.assertEquals(1, closeCount.get());
+
+        //借出数未知时等到最长等待时间
+        inUse.set(-1);
+        ConfigPrepareExecuter.closeWhenIdle(mySQLManager, timer, System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(1));
+        Assert.assertEquals(1, closeCount.get());
+        ConfigPrepareExecuter.closeWhenIdle(mySQLManager, timer, System.currentTimeMillis());
+        Assert.assertEquals(2, closeCount.get());
+    }
+}
@@ -0,0 +1,92 @@
+package io.mycat.plug.sequence;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class SequenceMySQLGeneratorTest {
+
+    /**
+     * 模拟mycat_seq_nextval,每次返回"起始值,步长"
+     */
+    private static SequenceMySQLGenerator create(long increment) {
+        AtomicLong db = new AtomicLong(1);
+        SequenceMySQLGenerator generator = new SequenceMySQLGenerator();
+        generator.init("select db1.mycat_seq_nextval('seq')", "prototype",
+                (targetName, sql) -> db.getAndAdd(increment) + "," + increment);
+        return generator;
+    }
+
+    @Test
+    public void testBlockCrossesSegments() {
+        SequenceMySQLGenerator generator = create(10);
+        Assert.assertEquals(1L, generator.get().longValue());
+        Number[] block = generator.nextSequenceBlock(25);
+        Assert.assertEquals(25, block.length);
+        for (int i = 0; i < block.length; i++) {
+            Assert.assertEquals(2L + i, block[i].longValue());
+        }
+        Assert.assertEquals(27L, generator.get().longValue());
+    }
+
+    @Test
+    public void testFetchFailureRetries() {
+        AtomicLong calls = new AtomicLong();
+        SequenceMySQLGenerator generator = new SequenceMySQLGenerator();
+        generator.init("select db1.mycat_seq_nextval('seq')", "prototype", (targetName, sql) -> {
+            if (calls.getAndIncrement() == 0) {
+                throw new IllegalStateException("backend down");
+            }
+            return "100,10";
+        });
+        try {
+            generator.get();
+            Assert.fail();
+        } catch (RuntimeException e) {
+            Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+        //失败的号段不会卡住后续取号
+        Assert.assertEquals(100L, generator.get().longValue());
+    }
+
+    @Test
+    public void testConcurrentNoDuplicate() throws Exception {
+        SequenceMySQLGenerator generator = create(16);
+        Set<Long> values = ConcurrentHashMap.newKeySet();
+        int threads = 8;
+        int loops = 500;
+        int blockSize = 7;
+        ExecutorService executorService = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executorService.submit(() -> {
+                    for (int i = 0; i < loops; i++) {
+                        Assert.assertTrue(values.add(generator.get().longValue()));
+                        long last = Long.MIN_VALUE;
+                        for (Number number : generator.nextSequenceBlock(blockSize)) {
+                            //同一批内的值递增
+                            Assert.assertTrue(number.longValue() > last);
+                            last = number.longValue();
+                            Assert.assertTrue(values.add(last));
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+        Assert.assertEquals(threads * loops * (1 + blockSize), values.size());
+    }
+}
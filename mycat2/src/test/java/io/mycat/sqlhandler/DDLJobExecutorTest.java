@@ -0,0 +1,63 @@
+package io.mycat.sqlhandler;
+
+import io.mycat.BackendTableInfo;
+import io.mycat.DataNode;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+public class DDLJobExecutorTest {
+    private final DataNode dataNode = new BackendTableInfo("c0", "db1_0", "travelrecord_1");
+
+    @Test
+    public void testIndexCheck() {
+        DDLJobExecutor.ShardCheck check = DDLJobExecutor.shardCheck(
+                "alter table db1_0.travelrecord_1 add index `idx_user`(user_id)", dataNode);
+        Assert.assertNotNull(check);
+        Assert.assertEquals(Arrays.asList("db1_0", "travelrecord_1", "idx_user"), check.getParams());
+        Assert.assertTrue(check.getSql().contains("information_schema.statistics"));
+        Assert.assertTrue(check.isApplied(1));
+        Assert.assertFalse(check.isApplied(0));
+
+        check = DDLJobExecutor.shardCheck("drop index idx_user on db1_0.travelrecord_1", dataNode);
+        Assert.assertNotNull(check);
+        Assert.assertEquals(Arrays.asList("db1_0", "travelrecord_1", "idx_user"), check.getParams());
+        Assert.assertTrue(check.isApplied(0));
+        Assert.assertFalse(check.isApplied(1));
+    }
+
+    @Test
+    public void testColumnCheck() {
+        DDLJobExecutor.ShardCheck check = DDLJobExecutor.shardCheck(
+                "alter table db1_0.travelrecord_1 add column `fee` bigint", dataNode);
+        Assert.assertNotNull(check);
+        Assert.assertEquals(Arrays.asList("db1_0", "travelrecord_1", "fee"), check.getParams());
+        Assert.assertTrue(check.isApplied(1));
+
+        check = DDLJobExecutor.shardCheck("alter table db1_0.travelrecord_1 drop column fee", dataNode);
+        Assert.assertNotNull(check);
+        Assert.assertTrue(check.isApplied(0));
+    }
+
+    @Test
+    public void testUnknown() {
+        //无法从information_schema判断是否生效的DDL不自动重新执行
+        Assert.assertNull(DDLJobExecutor.shardCheck("truncate table db1_0.travelrecord_1", dataNode));
+        Assert.assertNull(DDLJobExecutor.shardCheck(
+                "alter table db1_0.travelrecord_1 modify column fee int", dataNode));
+        Assert.assertNull(DDLJobExecutor.shardCheck(
+                "alter table db1_0.travelrecord_1 add column a int, add column b int", dataNode));
+    }
+
+    @Test
+    public void testJobIdUniqueAcrossNodes() {
+        long sequence = System.currentTimeMillis();
+        //不同mycat节点同一时刻生成的id不同
+        Assert.assertNotEquals(DDLJobExecutor.jobId(sequence, 1), DDLJobExecutor.jobId(sequence, 2));
+        //同一节点的id递增
+        Assert.assertTrue(DDLJobExecutor.jobId(sequence + 1, 1) > DDLJobExecutor.jobId(sequence, 1));
+        Assert.assertTrue(DDLJobExecutor.jobId(sequence + 1, 1) > DDLJobExecutor.jobId(sequence, 1023));
+        Assert.assertTrue(DDLJobExecutor.jobId(sequence, 1) > 0);
+    }
+}
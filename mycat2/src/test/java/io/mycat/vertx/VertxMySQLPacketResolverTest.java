@@ -0,0 +1,136 @@
+package io.mycat.vertx;
+
+import io.mycat.beans.mysql.packet.MySQLPacketSplitter;
+import io.vertx.core.buffer.Buffer;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class VertxMySQLPacketResolverTest {
+    private final List<Integer> packetIds = new ArrayList<>();
+    private final List<byte[]> payloads = new ArrayList<>();
+    private final VertxMySQLPacketResolver resolver = new VertxMySQLPacketResolver(null,
+            (packetId, payload, socket) -> {
+                packetIds.add(packetId);
+                payloads.add(payload.getBytes());
+            });
+
+    private static byte[] payload(int length, int seed) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = (byte) (i * 31 + seed);
+        }
+        return bytes;
+    }
+
+    /**
+     * 按mysql协议编码,超过16M拆成多个报文,长度正好是16M的整数倍时末尾补一个空报文
+     */
+    private static byte[] encode(int packetId, byte[] payload) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int offset = 0;
+        while (true) {
+            int length = Math.min(payload.length - offset, MySQLPacketSplitter.MAX_PACKET_SIZE);
+            out.write(length & 0xff);
+            out.write((length >>> 8) & 0xff);
+            out.write((length >>> 16) & 0xff);
+            out.write(packetId++);
+            out.write(payload, offset, length);
+            offset += length;
+            if (length < MySQLPacketSplitter.MAX_PACKET_SIZE) {
+                return out.toByteArray();
+            }
+        }
+    }
+
+    private static byte[] concat(byte[]... arrays) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] array : arrays) {
+            out.write(array, 0, array.length);
+        }
+        return out.toByteArray();
+    }
+
+    private void feed(byte[] bytes, int chunk) {
+        for (int offset = 0; offset < bytes.length; offset += chunk) {
+            resolver.handle(Buffer.buffer(Arrays.copyOfRange(bytes, offset, Math.min(bytes.length, offset + chunk))));
+        }
+    }
+
+    @Test
+    public void testSeveralPacketsInOneBuffer() {
+        byte[] p0 = payload(10, 0);
+        byte[] p1 = payload(0, 1);
+        byte[] p2 = payload(300, 2);
+        feed(concat(encode(0, p0), encode(1, p1), encode(2, p2)), Integer.MAX_VALUE);
+        Assert.assertEquals(Arrays.asList(0, 1, 2), packetIds);
+        Assert.assertArrayEquals(p0, payloads.get(0));
+        Assert.assertArrayEquals(p1, payloads.get(1));
+        Assert.assertArrayEquals(p2, payloads.get(2));
+    }
+
+    @Test
+    public void testHeaderSplitAcrossBuffers() {
+        byte[] p0 = payload(5, 0);
+        byte[] p1 = payload(7, 1);
+        byte[] bytes = concat(encode(3, p0), encode(4, p1));
+        //每个字节一个Buffer,报文头的每一种切分位置都会出现
+        feed(bytes, 1);
+        Assert.assertEquals(Arrays.asList(3, 4), packetIds);
+        Assert.assertArrayEquals(p0, payloads.get(0));
+        Assert.assertArrayEquals(p1, payloads.get(1));
+
+        //报文头在第2个字节处切开,后半部分与payload在同一个Buffer
+        packetIds.clear();
+        payloads.clear();
+        resolver.handle(Buffer.buffer(Arrays.copyOfRange(bytes, 0, 2)));
+        resolver.handle(Buffer.buffer(Arrays.copyOfRange(bytes, 2, bytes.length)));
+        Assert.assertEquals(Arrays.asList(3, 4), packetIds);
+        Assert.assertArrayEquals(p0, payloads.get(0));
+        Assert.assertArrayEquals(p1, payloads.get(1));
+    }
+
+    @Test
+    public void testPayloadSpanningBuffers() {
+        byte[] p0 = payload(1000, 0);
+        byte[] p1 = payload(20, 1);
+        feed(concat(encode(0, p0), encode(1, p1)), 97);
+        Assert.assertEquals(Arrays.asList(0, 1), packetIds);
+        Assert.assertArrayEquals(p0, payloads.get(0));
+        Assert.assertArrayEquals(p1, payloads.get(1));
+    }
+
+    @Test
+    public void testMultiPacket() {
+        byte[] big = payload(MySQLPacketSplitter.MAX_PACKET_SIZE + 10, 0);
+        byte[] small = payload(3, 1);
+        byte[] bytes = concat(encode(0, big), encode(2, small));
+        feed(bytes, Integer.MAX_VALUE);
+        //拆包后只交给处理器一次,packetId是最后一个分包的id
+        Assert.assertEquals(Arrays.asList(1, 2), packetIds);
+        Assert.assertArrayEquals(big, payloads.get(0));
+        Assert.assertArrayEquals(small, payloads.get(1));
+
+        packetIds.clear();
+        payloads.clear();
+        feed(bytes, 1 << 20);
+        Assert.assertEquals(Arrays.asList(1, 2), packetIds);
+        Assert.assertArrayEquals(big, payloads.get(0));
+        Assert.assertArrayEquals(small, payloads.get(1));
+    }
+
+    @Test
+    public void testExactMaxPacketSize() {
+        byte[] big = payload(MySQLPacketSplitter.MAX_PACKET_SIZE, 0);
+        byte[] bytes = encode(0, big);
+        //16M的报文后面跟一个空报文
+        Assert.assertEquals(MySQLPacketSplitter.MAX_PACKET_SIZE + 8, bytes.length);
+        feed(bytes, 1 << 20);
+        Assert.assertEquals(Arrays.asList(1), packetIds);
+        Assert.assertArrayEquals(big, payloads.get(0));
+    }
+}
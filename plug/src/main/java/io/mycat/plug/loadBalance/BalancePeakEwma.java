@@ -0,0 +1,57 @@
+/**
+ * Copyright (C) <2021>  <chen junwen>
+ * <p>
+ * This program is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * <p>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU General Public License along with this program.  If
+ * not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.mycat.plug.loadBalance;
+
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 延迟感知的两次随机选择(power of two choices)
+ * <p>
+ * 随机取两个候选,选择{@link PeakEwma#score()}较小的一个
+ */
+public enum BalancePeakEwma implements LoadBalanceStrategy {
+    INSTANCE {
+        @Override
+        public LoadBalanceElement select(LoadBalanceInfo info, List<LoadBalanceElement> entityList) {
+            if (null == entityList || entityList.isEmpty()) {
+                return null;
+            }
+            int size = entityList.size();
+            if (1 == size) {
+                return entityList.get(0);
+            }
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            int first = random.nextInt(0, size);
+            int second = random.nextInt(0, size - 1);
+            if (second >= first) {
+                second++;
+            }
+            LoadBalanceElement a = entityList.get(first);
+            LoadBalanceElement b = entityList.get(second);
+            if (a == null) {
+                return b;
+            }
+            if (b == null) {
+                return a;
+            }
+            double aScore = PeakEwma.get(a.getName()).score();
+            double bScore = PeakEwma.get(b.getName()).score();
+            return aScore <= bScore ? a : b;
+        }
+    }
+}
@@ -55,7 +55,8 @@ public class LoadBalanceManager {
                 BalanceRoundRobin.class,
                 BalanceRunOnMaster.class,
                 BalanceRunOnRandomMaster.class,
-                BalanceRunOnReplica.class
+                BalanceRunOnReplica.class,
+                BalancePeakEwma.class
         ).stream().map(i -> getLoadBalanceConfig(i)).collect(Collectors.toList());
 
 
@@ -0,0 +1,127 @@
+/**
+ * Copyright (C) <2021>  <chen junwen>
+ * <p>
+ * This program is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * <p>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU General Public License along with this program.  If
+ * not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.mycat.plug.loadBalance;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 按数据源名字统计查询延迟的指数加权移动平均(peak-EWMA)与在途请求数
+ * <p>
+ * 延迟突增时立即取峰值,之后按时间衰减,没有新样本时也会衰减,
+ * 所以故障恢复后的实例会逐渐重新获得流量
+ */
+public class PeakEwma {
+    private static final ConcurrentMap<String, PeakEwma> MAP = new ConcurrentHashMap<>();
+    /**
+     * 衰减时间窗口
+     */
+    private static final double DECAY_NANOS = TimeUnit.SECONDS.toNanos(10);
+    /**
+     * 还没有延迟样本但已经有在途请求时的惩罚值
+     */
+    private static final double PENALTY = TimeUnit.SECONDS.toNanos(1);
+
+    private final AtomicInteger pending = new AtomicInteger();
+    private double cost = 0.0;
+    private long stamp = System.nanoTime();
+
+    public static PeakEwma get(String name) {
+        return MAP.computeIfAbsent(name, s -> new PeakEwma());
+    }
+
+    /**
+     * 请求开始
+     *
+     * @param name 数据源名字
+     * @return 开始时间, 用于{@link #end(String, long)}
+     */
+    public static long start(String name) {
+        if (name != null) {
+            get(name).pending.incrementAndGet();
+        }
+        return System.nanoTime();
+    }
+
+    /**
+     * 请求结束,无论成功失败
+     *
+     * @param name       数据源名字
+     * @param startNanos {@link #start(String)} 的返回值
+     */
+    public static void end(String name, long startNanos) {
+        if (name == null) {
+            return;
+        }
+        PeakEwma peakEwma = get(name);
+        peakEwma.pending.decrementAndGet();
+        peakEwma.observe(System.nanoTime() - startNanos);
+    }
+
+    public static void remove(String name) {
+        MAP.remove(name);
+    }
+
+    /**
+     * 删除已经不存在的数据源的统计,数据源被删除或者改名时调用
+     *
+     * @param names 当前配置中的数据源名字
+     */
+    public static void retain(Set<String> names) {
+        MAP.keySet().retainAll(names);
+    }
+
+    private synchronized void observe(double rtt) {
+        long now = System.nanoTime();
+        long elapsed = Math.max(now - stamp, 0);
+        stamp = now;
+        if (rtt > cost) {
+            cost = rtt;
+        } else {
+            double w = Math.exp(-elapsed / DECAY_NANOS);
+            cost = cost * w + rtt * (1.0 - w);
+        }
+    }
+
+    /**
+     * @return 延迟(纳秒) * (在途请求数 + 1),越小越好
+     */
+    public double score() {
+        double curCost;
+        synchronized (this) {
+            observe(0.0);
+            curCost = cost;
+        }
+        int curPending = Math.max(pending.get(), 0);
+        if (curCost == 0.0 && curPending != 0) {
+            return PENALTY + curPending;
+        }
+        return curCost * (curPending + 1);
+    }
+
+    public double getCostMillis() {
+        synchronized (this) {
+            return cost / TimeUnit.MILLISECONDS.toNanos(1);
+        }
+    }
+
+    public int getPending() {
+        return pending.get();
+    }
+}
@@ -29,4 +29,15 @@ public interface SequenceHandler extends Supplier<Number> {
 
     void setStart(Number value);
 
+    /**
+     * 一次取出n个递增的序列值,批量插入时每批只加一次锁
+     */
+    default Number[] nextSequenceBlock(int n) {
+        Number[] res = new Number[n];
+        for (int i = 0; i < n; i++) {
+            res[i] = get();
+        }
+        return res;
+    }
+
 }
\ No newline at end of file
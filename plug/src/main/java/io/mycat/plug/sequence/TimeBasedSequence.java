@@ -42,4 +42,18 @@ public class TimeBasedSequence implements SequenceHandler {
     public Number get() {
         return nextId();
     }
+
+    /**
+     * 整批持有snowflake的锁,nextId重入时不再竞争
+     */
+    @Override
+    public Number[] nextSequenceBlock(int n) {
+        Number[] res = new Number[n];
+        synchronized (snowflake) {
+            for (int i = 0; i < n; i++) {
+                res[i] = snowflake.nextId();
+            }
+        }
+        return res;
+    }
 }
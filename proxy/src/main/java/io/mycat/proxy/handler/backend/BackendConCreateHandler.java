@@ -213,6 +213,7 @@ public final class BackendConCreateHandler implements BackendNIOHandler<MySQLCli
 
         hs.readPayload(mysql.currentProxyPayload());
         mysql.resetCurrentProxyPayload();
+        mysql.setBackendConnectionId(hs.getConnectionId());
         this.mysqlVersion = hs.getServerVersion();
         this.charsetIndex = hs.getCharacterSet() == -1 ? CharsetUtil.getIndex("UTF-8") : hs.getCharacterSet();
         AuthPacket packet = new AuthPacket();
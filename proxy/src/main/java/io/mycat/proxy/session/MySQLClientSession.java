@@ -15,7 +15,6 @@
 package io.mycat.proxy.session;
 
 import io.mycat.MycatException;
-import io.mycat.beans.MySQLDatasource;
 import io.mycat.beans.MySQLSessionMonopolizeType;
 import io.mycat.beans.mysql.MySQLAutoCommit;
 import io.mycat.beans.mysql.MySQLIsolation;
@@ -91,6 +90,14 @@ public class MySQLClientSession extends
      */
     private MySQLSessionMonopolizeType monopolizeType = MySQLSessionMonopolizeType.NONE;
     private ResponseType responseType;
+    /**
+     * 后端握手包里的连接id,KILL QUERY使用
+     */
+    private long backendConnectionId = -1;
+    /**
+     * 执行中的查询被KILL过,关闭时不再放回连接池
+     */
+    private volatile boolean killed = false;
 
     /**
      * 构造函数
@@ -127,7 +134,7 @@ public class MySQLClientSession extends
             return VertxUtil.newSuccessPromise();
         }
         resetPacket();
-        if (normal) {
+        if (normal && !killed) {
             return VertxUtil.castPromise(datasource.addIdleSession(this));
         } else {
             hasClosed = true;
@@ -413,6 +420,13 @@ public class MySQLClientSession extends
         return noResponse;
     }
 
+    /**
+     * 后端会话当前的隔离级别,null表示未知
+     */
+    public MySQLIsolation getIsolation() {
+        return isolation;
+    }
+
 
     /**
      * 切换出来处理器,在闲置状态中不能设置
@@ -501,10 +515,26 @@ public class MySQLClientSession extends
         return responseType;
     }
 
-    public MySQLDatasource getDatasource() {
+    public MySQLDatasourcePool getDatasource() {
         return datasource;
     }
 
+    public long getBackendConnectionId() {
+        return backendConnectionId;
+    }
+
+    public void setBackendConnectionId(long backendConnectionId) {
+        this.backendConnectionId = backendConnectionId;
+    }
+
+    public boolean isKilled() {
+        return killed;
+    }
+
+    public void setKilled(boolean killed) {
+        this.killed = killed;
+    }
+
     public long getCursorStatementId() {
         return cursorStatementId;
     }
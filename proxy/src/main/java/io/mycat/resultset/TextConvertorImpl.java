@@ -42,22 +42,46 @@ public enum TextConvertorImpl implements TextConvertor {
 
     @Override
     public byte[] convertByte(byte v) {
-        return String.valueOf(v).getBytes();
+        return getBytes(v);
     }
 
     @Override
     public byte[] convertShort(short v) {
-        return String.valueOf(v).getBytes();
+        return getBytes(v);
     }
 
     @Override
     public byte[] convertInteger(int v) {
-        return String.valueOf(v).getBytes();
+        return getBytes(v);
     }
 
     @Override
     public byte[] convertLong(long v) {
-        return String.valueOf(v).getBytes();
+        return getBytes(v);
+    }
+
+    /**
+     * 整数直接编码成ascii字节,不生成中间的String
+     */
+    public static byte[] getBytes(long v) {
+        if (v == 0) {
+            return ZERO;
+        }
+        int len = (v < 0) ? 1 : 0;
+        //用负数计算,兼容Long.MIN_VALUE
+        long n = v < 0 ? v : -v;
+        for (long t = n; t != 0; t /= 10) {
+            len++;
+        }
+        byte[] bytes = new byte[len];
+        for (int i = len - 1; n != 0; i--) {
+            bytes[i] = (byte) ('0' - (n % 10));
+            n /= 10;
+        }
+        if (v < 0) {
+            bytes[0] = '-';
+        }
+        return bytes;
     }
 
     @Override
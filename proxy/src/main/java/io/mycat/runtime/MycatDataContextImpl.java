@@ -149,6 +149,8 @@ public class MycatDataContextImpl implements MycatDataContext {
             return this.getVariable(MycatDataContextEnum.CHARSET_SET_RESULT);
         } else if (target.contains("read_only")) {
             return this.getVariable(MycatDataContextEnum.IS_READ_ONLY);
+        } else if ("max_replication_lag".equalsIgnoreCase(target)) {
+            return this.getVariable(MycatDataContextEnum.MAX_REPLICATION_LAG);
         } else if (target.contains("current_user")) {
             return this.getUser().getUserName();
         } else if (target.contains("transaction_policy")) {
@@ -221,6 +223,9 @@ public class MycatDataContextImpl implements MycatDataContext {
             case USER_INFO:
                 user = (MycatUser) value;
                 break;
+            case MAX_REPLICATION_LAG:
+                transactionSession.setMaxReplicationLag(((Number) value).longValue());
+                break;
         }
     }
 
@@ -268,6 +273,8 @@ public class MycatDataContextImpl implements MycatDataContext {
             }
             case USER_INFO:
                 return user;
+            case MAX_REPLICATION_LAG:
+                return transactionSession.getMaxReplicationLag();
         }
         throw new IllegalArgumentException();
     }
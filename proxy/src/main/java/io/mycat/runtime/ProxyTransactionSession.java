@@ -53,6 +53,16 @@ public class ProxyTransactionSession extends LocalSqlConnection implements Trans
         return dataSourceNearness.getDataSourceByTargetName(targetName, master);
     }
 
+    @Override
+    public void setMaxReplicationLag(long maxReplicationLag) {
+        dataSourceNearness.setMaxReplicationLag(maxReplicationLag);
+    }
+
+    @Override
+    public long getMaxReplicationLag() {
+        return dataSourceNearness.getMaxReplicationLag();
+    }
+
     @Override
     public TransactionType transactionType() {
         return TransactionType.PROXY_TRANSACTION_TYPE;
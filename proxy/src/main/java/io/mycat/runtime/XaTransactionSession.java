@@ -48,6 +48,16 @@ public class XaTransactionSession extends LocalXaSqlConnection implements Transa
         return dataSourceNearness.getDataSourceByTargetName(targetName, master);
     }
 
+    @Override
+    public void setMaxReplicationLag(long maxReplicationLag) {
+        dataSourceNearness.setMaxReplicationLag(maxReplicationLag);
+    }
+
+    @Override
+    public long getMaxReplicationLag() {
+        return dataSourceNearness.getMaxReplicationLag();
+    }
+
     @Override
     public TransactionType transactionType() {
         return TransactionType.JDBC_TRANSACTION_TYPE;
@@ -29,6 +29,7 @@ import java.util.concurrent.ConcurrentHashMap;
 public class DataSourceNearnessImpl implements DataSourceNearness {
     ConcurrentHashMap<String, String> map = new ConcurrentHashMap<>();
     String loadBalanceStrategy;
+    volatile long maxReplicationLag = -1;
 
     private TransactionSession transactionSession;
 
@@ -44,7 +45,7 @@ public class DataSourceNearnessImpl implements DataSourceNearness {
         String datasource;
         if (replicaMode) {
             datasource = map.computeIfAbsent(targetName, (s) -> {
-                String datasourceNameByReplicaName = selector.getDatasourceNameByReplicaName(targetName, master, loadBalanceStrategy);
+                String datasourceNameByReplicaName = selector.getDatasourceNameByReplicaName(targetName, master, loadBalanceStrategy, maxReplicationLag);
                 return Objects.requireNonNull(datasourceNameByReplicaName);
             });
         } else {
@@ -63,6 +64,19 @@ public class DataSourceNearnessImpl implements DataSourceNearness {
     }
 
 
+    @Override
+    public void setMaxReplicationLag(long maxReplicationLag) {
+        this.maxReplicationLag = maxReplicationLag;
+    }
+
+    @Override
+    public long getMaxReplicationLag() {
+        return maxReplicationLag;
+    }
+
+    /**
+     * maxReplicationLag是会话级别的,不清除
+     */
     public void clear() {
         map.clear();
         loadBalanceStrategy = null;
@@ -32,6 +32,7 @@ public class PhysicsInstanceImpl implements LoadBalanceElement, PhysicsInstance
     final int weight;
     volatile boolean alive;
     volatile boolean selectRead;
+    volatile long replicationLag = -1;
 
     public PhysicsInstanceImpl(String name, InstanceType type, boolean alive,
                                boolean selectRead,
@@ -121,6 +122,16 @@ public class PhysicsInstanceImpl implements LoadBalanceElement, PhysicsInstance
         this.selectRead = readable;
     }
 
+    @Override
+    public long getReplicationLag() {
+        return replicationLag;
+    }
+
+    @Override
+    public void notifyChangeReplicationLag(long replicationLag) {
+        this.replicationLag = replicationLag;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) {
@@ -28,6 +28,11 @@ public interface ReplicaSelectorManager extends Closeable {
 
     String getDatasourceNameByReplicaName(String name, boolean master, String loadBalanceStrategy);
 
+    /**
+     * @param maxReplicationLag 读请求允许的最大主从延迟(秒),小于0不限制,没有满足的从节点时使用主节点
+     */
+    String getDatasourceNameByReplicaName(String name, boolean master, String loadBalanceStrategy, long maxReplicationLag);
+
     void putHeartFlow(String replicaName, String datasourceName, Consumer<HeartBeatStrategy> executer);
 
     String getDbTypeByTargetName(String name);
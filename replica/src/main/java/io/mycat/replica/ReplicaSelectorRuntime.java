@@ -18,6 +18,7 @@ import io.mycat.config.*;
 import io.mycat.plug.loadBalance.LoadBalanceElement;
 import io.mycat.plug.loadBalance.LoadBalanceManager;
 import io.mycat.plug.loadBalance.LoadBalanceStrategy;
+import io.mycat.plug.loadBalance.PeakEwma;
 import io.mycat.plug.loadBalance.SessionCounter;
 import io.mycat.replica.heartbeat.DefaultHeartbeatFlow;
 import io.mycat.replica.heartbeat.HeartBeatStrategy;
@@ -51,6 +52,7 @@ public class ReplicaSelectorRuntime implements ReplicaSelectorManager {
     private final ScheduleProvider scheduleProvider;
 
     private static final Logger LOGGER = LoggerFactory.getLogger(ReplicaSelectorRuntime.class);
+    private final Set<String> lagUnsupportedWarned = ConcurrentHashMap.newKeySet();
 
 
     public static ReplicaSelectorRuntime create(List<ClusterConfig> clusters,
@@ -91,6 +93,7 @@ public class ReplicaSelectorRuntime implements ReplicaSelectorManager {
         //新配置中的数据源名字
         Set<String> datasourceNames = datasources.keySet();
         new HashSet<>(physicsInstanceMap.keySet()).stream().filter(name -> !datasourceNames.contains(name)).forEach(name -> physicsInstanceMap.remove(name));
+        PeakEwma.retain(datasourceNames);
 
         List<PhysicsInstance> collect = replicaMap.values().stream().flatMap(i -> i.getRawDataSourceMap().values().stream()).collect(Collectors.toList());
         collect.forEach(c -> {
@@ -254,8 +257,12 @@ public class ReplicaSelectorRuntime implements ReplicaSelectorManager {
     }
 
     public String getDatasourceNameByReplicaName(String replicaName, boolean master, String loadBalanceStrategy) {
+        return getDatasourceNameByReplicaName(replicaName, master, loadBalanceStrategy, -1);
+    }
+
+    public String getDatasourceNameByReplicaName(String replicaName, boolean master, String loadBalanceStrategy, long maxReplicationLag) {
         BiFunction<LoadBalanceStrategy, ReplicaSelector, PhysicsInstance> function =
-                master ? this::getWriteDatasource : this::getDatasource;
+                master ? this::getWriteDatasource : (lb, selector) -> getDatasource(lb, selector, maxReplicationLag);
         ReplicaSelector replicaDataSourceSelector = replicaMap.get(Objects.requireNonNull(replicaName));
         if (replicaDataSourceSelector == null) {
             return replicaName;
@@ -314,6 +321,33 @@ public class ReplicaSelectorRuntime implements ReplicaSelectorManager {
                 dataSourceByLoadBalacneType);
     }
 
+    /**
+     * 只在主从延迟不超过maxReplicationLag秒的数据源中选择,没有的话使用主节点.
+     * 心跳不上报主从延迟的集群忽略该限制
+     */
+    public PhysicsInstance getDatasource(LoadBalanceStrategy balanceStrategy,
+                                         ReplicaSelector selector,
+                                         long maxReplicationLag) {
+        if (maxReplicationLag < 0) {
+            return getDatasource(balanceStrategy, selector);
+        }
+        if (!isReplicationLagSupported(selector.getType())) {
+            if (lagUnsupportedWarned.add(selector.getName())) {
+                LOGGER.warn("cluster {} type {} does not report replication lag, max_replication_lag is ignored",
+                        selector.getName(), selector.getType());
+            }
+            return getDatasource(balanceStrategy, selector);
+        }
+        List<PhysicsInstance> dataSourceList = selector.getDataSourceByLoadBalacneType().stream()
+                .filter(i -> i.isMaster() || (i.getReplicationLag() >= 0 && i.getReplicationLag() <= maxReplicationLag))
+                .collect(Collectors.toList());
+        if (dataSourceList.isEmpty()) {
+            return getWriteDatasource(balanceStrategy, selector);
+        }
+        return getDatasource(balanceStrategy, selector, selector.getDefaultReadLoadBalanceStrategy(),
+                dataSourceList);
+    }
+
     public PhysicsInstance getDatasource(LoadBalanceStrategy balanceStrategy,
                                          ReplicaSelector selector, LoadBalanceStrategy defaultWriteLoadBalanceStrategy,
                                          List element) {
@@ -367,6 +401,13 @@ public class ReplicaSelectorRuntime implements ReplicaSelectorManager {
         heartbeatDetectorMap.remove(replicaName + "." + datasourceName);
     }
 
+    /**
+     * 只有读取show slave status的心跳会上报主从延迟
+     */
+    public static boolean isReplicationLagSupported(ReplicaType replicaType) {
+        return replicaType == ReplicaType.MASTER_SLAVE || replicaType == ReplicaType.MHA;
+    }
+
     private Function<HeartbeatFlow, HeartBeatStrategy> getStrategyByReplicaType(String replicaType) {
         Function<HeartbeatFlow, HeartBeatStrategy> strategyProvider;
         switch (ReplicaType.valueOf(replicaType)) {
@@ -36,6 +36,8 @@ public class DatasourceStatus {
   private boolean isSlaveBehindMaster = false; //同步延时
   private DbSynEnum dbSynStatus = DB_SYN_NORMAL; //同步状态
   private boolean master = false;
+  @EqualsAndHashCode.Exclude
+  private long replicationLag = -1; //主从延迟(秒),未知为-1
 
   public DatasourceStatus() {
   }
@@ -61,10 +61,11 @@ public class DefaultHeartbeatFlow extends HeartbeatFlow {
     public void sendDataSourceStatus(DatasourceStatus currentDatasourceStatus) {
         //状态不同进行状态的同步
         if (!this.dsStatus.equals(currentDatasourceStatus)) {
-            //设置状态给 dataSource
-            this.dsStatus = currentDatasourceStatus;
-            LOGGER.info("{} heartStatus {}", datasouceName, dsStatus);
+            LOGGER.info("{} heartStatus {}", datasouceName, currentDatasourceStatus);
         }
+        //设置状态给 dataSource,主从延迟不参与比较,每次都更新
+        this.dsStatus = currentDatasourceStatus;
+        instance.notifyChangeReplicationLag(currentDatasourceStatus.getReplicationLag());
         switch (replicaSelector.getType()) {
             case SINGLE_NODE:
             case MASTER_SLAVE:
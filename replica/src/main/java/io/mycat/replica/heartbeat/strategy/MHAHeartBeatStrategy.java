@@ -54,6 +54,7 @@ public class MHAHeartBeatStrategy extends HeartBeatStrategy {
                         && Slave_SQL_Running.equals("Yes")) {
                     datasourceStatus.setDbSynStatus(DbSynEnum.DB_SYN_NORMAL);
                     Long Behind_Master = Long.parseLong(Objects.toString(resultResult.get("Seconds_Behind_Master")));
+                    datasourceStatus.setReplicationLag(Behind_Master);
                     if (Behind_Master > heartbeatFlow.getSlaveThreshold()) {
                         datasourceStatus.setSlaveBehindMaster(true);
                         LOGGER.warn("found MySQL master/slave Replication delay !!! " +
@@ -71,6 +72,9 @@ public class MHAHeartBeatStrategy extends HeartBeatStrategy {
             }
         }
         datasourceStatus.setMaster(master);
+        if (master) {
+            datasourceStatus.setReplicationLag(0);
+        }
         heartbeatFlow.setStatus(datasourceStatus, DatasourceEnum.OK_STATUS);
     }
 
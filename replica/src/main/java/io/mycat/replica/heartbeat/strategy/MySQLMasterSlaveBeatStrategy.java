@@ -49,6 +49,7 @@ public class MySQLMasterSlaveBeatStrategy extends HeartBeatStrategy {
         if (this.heartbeatFlow.getInstance().isMaster()) {
             if (resultList.size() > 0) {
                 datasourceStatus.setDbSynStatus(DbSynEnum.DB_SYN_NORMAL);
+                datasourceStatus.setReplicationLag(0);
                 heartbeatFlow.setStatus(datasourceStatus, DatasourceEnum.OK_STATUS);
                 return;
             }
@@ -66,6 +67,7 @@ public class MySQLMasterSlaveBeatStrategy extends HeartBeatStrategy {
                         && Slave_SQL_Running.equals("Yes")) {
                     datasourceStatus.setDbSynStatus(DbSynEnum.DB_SYN_NORMAL);
                     Long Behind_Master = Long.parseLong(Objects.toString(resultResult.get("Seconds_Behind_Master")));
+                    datasourceStatus.setReplicationLag(Behind_Master);
                     if (Behind_Master > heartbeatFlow.getSlaveThreshold()) {
                         datasourceStatus.setSlaveBehindMaster(true);
                         LOGGER.warn("found MySQL master/slave Replication delay !!! " +
@@ -35,6 +35,8 @@ public class AutoFunction extends CustomRuleFunction {
     private Set<String> dbKeys;
     private Set<String> tableKeys;
     Function<Map<String, Collection<RangeVariable>>, List<DataNode>> function;
+    private List<String> routeKeys;
+    Function<Object[], DataNode> keysFunction;
 
     public AutoFunction(int dbNum,
                         int tableNum,
@@ -42,7 +44,10 @@ public class AutoFunction extends CustomRuleFunction {
                         SQLMethodInvokeExpr tableMethod,
                         Set<String> dbKeys,
                         Set<String> tableKeys,
-                        Function<Map<String, Collection<RangeVariable>>, List<DataNode>> function, String erUniqueName) {
+                        Function<Map<String, Collection<RangeVariable>>, List<DataNode>> function,
+                        List<String> routeKeys,
+                        Function<Object[], DataNode> keysFunction,
+                        String erUniqueName) {
         this.dbNum = dbNum;
         this.tableNum = tableNum;
         this.dbMethod = dbMethod;
@@ -50,6 +55,8 @@ public class AutoFunction extends CustomRuleFunction {
         this.dbKeys = dbKeys;
         this.tableKeys = tableKeys;
         this.function = function;
+        this.routeKeys = routeKeys;
+        this.keysFunction = keysFunction;
 
         this.name = MessageFormat.format("dbNum:{0} tableNum:{1} dbMethod:{2} tableMethod:{3}",
                 dbNum, tableNum, exractKey(dbMethod), exractKey(tableMethod));
@@ -102,6 +109,16 @@ public class AutoFunction extends CustomRuleFunction {
         return Objects.requireNonNull(function.apply(values));
     }
 
+    @Override
+    public List<String> getRouteKeys() {
+        return routeKeys;
+    }
+
+    @Override
+    public DataNode calculateByKeys(Object[] keyValues) {
+        return keysFunction.apply(keyValues);
+    }
+
     @Override
     protected void init(ShardingTableHandler tableHandler, Map<String, Object> properties, Map<String, Object> ranges) {
 
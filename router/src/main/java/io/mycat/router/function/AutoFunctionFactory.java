@@ -23,6 +23,7 @@ import groovy.text.SimpleTemplateEngine;
 import groovy.text.Template;
 import io.mycat.BackendTableInfo;
 import io.mycat.DataNode;
+import io.mycat.MycatTimeUtil;
 import io.mycat.RangeVariable;
 import io.mycat.SimpleColumnInfo;
 import io.mycat.config.ShardingFuntion;
@@ -37,16 +38,21 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.text.MessageFormat;
 import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.time.temporal.WeekFields;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 import java.util.function.ToIntFunction;
 import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
 
 public class AutoFunctionFactory {
 
@@ -440,94 +446,273 @@ public class AutoFunctionFactory {
         }
         final ToIntFunction<Object> finalDbFunction = dbFunction;
         final ToIntFunction<Object> finalTableFunction = tableFunction;
+        final boolean dbDateFunction = isDateMethod(dbMethod);
+        final boolean tableDateFunction = isDateMethod(tableMethod);
+        //枚举范围时最多能命中的分区数,同一个分片键的MOD_HASH/UNI_HASH分表下标范围是dbNum*tableNum
+        final int dbPartitionCount = datanodes.size();
+        final int tablePartitionCount = (int) datanodes.values().stream()
+                .flatMap(i -> i.stream())
+                .mapToInt(IndexDataNode::getTableIndex)
+                .distinct()
+                .count();
 
 
         Function<Map<String, Collection<RangeVariable>>, List<DataNode>> function = new Function<Map<String, Collection<RangeVariable>>, List<DataNode>>() {
             @Override
             public List<DataNode> apply(Map<String, Collection<RangeVariable>> stringCollectionMap) {
-                boolean getDbIndex = false;
-                int dIndex = 0;
-
-                boolean getTIndex = false;
-                int tIndex = 0;
+                //NULL=该维度没有可用的条件
+                Set<Integer> dbIndexes = null;
+                Set<Integer> tableIndexes = null;
 
                 Set<Map.Entry<String, Collection<RangeVariable>>> entries = stringCollectionMap.entrySet();
                 for (Map.Entry<String, Collection<RangeVariable>> e : entries) {
+                    Collection<RangeVariable> rangeVariables = e.getValue();
+                    if (rangeVariables == null || rangeVariables.isEmpty()) {
+                        continue;
+                    }
                     for (String dbShardingKey : dbShardingKeys) {
                         if (SQLUtils.nameEquals(dbShardingKey, e.getKey())) {
-                            Collection<RangeVariable> rangeVariables = e.getValue();
-                            if (rangeVariables.size() != 1) {
-                                break;
-                            }
-                            if (rangeVariables != null && !rangeVariables.isEmpty()) {
-                                for (RangeVariable rangeVariable : rangeVariables) {
-                                    switch (rangeVariable.getOperator()) {
-                                        case EQUAL:
-                                            Object value = rangeVariable.getValue();
-                                            dIndex = finalDbFunction.applyAsInt(value);
-                                            getDbIndex = true;
-                                            if (dIndex < 0) {
-                                                finalDbFunction.applyAsInt(value);
-                                                throw new IllegalArgumentException();
-                                            }
-                                            break;
-                                        case RANGE:
-                                        default:
-                                            continue;
+                            Set<Integer> indexes = calculateIndexes(finalDbFunction, tableHandler.getColumnByName(dbShardingKey),
+                                    dbDateFunction, dbPartitionCount, rangeVariables);
+                            if (indexes != null) {
+                                for (Integer index : indexes) {
+                                    if (index < 0) {
+                                        throw new IllegalArgumentException();
                                     }
                                 }
+                                dbIndexes = indexes;
                             }
                         }
                     }
                     for (String tableShardingKey : tableShardingKeys) {
                         if (SQLUtils.nameEquals(tableShardingKey, e.getKey())) {
-                            Collection<RangeVariable> rangeVariables = e.getValue();
-                            if (rangeVariables.size() != 1) {
-                                break;
+                            Set<Integer> indexes = calculateIndexes(finalTableFunction, tableHandler.getColumnByName(tableShardingKey),
+                                    tableDateFunction, tablePartitionCount, rangeVariables);
+                            if (indexes != null) {
+                                tableIndexes = indexes;
                             }
-                            if (rangeVariables != null && !rangeVariables.isEmpty()) {
-                                for (RangeVariable rangeVariable : rangeVariables) {
-                                    switch (rangeVariable.getOperator()) {
-                                        case EQUAL:
-                                            Object value = rangeVariable.getValue();
-                                            tIndex = finalTableFunction.applyAsInt(value);
-                                            getTIndex = true;
-                                            break;
-                                        case RANGE:
-                                        default:
-                                            continue;
-                                    }
-                                }
+                        }
+                    }
+                }
+                if (dbIndexes == null && tableIndexes == null) {
+                    return datanodes.values().stream().flatMap(i -> i.stream()).collect(Collectors.toList());
+                }
+                //各个值的分片结果取并集
+                Set<DataNode> res = new LinkedHashSet<>();
+                if (dbIndexes != null) {
+                    for (Integer dIndex : dbIndexes) {
+                        List<IndexDataNode> indexDataNodes = Objects.requireNonNull(datanodes.get(dIndex));
+                        if (tableIndexes == null) {
+                            res.addAll(indexDataNodes);
+                            continue;
+                        }
+                        for (Integer tIndex : tableIndexes) {
+                            Optional<IndexDataNode> indexDataNode = indexDataNodes.stream()
+                                    .filter(i -> i.getTableIndex() == tIndex).findFirst();
+                            if (indexDataNode.isPresent()) {
+                                res.add(indexDataNode.get());
+                            } else {
+                                res.addAll(indexDataNodes);
                             }
                         }
                     }
+                    return new ArrayList<>(res);
+                }
+                for (Integer tIndex : tableIndexes) {
+                    Optional<IndexDataNode> indexDataNode = datanodes.values().stream().flatMap(i -> i.stream())
+                            .filter(i -> i.getTableIndex() == tIndex).findFirst();
+                    if (!indexDataNode.isPresent()) {
+                        return datanodes.values().stream().flatMap(i -> i.stream()).collect(Collectors.toList());
+                    }
+                    res.add(indexDataNode.get());
                 }
-                if (getDbIndex && getTIndex) {
-                    List<IndexDataNode> indexDataNodes = Objects.requireNonNull((List) datanodes.get(dIndex));
+                return new ArrayList<>(res);
+            }
+        };
+
+
+        //每个维度只有一个分片键时支持按分片键的值直接路由
+        List<String> routeKeys = new ArrayList<>();
+        if (dbShardingKeys.size() <= 1 && tableShardingKeys.size() <= 1) {
+            for (String key : dbShardingKeys) {
+                routeKeys.add(key);
+            }
+            for (String key : tableShardingKeys) {
+                if (routeKeys.stream().noneMatch(i -> SQLUtils.nameEquals(i, key))) {
+                    routeKeys.add(key);
+                }
+            }
+        }
+        final int dbKeyIndex = dbShardingKeys.isEmpty() ? -1 : indexOfKey(routeKeys, dbShardingKeys.iterator().next());
+        final int tableKeyIndex = tableShardingKeys.isEmpty() ? -1 : indexOfKey(routeKeys, tableShardingKeys.iterator().next());
+        Function<Object[], DataNode> keysFunction = keyValues -> {
+            //与上面的等值路由保持一致,只在结果是单个分片时返回
+            if (dbKeyIndex != -1) {
+                int dIndex = finalDbFunction.applyAsInt(keyValues[dbKeyIndex]);
+                if (dIndex < 0) {
+                    throw new IllegalArgumentException();
+                }
+                List<IndexDataNode> indexDataNodes = Objects.requireNonNull(datanodes.get(dIndex));
+                if (tableKeyIndex != -1) {
+                    int tIndex = finalTableFunction.applyAsInt(keyValues[tableKeyIndex]);
                     for (IndexDataNode indexDataNode : indexDataNodes) {
-                        if(indexDataNode.getTableIndex() ==  tIndex){
-                            return Collections.singletonList(indexDataNode);
+                        if (indexDataNode.getTableIndex() == tIndex) {
+                            return indexDataNode;
                         }
                     }
                 }
-                if (getDbIndex) {
-                    return new ArrayList<>((List) datanodes.get(dIndex));
-                }
-                if (getTIndex) {
-                    for (List<IndexDataNode> value : datanodes.values()) {
-                        for (IndexDataNode indexDataNode : value) {
-                            if(indexDataNode.getTableIndex() ==  tIndex){
-                                return Collections.singletonList(indexDataNode);
-                            }
+                return indexDataNodes.size() == 1 ? indexDataNodes.get(0) : null;
+            }
+            if (tableKeyIndex != -1) {
+                int tIndex = finalTableFunction.applyAsInt(keyValues[tableKeyIndex]);
+                for (List<IndexDataNode> value : datanodes.values()) {
+                    for (IndexDataNode indexDataNode : value) {
+                        if (indexDataNode.getTableIndex() == tIndex) {
+                            return indexDataNode;
                         }
                     }
                 }
-                return datanodes.values().stream().flatMap(i -> i.stream()).collect(Collectors.toList());
             }
+            return null;
         };
 
+        return new AutoFunction(dbNum, tableNum, dbMethod, tableMethod, dbShardingKeys, tableShardingKeys, function,
+                routeKeys, keysFunction, erUniqueName);
+    }
+
+    private static int indexOfKey(List<String> keys, String key) {
+        for (int i = 0; i < keys.size(); i++) {
+            if (SQLUtils.nameEquals(keys.get(i), key)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 范围条件最多枚举的取值个数,超过就不做剪枝
+     */
+    private static final int RANGE_ENUMERATION_LIMIT = 8192;
+    private static final Set<String> DATE_METHODS = new HashSet<>(Arrays.asList(
+            "MM", "DD", "MMDD", "WEEK", "YYYYMM", "YYYYDD", "YYYYWEEK"));
+
+    private static boolean isDateMethod(SQLMethodInvokeExpr methodInvokeExpr) {
+        return methodInvokeExpr != null && DATE_METHODS.contains(SQLUtils.normalize(methodInvokeExpr.getMethodName()).toUpperCase());
+    }
+
+    /**
+     * 计算一组值(等值或范围)对应的分片下标,结果取并集
+     *
+     * @param dateFunction 分片函数只与日期有关(时间戳范围可以按天枚举)
+     * @param num          分片函数可能返回的下标个数,枚举命中这么多个下标后提前结束
+     * @return NULL=不能剪枝
+     */
+    @Nullable
+    public static Set<Integer> calculateIndexes(ToIntFunction<Object> function,
+                                                SimpleColumnInfo column,
+                                                boolean dateFunction,
+                                                int num,
+                                                Collection<RangeVariable> rangeVariables) {
+        Set<Integer> res = new HashSet<>();
+        for (RangeVariable rangeVariable : rangeVariables) {
+            switch (rangeVariable.getOperator()) {
+                case EQUAL:
+                    res.add(function.applyAsInt(rangeVariable.getValue()));
+                    break;
+                case RANGE: {
+                    Iterator<Object> values = enumerateRange(column, dateFunction, rangeVariable.getBegin(), rangeVariable.getEnd());
+                    if (values == null) {
+                        return null;
+                    }
+                    while (values.hasNext() && res.size() < num) {
+                        res.add(function.applyAsInt(values.next()));
+                    }
+                    break;
+                }
+                default:
+                    return null;
+            }
+        }
+        return res;
+    }
 
-        return new AutoFunction(dbNum, tableNum, dbMethod, tableMethod,dbShardingKeys,tableShardingKeys,function,erUniqueName);
+    /**
+     * 枚举范围内所有可能的取值
+     * 整数列按[floor(begin),ceil(end)]枚举,日期按天枚举
+     *
+     * @return NULL=不能枚举
+     */
+    @Nullable
+    public static Iterator<Object> enumerateRange(SimpleColumnInfo column, boolean dateFunction, Object begin, Object end) {
+        if (column == null || begin == null || end == null) {
+            return null;
+        }
+        switch (column.getType()) {
+            case NUMBER: {
+                //小数列的值不能枚举
+                if (!column.isIntegerType()) {
+                    return null;
+                }
+                if (!(begin instanceof Number || begin instanceof String)
+                        || !(end instanceof Number || end instanceof String)) {
+                    return null;
+                }
+                long beginValue;
+                long endValue;
+                try {
+                    beginValue = new BigDecimal(begin.toString()).setScale(0, RoundingMode.FLOOR).longValueExact();
+                    endValue = new BigDecimal(end.toString()).setScale(0, RoundingMode.CEILING).longValueExact();
+                } catch (ArithmeticException | NumberFormatException e) {
+                    return null;
+                }
+                if (endValue < beginValue) {
+                    return Collections.emptyIterator();
+                }
+                if (endValue - beginValue >= RANGE_ENUMERATION_LIMIT) {
+                    return null;
+                }
+                return LongStream.rangeClosed(beginValue, endValue).mapToObj(i -> (Object) i).iterator();
+            }
+            case DATE:
+            case TIMESTAMP: {
+                if (column.getType() == SimpleColumnInfo.Type.TIMESTAMP && !dateFunction) {
+                    return null;
+                }
+                LocalDate beginDate = toLocalDate(begin);
+                LocalDate endDate = toLocalDate(end);
+                if (beginDate == null || endDate == null) {
+                    return null;
+                }
+                if (endDate.isBefore(beginDate)) {
+                    return Collections.emptyIterator();
+                }
+                long days = ChronoUnit.DAYS.between(beginDate, endDate);
+                if (days >= RANGE_ENUMERATION_LIMIT) {
+                    return null;
+                }
+                boolean timestamp = column.getType() == SimpleColumnInfo.Type.TIMESTAMP;
+                return Stream.iterate(beginDate, d -> d.plusDays(1))
+                        .limit(days + 1)
+                        .map(d -> timestamp ? (Object) d.atStartOfDay() : (Object) d.toString())
+                        .iterator();
+            }
+            default:
+                return null;
+        }
+    }
+
+    @Nullable
+    private static LocalDate toLocalDate(Object o) {
+        if (o instanceof String) {
+            o = MycatTimeUtil.timestampStringToTimestamp((String) o);
+        }
+        if (o instanceof LocalDate) {
+            return (LocalDate) o;
+        }
+        if (o instanceof LocalDateTime) {
+            return ((LocalDateTime) o).toLocalDate();
+        }
+        return null;
     }
 
     @NotNull
@@ -44,7 +44,7 @@ public class ConsistentHashPreSlot extends Mycat1xSingleValueRuleFunction {
 
     @Override
     public int[] calculateIndexRange(String beginValue, String endValue) {
-        return null;
+        return calculateEnumerableRange(this, beginValue, endValue);
     }
 
     public ConsistentHashBalanceExpandResult balanceExpand(ShardingTableHandler table, List<String> oldDataNodes, List<String> newDataNodes) {
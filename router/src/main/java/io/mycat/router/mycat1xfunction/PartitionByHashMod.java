@@ -43,7 +43,7 @@ public class PartitionByHashMod extends Mycat1xSingleValueRuleFunction {
 
     @Override
     public int[] calculateIndexRange(String beginValue, String endValue) {
-        return null;
+        return calculateEnumerableRange(this, beginValue, endValue);
     }
 
 
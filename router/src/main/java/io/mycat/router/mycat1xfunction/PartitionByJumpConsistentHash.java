@@ -70,7 +70,7 @@ public class PartitionByJumpConsistentHash extends Mycat1xSingleValueRuleFunctio
 
     @Override
     public int[] calculateIndexRange(String beginValue, String endValue) {
-        return null;
+        return calculateEnumerableRange(this, beginValue, endValue);
     }
 
 
@@ -56,7 +56,7 @@ public class PartitionByLong extends Mycat1xSingleValueRuleFunction {
 
     @Override
     public int[] calculateIndexRange(String beginValue, String endValue) {
-        return null;
+        return calculateEnumerableRange(this, beginValue, endValue);
     }
 
     @Override
@@ -52,7 +52,7 @@ public class PartitionByMod extends Mycat1xSingleValueRuleFunction {
 
     @Override
     public int[] calculateIndexRange(String beginValue, String endValue) {
-        return null;
+        return calculateEnumerableRange(this, beginValue, endValue);
     }
 
     @Override
@@ -55,7 +55,7 @@ public class PartitionByMurmurHash extends Mycat1xSingleValueRuleFunction {
 
     @Override
     public int[] calculateIndexRange(String beginValue, String endValue) {
-        return null;
+        return calculateEnumerableRange(this, beginValue, endValue);
     }
 
 
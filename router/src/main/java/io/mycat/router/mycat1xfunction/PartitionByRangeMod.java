@@ -57,7 +57,7 @@ public class PartitionByRangeMod extends Mycat1xSingleValueRuleFunction {
 
   @Override
   public int[] calculateIndexRange(String beginValue, String endValue) {
-    return null;
+    return calculateEnumerableRange(this, beginValue, endValue);
   }
 
   @Override
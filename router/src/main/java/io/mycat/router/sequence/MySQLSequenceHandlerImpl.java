@@ -72,6 +72,55 @@ public class MySQLSequenceHandlerImpl implements SequenceHandler<MySQLAPIRuntime
     }
   }
 
+  @Override
+  public void nextIdBlock(String schema, String seqName, int n, SequenceCallback callback) {
+    nextIdBlock(schema, seqName, new long[n], 0, callback);
+  }
+
+  /**
+   * 在当前号段内一次取出剩余需要的值,号段用完时通过nextId取新号段后继续
+   */
+  private void nextIdBlock(String schema, String seqName, long[] values, int offset,
+      SequenceCallback callback) {
+    try {
+      int index = offset;
+      SeqInfoValue seqInfoValue = getSeqInfoValue(schema, seqName);
+      AtomicLong valueBox = seqInfoValue.getValueBox();
+      if (valueBox != null) {
+        long max = seqInfoValue.getMaxValue();
+        int remaining = values.length - index;
+        long prev = valueBox.getAndUpdate(operand -> operand < max ? Math.min(operand + remaining, max) : operand);
+        long count = Math.max(0, Math.min(prev + remaining, max) - prev);
+        for (long i = 1; i <= count; i++) {
+          values[index++] = prev + i;
+        }
+        if (index < values.length) {
+          seqInfoValue.setValueBox(null);
+        }
+      }
+      if (index == values.length) {
+        callback.onSequenceBlock(values);
+        return;
+      }
+      int next = index;
+      nextId(schema, seqName, new SequenceCallback() {
+        @Override
+        public void onSequence(long value) {
+          values[next] = value;
+          nextIdBlock(schema, seqName, values, next + 1, callback);
+        }
+
+        @Override
+        public void onException(Exception e) {
+          callback.onException(e);
+        }
+      });
+    } catch (Exception e) {
+      LOGGER.error("", e);
+      callback.onException(e);
+    }
+  }
+
   private void updateSeqFromDb(SeqInfoValue seqInfoValue,
       SequenceCallback callback) {
     String dataSourceName = seqInfoValue.getDataSourceName();
@@ -18,5 +18,14 @@ public interface SequenceCallback {
 
   void onSequence(long value);
 
+  /**
+   * 批量取号的结果,默认逐个回调onSequence
+   */
+  default void onSequenceBlock(long[] values) {
+    for (long value : values) {
+      onSequence(value);
+    }
+  }
+
   void onException(Exception e);
 }
\ No newline at end of file
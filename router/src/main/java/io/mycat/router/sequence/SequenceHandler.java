@@ -21,5 +21,34 @@ public interface SequenceHandler<Runtime> {
 
   void nextId(String schema, String seqName, SequenceCallback callback);
 
+  /**
+   * 一次取n个递增的序列值,结果通过onSequenceBlock返回
+   */
+  default void nextIdBlock(String schema, String seqName, int n, SequenceCallback callback) {
+    long[] values = new long[n];
+    if (n == 0) {
+      callback.onSequenceBlock(values);
+      return;
+    }
+    nextId(schema, seqName, new SequenceCallback() {
+      int index = 0;
+
+      @Override
+      public void onSequence(long value) {
+        values[index++] = value;
+        if (index < n) {
+          nextId(schema, seqName, this);
+        } else {
+          callback.onSequenceBlock(values);
+        }
+      }
+
+      @Override
+      public void onException(Exception e) {
+        callback.onException(e);
+      }
+    });
+  }
+
   void init(Runtime mySQLAPIRuntime, Map<String, String> properties);
 }
\ No newline at end of file
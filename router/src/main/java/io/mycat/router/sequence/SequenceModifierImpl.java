@@ -21,6 +21,8 @@ import io.mycat.sequencemodifier.SequenceModifier;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -37,18 +39,26 @@ public class SequenceModifierImpl implements SequenceModifier<MySQLAPIRuntime> {
       return;
     } else {
       String seqName = matcher.group(2);
-      sequenceHandler.nextId(schema, seqName, new SequenceCallback() {
-        String resSQL = sql;
+      //先找出所有需要替换的位置,一次取出全部序列值
+      List<String> placeholders = new ArrayList<>();
+      do {
+        placeholders.add(matcher.group(1));
+      } while (matcher.find());
+      sequenceHandler.nextIdBlock(schema, seqName, placeholders.size(), new SequenceCallback() {
 
         @Override
         public void onSequence(long value) {
+          onSequenceBlock(new long[]{value});
+        }
+
+        @Override
+        public void onSequenceBlock(long[] values) {
           try {
-            resSQL = resSQL.replaceFirst(matcher.group(1), " " + value + " ");
-            if (matcher.find()) {
-              sequenceHandler.nextId(schema, seqName, this);
-            } else {
-              callback.onSuccessCallback(resSQL);
+            String resSQL = sql;
+            for (int i = 0; i < values.length; i++) {
+              resSQL = resSQL.replaceFirst(placeholders.get(i), " " + values[i] + " ");
             }
+            callback.onSuccessCallback(resSQL);
           } catch (Exception e) {
             callback.onException(e);
           }
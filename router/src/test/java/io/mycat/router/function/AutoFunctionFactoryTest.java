@@ -0,0 +1,58 @@
+package io.mycat.router.function;
+
+import io.mycat.RangeVariable;
+import io.mycat.RangeVariableType;
+import io.mycat.SimpleColumnInfo;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.sql.JDBCType;
+import java.util.*;
+import java.util.function.ToIntFunction;
+
+public class AutoFunctionFactoryTest {
+
+    private static SimpleColumnInfo column(JDBCType jdbcType) {
+        return new SimpleColumnInfo("id", 0, 0, jdbcType, false, false, true, true, 0);
+    }
+
+    private static List<RangeVariable> range(Object begin, Object end) {
+        return Collections.singletonList(new RangeVariable("id", RangeVariableType.RANGE, begin, end));
+    }
+
+    @Test
+    public void testSameKeyModHashUsesWholeIndexSpace() {
+        //dbpartition by mod_hash(id) tbpartition by mod_hash(id) dbpartitions 2 tbpartitions 2
+        int total = 2 * 2;
+        ToIntFunction<Object> tableFunction = o -> (int) (((Number) o).longValue() % total);
+        Set<Integer> indexes = AutoFunctionFactory.calculateIndexes(tableFunction, column(JDBCType.BIGINT),
+                false, total, range(0, 3));
+        Assert.assertEquals(new HashSet<>(Arrays.asList(0, 1, 2, 3)), indexes);
+    }
+
+    @Test
+    public void testEnumerationStopsWhenAllPartitionsHit() {
+        List<Object> seen = new ArrayList<>();
+        ToIntFunction<Object> function = o -> {
+            seen.add(o);
+            return (int) (((Number) o).longValue() % 2);
+        };
+        Set<Integer> indexes = AutoFunctionFactory.calculateIndexes(function, column(JDBCType.INTEGER),
+                false, 2, range(10, 5000));
+        Assert.assertEquals(new HashSet<>(Arrays.asList(0, 1)), indexes);
+        Assert.assertEquals(2, seen.size());
+    }
+
+    @Test
+    public void testIntegralTypesAreEnumerable() {
+        for (JDBCType jdbcType : Arrays.asList(JDBCType.TINYINT, JDBCType.SMALLINT, JDBCType.INTEGER, JDBCType.BIGINT)) {
+            Iterator<Object> values = AutoFunctionFactory.enumerateRange(column(jdbcType), false, "1.5", 3);
+            Assert.assertNotNull(jdbcType.toString(), values);
+            List<Object> list = new ArrayList<>();
+            values.forEachRemaining(list::add);
+            Assert.assertEquals(Arrays.asList(1L, 2L, 3L), list);
+        }
+        Assert.assertNull(AutoFunctionFactory.enumerateRange(column(JDBCType.DECIMAL), false, 1, 3));
+        Assert.assertNull(AutoFunctionFactory.enumerateRange(column(JDBCType.BIGINT), false, 0, 100000));
+    }
+}
@@ -0,0 +1,44 @@
+/**
+ * Copyright [2021] [chen junwen]
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.mycat.vertx.xa;
+
+import io.mycat.beans.mysql.MySQLIsolation;
+
+/**
+ * 可以延迟发送事务初始化语句的后端连接
+ * <p>
+ * 加入事务时不再单独发送隔离级别和begin,而是登记到连接上,
+ * 连接执行下一条语句时以多语句的形式和它一起发送,省掉两次往返.
+ * 连接记录后端会话当前的隔离级别,相同时不再重复设置
+ */
+public interface DeferredSetupConnection {
+
+    /**
+     * 登记事务初始化语句
+     *
+     * @param isolation 事务隔离级别,后端会话已经是这个隔离级别时不发送,null表示不设置
+     * @param sql       初始化语句,以分号结尾,例如begin;
+     */
+    void deferSetup(MySQLIsolation isolation, String sql);
+
+    /**
+     * 丢弃还没有发送的初始化语句
+     *
+     * @return true=初始化语句还没有发送,后端没有开始事务
+     */
+    boolean cancelSetup();
+}
@@ -29,6 +29,20 @@ public interface MySQLManager {
 
     Future<SqlConnection> getConnection(String targetName);
     int  getSessionCount(String targetName);
+
+    /**
+     * @return 数据源当前空闲(还能获取)的连接数,-1表示未知
+     */
+    default int getAvailableNumber(String targetName) {
+        return -1;
+    }
+
+    /**
+     * @return 从本实例借出还没有归还的连接数,-1表示未知
+     */
+    default int getInUseNumber() {
+        return -1;
+    }
     Future<Map<String, SqlConnection>> getConnectionMap();
 
     Future<Void> close();
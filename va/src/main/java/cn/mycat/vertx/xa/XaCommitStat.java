@@ -0,0 +1,79 @@
+/**
+ * Copyright [2021] [chen junwen]
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cn.mycat.vertx.xa;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * latency of every commit phase,for tuning the xa coordinator.
+ */
+public enum XaCommitStat {
+    /**
+     * XA END + XA PREPARE of all participants
+     */
+    PREPARE,
+    /**
+     * persist the commit log before XA COMMIT
+     */
+    COMMIT_LOG,
+    /**
+     * XA COMMIT of all participants
+     */
+    COMMIT,
+    /**
+     * XA END + XA COMMIT ONE PHASE of the single participant
+     */
+    ONE_PHASE_COMMIT;
+
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    public void record(long startNanos) {
+        long cost = System.nanoTime() - startNanos;
+        count.increment();
+        totalNanos.add(cost);
+        maxNanos.accumulateAndGet(cost, Math::max);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getTotalMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(totalNanos.sum());
+    }
+
+    public double getAvgMillis() {
+        long c = count.sum();
+        if (c == 0) {
+            return 0;
+        }
+        return totalNanos.sum() / (double) c / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    public double getMaxMillis() {
+        return maxNanos.get() / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    public void reset() {
+        count.reset();
+        totalNanos.reset();
+        maxNanos.set(0);
+    }
+}
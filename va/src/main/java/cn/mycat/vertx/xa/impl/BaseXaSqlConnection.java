@@ -201,92 +201,136 @@ public class BaseXaSqlConnection extends AbstractXaSqlConnection {
     }
 
 
+    /**
+     * a transaction that only touched one participant does not need two phase commit,
+     * XA COMMIT ONE PHASE is enough and the prepare log can be skipped.
+     */
     @Override
     public Future<Void> commit() {
+        if (map.size() == 1) {
+            return commitOnePhase();
+        }
         return commitXa((unused) -> Future.succeededFuture());
     }
 
+    /**
+     * XA_INITED to XA_START to XA_END to XA_COMMIT_ONE_PHASE
+     * <p>
+     * if it fails,the client must rollback.
+     */
+    protected Future<Void> commitOnePhase() {
+        return Future.future((Promise<Void> promise) -> {
+            long startTime = System.nanoTime();
+            executeAll(connection -> {
+                Future<Void> future = end(connection);
+                return future.flatMap(unused -> connection.query(String.format(XA_COMMIT_ONE_PHASE, xid)).execute())
+                        .map(c -> changeTo(connection, State.XA_COMMITED)).mapEmpty();
+            }).onFailure(throwable -> {
+                log.logCommit(xid, false);
+                promise.tryFail(throwable);
+            }).onSuccess(unused -> {
+                XaCommitStat.ONE_PHASE_COMMIT.record(startTime);
+                inTranscation = false;
+                log.logCommit(xid, true);
+                clearConnections().onComplete(promise);
+            });
+        });
+    }
+
+    /**
+     * XA_END and XA_PREPARE are sent one after another on the same connection,
+     * it does not wait for the XA_END of the other participants.
+     * <p>
+     * XA_INITED to XA_START to XA_END to XA_PREPARE
+     */
+    private Future<Void> endAndPrepare(SqlConnection connection) {
+        Future<Void> future = end(connection);
+        if (connectionState.get(connection) == State.XA_PREPARED) {
+            return future;
+        }
+        return future.flatMap(unused -> connection.query(String.format(XA_PREPARE, xid)).execute())
+                .map(c -> changeTo(connection, State.XA_PREPARED)).mapEmpty();
+    }
+
+    private Future<Void> end(SqlConnection connection) {
+        Future<Void> future = Future.succeededFuture();
+        switch (connectionState.get(connection)) {
+            case XA_INITED:
+                future = future
+                        .flatMap(unuse -> connection.query(String.format(XA_START, xid)).execute())
+                        .map(u -> changeTo(connection, State.XA_STARTED)).mapEmpty();
+            case XA_STARTED:
+                future = future
+                        .flatMap(unuse -> connection.query(String.format(XA_END, xid)).execute())
+                        .map(u -> changeTo(connection, State.XA_ENDED)).mapEmpty();
+            case XA_ENDED:
+            default:
+        }
+        return future;
+    }
+
     /**
      * @param beforeCommit for the native connection commit or some exception test
      */
     public Future<Void> commitXa(Function<ImmutableCoordinatorLog, Future<Void>> beforeCommit) {
         return Future.future((Promise<Void> promsie) -> {
             logParticipants();
-            Future<Void> xaEnd = executeAll(connection -> {
-                Future<Void> future = Future.succeededFuture();
-                switch (connectionState.get(connection)) {
-                    case XA_INITED:
-                        future = future
-                                .flatMap(unuse -> connection.query(String.format(XA_START, xid)).execute())
-                                .map(u -> changeTo(connection, State.XA_STARTED)).mapEmpty();
-                    case XA_STARTED:
-                        future = future
-                                .flatMap(unuse -> connection.query(String.format(XA_END, xid)).execute())
-                                .map(u -> changeTo(connection, State.XA_ENDED)).mapEmpty();
-                    case XA_ENDED:
-                    default:
-                }
-                return future.mapEmpty();
-            });
-            xaEnd.onFailure(throwable -> promsie.tryFail(throwable));
-            xaEnd.onSuccess(event -> {
-                executeAll(connection -> {
-                    if (connectionState.get(connection) != State.XA_PREPARED) {
-                        return connection.query(String.format(XA_PREPARE, xid)).execute()
-                                .map(c -> changeTo(connection, State.XA_PREPARED)).mapEmpty();
-                    }
-                    return Future.succeededFuture();
-                })
-                        .onFailure(throwable -> {
-                            log.logPrepare(xid, false);
+            long prepareStartTime = System.nanoTime();
+            executeAll(this::endAndPrepare)
+                    .onFailure(throwable -> {
+                        log.logPrepare(xid, false);
+                        //客户端触发回滚
+                        promsie.tryFail(throwable);
+                    })
+                    .onSuccess(compositeFuture -> {
+                        XaCommitStat.PREPARE.record(prepareStartTime);
+                        log.logPrepare(xid, true);
+                        Future<Void> future;
+                        long commitLogStartTime = System.nanoTime();
+                        try {
+                            /**
+                             * if log commit fail ,occur exception,other transcations rollback.
+                             */
+                            ImmutableCoordinatorLog coordinatorLog = this.log.logCommitBeforeXaCommit(xid);
+                            /**
+                             * if native connection has inner commited,
+                             * but it didn't received the commit response.
+                             * should check the by manually.
+                             */
+                            future = beforeCommit.apply(coordinatorLog);
+                        } catch (Throwable throwable) {
+                            future = Future.failedFuture(throwable);
+                        }
+                        future.onFailure((Handler<Throwable>) throwable -> {
+                            log.logCancelCommitBeforeXaCommit(xid);
                             //客户端触发回滚
-                            promsie.tryFail(throwable);
-                        })
-                        .onSuccess(compositeFuture -> {
-                            log.logPrepare(xid, true);
-                            Future<Void> future;
-                            try {
-                                /**
-                                 * if log commit fail ,occur exception,other transcations rollback.
-                                 */
-                                ImmutableCoordinatorLog coordinatorLog = this.log.logCommitBeforeXaCommit(xid);
-                                /**
-                                 * if native connection has inner commited,
-                                 * but it didn't received the commit response.
-                                 * should check the by manually.
-                                 */
-                                future = beforeCommit.apply(coordinatorLog);
-                            } catch (Throwable throwable) {
-                                future = Future.failedFuture(throwable);
-                            }
-                            future.onFailure((Handler<Throwable>) throwable -> {
-                                log.logCancelCommitBeforeXaCommit(xid);
-                                //客户端触发回滚
-                                /**
-                                 * the client received exception ,it must  rollback.
-                                 */
-                                promsie.fail(throwable);
-                            });
-                            future.onSuccess(event16 -> {
-                                executeAll(connection -> {
-                                    return connection.query(String.format(XA_COMMIT, xid)).execute()
-                                            .map(c -> changeTo(connection, State.XA_COMMITED)).mapEmpty();
-                                })
-                                        .onFailure(ignored -> {
-                                            log.logCommit(xid, false);
-                                            //retry
-                                            retryCommit().onComplete(promsie);
-                                        })
-                                        .onSuccess(ignored -> {
-                                            inTranscation = false;
-
-                                            log.logCommit(xid, true);
-
-                                            clearConnections().onComplete(promsie);
-                                        });
-                            });
+                            /**
+                             * the client received exception ,it must  rollback.
+                             */
+                            promsie.fail(throwable);
                         });
-            });
+                        future.onSuccess(event16 -> {
+                            XaCommitStat.COMMIT_LOG.record(commitLogStartTime);
+                            long commitStartTime = System.nanoTime();
+                            executeAll(connection -> {
+                                return connection.query(String.format(XA_COMMIT, xid)).execute()
+                                        .map(c -> changeTo(connection, State.XA_COMMITED)).mapEmpty();
+                            })
+                                    .onFailure(ignored -> {
+                                        log.logCommit(xid, false);
+                                        //retry
+                                        retryCommit().onComplete(promsie);
+                                    })
+                                    .onSuccess(ignored -> {
+                                        XaCommitStat.COMMIT.record(commitStartTime);
+                                        inTranscation = false;
+
+                                        log.logCommit(xid, true);
+
+                                        clearConnections().onComplete(promsie);
+                                    });
+                        });
+                    });
         });
 
     }
@@ -15,6 +15,7 @@
  */
 package cn.mycat.vertx.xa.impl;
 
+import cn.mycat.vertx.xa.DeferredSetupConnection;
 import cn.mycat.vertx.xa.ImmutableCoordinatorLog;
 import cn.mycat.vertx.xa.MySQLManager;
 import cn.mycat.vertx.xa.XaLog;
@@ -66,6 +67,10 @@ public class LocalSqlConnection extends AbstractXaSqlConnection {
                 Future<SqlConnection> sqlConnectionFuture = mySQLManager().getConnection(targetName);
                 return sqlConnectionFuture.compose(connection -> {
                     map.put(targetName, connection);
+                    if (connection instanceof DeferredSetupConnection) {
+                        ((DeferredSetupConnection) connection).deferSetup(getTransactionIsolation(), "begin;");
+                        return Future.succeededFuture(connection);
+                    }
                     return connection.query(getTransactionIsolation().getCmd())
                             .execute().flatMap(rows -> connection.query("begin")
                                     .execute().mapEmpty()).map(r -> connection);
@@ -81,7 +86,7 @@ public class LocalSqlConnection extends AbstractXaSqlConnection {
 
     @Override
     public Future<Void> rollback() {
-        List<Future> rollback = map.values().stream().map(c -> c.query("rollback").execute()).collect(Collectors.toList());
+        List<Future> rollback = map.values().stream().map(c -> endTransaction(c, "rollback")).collect(Collectors.toList());
         return CompositeFuture.all(rollback).eventually(event -> {
             inTranscation = false;
             //每一个记录日志
@@ -91,13 +96,23 @@ public class LocalSqlConnection extends AbstractXaSqlConnection {
 
     @Override
     public Future<Void> commit() {
-        List<Future> rollback = map.values().stream().map(c -> c.query("commit").execute()).collect(Collectors.toList());
+        List<Future> rollback = map.values().stream().map(c -> endTransaction(c, "commit")).collect(Collectors.toList());
         return CompositeFuture.all(rollback).onComplete(event -> {
             inTranscation = false;
             //每一个记录日志
         }).mapEmpty().flatMap(o -> closeStatementState());
     }
 
+    /**
+     * 初始化语句还没有发送的连接在后端没有开始事务,不需要提交或回滚
+     */
+    protected static Future<Void> endTransaction(SqlConnection connection, String sql) {
+        if (connection instanceof DeferredSetupConnection && ((DeferredSetupConnection) connection).cancelSetup()) {
+            return Future.succeededFuture();
+        }
+        return connection.query(sql).execute().mapEmpty();
+    }
+
     @Override
     public Future<Void> commitXa(Function<ImmutableCoordinatorLog, Future<Void>> beforeCommit) {
         return Future.future(promise -> {
@@ -15,6 +15,7 @@
  */
 package cn.mycat.vertx.xa.impl;
 
+import cn.mycat.vertx.xa.DeferredSetupConnection;
 import cn.mycat.vertx.xa.ImmutableCoordinatorLog;
 import cn.mycat.vertx.xa.MySQLManager;
 import cn.mycat.vertx.xa.XaLog;
@@ -56,7 +57,7 @@ public class LocalXaSqlConnection extends BaseXaSqlConnection {
             return (Future.succeededFuture());
         }
         if (localSqlConnection != null && map.isEmpty()) {
-            return localSqlConnection.query("commit;").execute()
+            return LocalSqlConnection.endTransaction(localSqlConnection, "commit;")
                     .onSuccess(event -> inTranscation = false).mapEmpty();
         }
         if (inTranscation && localSqlConnection != null) {
@@ -95,10 +96,16 @@ public class LocalXaSqlConnection extends BaseXaSqlConnection {
                 return sqlConnectionFuture.map(sqlConnection -> {
                     LocalXaSqlConnection.this.localSqlConnection = sqlConnection;
                     return sqlConnection;
-                }).compose(sqlConnection -> sqlConnection
-                        .query(getTransactionIsolation().getCmd()).execute()
-                        .mapEmpty()
-                        .flatMap(unused -> sqlConnection.query("begin;").execute().map(sqlConnection)));
+                }).compose(sqlConnection -> {
+                    if (sqlConnection instanceof DeferredSetupConnection) {
+                        ((DeferredSetupConnection) sqlConnection).deferSetup(getTransactionIsolation(), "begin;");
+                        return Future.succeededFuture(sqlConnection);
+                    }
+                    return sqlConnection
+                            .query(getTransactionIsolation().getCmd()).execute()
+                            .mapEmpty()
+                            .flatMap(unused -> sqlConnection.query("begin;").execute().map(sqlConnection));
+                });
             }
             if (this.targetName != null && this.targetName.equals(targetName)) {
                 return Future.succeededFuture(localSqlConnection);
@@ -123,8 +130,8 @@ public class LocalXaSqlConnection extends BaseXaSqlConnection {
             return Future.succeededFuture();
         }
         String curXid = this.xid;
-        return super.rollback().flatMap(unused -> localSqlConnection.query("rollback;")
-                .execute().eventually(unused1 -> {
+        return super.rollback().flatMap(unused -> LocalSqlConnection.endTransaction(localSqlConnection, "rollback;")
+                .eventually(unused1 -> {
                     SqlConnection curLocalSqlConnection = this.localSqlConnection;
                     this.localSqlConnection = null;
                     targetName = null;
@@ -164,9 +171,7 @@ public class LocalXaSqlConnection extends BaseXaSqlConnection {
     public Future<Void> close() {
         return super.close().eventually(event -> {
             if (localSqlConnection != null) {
-                return localSqlConnection
-                        .query("rollback")
-                        .execute()
+                return LocalSqlConnection.endTransaction(localSqlConnection, "rollback")
                         .flatMap(c -> localSqlConnection.close()
                                 .onComplete(event1 -> {
                                     localSqlConnection = null;